@@ -0,0 +1,85 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.IOException;
+
+/**
+ * An EReader which reads its fields through an EFieldReader rather than one
+ * byte at a time from a DataInputStream. Messages are decoded exactly as they
+ * are by EReader.
+ *
+ * It is only used by clients built on this module's EClientSocket, with
+ * setBufferedReader(true). IBSocket in sumzero-ib-common-api is built on the
+ * TWS 10.x API client and its own reader, so it doesn't use this class.
+ */
+public class EBufferedReader extends EReader {
+
+    private final EFieldReader m_fieldReader;
+
+    public EBufferedReader(EClientSocket parent, EFieldReader fieldReader) {
+        this("EReader", parent, fieldReader);
+    }
+
+    protected EBufferedReader(String name, EClientSocket parent, EFieldReader fieldReader) {
+        super(name, parent, null);
+        m_fieldReader = fieldReader;
+    }
+
+    @Override
+    protected String readStr() throws IOException {
+        return m_fieldReader.readStr();
+    }
+
+    @Override
+    boolean readBoolFromInt() throws IOException {
+        return m_fieldReader.readBoolFromInt();
+    }
+
+    @Override
+    protected int readInt() throws IOException {
+        return m_fieldReader.readInt();
+    }
+
+    @Override
+    protected int readIntMax() throws IOException {
+        return m_fieldReader.readIntMax();
+    }
+
+    @Override
+    protected long readLong() throws IOException {
+        return m_fieldReader.readLong();
+    }
+
+    @Override
+    protected double readDouble() throws IOException {
+        return m_fieldReader.readDouble();
+    }
+
+    @Override
+    protected double readDoubleMax() throws IOException {
+        return m_fieldReader.readDoubleMax();
+    }
+
+    @Override
+    protected void closeInput() throws IOException {
+        m_fieldReader.close();
+    }
+}
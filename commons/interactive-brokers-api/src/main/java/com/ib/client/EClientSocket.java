@@ -7,9 +7,11 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 
 public class EClientSocket {
 
@@ -211,13 +213,39 @@ public class EClientSocket {
     private String m_TwsTime;
     private int m_clientId;
     private boolean m_extraAuth;
+    private boolean m_bufferedReader;   // read the socket with an EBufferedReader
+    private long m_writeBatchWindowNanos; // how long to hold outbound messages, 0 to write each one
+    private EOutputBuffer m_outputBuffer; // buffers the fields of each outbound message
 
     public int serverVersion()          { return m_serverVersion;   }
     public String TwsConnectionTime()   { return m_TwsTime; }
     public AnyWrapper wrapper() 		{ return m_anyWrapper; }
     public EReader reader()             { return m_reader; }
+    public EOutputBuffer outputBuffer() { return m_outputBuffer; }
     public boolean isConnected() 		{ return m_connected; }
 
+    public boolean isBufferedReader()   { return m_bufferedReader; }
+
+    /** Set to true before connecting to read the socket through a buffered
+     *  NIO EBufferedReader rather than one byte at a time. */
+    public synchronized void setBufferedReader(boolean bufferedReader) {
+        m_bufferedReader = bufferedReader;
+    }
+
+    /** Outbound messages are always written one message per socket write. With a
+     *  window set, messages sent within the window are coalesced into a single
+     *  write, so a burst of requests becomes a few writes. */
+    public synchronized void setWriteBatchWindow(long window, TimeUnit unit) {
+        m_writeBatchWindowNanos = unit.toNanos(window);
+        if (m_outputBuffer != null) {
+            m_outputBuffer.setBatchWindow(window, unit);
+        }
+    }
+
+    public synchronized long getWriteBatchWindow(TimeUnit unit) {
+        return unit.convert(m_writeBatchWindowNanos, TimeUnit.NANOSECONDS);
+    }
+
     protected synchronized void setExtraAuth(boolean extraAuth){
         m_extraAuth = extraAuth;
     }
@@ -276,6 +304,17 @@ public class EClientSocket {
         return new EReader(socket, dis);
     }
 
+    /** Messages are assembled in an EOutputBuffer and written with a single write when flushed. */
+    protected OutputStream createOutputStream(Socket socket) throws IOException {
+        m_outputBuffer = new EOutputBuffer(socket.getOutputStream());
+        m_outputBuffer.setBatchWindow(m_writeBatchWindowNanos, TimeUnit.NANOSECONDS);
+        return m_outputBuffer;
+    }
+
+    public EReader createBufferedReader(EClientSocket socket, Socket connection) throws IOException {
+        return new EBufferedReader(socket, EFieldReader.forSocket(connection));
+    }
+
     public synchronized void eConnect(Socket socket, int clientId) throws IOException {
         m_clientId = clientId;
         eConnect(socket);
@@ -284,14 +323,20 @@ public class EClientSocket {
     public synchronized void eConnect(Socket socket) throws IOException {
 
         // create io streams
-        m_dos = new DataOutputStream( socket.getOutputStream() );
+        m_dos = new DataOutputStream( createOutputStream(socket) );
 
         // set client version
         send( CLIENT_VERSION);
+        flushMessage();
 
         // start reader thread
-        m_reader = createReader(this, new DataInputStream(
-        		socket.getInputStream()));
+        if (m_bufferedReader) {
+            m_reader = createBufferedReader(this, socket);
+        }
+        else {
+            m_reader = createReader(this, new DataInputStream(
+            		socket.getInputStream()));
+        }
 
         // check server version
         m_serverVersion = m_reader.readInt();
@@ -313,6 +358,7 @@ public class EClientSocket {
         if ( m_serverVersion >= 3 ){
             if ( m_serverVersion < MIN_SERVER_VER_LINKING) {
                 send( m_clientId);
+                flushMessage();
             }
             else if (!m_extraAuth){
                 startAPI();
@@ -337,6 +383,7 @@ public class EClientSocket {
 
         FilterOutputStream dos = m_dos;
         m_dos = null;
+        m_outputBuffer = null;
 
         EReader reader = m_reader;
         m_reader = null;
@@ -373,6 +420,7 @@ public class EClientSocket {
             send(START_API);
             send(VERSION);
             send(m_clientId);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID,
@@ -401,6 +449,7 @@ public class EClientSocket {
             send( CANCEL_SCANNER_SUBSCRIPTION);
             send( VERSION);
             send( tickerId);
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_CANSCANNER, "" + e);
@@ -426,6 +475,7 @@ public class EClientSocket {
         try {
             send(REQ_SCANNER_PARAMETERS);
             send(VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID,
@@ -494,7 +544,7 @@ public class EClientSocket {
                 }
                 send( scannerSubscriptionOptionsStr.toString());
             }
-            
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_REQSCANNER, "" + e);
@@ -630,7 +680,7 @@ public class EClientSocket {
                 }
                 send( mktDataOptionsStr.toString());
             }
-            
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_REQMKT, "" + e);
@@ -658,6 +708,7 @@ public class EClientSocket {
             send( CANCEL_HISTORICAL_DATA);
             send( VERSION);
             send( tickerId);
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_CANHISTDATA, "" + e);
@@ -685,6 +736,7 @@ public class EClientSocket {
             send( CANCEL_REAL_TIME_BARS);
             send( VERSION);
             send( tickerId);
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_CANRTBARS, "" + e);
@@ -787,7 +839,7 @@ public class EClientSocket {
               }
               send( chartOptionsStr.toString());
           }
-          
+          flushMessage();
         }
         catch (Exception e) {
           error(tickerId, EClientErrors.FAIL_SEND_REQHISTDATA, "" + e);
@@ -859,7 +911,7 @@ public class EClientSocket {
                 }
                 send( realTimeBarsOptionsStr.toString());
             }
-            
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_REQRTBARS, "" + e);
@@ -933,7 +985,7 @@ public class EClientSocket {
             	send( contract.m_secIdType);
             	send( contract.m_secId);
             }
-
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_REQCONTRACT, "" + e);
@@ -1008,7 +1060,7 @@ public class EClientSocket {
                 }
                 send( mktDepthOptionsStr.toString());
             }
-            
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_REQMKTDEPTH, "" + e);
@@ -1030,6 +1082,7 @@ public class EClientSocket {
             send( CANCEL_MKT_DATA);
             send( VERSION);
             send( tickerId);
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_CANMKT, "" + e);
@@ -1058,6 +1111,7 @@ public class EClientSocket {
             send( CANCEL_MKT_DEPTH);
             send( VERSION);
             send( tickerId);
+            flushMessage();
         }
         catch( Exception e) {
             error( tickerId, EClientErrors.FAIL_SEND_CANMKTDEPTH, "" + e);
@@ -1115,6 +1169,7 @@ public class EClientSocket {
           send(exerciseQuantity);
           send(account);
           send(override);
+          flushMessage();
       }
       catch (Exception e) {
         error(tickerId, EClientErrors.FAIL_SEND_REQMKT, "" + e);
@@ -1668,7 +1723,7 @@ public class EClientSocket {
                }
                send( orderMiscOptionsStr.toString());
            }
-           
+            flushMessage();
         }
         catch( Exception e) {
             error( id, EClientErrors.FAIL_SEND_ORDER, "" + e);
@@ -1695,6 +1750,7 @@ public class EClientSocket {
             if ( m_serverVersion >= 9 ) {
                 send( acctCode);
             }
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_ACCT, "" + e);
@@ -1732,6 +1788,7 @@ public class EClientSocket {
                 send( filter.m_exchange);
                 send( filter.m_side);
             }
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_EXEC, "" + e);
@@ -1753,6 +1810,7 @@ public class EClientSocket {
             send( CANCEL_ORDER);
             send( VERSION);
             send( id);
+            flushMessage();
         }
         catch( Exception e) {
             error( id, EClientErrors.FAIL_SEND_CORDER, "" + e);
@@ -1773,6 +1831,7 @@ public class EClientSocket {
         try {
             send( REQ_OPEN_ORDERS);
             send( VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error(EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_OORDER, "" + e);
@@ -1793,6 +1852,7 @@ public class EClientSocket {
             send( REQ_IDS);
             send( VERSION);
             send( numIds);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_CORDER, "" + e);
@@ -1813,6 +1873,7 @@ public class EClientSocket {
             send( REQ_NEWS_BULLETINS);
             send( VERSION);
             send( allMsgs);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_CORDER, "" + e);
@@ -1833,6 +1894,7 @@ public class EClientSocket {
         try {
             send( CANCEL_NEWS_BULLETINS);
             send( VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_CORDER, "" + e);
@@ -1854,6 +1916,7 @@ public class EClientSocket {
                         send( SET_SERVER_LOGLEVEL);
                         send( VERSION);
                         send( logLevel);
+                        flushMessage();
                 }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_SERVER_LOG_LEVEL, "" + e);
@@ -1875,6 +1938,7 @@ public class EClientSocket {
             send( REQ_AUTO_OPEN_ORDERS);
             send( VERSION);
             send( bAutoBind);
+            flushMessage();
         }
         catch( Exception e) {
             error(EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_OORDER, "" + e);
@@ -1895,6 +1959,7 @@ public class EClientSocket {
         try {
             send( REQ_ALL_OPEN_ORDERS);
             send( VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error(EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_OORDER, "" + e);
@@ -1915,6 +1980,7 @@ public class EClientSocket {
         try {
             send( REQ_MANAGED_ACCTS);
             send( VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error(EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_OORDER, "" + e);
@@ -1942,6 +2008,7 @@ public class EClientSocket {
             send( REQ_FA );
             send( VERSION);
             send( faDataType);
+            flushMessage();
         }
         catch( Exception e) {
             error( faDataType, EClientErrors.FAIL_SEND_FA_REQUEST, "" + e);
@@ -1970,6 +2037,7 @@ public class EClientSocket {
             send( VERSION);
             send( faDataType);
             send( xml);
+            flushMessage();
         }
         catch( Exception e) {
             error( faDataType, EClientErrors.FAIL_SEND_FA_REPLACE, "" + e);
@@ -1996,6 +2064,7 @@ public class EClientSocket {
         try {
             send( REQ_CURRENT_TIME );
             send( VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_REQCURRTIME, "" + e);
@@ -2044,6 +2113,7 @@ public class EClientSocket {
             send( contract.m_localSymbol);
 
             send( reportType);
+            flushMessage();
         }
         catch( Exception e) {
             error( reqId, EClientErrors.FAIL_SEND_REQFUNDDATA, "" + e);
@@ -2071,6 +2141,7 @@ public class EClientSocket {
             send( CANCEL_FUNDAMENTAL_DATA);
             send( VERSION);
             send( reqId);
+            flushMessage();
         }
         catch( Exception e) {
             error( reqId, EClientErrors.FAIL_SEND_CANFUNDDATA, "" + e);
@@ -2127,6 +2198,7 @@ public class EClientSocket {
 
             send( optionPrice);
             send( underPrice);
+            flushMessage();
         }
         catch( Exception e) {
             error( reqId, EClientErrors.FAIL_SEND_REQCALCIMPLIEDVOLAT, "" + e);
@@ -2155,6 +2227,7 @@ public class EClientSocket {
             send( CANCEL_CALC_IMPLIED_VOLAT);
             send( VERSION);
             send( reqId);
+            flushMessage();
         }
         catch( Exception e) {
             error( reqId, EClientErrors.FAIL_SEND_CANCALCIMPLIEDVOLAT, "" + e);
@@ -2211,6 +2284,7 @@ public class EClientSocket {
 
             send( volatility);
             send( underPrice);
+            flushMessage();
         }
         catch( Exception e) {
             error( reqId, EClientErrors.FAIL_SEND_REQCALCOPTIONPRICE, "" + e);
@@ -2239,6 +2313,7 @@ public class EClientSocket {
             send( CANCEL_CALC_OPTION_PRICE);
             send( VERSION);
             send( reqId);
+            flushMessage();
         }
         catch( Exception e) {
             error( reqId, EClientErrors.FAIL_SEND_CANCALCOPTIONPRICE, "" + e);
@@ -2265,6 +2340,7 @@ public class EClientSocket {
         try {
             send( REQ_GLOBAL_CANCEL);
             send( VERSION);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_REQGLOBALCANCEL, "" + e);
@@ -2292,6 +2368,7 @@ public class EClientSocket {
             send( REQ_MARKET_DATA_TYPE);
             send( VERSION);
             send( marketDataType);
+            flushMessage();
         }
         catch( Exception e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_REQMARKETDATATYPE, "" + e);
@@ -2321,6 +2398,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_REQPOSITIONS, "" + e);
@@ -2348,6 +2426,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_CANPOSITIONS, "" + e);
@@ -2378,6 +2457,7 @@ public class EClientSocket {
 
         try {
            m_dos.write( b.getBytes() );
+           flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_REQACCOUNTDATA, "" + e);
@@ -2406,6 +2486,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_CANACCOUNTDATA, "" + e);
@@ -2442,6 +2523,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_VERIFYREQUEST, "" + e);
@@ -2470,6 +2552,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_VERIFYMESSAGE, "" + e);
@@ -2498,6 +2581,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_QUERYDISPLAYGROUPS, "" + e);
@@ -2527,6 +2611,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_SUBSCRIBETOGROUPEVENTS, "" + e);
@@ -2556,6 +2641,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_UPDATEDISPLAYGROUP, "" + e);
@@ -2584,6 +2670,7 @@ public class EClientSocket {
 
         try {
             m_dos.write( b.getBytes() );
+            flushMessage();
         }
         catch (IOException e) {
             error( EClientErrors.NO_VALID_ID, EClientErrors.FAIL_SEND_UNSUBSCRIBEFROMGROUPEVENTS, "" + e);
@@ -2627,6 +2714,11 @@ public class EClientSocket {
         sendEOL();
     }
 
+    /** Ends the message being sent, writing it to the socket. */
+    protected void flushMessage() throws IOException {
+        m_dos.flush();
+    }
+
     private void sendEOL() throws IOException {
         m_dos.write( EOL);
     }
@@ -0,0 +1,262 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the NUL terminated fields of the TWS protocol from a channel into a
+ * direct buffer. Field terminators are found by scanning the buffer in place,
+ * and numeric fields are parsed straight from the bytes, so only string
+ * fields create objects. The buffer grows if a single field is larger than
+ * it.
+ */
+public class EFieldReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_FAST_LONG_DIGITS = 18;
+    private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final ReadableByteChannel m_channel;
+    private ByteBuffer m_buffer;
+    private byte[] m_scratch = new byte[256];
+
+    public EFieldReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public EFieldReader(ReadableByteChannel channel, int bufferSize) {
+        m_channel = channel;
+        m_buffer = ByteBuffer.allocateDirect(bufferSize);
+        m_buffer.flip();
+    }
+
+    /** Reads from the socket's channel if it has one, otherwise from its input stream. */
+    public static EFieldReader forSocket(Socket socket) throws IOException {
+        if (socket.getChannel() != null) {
+            return new EFieldReader(socket.getChannel());
+        }
+        return forStream(socket.getInputStream());
+    }
+
+    public static EFieldReader forStream(InputStream in) {
+        return new EFieldReader(Channels.newChannel(in));
+    }
+
+    /** @return the next field, or null if it is empty. */
+    public String readStr() throws IOException {
+        int end = fieldEnd();
+        int start = m_buffer.position();
+        int length = end - start;
+        m_buffer.position(end + 1);
+        if (length == 0) {
+            return null;
+        }
+        return toString(start, length);
+    }
+
+    public boolean readBoolFromInt() throws IOException {
+        return readInt() != 0;
+    }
+
+    /** @return the next field as an int, 0 if it is empty. */
+    public int readInt() throws IOException {
+        return readInt(0);
+    }
+
+    /** @return the next field as an int, Integer.MAX_VALUE if it is empty. */
+    public int readIntMax() throws IOException {
+        return readInt(Integer.MAX_VALUE);
+    }
+
+    /** @return the next field as a long, 0 if it is empty. */
+    public long readLong() throws IOException {
+        int end = fieldEnd();
+        int start = m_buffer.position();
+        m_buffer.position(end + 1);
+        if (end == start) {
+            return 0;
+        }
+        return parseLong(start, end);
+    }
+
+    /** @return the next field as a double, 0 if it is empty. */
+    public double readDouble() throws IOException {
+        return readDouble(0);
+    }
+
+    /** @return the next field as a double, Double.MAX_VALUE if it is empty. */
+    public double readDoubleMax() throws IOException {
+        return readDouble(Double.MAX_VALUE);
+    }
+
+    public void close() throws IOException {
+        m_channel.close();
+    }
+
+    private int readInt(int emptyValue) throws IOException {
+        int end = fieldEnd();
+        int start = m_buffer.position();
+        m_buffer.position(end + 1);
+        if (end == start) {
+            return emptyValue;
+        }
+        long value = parseLong(start, end);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            // same error Integer.parseInt() would have thrown
+            throw new NumberFormatException("For input string: \"" + toString(start, end - start) + "\"");
+        }
+        return (int) value;
+    }
+
+    private double readDouble(double emptyValue) throws IOException {
+        int end = fieldEnd();
+        int start = m_buffer.position();
+        m_buffer.position(end + 1);
+        if (end == start) {
+            return emptyValue;
+        }
+        return parseDouble(start, end);
+    }
+
+    private long parseLong(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        byte first = m_buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == end || end - i > MAX_FAST_LONG_DIGITS) {
+            return Long.parseLong(toString(start, end - start));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = m_buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(toString(start, end - start));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Plain decimals with up to 15 significant digits are exactly
+     * representable as mantissa / 10^n, and a single division of two exact
+     * doubles is correctly rounded, so this gives the same result as
+     * Double.parseDouble(). Anything else goes through Double.parseDouble().
+     */
+    private double parseDouble(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        byte first = m_buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            byte b = m_buffer.get(i);
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digits > MAX_FAST_DOUBLE_DIGITS) {
+                return Double.parseDouble(toString(start, end - start));
+            }
+            mantissa = mantissa * 10 + digit;
+            if (decimals >= 0) {
+                decimals++;
+            }
+        }
+        if (digits == 0) {
+            return Double.parseDouble(toString(start, end - start));
+        }
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Makes sure the whole of the next field is in the buffer.
+     *
+     * @return the index of the field's NUL terminator.
+     */
+    private int fieldEnd() throws IOException {
+        int scanFrom = m_buffer.position();
+        while (true) {
+            int limit = m_buffer.limit();
+            for (int i = scanFrom; i < limit; i++) {
+                if (m_buffer.get(i) == 0) {
+                    return i;
+                }
+            }
+            int scanned = limit - m_buffer.position();
+            fill();
+            scanFrom = m_buffer.position() + scanned;
+        }
+    }
+
+    /** Moves the unread bytes to the start of the buffer and reads more after them. */
+    private void fill() throws IOException {
+        if (m_buffer.position() == 0 && m_buffer.limit() == m_buffer.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(m_buffer.capacity() * 2);
+            bigger.put(m_buffer);
+            m_buffer = bigger;
+        } else {
+            m_buffer.compact();
+        }
+        int read;
+        do {
+            read = m_channel.read(m_buffer);
+        } while (read == 0);
+        m_buffer.flip();
+        if (read < 0) {
+            throw new EOFException();
+        }
+    }
+
+    private String toString(int start, int length) {
+        if (m_scratch.length < length) {
+            m_scratch = new byte[Math.max(length, m_scratch.length * 2)];
+        }
+        m_buffer.get(start, m_scratch, 0, length);
+        return new String(m_scratch, 0, length, StandardCharsets.ISO_8859_1);
+    }
+}
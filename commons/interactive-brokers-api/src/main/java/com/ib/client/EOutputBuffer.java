@@ -0,0 +1,177 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the fields of outbound messages in a reusable buffer, so that each
+ * message is written to the socket in a single write when it is flushed
+ * rather than one write per field.
+ *
+ * With a batch window set, flush() doesn't write straight away; the first
+ * flush starts the window and everything flushed within it goes out in one
+ * write when it closes, or as soon as the buffer holds more than the batch
+ * size. This coalesces bursts such as subscribing to hundreds of tickers at
+ * start up into a few socket writes.
+ *
+ * It is only used by this module's EClientSocket. IBSocket in
+ * sumzero-ib-common-api is built on the TWS 10.x API client, which does its
+ * own writes, so it doesn't use this class.
+ */
+public class EOutputBuffer extends OutputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    public static final int DEFAULT_BATCH_SIZE = 32 * 1024;
+
+    private static ScheduledExecutorService s_scheduler;
+
+    private final OutputStream m_out;
+    private byte[] m_buffer;
+    private int m_count;
+    private long m_batchWindowNanos;
+    private int m_batchSize = DEFAULT_BATCH_SIZE;
+    private boolean m_flushScheduled;
+    private IOException m_writeError;
+    private long m_socketWrites;
+
+    public EOutputBuffer(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public EOutputBuffer(OutputStream out, int bufferSize) {
+        m_out = out;
+        m_buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @param window how long to hold flushed messages before writing them,
+     * 0 to write every message as soon as it is flushed.
+     */
+    public synchronized void setBatchWindow(long window, TimeUnit unit) {
+        m_batchWindowNanos = unit.toNanos(window);
+    }
+
+    public synchronized long getBatchWindow(TimeUnit unit) {
+        return unit.convert(m_batchWindowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** @param batchSize the number of buffered bytes which are written without waiting for the window to close. */
+    public synchronized void setBatchSize(int batchSize) {
+        m_batchSize = batchSize;
+    }
+
+    /** @return the number of writes made to the underlying stream. */
+    public synchronized long socketWrites() {
+        return m_socketWrites;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureCapacity(m_count + 1);
+        m_buffer[m_count++] = (byte) b;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        ensureCapacity(m_count + len);
+        System.arraycopy(b, off, m_buffer, m_count, len);
+        m_count += len;
+    }
+
+    /** Marks the end of a message, writing the buffer now or when the batch window closes. */
+    @Override
+    public synchronized void flush() throws IOException {
+        checkWriteError();
+        if (m_batchWindowNanos <= 0 || m_count >= m_batchSize) {
+            writeBuffer();
+        }
+        else if (!m_flushScheduled && m_count > 0) {
+            m_flushScheduled = true;
+            scheduler().schedule(this::flushBatch, m_batchWindowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeBuffer();
+        }
+        finally {
+            m_out.close();
+        }
+    }
+
+    private synchronized void flushBatch() {
+        m_flushScheduled = false;
+        try {
+            writeBuffer();
+        }
+        catch (IOException e) {
+            // reported to the next caller of flush()
+            m_writeError = e;
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (m_count > 0) {
+            // a failed write may have sent part of the batch, so it is dropped
+            // rather than sent again with the next flush
+            int count = m_count;
+            m_count = 0;
+            m_out.write(m_buffer, 0, count);
+            m_out.flush();
+            m_socketWrites++;
+        }
+    }
+
+    private void checkWriteError() throws IOException {
+        IOException error = m_writeError;
+        if (error != null) {
+            m_writeError = null;
+            throw error;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > m_buffer.length) {
+            m_buffer = Arrays.copyOf(m_buffer, Math.max(capacity, m_buffer.length * 2));
+        }
+    }
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (s_scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "EOutputBuffer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            s_scheduler = executor;
+        }
+        return s_scheduler;
+    }
+}
@@ -84,13 +84,20 @@ public class EReader extends Thread {
         	m_parent.close();
         }
         try {
-            m_dis.close();
-            m_dis = null;
+            closeInput();
             }
             catch (IOException e) {
         }
     }
 
+    /** Overridden in subclass. */
+    protected void closeInput() throws IOException {
+        if (m_dis != null) {
+            m_dis.close();
+            m_dis = null;
+        }
+    }
+
     /** Overridden in subclass. */
     protected boolean processMsg(int msgId) throws IOException{
         if( msgId == -1) return false;
@@ -0,0 +1,139 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Subscribes 500 tickers through an EClientSocket connected to a local
+ * FakeTwsServer, and waits until the server has read every request. Compares
+ * writing each field straight to the socket, as EClientSocket used to, with
+ * one write per message and with a 1ms batch window. The number of reads the
+ * server needed per subscription burst is printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EClientSocketWriteBenchmark {
+
+    public static final int TICKERS = 500;
+
+    @Param({"unbuffered", "buffered", "batched"})
+    public String mode;
+
+    protected FakeTwsServer server;
+    protected EClientSocket socket;
+    protected Contract contract;
+    protected long bytesPerBurst;
+    protected long bursts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeTwsServer();
+        socket = mode.equals("unbuffered") ? new UnbufferedClientSocket() : new EClientSocket(TwsRecording.wrapper(null));
+        if (mode.equals("batched")) {
+            socket.setWriteBatchWindow(1, TimeUnit.MILLISECONDS);
+        }
+        socket.eConnect("127.0.0.1", server.port(), 1);
+        contract = new Contract();
+        contract.m_symbol = "AAPL";
+        contract.m_secType = "STK";
+        contract.m_exchange = "SMART";
+        contract.m_currency = "USD";
+
+        long start = awaitStable();
+        subscribe();
+        bytesPerBurst = awaitStable() - start;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(mode + ": " + (server.reads() / Math.max(bursts, 1)) + " server reads per " + TICKERS + " subscriptions");
+        socket.eDisconnect();
+        server.close();
+    }
+
+    @Benchmark
+    public long subscribeTickers() throws Exception {
+        long target = server.bytesReceived() + bytesPerBurst;
+        subscribe();
+        if (!server.awaitBytes(target, 10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Server didn't receive the requests");
+        }
+        return target;
+    }
+
+    protected void subscribe() {
+        for (int i = 0; i < TICKERS; i++) {
+            socket.reqMktData(i, contract, "", false, null);
+        }
+        bursts++;
+    }
+
+    protected long awaitStable() throws InterruptedException {
+        long bytes;
+        do {
+            bytes = server.bytesReceived();
+            Thread.sleep(100);
+        } while (bytes == 0 || bytes != server.bytesReceived());
+        return bytes;
+    }
+
+    /** Writes every field straight to the socket. */
+    protected static class UnbufferedClientSocket extends EClientSocket {
+
+        public UnbufferedClientSocket() {
+            super(TwsRecording.wrapper(null));
+        }
+
+        @Override
+        protected OutputStream createOutputStream(Socket socket) throws IOException {
+            return socket.getOutputStream();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EClientSocketWriteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EFieldReaderTest {
+
+    @Test
+    public void testReadFields() throws Exception {
+        Builder b = new Builder();
+        b.send(42);
+        b.send(-7);
+        b.send("");
+        b.send("AAPL");
+        b.send(1.3553);
+        b.send(-0.25);
+        b.send(1.0E-7);
+        b.send(Integer.MAX_VALUE);
+        b.send(Double.MAX_VALUE);
+        b.send(1);
+        b.send("9876543210123");
+        b.send("12345678901234567.5");
+
+        //a tiny buffer makes every field cross a buffer boundary
+        EFieldReader reader = newReader(b.getBytes(), 4);
+        assertEquals(42, reader.readInt());
+        assertEquals(-7, reader.readInt());
+        assertNull(reader.readStr());
+        assertEquals("AAPL", reader.readStr());
+        assertEquals(1.3553, reader.readDouble(), 0);
+        assertEquals(-0.25, reader.readDouble(), 0);
+        assertEquals(1.0E-7, reader.readDouble(), 0);
+        assertEquals(Integer.MAX_VALUE, reader.readIntMax());
+        assertEquals(Double.MAX_VALUE, reader.readDoubleMax(), 0);
+        assertTrue(reader.readBoolFromInt());
+        assertEquals(9876543210123L, reader.readLong());
+        assertEquals(12345678901234567.5, reader.readDouble(), 0);
+
+        try {
+            reader.readInt();
+            fail();
+        } catch (EOFException ex) {
+            //this should happen
+        }
+    }
+
+    @Test
+    public void testReadEmptyFields() throws Exception {
+        EFieldReader reader = newReader(new byte[]{0, 0, 0, 0, 0}, 16);
+        assertEquals(0, reader.readInt());
+        assertEquals(Integer.MAX_VALUE, reader.readIntMax());
+        assertEquals(0, reader.readDouble(), 0);
+        assertEquals(Double.MAX_VALUE, reader.readDoubleMax(), 0);
+        assertEquals(0, reader.readLong());
+    }
+
+    @Test
+    public void testReadDouble_SameAsParseDouble() throws Exception {
+        String[] values = {"0", "-0", "0.1", "0.3", "100.25", "1.7976931348623157E308", "123456789012.345",
+            "0.000000000000000000001", "4.35", "9999999999999999", "NaN", "-Infinity", "2.", ".5"};
+        Builder b = new Builder();
+        for (String value : values) {
+            b.send(value);
+        }
+        EFieldReader reader = newReader(b.getBytes(), 8);
+        for (String value : values) {
+            assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)), Double.doubleToLongBits(reader.readDouble()));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testReadInt_Overflow() throws Exception {
+        Builder b = new Builder();
+        b.send("4294967296");
+        newReader(b.getBytes(), 16).readInt();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testReadInt_NotANumber() throws Exception {
+        Builder b = new Builder();
+        b.send("12a");
+        newReader(b.getBytes(), 16).readInt();
+    }
+
+    @Test
+    public void testBufferedReader_SameCallsAsEReader() throws Exception {
+        TwsRecording recording = TwsRecording.generate(2000, 42);
+
+        List<String> expected = new ArrayList<>();
+        EReader reader = new EReader(new EClientSocket(TwsRecording.wrapper(expected)),
+                new DataInputStream(new ByteArrayInputStream(recording.bytes())));
+        replay(reader, recording.messageCount());
+
+        List<String> actual = new ArrayList<>();
+        EReader bufferedReader = new EBufferedReader(new EClientSocket(TwsRecording.wrapper(actual)),
+                new EFieldReader(Channels.newChannel(new ByteArrayInputStream(recording.bytes())), 64));
+        replay(bufferedReader, recording.messageCount());
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+
+    protected void replay(EReader reader, int messageCount) throws IOException {
+        for (int i = 0; i < messageCount; i++) {
+            assertTrue(reader.processMsg(reader.readInt()));
+        }
+    }
+
+    protected EFieldReader newReader(byte[] bytes, int bufferSize) {
+        InputStream in = new ByteArrayInputStream(bytes);
+        return new EFieldReader(Channels.newChannel(in), bufferSize);
+    }
+}
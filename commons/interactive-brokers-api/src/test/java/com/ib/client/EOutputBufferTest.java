@@ -0,0 +1,179 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EOutputBufferTest {
+
+    @Test
+    public void testOneWritePerMessage() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        EOutputBuffer buffer = new EOutputBuffer(out, 4);
+        buffer.write("1".getBytes());
+        buffer.write(0);
+        buffer.write("AAPL".getBytes());
+        buffer.write(0);
+        assertEquals(0, out.writes);
+
+        buffer.flush();
+        assertEquals(1, out.writes);
+        assertEquals(1, buffer.socketWrites());
+        assertEquals("1\0AAPL\0", out.toString());
+
+        //nothing buffered, nothing written
+        buffer.flush();
+        assertEquals(1, out.writes);
+    }
+
+    @Test
+    public void testBatchWindow() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        EOutputBuffer buffer = new EOutputBuffer(out);
+        buffer.setBatchWindow(100, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            buffer.write(("" + i).getBytes());
+            buffer.write(0);
+            buffer.flush();
+        }
+        assertEquals(0, out.writes);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (out.writes() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, out.writes());
+        assertEquals("0\0" + "1\0" + "2\0" + "3\0" + "4\0" + "5\0" + "6\0" + "7\0" + "8\0" + "9\0", out.toString());
+    }
+
+    @Test
+    public void testBatchSize_WritesWithoutWaiting() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        EOutputBuffer buffer = new EOutputBuffer(out);
+        buffer.setBatchWindow(1, TimeUnit.HOURS);
+        buffer.setBatchSize(8);
+        buffer.write("1234".getBytes());
+        buffer.flush();
+        assertEquals(0, out.writes);
+        buffer.write("5678".getBytes());
+        buffer.flush();
+        assertEquals(1, out.writes);
+
+        buffer.write("9".getBytes());
+        buffer.close();
+        assertEquals(2, out.writes);
+        assertEquals("123456789", out.toString());
+    }
+
+    @Test
+    public void testFailedWriteIsNotResent() throws Exception {
+        CountingOutputStream out = new CountingOutputStream() {
+            boolean fail = true;
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                //part of the batch reaches the socket before it fails
+                super.write(b, off, 2);
+                if (fail) {
+                    fail = false;
+                    throw new IllegalStateException("Connection reset");
+                }
+                super.write(b, off + 2, len - 2);
+            }
+        };
+        EOutputBuffer buffer = new EOutputBuffer(out);
+        buffer.write("1\0AAPL\0".getBytes());
+        try {
+            buffer.flush();
+            fail();
+        } catch (IllegalStateException ex) {
+            //this should happen
+        }
+
+        buffer.write("2\0".getBytes());
+        buffer.flush();
+        assertEquals("1\0" + "2\0", out.toString());
+    }
+
+    @Test
+    public void testEClientSocket_OneWritePerRequest() throws Exception {
+        try (FakeTwsServer server = new FakeTwsServer()) {
+            EClientSocket socket = new EClientSocket(TwsRecording.wrapper(null));
+            socket.eConnect("127.0.0.1", server.port(), 1);
+            assertTrue(socket.isConnected());
+            long writesAfterConnect = socket.outputBuffer().socketWrites();
+            long bytesAfterConnect = awaitStable(server);
+
+            Contract contract = new Contract();
+            contract.m_symbol = "AAPL";
+            contract.m_secType = "STK";
+            contract.m_exchange = "SMART";
+            contract.m_currency = "USD";
+            for (int i = 0; i < 100; i++) {
+                socket.reqMktData(i, contract, "", false, null);
+            }
+            assertEquals(writesAfterConnect + 100, socket.outputBuffer().socketWrites());
+            long bytesPerBatch = awaitStable(server) - bytesAfterConnect;
+
+            socket.setWriteBatchWindow(50, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 100; i++) {
+                socket.reqMktData(i, contract, "", false, null);
+            }
+            //the same requests again, coalesced into a single write
+            assertTrue(server.awaitBytes(bytesAfterConnect + 2 * bytesPerBatch, 5, TimeUnit.SECONDS));
+            assertEquals(writesAfterConnect + 101, socket.outputBuffer().socketWrites());
+            socket.eDisconnect();
+        }
+    }
+
+    protected long awaitStable(FakeTwsServer server) throws InterruptedException {
+        long bytes;
+        do {
+            bytes = server.bytesReceived();
+            Thread.sleep(100);
+        } while (bytes == 0 || bytes != server.bytesReceived());
+        return bytes;
+    }
+
+    protected static class CountingOutputStream extends ByteArrayOutputStream {
+
+        volatile int writes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            writes++;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            super.write(b);
+            writes++;
+        }
+
+        int writes() {
+            return writes;
+        }
+    }
+}
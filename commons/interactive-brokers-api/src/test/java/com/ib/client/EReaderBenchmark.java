@@ -0,0 +1,95 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Replays a TWS byte stream through the original byte at a time EReader and
+ * through the EBufferedReader, decoding every message and passing it to a
+ * wrapper which ignores it. Set the recording parameter to the path of a
+ * stream recorded from TWS (see TwsRecording.load()) to replay real traffic,
+ * otherwise a generated mix of market data messages is used. Run the main
+ * method to include the GC profiler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EReaderBenchmark {
+
+    @Param({""})
+    public String recording;
+
+    protected TwsRecording tws;
+    protected EClientSocket socket;
+
+    @Setup
+    public void setUp() throws IOException {
+        tws = recording.isEmpty() ? TwsRecording.generate(10000, 42) : TwsRecording.load(recording);
+        socket = new EClientSocket(TwsRecording.wrapper(null));
+    }
+
+    @Benchmark
+    public int dataInputStreamReader() throws IOException {
+        return replay(new EReader(socket, new DataInputStream(new ByteArrayInputStream(tws.bytes()))));
+    }
+
+    @Benchmark
+    public int bufferedReader() throws IOException {
+        return replay(new EBufferedReader(socket, EFieldReader.forStream(new ByteArrayInputStream(tws.bytes()))));
+    }
+
+    protected int replay(EReader reader) throws IOException {
+        int count = 0;
+        for (int i = 0; i < tws.messageCount(); i++) {
+            if (reader.processMsg(reader.readInt())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EReaderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
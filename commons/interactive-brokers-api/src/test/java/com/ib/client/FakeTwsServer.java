@@ -0,0 +1,110 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local server which accepts a single EClientSocket connection, performs
+ * the version handshake and then reads and counts everything the client sends.
+ */
+public class FakeTwsServer implements Closeable {
+
+    public static final int SERVER_VERSION = 70;
+
+    private final ServerSocket m_serverSocket;
+    private final Thread m_thread;
+    private final AtomicLong m_bytesReceived = new AtomicLong();
+    private final AtomicLong m_reads = new AtomicLong();
+    private volatile Socket m_client;
+
+    public FakeTwsServer() throws IOException {
+        m_serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        m_thread = new Thread(this::serve, "FakeTwsServer");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    public int port() {
+        return m_serverSocket.getLocalPort();
+    }
+
+    /** @return the bytes received after the client version. */
+    public long bytesReceived() {
+        return m_bytesReceived.get();
+    }
+
+    /** @return the number of reads which returned data, roughly the number of socket writes made by the client. */
+    public long reads() {
+        return m_reads.get();
+    }
+
+    /** Waits until at least the specified number of bytes have been received. */
+    public boolean awaitBytes(long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (m_bytesReceived.get() < bytes) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(0, 100000);
+        }
+        return true;
+    }
+
+    private void serve() {
+        try (Socket client = m_serverSocket.accept()) {
+            m_client = client;
+            InputStream in = client.getInputStream();
+            // client version
+            int b;
+            while ((b = in.read()) > 0) {
+            }
+            OutputStream out = client.getOutputStream();
+            out.write((SERVER_VERSION + "\0" + "20260101 00:00:00 EST\0").getBytes());
+            out.flush();
+
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                m_reads.incrementAndGet();
+                m_bytesReceived.addAndGet(read);
+            }
+        } catch (IOException ex) {
+            // closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_serverSocket.close();
+        Socket client = m_client;
+        if (client != null) {
+            client.close();
+        }
+    }
+}
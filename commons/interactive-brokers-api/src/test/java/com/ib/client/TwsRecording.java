@@ -0,0 +1,116 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.ib.client;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a TWS byte stream of market data messages as they arrive on the
+ * socket, or loads one recorded from a real connection, for replaying through
+ * the readers in tests and benchmarks.
+ */
+public class TwsRecording {
+
+    private final byte[] m_bytes;
+    private final int m_messageCount;
+
+    public TwsRecording(byte[] bytes, int messageCount) {
+        m_bytes = bytes;
+        m_messageCount = messageCount;
+    }
+
+    public byte[] bytes() {
+        return m_bytes;
+    }
+
+    public int messageCount() {
+        return m_messageCount;
+    }
+
+    /**
+     * Loads a recording of the raw bytes read from TWS. The file starts with
+     * the number of messages it contains as a NUL terminated field.
+     */
+    public static TwsRecording load(String path) throws IOException {
+        byte[] file = Files.readAllBytes(Paths.get(path));
+        int end = 0;
+        while (file[end] != 0) {
+            end++;
+        }
+        int messageCount = Integer.parseInt(new String(file, 0, end, "ISO-8859-1"));
+        return new TwsRecording(Arrays.copyOfRange(file, end + 1, file.length), messageCount);
+    }
+
+    /**
+     * Builds a mix of tick price, tick size and market depth messages for a
+     * handful of tickers, roughly the mix a depth subscription produces.
+     */
+    public static TwsRecording generate(int messageCount, long seed) {
+        Random random = new Random(seed);
+        Builder b = new Builder();
+        for (int i = 0; i < messageCount; i++) {
+            int tickerId = 1 + random.nextInt(8);
+            double price = (10000 + random.nextInt(5000)) / 100.0;
+            int choice = random.nextInt(10);
+            if (choice < 3) {
+                b.send(EReader.TICK_PRICE);
+                b.send(6);
+                b.send(tickerId);
+                b.send(1 + random.nextInt(2));
+                b.send(price);
+                b.send(100 * (1 + random.nextInt(50)));
+                b.send(1);
+            } else if (choice < 5) {
+                b.send(EReader.TICK_SIZE);
+                b.send(6);
+                b.send(tickerId);
+                b.send(random.nextInt(6));
+                b.send(100 * (1 + random.nextInt(50)));
+            } else {
+                b.send(EReader.MARKET_DEPTH);
+                b.send(1);
+                b.send(tickerId);
+                b.send(random.nextInt(10));
+                b.send(random.nextInt(3));
+                b.send(random.nextInt(2));
+                b.send(price);
+                b.send(100 * (1 + random.nextInt(50)));
+            }
+        }
+        return new TwsRecording(b.getBytes(), messageCount);
+    }
+
+    /** A wrapper which adds a description of every call to the list, or ignores them if it is null. */
+    public static EWrapper wrapper(final List<String> calls) {
+        return (EWrapper) Proxy.newProxyInstance(EWrapper.class.getClassLoader(), new Class<?>[]{EWrapper.class},
+                (proxy, method, args) -> {
+                    if (calls != null) {
+                        calls.add(method.getName() + Arrays.toString(args));
+                    }
+                    return null;
+                });
+    }
+}
@@ -29,18 +29,21 @@ import com.sumzerotrading.broker.order.TradeOrder;
 import com.sumzerotrading.data.BarData;
 import com.sumzerotrading.data.Ticker;
 import com.sumzerotrading.historicaldata.IHistoricalDataProvider;
+import com.sumzerotrading.ib.IBConnectionPool;
+import com.sumzerotrading.ib.IBConnectionStats;
 import com.sumzerotrading.ib.IBConnectionUtil;
 import com.sumzerotrading.ib.IBSocket;
 import com.sumzerotrading.ib.historical.IBHistoricalDataProvider;
 import com.sumzerotrading.marketdata.Level1QuoteListener;
 import com.sumzerotrading.marketdata.Level2QuoteListener;
-import com.sumzerotrading.marketdata.QuoteEngine;
+import com.sumzerotrading.marketdata.IQuoteEngine;
 import com.sumzerotrading.marketdata.ib.IBQuoteEngine;
 import com.sumzerotrading.realtime.bar.IRealtimeBarEngine;
 import com.sumzerotrading.realtime.bar.RealtimeBarListener;
 import com.sumzerotrading.realtime.bar.RealtimeBarRequest;
 import com.sumzerotrading.realtime.bar.ib.IBRealTimeBarEngine;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -56,7 +59,8 @@ public class InteractiveBrokersClient implements InteractiveBrokersClientInterfa
     protected int port;
     protected int clientId;
     protected IBSocket ibSocket;
-    protected QuoteEngine quoteEngine;
+    protected IQuoteEngine quoteEngine;
+    protected IBConnectionPool connectionPool;
     protected IBroker broker;
     protected IHistoricalDataProvider historicalDataProvider;
     protected IRealtimeBarEngine realtimeBarProvider;
@@ -77,6 +81,31 @@ public class InteractiveBrokersClient implements InteractiveBrokersClientInterfa
         return client;
                 
     }
+
+    /**
+     * Returns a client that spreads market data and historical requests over
+     * several connections, using the client ids firstClientId through
+     * firstClientId + connections - 1. Orders are placed through the first
+     * connection.
+     *
+     * @param host The TWS/Gateway host
+     * @param port The TWS/Gateway port
+     * @param firstClientId The client id of the first connection
+     * @param connections The number of connections to open
+     * @return The client
+     */
+    public static InteractiveBrokersClientInterface getPooledInstance(String host, int port, int firstClientId, int connections) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(host).append("-").append(port).append("-").append(firstClientId).append("-pool-").append(connections);
+
+        InteractiveBrokersClientInterface client = ibClientMap.get(sb.toString());
+        if (client == null) {
+            client = new InteractiveBrokersClient(host, port, firstClientId, IBConnectionPool.create(host, port, firstClientId, connections));
+            ibClientMap.put(sb.toString(), client);
+        }
+
+        return client;
+    }
     
     protected InteractiveBrokersClient(String host, int port, int clientId) {
         this.host = host;
@@ -90,10 +119,26 @@ public class InteractiveBrokersClient implements InteractiveBrokersClientInterfa
         realtimeBarProvider = new IBRealTimeBarEngine(quoteEngine, historicalDataProvider);
     }
 
+    protected InteractiveBrokersClient(String host, int port, int clientId, IBConnectionPool connectionPool) {
+        this.host = host;
+        this.port = port;
+        this.clientId = clientId;
+        this.connectionPool = connectionPool;
+        ibSocket = connectionPool.getConnections().get(0).getSocket();
+        quoteEngine = new PooledIBQuoteEngine(connectionPool);
+        broker = new InteractiveBrokersBroker(ibSocket);
+        historicalDataProvider = new PooledIBHistoricalDataProvider(connectionPool);
+        realtimeBarProvider = new IBRealTimeBarEngine(quoteEngine, historicalDataProvider);
+    }
+
 
     @Override
     public void connect() {
-        ibSocket.connect();
+        if (connectionPool != null) {
+            connectionPool.connect();
+        } else {
+            ibSocket.connect();
+        }
         broker.connect();
         historicalDataProvider.connect();
         quoteEngine.startEngine();
@@ -157,6 +202,14 @@ public class InteractiveBrokersClient implements InteractiveBrokersClientInterfa
     public int getClientId() {
         return clientId;
     }
+
+    /**
+     * @return Statistics for each pooled connection, or an empty list if this
+     * client uses a single connection
+     */
+    public List<IBConnectionStats> getConnectionStats() {
+        return connectionPool == null ? new ArrayList<>() : connectionPool.getStats();
+    }
     
     @Override
     public void placeOrder(TradeOrder order) {
@@ -0,0 +1,139 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.interactive.brokers.client;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.historicaldata.IHistoricalDataProvider;
+import com.sumzerotrading.ib.IBConnectionPool;
+import com.sumzerotrading.ib.IBPooledConnection;
+import com.sumzerotrading.ib.historical.IBHistoricalDataProvider;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A historical data provider that sends each request through the connection
+ * in an IBConnectionPool with the fewest historical requests in flight.
+ */
+public class PooledIBHistoricalDataProvider implements IHistoricalDataProvider {
+
+    protected final IBConnectionPool pool;
+    protected final List<IHistoricalDataProvider> providers;
+
+    public PooledIBHistoricalDataProvider(IBConnectionPool pool) {
+        this(pool, createProviders(pool));
+    }
+
+    /**
+     * @param pool The pool
+     * @param providers One provider per pool connection, in the same order
+     */
+    public PooledIBHistoricalDataProvider(IBConnectionPool pool, List<IHistoricalDataProvider> providers) {
+        if (providers.size() != pool.size()) {
+            throw new IllegalArgumentException("Expected " + pool.size() + " historical data providers but got " + providers.size());
+        }
+        this.pool = pool;
+        this.providers = new ArrayList<>(providers);
+    }
+
+    protected static List<IHistoricalDataProvider> createProviders(IBConnectionPool pool) {
+        List<IHistoricalDataProvider> providers = new ArrayList<>();
+        for (IBPooledConnection connection : pool.getConnections()) {
+            providers.add(new IBHistoricalDataProvider(connection.getSocket()));
+        }
+        return providers;
+    }
+
+    @Override
+    public void init(Properties props) {
+        for (IHistoricalDataProvider provider : providers) {
+            provider.init(props);
+        }
+    }
+
+    @Override
+    public List<BarData> requestHistoricalData(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) throws IOException {
+        IBPooledConnection connection = startRequest();
+        try {
+            return providerFor(connection).requestHistoricalData(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+        } finally {
+            connection.endHistoricalRequest();
+        }
+    }
+
+    @Override
+    public List<BarData> requestHistoricalData(Ticker ticker, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+        IBPooledConnection connection = startRequest();
+        try {
+            return providerFor(connection).requestHistoricalData(ticker, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+        } finally {
+            connection.endHistoricalRequest();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<BarData>> requestHistoricalDataAsync(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+        IBPooledConnection connection = startRequest();
+        CompletableFuture<List<BarData>> future;
+        try {
+            future = providerFor(connection).requestHistoricalDataAsync(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+        } catch (RuntimeException ex) {
+            connection.endHistoricalRequest();
+            throw ex;
+        }
+        future.whenComplete((bars, error) -> connection.endHistoricalRequest());
+        return future;
+    }
+
+    @Override
+    public boolean isConnected() {
+        for (IHistoricalDataProvider provider : providers) {
+            if (!provider.isConnected()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void connect() {
+        for (IHistoricalDataProvider provider : providers) {
+            provider.connect();
+        }
+    }
+
+    protected IBPooledConnection startRequest() {
+        //pick and claim the connection atomically so concurrent requests spread out
+        synchronized (pool) {
+            IBPooledConnection connection = pool.leastLoadedForHistoricalData();
+            connection.startHistoricalRequest();
+            return connection;
+        }
+    }
+
+    protected IHistoricalDataProvider providerFor(IBPooledConnection connection) {
+        return providers.get(pool.getConnections().indexOf(connection));
+    }
+
+}
@@ -0,0 +1,273 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.interactive.brokers.client;
+
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.ib.IBConnectionPool;
+import com.sumzerotrading.ib.IBPooledConnection;
+import com.sumzerotrading.marketdata.ErrorListener;
+import com.sumzerotrading.marketdata.ILevel1Quote;
+import com.sumzerotrading.marketdata.ILevel2Quote;
+import com.sumzerotrading.marketdata.IQuoteEngine;
+import com.sumzerotrading.marketdata.Level1DeliveryMode;
+import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.Level2QuoteListener;
+import com.sumzerotrading.marketdata.MarketDepthRequest;
+import com.sumzerotrading.marketdata.QuoteError;
+import com.sumzerotrading.marketdata.ib.IBQuoteEngine;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A quote engine that spreads subscriptions over the connections in an
+ * IBConnectionPool. The first subscription to a ticker is placed on the
+ * connection with the fewest market data lines, and every later subscription
+ * to that ticker shares the same connection until the last listener leaves.
+ */
+public class PooledIBQuoteEngine implements IQuoteEngine {
+
+    protected final IBConnectionPool pool;
+    protected final List<IQuoteEngine> engines;
+    protected final Map<Ticker, Assignment> level1Assignments = new HashMap<>();
+    protected final Map<Ticker, Assignment> depthAssignments = new HashMap<>();
+
+    public PooledIBQuoteEngine(IBConnectionPool pool) {
+        this(pool, createEngines(pool));
+    }
+
+    /**
+     * @param pool The pool
+     * @param engines One quote engine per pool connection, in the same order
+     */
+    public PooledIBQuoteEngine(IBConnectionPool pool, List<IQuoteEngine> engines) {
+        if (engines.size() != pool.size()) {
+            throw new IllegalArgumentException("Expected " + pool.size() + " quote engines but got " + engines.size());
+        }
+        this.pool = pool;
+        this.engines = new ArrayList<>(engines);
+    }
+
+    protected static List<IQuoteEngine> createEngines(IBConnectionPool pool) {
+        List<IQuoteEngine> engines = new ArrayList<>();
+        for (IBPooledConnection connection : pool.getConnections()) {
+            engines.add(new IBQuoteEngine(connection.getSocket()));
+        }
+        return engines;
+    }
+
+    @Override
+    public void subscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+        assign(level1Assignments, ticker).subscribeLevel1(ticker, listener);
+    }
+
+    @Override
+    public void subscribeLevel1(Ticker ticker, Level1QuoteListener listener, Level1DeliveryMode deliveryMode) {
+        assign(level1Assignments, ticker).subscribeLevel1(ticker, listener, deliveryMode);
+    }
+
+    @Override
+    public void unsubscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+        IQuoteEngine engine = release(level1Assignments, ticker);
+        if (engine != null) {
+            engine.unsubscribeLevel1(ticker, listener);
+        }
+    }
+
+    @Override
+    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        assign(depthAssignments, ticker).subscribeMarketDepth(ticker, listener);
+    }
+
+    @Override
+    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener, MarketDepthRequest request) {
+        assign(depthAssignments, ticker).subscribeMarketDepth(ticker, listener, request);
+    }
+
+    @Override
+    public void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        IQuoteEngine engine = release(depthAssignments, ticker);
+        if (engine != null) {
+            engine.unsubscribeMarketDepth(ticker, listener);
+        }
+    }
+
+    @Override
+    public ILevel1Quote getSnapshot(Ticker ticker) {
+        IQuoteEngine engine = getLevel1Engine(ticker);
+        return engine == null ? null : engine.getSnapshot(ticker);
+    }
+
+    @Override
+    public long getConflatedLevel1Count() {
+        long count = 0;
+        for (IQuoteEngine engine : engines) {
+            count += engine.getConflatedLevel1Count();
+        }
+        return count;
+    }
+
+    @Override
+    public void startEngine() {
+        for (IQuoteEngine engine : engines) {
+            engine.startEngine();
+        }
+    }
+
+    @Override
+    public void startEngine(Properties props) {
+        for (IQuoteEngine engine : engines) {
+            engine.startEngine(props);
+        }
+    }
+
+    @Override
+    public void stopEngine() {
+        for (IQuoteEngine engine : engines) {
+            engine.stopEngine();
+        }
+    }
+
+    @Override
+    public Date getServerTime() {
+        return engines.get(0).getServerTime();
+    }
+
+    @Override
+    public void addErrorListener(ErrorListener listener) {
+        for (IQuoteEngine engine : engines) {
+            engine.addErrorListener(listener);
+        }
+    }
+
+    @Override
+    public void removeErrorListener(ErrorListener listener) {
+        for (IQuoteEngine engine : engines) {
+            engine.removeErrorListener(listener);
+        }
+    }
+
+    @Override
+    public boolean started() {
+        for (IQuoteEngine engine : engines) {
+            if (!engine.started()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isConnected() {
+        for (IQuoteEngine engine : engines) {
+            if (!engine.isConnected()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void fireLevel1Quote(ILevel1Quote quote) {
+        IQuoteEngine engine = getLevel1Engine(quote.getTicker());
+        if (engine != null) {
+            engine.fireLevel1Quote(quote);
+        }
+    }
+
+    @Override
+    public void fireMarketDepthQuote(ILevel2Quote quote) {
+        IQuoteEngine engine;
+        synchronized (this) {
+            Assignment assignment = depthAssignments.get(quote.getTicker());
+            engine = assignment == null ? null : engines.get(assignment.index);
+        }
+        if (engine != null) {
+            engine.fireMarketDepthQuote(quote);
+        }
+    }
+
+    @Override
+    public void fireErrorEvent(QuoteError error) {
+        for (IQuoteEngine engine : engines) {
+            engine.fireErrorEvent(error);
+        }
+    }
+
+    @Override
+    public void useDelayedData(boolean useDelayed) {
+        for (IQuoteEngine engine : engines) {
+            engine.useDelayedData(useDelayed);
+        }
+    }
+
+    /**
+     * @param ticker The ticker
+     * @return The client id of the connection the ticker's level 1 data is
+     * subscribed through, or -1 if it is not subscribed
+     */
+    public synchronized int getLevel1ClientId(Ticker ticker) {
+        Assignment assignment = level1Assignments.get(ticker);
+        return assignment == null ? -1 : pool.getConnections().get(assignment.index).getClientId();
+    }
+
+    protected synchronized IQuoteEngine getLevel1Engine(Ticker ticker) {
+        Assignment assignment = level1Assignments.get(ticker);
+        return assignment == null ? null : engines.get(assignment.index);
+    }
+
+    protected synchronized IQuoteEngine assign(Map<Ticker, Assignment> assignments, Ticker ticker) {
+        Assignment assignment = assignments.get(ticker);
+        if (assignment == null) {
+            IBPooledConnection connection = pool.leastLoadedForMarketData();
+            connection.addMarketDataLine();
+            assignment = new Assignment(pool.getConnections().indexOf(connection));
+            assignments.put(ticker, assignment);
+        }
+        assignment.listeners++;
+        return engines.get(assignment.index);
+    }
+
+    protected synchronized IQuoteEngine release(Map<Ticker, Assignment> assignments, Ticker ticker) {
+        Assignment assignment = assignments.get(ticker);
+        if (assignment == null) {
+            return null;
+        }
+        if (--assignment.listeners == 0) {
+            assignments.remove(ticker);
+            pool.getConnections().get(assignment.index).removeMarketDataLine();
+        }
+        return engines.get(assignment.index);
+    }
+
+    protected static class Assignment {
+
+        protected final int index;
+        protected int listeners = 0;
+
+        protected Assignment(int index) {
+            this.index = index;
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.interactive.brokers.client;
+
+import com.ib.client.EClientSocket;
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.ib.ContractBuilderFactory;
+import com.sumzerotrading.ib.IBConnectionInterface;
+import com.sumzerotrading.ib.IBConnectionPool;
+import com.sumzerotrading.ib.IBSocket;
+import com.sumzerotrading.marketdata.IQuoteEngine;
+import com.sumzerotrading.marketdata.Level1QuoteListener;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PooledIBQuoteEngineTest {
+
+    protected IBConnectionPool pool;
+    protected IQuoteEngine engine1;
+    protected IQuoteEngine engine2;
+    protected PooledIBQuoteEngine quoteEngine;
+
+    @Before
+    public void setUp() {
+        IBSocket socket1 = mock(IBSocket.class);
+        IBSocket socket2 = mock(IBSocket.class);
+        when(socket1.getClientId()).thenReturn(1);
+        when(socket2.getClientId()).thenReturn(2);
+        pool = new IBConnectionPool(Arrays.asList(socket1, socket2));
+        engine1 = mock(IQuoteEngine.class);
+        engine2 = mock(IQuoteEngine.class);
+        quoteEngine = new PooledIBQuoteEngine(pool, Arrays.asList(engine1, engine2));
+    }
+
+    @Test
+    public void testSubscriptionsAreSpreadAcrossConnections() {
+        Ticker ticker1 = mock(Ticker.class);
+        Ticker ticker2 = mock(Ticker.class);
+        Level1QuoteListener listener = mock(Level1QuoteListener.class);
+
+        quoteEngine.subscribeLevel1(ticker1, listener);
+        quoteEngine.subscribeLevel1(ticker2, listener);
+
+        verify(engine1).subscribeLevel1(ticker1, listener);
+        verify(engine2).subscribeLevel1(ticker2, listener);
+        assertEquals(1, quoteEngine.getLevel1ClientId(ticker1));
+        assertEquals(2, quoteEngine.getLevel1ClientId(ticker2));
+        assertEquals(1, pool.getConnections().get(0).getMarketDataLines());
+        assertEquals(1, pool.getConnections().get(1).getMarketDataLines());
+    }
+
+    @Test
+    public void testSameTickerStaysOnOneConnection() {
+        Ticker ticker = mock(Ticker.class);
+        Level1QuoteListener listener1 = mock(Level1QuoteListener.class);
+        Level1QuoteListener listener2 = mock(Level1QuoteListener.class);
+
+        quoteEngine.subscribeLevel1(ticker, listener1);
+        quoteEngine.subscribeLevel1(ticker, listener2);
+
+        verify(engine1).subscribeLevel1(ticker, listener2);
+        verify(engine2, never()).subscribeLevel1(ticker, listener2);
+        assertEquals(1, pool.getConnections().get(0).getMarketDataLines());
+
+        quoteEngine.unsubscribeLevel1(ticker, listener1);
+        assertEquals(1, pool.getConnections().get(0).getMarketDataLines());
+        quoteEngine.unsubscribeLevel1(ticker, listener2);
+        assertEquals(0, pool.getConnections().get(0).getMarketDataLines());
+        assertEquals(-1, quoteEngine.getLevel1ClientId(ticker));
+        verify(engine1).unsubscribeLevel1(ticker, listener2);
+    }
+
+    @Test
+    public void testCreatesAnIBQuoteEnginePerConnection() {
+        EClientSocket clientSocket1 = mock(EClientSocket.class);
+        EClientSocket clientSocket2 = mock(EClientSocket.class);
+        IBSocket socket1 = new IBSocket(mock(IBConnectionInterface.class), clientSocket1);
+        IBSocket socket2 = new IBSocket(mock(IBConnectionInterface.class), clientSocket2);
+        IBConnectionPool socketPool = new IBConnectionPool(Arrays.asList(socket1, socket2));
+        PooledIBQuoteEngine pooledEngine = new PooledIBQuoteEngine(socketPool);
+        Ticker ticker1 = new StockTicker("ABC");
+        Ticker ticker2 = new StockTicker("XYZ");
+        Level1QuoteListener listener = mock(Level1QuoteListener.class);
+
+        pooledEngine.subscribeLevel1(ticker1, listener);
+        pooledEngine.subscribeLevel1(ticker2, listener);
+        socket1.getRequestScheduler().runPending();
+        socket2.getRequestScheduler().runPending();
+
+        verify(clientSocket1).reqMktData(100001, ContractBuilderFactory.getContractBuilder(ticker1).buildContract(ticker1), "", false, false, null);
+        verify(clientSocket2).reqMktData(100001, ContractBuilderFactory.getContractBuilder(ticker2).buildContract(ticker2), "", false, false, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEngineCountMustMatchPool() {
+        new PooledIBQuoteEngine(pool, Arrays.asList(engine1));
+    }
+
+}
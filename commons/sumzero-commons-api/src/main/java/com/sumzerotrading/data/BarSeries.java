@@ -0,0 +1,407 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * A time series of bars held as parallel primitive columns: epoch millis
+ * timestamps, open, high, low, close and volume as doubles, and open interest
+ * as longs.  Index 0 is the oldest bar.
+ * <p>
+ * Appending is amortized O(1).  A series created with rolling(capacity) keeps
+ * only the most recent bars in a ring buffer, so appending to a full series
+ * drops the oldest bar instead of growing.  The column views returned by
+ * getCloseColumn() etc. read the live columns without copying, so indicator
+ * code can scan a series without allocating.
+ * <p>
+ * A series is not thread safe; it is meant to be written by one thread, such
+ * as the thread building bars, and read by the same thread.
+ */
+public class BarSeries {
+
+    public static final int OPEN = 0;
+    public static final int HIGH = 1;
+    public static final int LOW = 2;
+    public static final int CLOSE = 3;
+    public static final int VOLUME = 4;
+    protected static final int DEFAULT_CAPACITY = 64;
+
+    protected long[] timestamps;
+    protected double[][] columns;
+    protected long[] openInterest;
+    protected final boolean rolling;
+    protected int head = 0;
+    protected int size = 0;
+    protected final DoubleColumn[] views = new DoubleColumn[5];
+    protected final LongColumn timestampView = new LongColumn(false);
+    protected final LongColumn openInterestView = new LongColumn(true);
+
+    public BarSeries() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * @param initialCapacity The number of bars to allocate room for
+     */
+    public BarSeries(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    protected BarSeries(int capacity, boolean rolling) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.rolling = rolling;
+        timestamps = new long[capacity];
+        columns = new double[5][capacity];
+        openInterest = new long[capacity];
+        for (int column = 0; column < views.length; column++) {
+            views[column] = new DoubleColumn(column);
+        }
+    }
+
+    /**
+     * Creates a series that keeps only the most recent bars.
+     *
+     * @param capacity The number of bars to keep
+     * @return An empty rolling series
+     */
+    public static BarSeries rolling(int capacity) {
+        return new BarSeries(capacity, true);
+    }
+
+    /**
+     * Reads every bar in a columnar bar file.
+     *
+     * @param file The file to read
+     * @return A series holding the file's bars
+     */
+    public static BarSeries from(ColumnarBarFile file) {
+        BarSeries series = new BarSeries(Math.max(file.size(), 1));
+        int size = file.size();
+        System.arraycopy(file.getTimestamps(), 0, series.timestamps, 0, size);
+        System.arraycopy(file.getOpenData(), 0, series.columns[OPEN], 0, size);
+        System.arraycopy(file.getHighData(), 0, series.columns[HIGH], 0, size);
+        System.arraycopy(file.getLowData(), 0, series.columns[LOW], 0, size);
+        System.arraycopy(file.getCloseData(), 0, series.columns[CLOSE], 0, size);
+        System.arraycopy(file.getVolumeData(), 0, series.columns[VOLUME], 0, size);
+        System.arraycopy(file.getColumn(ColumnarBarFile.OPEN_INTEREST), 0, series.openInterest, 0, size);
+        series.size = size;
+        return series;
+    }
+
+    /**
+     * Appends a bar, which should be newer than the last bar in the series.
+     *
+     * @param timestamp The bar time as epoch millis
+     */
+    public void append(long timestamp, double open, double high, double low, double close, double volume, long openInterest) {
+        int index;
+        if (size < timestamps.length) {
+            index = physicalIndex(size);
+            size++;
+        } else if (rolling) {
+            index = head;
+            head = head + 1 == timestamps.length ? 0 : head + 1;
+        } else {
+            grow();
+            index = size++;
+        }
+        timestamps[index] = timestamp;
+        columns[OPEN][index] = open;
+        columns[HIGH][index] = high;
+        columns[LOW][index] = low;
+        columns[CLOSE][index] = close;
+        columns[VOLUME][index] = volume;
+        this.openInterest[index] = openInterest;
+    }
+
+    public void append(long timestamp, double open, double high, double low, double close, double volume) {
+        append(timestamp, open, high, low, close, volume, 0);
+    }
+
+    /**
+     * Appends a bar.  Its LocalDateTime is treated as UTC, as in ColumnarBarFile.
+     *
+     * @param bar The bar to append
+     */
+    public void append(BarData bar) {
+        append(bar.getDateTime().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                bar.getOpen().doubleValue(),
+                bar.getHigh().doubleValue(),
+                bar.getLow().doubleValue(),
+                bar.getClose().doubleValue(),
+                bar.getVolume() == null ? 0 : bar.getVolume().doubleValue(),
+                bar.getOpenInterest());
+    }
+
+    /**
+     * Updates the most recent bar as a new trade arrives.
+     *
+     * @param price The trade price, which becomes the close and may extend the high or low
+     * @param volume The volume to add
+     */
+    public void updateLast(double price, double volume) {
+        if (size == 0) {
+            throw new IllegalStateException("The series is empty");
+        }
+        int index = physicalIndex(size - 1);
+        columns[HIGH][index] = Math.max(columns[HIGH][index], price);
+        columns[LOW][index] = Math.min(columns[LOW][index], price);
+        columns[CLOSE][index] = price;
+        columns[VOLUME][index] += volume;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isRolling() {
+        return rolling;
+    }
+
+    /**
+     * @return The number of bars that fit before the series grows (or, when
+     * rolling, starts dropping bars)
+     */
+    public int getCapacity() {
+        return timestamps.length;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[checkedIndex(index)];
+    }
+
+    public double getOpen(int index) {
+        return columns[OPEN][checkedIndex(index)];
+    }
+
+    public double getHigh(int index) {
+        return columns[HIGH][checkedIndex(index)];
+    }
+
+    public double getLow(int index) {
+        return columns[LOW][checkedIndex(index)];
+    }
+
+    public double getClose(int index) {
+        return columns[CLOSE][checkedIndex(index)];
+    }
+
+    public double getVolume(int index) {
+        return columns[VOLUME][checkedIndex(index)];
+    }
+
+    public long getOpenInterest(int index) {
+        return openInterest[checkedIndex(index)];
+    }
+
+    public LongColumn getTimestampColumn() {
+        return timestampView;
+    }
+
+    public DoubleColumn getOpenColumn() {
+        return views[OPEN];
+    }
+
+    public DoubleColumn getHighColumn() {
+        return views[HIGH];
+    }
+
+    public DoubleColumn getLowColumn() {
+        return views[LOW];
+    }
+
+    public DoubleColumn getCloseColumn() {
+        return views[CLOSE];
+    }
+
+    public DoubleColumn getVolumeColumn() {
+        return views[VOLUME];
+    }
+
+    public LongColumn getOpenInterestColumn() {
+        return openInterestView;
+    }
+
+    /**
+     * @param column One of OPEN, HIGH, LOW, CLOSE or VOLUME
+     * @return A view of the column
+     */
+    public DoubleColumn getColumn(int column) {
+        return views[column];
+    }
+
+    /**
+     * Gets the open data with the oldest data at the beginning of the array,
+     * as MarketData does.
+     *
+     * @return A copy of the open column
+     */
+    public double[] getOpenData() {
+        return views[OPEN].toArray();
+    }
+
+    public double[] getHighData() {
+        return views[HIGH].toArray();
+    }
+
+    public double[] getLowData() {
+        return views[LOW].toArray();
+    }
+
+    public double[] getCloseData() {
+        return views[CLOSE].toArray();
+    }
+
+    public double[] getVolumeData() {
+        return views[VOLUME].toArray();
+    }
+
+    /**
+     * Builds a BarData for one bar, for code that still needs objects.
+     *
+     * @param index The bar, 0 being the oldest
+     * @return A new BarData
+     */
+    public BarData getBar(int index) {
+        int i = checkedIndex(index);
+        long millis = timestamps[i];
+        LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+        return new BarData(time, BigDecimal.valueOf(columns[OPEN][i]), BigDecimal.valueOf(columns[HIGH][i]),
+                BigDecimal.valueOf(columns[LOW][i]), BigDecimal.valueOf(columns[CLOSE][i]),
+                BigDecimal.valueOf(columns[VOLUME][i]), openInterest[i]);
+    }
+
+    protected int checkedIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return physicalIndex(index);
+    }
+
+    protected int physicalIndex(int index) {
+        int physical = head + index;
+        return physical >= timestamps.length ? physical - timestamps.length : physical;
+    }
+
+    protected void grow() {
+        int capacity = timestamps.length + (timestamps.length >> 1) + 1;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = Arrays.copyOf(columns[column], capacity);
+        }
+        openInterest = Arrays.copyOf(openInterest, capacity);
+    }
+
+    /**
+     * A read-only, zero-copy view of a double column.  Index 0 is the oldest
+     * bar; the view always reflects the current contents of the series.
+     */
+    public final class DoubleColumn {
+
+        protected final int column;
+
+        protected DoubleColumn(int column) {
+            this.column = column;
+        }
+
+        public double get(int index) {
+            return columns[column][checkedIndex(index)];
+        }
+
+        /**
+         * @return The most recent value
+         */
+        public double getLast() {
+            return get(size - 1);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Copies the column into an array.
+         *
+         * @param destination The array to copy into
+         * @param destinationIndex Where the oldest value goes
+         */
+        public void copyTo(double[] destination, int destinationIndex) {
+            double[] values = columns[column];
+            int firstPart = Math.min(size, values.length - head);
+            System.arraycopy(values, head, destination, destinationIndex, firstPart);
+            System.arraycopy(values, 0, destination, destinationIndex + firstPart, size - firstPart);
+        }
+
+        public double[] toArray() {
+            double[] copy = new double[size];
+            copyTo(copy, 0);
+            return copy;
+        }
+    }
+
+    /**
+     * A read-only, zero-copy view of the timestamp or open interest column.
+     */
+    public final class LongColumn {
+
+        protected final boolean isOpenInterest;
+
+        protected LongColumn(boolean isOpenInterest) {
+            this.isOpenInterest = isOpenInterest;
+        }
+
+        public long get(int index) {
+            return (isOpenInterest ? openInterest : timestamps)[checkedIndex(index)];
+        }
+
+        public long getLast() {
+            return get(size - 1);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long[] toArray() {
+            long[] values = isOpenInterest ? openInterest : timestamps;
+            long[] copy = new long[size];
+            int firstPart = Math.min(size, values.length - head);
+            System.arraycopy(values, head, copy, 0, firstPart);
+            System.arraycopy(values, 0, copy, firstPart, size - firstPart);
+            return copy;
+        }
+    }
+
+}
@@ -0,0 +1,353 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.data;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * A compact, columnar file of bars for one ticker and bar size.
+ * <p>
+ * Each column (time, open, high, low, close, volume and open interest) is
+ * stored as longs: times as epoch millis, prices and volume as unscaled values
+ * at a fixed scale for the file.  Every value is written as the zig-zag varint
+ * of its difference from the previous value in the column, so a minute bar
+ * usually takes one to three bytes per column.
+ * <p>
+ * Files are read through a memory-mapped buffer and columns are decoded
+ * straight into primitive arrays, so the get*Data() accessors create no
+ * per-bar objects.  Bar times are LocalDateTimes, which are stored as if they
+ * were UTC.
+ *
+ * <pre>
+ * int magic, int version, int barCount, int priceScale, int volumeScale,
+ * int[7] column byte lengths, followed by the seven column blocks
+ * </pre>
+ */
+public class ColumnarBarFile {
+
+    public static final String FILE_EXTENSION = ".zbar";
+    public static final int TIME = 0;
+    public static final int OPEN = 1;
+    public static final int HIGH = 2;
+    public static final int LOW = 3;
+    public static final int CLOSE = 4;
+    public static final int VOLUME = 5;
+    public static final int OPEN_INTEREST = 6;
+    protected static final int COLUMN_COUNT = 7;
+    protected static final int MAGIC = 0x535a4243;
+    protected static final int VERSION = 1;
+    protected static final int HEADER_BYTES = 4 * (5 + COLUMN_COUNT);
+
+    protected final ByteBuffer buffer;
+    protected final int size;
+    protected final int priceScale;
+    protected final int volumeScale;
+    protected final int[] columnOffsets = new int[COLUMN_COUNT];
+    protected final int[] columnLengths = new int[COLUMN_COUNT];
+
+    protected ColumnarBarFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a columnar bar file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported columnar bar file version: " + buffer.getInt(4));
+        }
+        size = buffer.getInt(8);
+        priceScale = buffer.getInt(12);
+        volumeScale = buffer.getInt(16);
+        int offset = HEADER_BYTES;
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            columnOffsets[column] = offset;
+            columnLengths[column] = buffer.getInt(20 + 4 * column);
+            offset += columnLengths[column];
+        }
+        if (offset > buffer.capacity()) {
+            throw new IOException("Columnar bar file is truncated");
+        }
+    }
+
+    /**
+     * Memory-maps a file written by one of the write methods.
+     *
+     * @param file The file to open
+     * @return The file's columns
+     * @throws IOException If the file can't be read or isn't a columnar bar file
+     */
+    public static ColumnarBarFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ColumnarBarFile(buffer);
+        }
+    }
+
+    /**
+     * @param ticker The ticker the bars are for
+     * @param barSize The size of the bars
+     * @param barSizeUnit The unit of the bar size
+     * @return The name of the file holding the ticker's bars at the bar size
+     */
+    public static String getFileName(Ticker ticker, int barSize, BarData.LengthUnit barSizeUnit) {
+        String name = ticker.getInstrumentType() + "_" + ticker.getSymbol() + "_" + barSize + barSizeUnit;
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_EXTENSION;
+    }
+
+    /**
+     * Writes bars, which must be in time order.  The price and volume scales
+     * are the most decimal places used by any of the bars.
+     *
+     * @param file The file to write
+     * @param bars The bars to write
+     * @throws IOException If the file can't be written
+     */
+    public static void write(Path file, List<BarData> bars) throws IOException {
+        int priceScale = 0;
+        int volumeScale = 0;
+        for (BarData bar : bars) {
+            priceScale = Math.max(priceScale, scaleOf(bar.getOpen()));
+            priceScale = Math.max(priceScale, scaleOf(bar.getHigh()));
+            priceScale = Math.max(priceScale, scaleOf(bar.getLow()));
+            priceScale = Math.max(priceScale, scaleOf(bar.getClose()));
+            volumeScale = Math.max(volumeScale, scaleOf(bar.getVolume()));
+        }
+        write(file, bars, priceScale, volumeScale);
+    }
+
+    /**
+     * Writes bars, which must be in time order, rounding prices and volume
+     * half up to the scales.
+     *
+     * @param file The file to write
+     * @param bars The bars to write
+     * @param priceScale The number of decimal places to keep for prices
+     * @param volumeScale The number of decimal places to keep for volume
+     * @throws IOException If the file can't be written
+     */
+    public static void write(Path file, List<BarData> bars, int priceScale, int volumeScale) throws IOException {
+        long[][] columns = new long[COLUMN_COUNT][bars.size()];
+        for (int i = 0; i < bars.size(); i++) {
+            BarData bar = bars.get(i);
+            columns[TIME][i] = toEpochMillis(bar.getDateTime());
+            columns[OPEN][i] = toScaled(bar.getOpen(), priceScale);
+            columns[HIGH][i] = toScaled(bar.getHigh(), priceScale);
+            columns[LOW][i] = toScaled(bar.getLow(), priceScale);
+            columns[CLOSE][i] = toScaled(bar.getClose(), priceScale);
+            columns[VOLUME][i] = toScaled(bar.getVolume(), volumeScale);
+            columns[OPEN_INTEREST][i] = bar.getOpenInterest();
+        }
+        write(file, bars.size(), columns, priceScale, volumeScale);
+    }
+
+    /**
+     * Writes bars that are already held as columns.
+     *
+     * @param file The file to write
+     * @param size The number of bars; each column must hold at least this many values
+     * @param columns The columns, indexed by TIME, OPEN, HIGH, LOW, CLOSE, VOLUME and OPEN_INTEREST
+     * @param priceScale The scale of the price columns
+     * @param volumeScale The scale of the volume column
+     * @throws IOException If the file can't be written
+     */
+    public static void write(Path file, int size, long[][] columns, int priceScale, int volumeScale) throws IOException {
+        if (columns.length != COLUMN_COUNT) {
+            throw new IllegalArgumentException("Expected " + COLUMN_COUNT + " columns but got " + columns.length);
+        }
+        ByteBuffer[] encoded = new ByteBuffer[COLUMN_COUNT];
+        int total = HEADER_BYTES;
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            encoded[column] = encode(columns[column], size);
+            total += encoded[column].remaining();
+        }
+        ByteBuffer out = ByteBuffer.allocate(total);
+        out.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(priceScale).putInt(volumeScale);
+        for (ByteBuffer column : encoded) {
+            out.putInt(column.remaining());
+        }
+        for (ByteBuffer column : encoded) {
+            out.put(column);
+        }
+        out.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+
+    /**
+     * Decodes a column into a new array.
+     *
+     * @param column One of TIME, OPEN, HIGH, LOW, CLOSE, VOLUME or OPEN_INTEREST
+     * @return The column's raw values: epoch millis, unscaled prices or volume, or open interest
+     */
+    public long[] getColumn(int column) {
+        long[] values = new long[size];
+        int position = columnOffsets[column];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                raw |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += (raw >>> 1) ^ -(raw & 1);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    /**
+     * @return The bar times as epoch millis
+     */
+    public long[] getTimestamps() {
+        return getColumn(TIME);
+    }
+
+    public double[] getOpenData() {
+        return toDoubles(getColumn(OPEN), priceScale);
+    }
+
+    public double[] getHighData() {
+        return toDoubles(getColumn(HIGH), priceScale);
+    }
+
+    public double[] getLowData() {
+        return toDoubles(getColumn(LOW), priceScale);
+    }
+
+    public double[] getCloseData() {
+        return toDoubles(getColumn(CLOSE), priceScale);
+    }
+
+    public double[] getVolumeData() {
+        return toDoubles(getColumn(VOLUME), volumeScale);
+    }
+
+    public double[] getOpenInterestData() {
+        return toDoubles(getColumn(OPEN_INTEREST), 0);
+    }
+
+    /**
+     * Builds BarData objects for every bar.  Prefer the column accessors for
+     * large files; this creates several objects per bar.
+     *
+     * @return The bars in time order
+     */
+    public BarData[] getBars() {
+        long[][] columns = new long[COLUMN_COUNT][];
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            columns[column] = getColumn(column);
+        }
+        BarData[] bars = new BarData[size];
+        for (int i = 0; i < size; i++) {
+            bars[i] = new BarData(LocalDateTime.ofEpochSecond(Math.floorDiv(columns[TIME][i], 1000), (int) Math.floorMod(columns[TIME][i], 1000) * 1_000_000, ZoneOffset.UTC),
+                    BigDecimal.valueOf(columns[OPEN][i], priceScale),
+                    BigDecimal.valueOf(columns[HIGH][i], priceScale),
+                    BigDecimal.valueOf(columns[LOW][i], priceScale),
+                    BigDecimal.valueOf(columns[CLOSE][i], priceScale),
+                    BigDecimal.valueOf(columns[VOLUME][i], volumeScale),
+                    columns[OPEN_INTEREST][i]);
+        }
+        return bars;
+    }
+
+    protected static ByteBuffer encode(long[] values, int size) {
+        //a zig-zag varint is at most 10 bytes
+        ByteBuffer out = ByteBuffer.allocate(size * 10);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long delta = values[i] - previous;
+            previous = values[i];
+            long zigZag = (delta << 1) ^ (delta >> 63);
+            while ((zigZag & ~0x7fL) != 0) {
+                out.put((byte) ((zigZag & 0x7f) | 0x80));
+                zigZag >>>= 7;
+            }
+            out.put((byte) zigZag);
+        }
+        out.flip();
+        return out;
+    }
+
+    protected static double[] toDoubles(long[] values, int scale) {
+        double divisor = Math.pow(10, scale);
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i] / divisor;
+        }
+        return doubles;
+    }
+
+    protected static long toScaled(BigDecimal value, int scale) {
+        if (value == null) {
+            throw new IllegalArgumentException("Bars must not have null prices or volume");
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    protected static int scaleOf(BigDecimal value) {
+        if (value == null || value.signum() == 0) {
+            return 0;
+        }
+        return Math.max(0, value.stripTrailingZeros().scale());
+    }
+
+    protected static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+}
@@ -79,6 +79,21 @@ public class MarketData {
     
   
     
+    /**
+     * Copies the bars into a BarSeries, whose columns can be scanned without
+     * copying or converting BigDecimals on every call.
+     * @return A new series holding the bars, oldest first.
+     */
+    public BarSeries toBarSeries() {
+        BarData[] bars = getBars();
+        BarSeries series = new BarSeries(Math.max(bars.length, 1));
+        for (BarData bar : bars) {
+            series.append(bar);
+        }
+        return series;
+    }//toBarSeries()
+    
+    
     /**
      * Gets the open data for the MarketDAta with the oldest data
      * at the beginning of the array.
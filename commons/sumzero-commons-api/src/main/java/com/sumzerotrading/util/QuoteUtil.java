@@ -83,4 +83,101 @@ public class QuoteUtil {
         returnValue.setScale(decimalPlaces, BigDecimal.ROUND_HALF_UP);
         return returnValue;
     }
+
+
+    /**
+     * Rounds the double value to the specified tick size and returns it as an
+     * unscaled long with the tick size's number of decimal places, ie 1.3553
+     * with a tick size of 0.0001 returns 13553.
+     *
+     * @param value The value to scale
+     * @param tickSize The tick size to round to
+     * @return The unscaled value in units of 10^-tickSize.scale()
+     */
+    public static long getScaledValue(double value, BigDecimal tickSize) {
+        double tick = tickSize.doubleValue();
+        long scaledTick = tickSize.unscaledValue().longValueExact();
+        return Math.round(value / tick) * scaledTick;
+    }
+
+    /**
+     * Parses a plain decimal string such as "65000.25" directly into an
+     * unscaled long with the specified number of decimal places without
+     * creating an intermediate BigDecimal. Extra decimal places beyond the
+     * requested scale are rounded half up.
+     *
+     * @param value The decimal string to parse
+     * @param scale The number of decimal places of the result
+     * @return The unscaled value in units of 10^-scale
+     * @throws NumberFormatException if the value is not a plain decimal number
+     * or doesn't fit in a long at the requested scale
+     */
+    public static long parseScaledValue(CharSequence value, int scale) {
+        try {
+            return parseScaledDigits(value, scale);
+        } catch (ArithmeticException ex) {
+            throw new NumberFormatException("Value out of range at scale " + scale + ": " + value);
+        }
+    }
+
+    /**
+     * Returns the number of decimal places needed to express multiples of the
+     * specified increment, ie 0.0010 returns 3 and 10 returns 0.
+     *
+     * @param increment The tick or step size
+     * @return The scale of the increment without trailing zeros, never less than 0
+     */
+    public static int getScale(BigDecimal increment) {
+        return Math.max(increment.stripTrailingZeros().scale(), 0);
+    }
+
+    protected static long parseScaledDigits(CharSequence value, int scale) {
+        int length = value.length();
+        if (length == 0) {
+            throw new NumberFormatException("Empty value");
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long result = 0;
+        int decimals = -1;
+        boolean roundUp = false;
+        boolean digits = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid decimal value: " + value);
+            }
+            digits = true;
+            if (decimals >= scale) {
+                if (decimals == scale) {
+                    roundUp = c >= '5';
+                }
+                decimals++;
+                continue;
+            }
+            result = Math.addExact(Math.multiplyExact(result, 10), c - '0');
+            if (decimals >= 0) {
+                decimals++;
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Invalid decimal value: " + value);
+        }
+        for (int d = Math.max(decimals, 0); d < scale; d++) {
+            result = Math.multiplyExact(result, 10);
+        }
+        if (roundUp) {
+            result = Math.incrementExact(result);
+        }
+        return negative ? -result : result;
+    }
 }
@@ -0,0 +1,170 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.data;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class BarSeriesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendGrows() {
+        BarSeries series = new BarSeries(2);
+        for (int i = 0; i < 100; i++) {
+            series.append(i * 60_000L, i, i + 1, i - 1, i + 0.5, 10 * i, i);
+        }
+
+        assertEquals(100, series.size());
+        assertTrue(series.getCapacity() >= 100);
+        assertEquals(0, series.getTimestamp(0));
+        assertEquals(99 * 60_000L, series.getTimestamp(99));
+        assertEquals(50.5, series.getClose(50), 0);
+        assertEquals(51, series.getHigh(50), 0);
+        assertEquals(49, series.getLow(50), 0);
+        assertEquals(500, series.getVolume(50), 0);
+        assertEquals(50, series.getOpenInterest(50));
+    }
+
+    @Test
+    public void testRollingKeepsMostRecentBars() {
+        BarSeries series = BarSeries.rolling(3);
+        for (int i = 1; i <= 5; i++) {
+            series.append(i, i, i, i, i, i);
+        }
+
+        assertEquals(3, series.size());
+        assertEquals(3, series.getCapacity());
+        assertArrayEquals(new double[]{3, 4, 5}, series.getCloseData(), 0);
+        assertArrayEquals(new long[]{3, 4, 5}, series.getTimestampColumn().toArray());
+        assertEquals(3, series.getClose(0), 0);
+        assertEquals(5, series.getCloseColumn().getLast(), 0);
+    }
+
+    @Test
+    public void testColumnViewsReflectLaterAppends() {
+        BarSeries series = new BarSeries(1);
+        BarSeries.DoubleColumn close = series.getCloseColumn();
+        series.append(1, 1, 1, 1, 10, 1);
+        series.append(2, 1, 1, 1, 20, 1);
+
+        assertSame(close, series.getColumn(BarSeries.CLOSE));
+        assertEquals(2, close.size());
+        assertEquals(20, close.get(1), 0);
+    }
+
+    @Test
+    public void testCopyToWrappedColumn() {
+        BarSeries series = BarSeries.rolling(4);
+        for (int i = 1; i <= 6; i++) {
+            series.append(i, 0, 0, 0, i, 0);
+        }
+        double[] destination = new double[6];
+
+        series.getCloseColumn().copyTo(destination, 1);
+
+        assertArrayEquals(new double[]{0, 3, 4, 5, 6, 0}, destination, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfRange() {
+        BarSeries series = new BarSeries();
+        series.append(1, 1, 1, 1, 1, 1);
+
+        series.getClose(1);
+    }
+
+    @Test
+    public void testUpdateLast() {
+        BarSeries series = new BarSeries();
+        series.append(1, 10, 10, 10, 10, 100);
+
+        series.updateLast(12, 5);
+        series.updateLast(9, 5);
+
+        assertEquals(12, series.getHigh(0), 0);
+        assertEquals(9, series.getLow(0), 0);
+        assertEquals(9, series.getClose(0), 0);
+        assertEquals(110, series.getVolume(0), 0);
+    }
+
+    @Test
+    public void testClear() {
+        BarSeries series = BarSeries.rolling(2);
+        series.append(1, 1, 1, 1, 1, 1);
+        series.append(2, 2, 2, 2, 2, 2);
+        series.append(3, 3, 3, 3, 3, 3);
+
+        series.clear();
+        series.append(4, 4, 4, 4, 4, 4);
+
+        assertEquals(1, series.size());
+        assertEquals(4, series.getClose(0), 0);
+    }
+
+    @Test
+    public void testAppendBarData() {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30);
+        BarSeries series = new BarSeries();
+        series.append(new BarData(time, new BigDecimal("1.5"), new BigDecimal("2"), new BigDecimal("1"), new BigDecimal("1.75"), new BigDecimal("300"), 4));
+
+        assertEquals(time.toInstant(ZoneOffset.UTC).toEpochMilli(), series.getTimestamp(0));
+        assertEquals(1.75, series.getClose(0), 0);
+        BarData bar = series.getBar(0);
+        assertEquals(time, bar.getDateTime());
+        assertEquals(0, new BigDecimal("1.75").compareTo(bar.getClose()));
+        assertEquals(4, bar.getOpenInterest());
+    }
+
+    @Test
+    public void testFromColumnarBarFile() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30);
+        Path file = folder.getRoot().toPath().resolve("bars.zbar");
+        ColumnarBarFile.write(file, Arrays.asList(
+                new BarData(time, new BigDecimal("1.5"), new BigDecimal("2"), new BigDecimal("1"), new BigDecimal("1.75"), new BigDecimal("300")),
+                new BarData(time.plusMinutes(1), new BigDecimal("1.75"), new BigDecimal("2.25"), new BigDecimal("1.5"), new BigDecimal("2"), new BigDecimal("200"))));
+
+        BarSeries series = BarSeries.from(ColumnarBarFile.open(file));
+
+        assertEquals(2, series.size());
+        assertArrayEquals(new double[]{1.75, 2}, series.getCloseData(), 0);
+        assertArrayEquals(new double[]{300, 200}, series.getVolumeData(), 0);
+        assertEquals(time.plusMinutes(1).toInstant(ZoneOffset.UTC).toEpochMilli(), series.getTimestamp(1));
+    }
+
+    @Test
+    public void testMarketDataToBarSeries() {
+        MarketData data = new MarketData();
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 0, 0);
+        data.appendBar(new BarData(time, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, new BigDecimal("2"), BigDecimal.TEN));
+        data.appendBar(new BarData(time.plusDays(1), BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, new BigDecimal("3"), BigDecimal.TEN));
+
+        assertArrayEquals(data.getCloseData(), data.toBarSeries().getCloseData(), 0);
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.data;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class ColumnarBarFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30);
+        BarData first = new BarData(time, new BigDecimal("101.25"), new BigDecimal("102.5"), new BigDecimal("100.75"), new BigDecimal("101.5"), new BigDecimal("1500"), 7);
+        BarData second = new BarData(time.plusMinutes(1), new BigDecimal("101.5"), new BigDecimal("101.5"), new BigDecimal("-0.25"), new BigDecimal("100"), new BigDecimal("0.125"));
+        Path file = write(Arrays.asList(first, second));
+
+        ColumnarBarFile columns = ColumnarBarFile.open(file);
+
+        assertEquals(2, columns.size());
+        assertEquals(2, columns.getPriceScale());
+        assertEquals(3, columns.getVolumeScale());
+        assertArrayEquals(new long[]{time.toInstant(ZoneOffset.UTC).toEpochMilli(), time.plusMinutes(1).toInstant(ZoneOffset.UTC).toEpochMilli()}, columns.getTimestamps());
+        assertArrayEquals(new double[]{101.25, 101.5}, columns.getOpenData(), 0);
+        assertArrayEquals(new double[]{102.5, 101.5}, columns.getHighData(), 0);
+        assertArrayEquals(new double[]{100.75, -0.25}, columns.getLowData(), 0);
+        assertArrayEquals(new double[]{101.5, 100}, columns.getCloseData(), 0);
+        assertArrayEquals(new double[]{1500, 0.125}, columns.getVolumeData(), 0);
+        assertArrayEquals(new double[]{7, 0}, columns.getOpenInterestData(), 0);
+        assertArrayEquals(new long[]{10125, 10150}, columns.getColumn(ColumnarBarFile.OPEN));
+
+        BarData[] bars = columns.getBars();
+        assertEquals(time, bars[0].getDateTime());
+        assertEquals(0, new BigDecimal("102.5").compareTo(bars[0].getHigh()));
+        assertEquals(0, new BigDecimal("0.125").compareTo(bars[1].getVolume()));
+        assertEquals(7, bars[0].getOpenInterest());
+    }
+
+    @Test
+    public void testExplicitScaleRounds() throws Exception {
+        BarData bar = new BarData(LocalDateTime.of(2024, 3, 1, 0, 0), new BigDecimal("1.005"), new BigDecimal("1.01"), new BigDecimal("1"), new BigDecimal("1.004"), new BigDecimal("10.6"));
+        Path file = folder.getRoot().toPath().resolve("bars.zbar");
+        ColumnarBarFile.write(file, Arrays.asList(bar), 2, 0);
+
+        ColumnarBarFile columns = ColumnarBarFile.open(file);
+
+        assertArrayEquals(new long[]{101}, columns.getColumn(ColumnarBarFile.OPEN));
+        assertArrayEquals(new long[]{100}, columns.getColumn(ColumnarBarFile.CLOSE));
+        assertArrayEquals(new long[]{11}, columns.getColumn(ColumnarBarFile.VOLUME));
+    }
+
+    @Test
+    public void testMinuteBarsAreCompact() throws Exception {
+        List<BarData> bars = new ArrayList<>();
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30);
+        BigDecimal price = new BigDecimal("4500.25");
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal next = price.add(new BigDecimal((i % 7 - 3) * 0.25).setScale(2));
+            bars.add(new BarData(time.plusMinutes(i), price, price.max(next).add(new BigDecimal("0.50")), price.min(next).subtract(new BigDecimal("0.25")), next, new BigDecimal(1000 + i % 500)));
+            price = next;
+        }
+        Path file = write(bars);
+
+        //7 columns of one or two bytes each, against roughly 400 bytes per BarData object graph
+        assertTrue(Files.size(file) < bars.size() * 12);
+        ColumnarBarFile columns = ColumnarBarFile.open(file);
+        assertEquals(bars.get(9_999).getClose().doubleValue(), columns.getCloseData()[9_999], 0);
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        ColumnarBarFile columns = ColumnarBarFile.open(write(new ArrayList<>()));
+
+        assertEquals(0, columns.size());
+        assertEquals(0, columns.getCloseData().length);
+    }
+
+    @Test
+    public void testWriteFromColumns() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("columns.zbar");
+        long[][] columns = {{1000, 2000, 3000}, {10, 11, 12}, {12, 13, 14}, {9, 10, 11}, {11, 12, 13}, {5, 6, 7}, {0, 0, 0}};
+
+        ColumnarBarFile.write(file, 2, columns, 1, 0);
+        ColumnarBarFile read = ColumnarBarFile.open(file);
+
+        assertEquals(2, read.size());
+        assertArrayEquals(new double[]{1.1, 1.2}, read.getCloseData(), 1e-9);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenRejectsOtherFiles() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("other.zbar");
+        Files.write(file, "not bars at all, but long enough to hold a header".getBytes());
+
+        ColumnarBarFile.open(file);
+    }
+
+    @Test
+    public void testFileName() {
+        assertEquals("STOCK_BRK.B_1MINUTE.zbar", ColumnarBarFile.getFileName(new StockTicker("BRK.B"), 1, BarData.LengthUnit.MINUTE));
+        assertEquals("STOCK_ES_H4_5MINUTE.zbar", ColumnarBarFile.getFileName(new StockTicker("ES H4"), 5, BarData.LengthUnit.MINUTE));
+    }
+
+    protected Path write(List<BarData> bars) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("bars.zbar");
+        ColumnarBarFile.write(file, bars);
+        return file;
+    }
+}
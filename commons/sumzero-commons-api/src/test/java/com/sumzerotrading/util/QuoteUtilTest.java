@@ -67,6 +67,51 @@ public class QuoteUtilTest  {
 		
 	}
         
+        @Test
+        public void testGetScaledValue() {
+            assertEquals( 13553, QuoteUtil.getScaledValue(1.3553, new BigDecimal("0.0001")) );
+            assertEquals( 132325, QuoteUtil.getScaledValue(1323.37, new BigDecimal("0.25")) );
+            assertEquals( 11101, QuoteUtil.getScaledValue(11100.54, BigDecimal.ONE) );
+        }
+        
+        @Test
+        public void testParseScaledValue() {
+            assertEquals( 6500025000000L, QuoteUtil.parseScaledValue("65000.25", 8) );
+            assertEquals( 100, QuoteUtil.parseScaledValue("1", 2) );
+            assertEquals( 50, QuoteUtil.parseScaledValue(".5", 2) );
+            assertEquals( -1234, QuoteUtil.parseScaledValue("-12.34", 2) );
+            assertEquals( 124, QuoteUtil.parseScaledValue("1.235", 2) );
+            assertEquals( 123, QuoteUtil.parseScaledValue("1.2349", 2) );
+            assertEquals( 0, QuoteUtil.parseScaledValue("0.000", 4) );
+            
+            try {
+                QuoteUtil.parseScaledValue("1.2e5", 2);
+                fail();
+            } catch( NumberFormatException ex ) {
+                //this should happen
+            }
+            try {
+                QuoteUtil.parseScaledValue("-", 2);
+                fail();
+            } catch( NumberFormatException ex ) {
+                //this should happen
+            }
+            try {
+                QuoteUtil.parseScaledValue("100000000000", 8);
+                fail();
+            } catch( NumberFormatException ex ) {
+                //this should happen
+            }
+            assertEquals( 10000000000000000L, QuoteUtil.parseScaledValue("100000000000", 5) );
+        }
+        
+        @Test
+        public void testGetScale() {
+            assertEquals( 3, QuoteUtil.getScale(new BigDecimal("0.0010")) );
+            assertEquals( 0, QuoteUtil.getScale(new BigDecimal("1")) );
+            assertEquals( 0, QuoteUtil.getScale(new BigDecimal("10")) );
+        }
+        
         @Test
         public void testRoundPriceUseTicksizeScale() {
             double value = 16.778;
@@ -44,11 +44,11 @@ import com.ib.client.SoftDollarTier;
 import com.ib.client.TickAttrib;
 import com.ib.client.TickAttribBidAsk;
 import com.ib.client.TickAttribLast;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -62,7 +62,9 @@ public class IBConnection implements IBConnectionInterface {
     protected static IBConnection connection = null;
 
     protected EClientSocket eclientSocket;
-    protected List<IBConnectionInterface> ibConnectionDelegates = new ArrayList<>();
+    protected final IBCallbackRouter<IBConnectionInterface> router = new IBCallbackRouter<>(IBConnectionInterface[]::new);
+    protected volatile IBCallbackPipeline<IBConnectionInterface> callbackPipeline;
+    protected final AtomicLong messageCount = new AtomicLong();
     protected int clientId;
     protected String host;
     protected int port;
@@ -80,12 +82,94 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void addIbConnectionDelegate(IBConnectionInterface delegate) {
-        ibConnectionDelegates.add(delegate);
+        router.addDelegate(delegate);
     }
 
     @Override
     public void removeIbConnectionDelegate(IBConnectionInterface delegate) {
-        ibConnectionDelegates.remove(delegate);
+        router.removeDelegate(delegate);
+    }
+
+    @Override
+    public void addCallbackRoute(IBMessageCategory category, int requestId, IBConnectionInterface delegate) {
+        router.addRoute(category, requestId, delegate);
+    }
+
+    @Override
+    public void removeCallbackRoute(IBMessageCategory category, int requestId) {
+        router.removeRoute(category, requestId);
+    }
+
+    public IBCallbackRouter<IBConnectionInterface> getCallbackRouter() {
+        return router;
+    }
+
+    /**
+     * Sets the pipeline callbacks are handed to for delivery on its own
+     * threads. If there is no pipeline, callbacks are delivered on the thread
+     * that reads the socket.
+     *
+     * @param callbackPipeline The pipeline, or null to deliver synchronously
+     */
+    public void setCallbackPipeline(IBCallbackPipeline<IBConnectionInterface> callbackPipeline) {
+        this.callbackPipeline = callbackPipeline;
+    }
+
+    public IBCallbackPipeline<IBConnectionInterface> getCallbackPipeline() {
+        return callbackPipeline;
+    }
+
+    /**
+     * @return The number of callbacks received from TWS on this connection
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    protected void route(IBMessageCategory category, int requestId, IBCallback<IBConnectionInterface> callback) {
+        deliver(category, router.getDelegates(category, requestId), callback);
+    }
+
+    protected void route(IBMessageCategory category, IBCallback<IBConnectionInterface> callback) {
+        deliver(category, router.getDelegates(category), callback);
+    }
+
+    /**
+     * Delivers a callback whose id may belong to any category, such as an
+     * error. Each owner of the id receives it in the category it owns the id
+     * in, so with a pipeline an order error stays in order with the
+     * orderStatus callbacks for the same order. Ids below zero are not
+     * request ids and are broadcast.
+     */
+    protected void routeToRequestOwner(int requestId, IBCallback<IBConnectionInterface> callback) {
+        if (requestId < 0) {
+            broadcast(callback);
+            return;
+        }
+        messageCount.incrementAndGet();
+        for (Entry<IBMessageCategory, IBConnectionInterface[]> owners : router.getDelegatesByCategory(requestId).entrySet()) {
+            dispatch(owners.getKey(), owners.getValue(), callback);
+        }
+    }
+
+    protected void broadcast(IBCallback<IBConnectionInterface> callback) {
+        deliver(null, router.getDelegates(), callback);
+    }
+
+    protected void deliver(IBMessageCategory category, IBConnectionInterface[] delegates, IBCallback<IBConnectionInterface> callback) {
+        messageCount.incrementAndGet();
+        dispatch(category, delegates, callback);
+    }
+
+    protected void dispatch(IBMessageCategory category, IBConnectionInterface[] delegates, IBCallback<IBConnectionInterface> callback) {
+        IBCallbackPipeline<IBConnectionInterface> pipeline = callbackPipeline;
+        if (pipeline != null) {
+            pipeline.publish(category, delegates, callback);
+        } else {
+            for (IBConnectionInterface delegate : delegates) {
+                callback.deliver(delegate);
+            }
+        }
     }
 
     @Override
@@ -145,23 +229,17 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void tickGeneric(int tickerId, int tickType, double value) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.tickGeneric(tickerId, tickType, value);
-        });
+        route(IBMessageCategory.MARKET_DATA, tickerId, delegate -> delegate.tickGeneric(tickerId, tickType, value));
     }
 
     @Override
     public void tickString(int tickerId, int tickType, String value) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.tickString(tickerId, tickType, value);
-        });
+        route(IBMessageCategory.MARKET_DATA, tickerId, delegate -> delegate.tickString(tickerId, tickType, value));
     }
 
     @Override
     public void tickEFP(int tickerId, int tickType, double basisPoints, String formattedBasisPoints, double impliedFuture, int holdDays, String futureExpiry, double dividendImpact, double dividendsToExpiry) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.tickEFP(tickerId, tickType, basisPoints, formattedBasisPoints, impliedFuture, holdDays, futureExpiry, dividendImpact, dividendsToExpiry);
-        });
+        route(IBMessageCategory.MARKET_DATA, tickerId, delegate -> delegate.tickEFP(tickerId, tickType, basisPoints, formattedBasisPoints, impliedFuture, holdDays, futureExpiry, dividendImpact, dividendsToExpiry));
     }
 
     // @Override
@@ -173,23 +251,17 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void openOrder(int orderId, Contract contract, Order order, OrderState orderState) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.openOrder(orderId, contract, order, orderState);
-        });
+        route(IBMessageCategory.ORDER, orderId, delegate -> delegate.openOrder(orderId, contract, order, orderState));
     }
 
     @Override
     public void openOrderEnd() {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.openOrderEnd();
-        });
+        route(IBMessageCategory.ORDER, delegate -> delegate.openOrderEnd());
     }
 
     @Override
     public void updateAccountValue(String key, String value, String currency, String accountName) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.updateAccountValue(key, value, currency, accountName);
-        });
+        route(IBMessageCategory.ACCOUNT, delegate -> delegate.updateAccountValue(key, value, currency, accountName));
     }
 
     // @Override
@@ -201,58 +273,43 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void updateAccountTime(String timeStamp) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.updateAccountTime(timeStamp);
-        });
+        route(IBMessageCategory.ACCOUNT, delegate -> delegate.updateAccountTime(timeStamp));
     }
 
     @Override
     public void accountDownloadEnd(String accountName) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.accountDownloadEnd(accountName);
-        });
+        route(IBMessageCategory.ACCOUNT, delegate -> delegate.accountDownloadEnd(accountName));
     }
 
     @Override
     public void nextValidId(int orderId) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.nextValidId(orderId);
-        });
+        //every delegate gets this, but on the order lane so it stays in step with order callbacks
+        deliver(IBMessageCategory.ORDER, router.getDelegates(), delegate -> delegate.nextValidId(orderId));
     }
 
     @Override
     public void contractDetails(int reqId, ContractDetails contractDetails) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.contractDetails(reqId, contractDetails);
-        });
+        route(IBMessageCategory.CONTRACT, reqId, delegate -> delegate.contractDetails(reqId, contractDetails));
     }
 
     @Override
     public void bondContractDetails(int reqId, ContractDetails contractDetails) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.bondContractDetails(reqId, contractDetails);
-        });
+        route(IBMessageCategory.CONTRACT, reqId, delegate -> delegate.bondContractDetails(reqId, contractDetails));
     }
 
     @Override
     public void contractDetailsEnd(int reqId) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.contractDetailsEnd(reqId);
-        });
+        route(IBMessageCategory.CONTRACT, reqId, delegate -> delegate.contractDetailsEnd(reqId));
     }
 
     @Override
     public void execDetails(int reqId, Contract contract, Execution execution) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.execDetails(reqId, contract, execution);
-        });
+        route(IBMessageCategory.ORDER, reqId, delegate -> delegate.execDetails(reqId, contract, execution));
     }
 
     @Override
     public void execDetailsEnd(int reqId) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.execDetailsEnd(reqId);
-        });
+        route(IBMessageCategory.ORDER, reqId, delegate -> delegate.execDetailsEnd(reqId));
     }
 
     // @Override
@@ -271,23 +328,17 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void updateNewsBulletin(int msgId, int msgType, String message, String origExchange) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.updateNewsBulletin(msgId, msgType, message, origExchange);
-        });
+        broadcast(delegate -> delegate.updateNewsBulletin(msgId, msgType, message, origExchange));
     }
 
     @Override
     public void managedAccounts(String accountsList) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.managedAccounts(accountsList);
-        });
+        broadcast(delegate -> delegate.managedAccounts(accountsList));
     }
 
     @Override
     public void receiveFA(int faDataType, String xml) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.receiveFA(faDataType, xml);
-        });
+        broadcast(delegate -> delegate.receiveFA(faDataType, xml));
     }
 
     // @Override
@@ -299,23 +350,17 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void scannerParameters(String xml) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.scannerParameters(xml);
-        });
+        route(IBMessageCategory.SCANNER, delegate -> delegate.scannerParameters(xml));
     }
 
     @Override
     public void scannerData(int reqId, int rank, ContractDetails contractDetails, String distance, String benchmark, String projection, String legsStr) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.scannerData(reqId, rank, contractDetails, distance, benchmark, projection, legsStr);
-        });
+        route(IBMessageCategory.SCANNER, reqId, delegate -> delegate.scannerData(reqId, rank, contractDetails, distance, benchmark, projection, legsStr));
     }
 
     @Override
     public void scannerDataEnd(int reqId) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.scannerDataEnd(reqId);
-        });
+        route(IBMessageCategory.SCANNER, reqId, delegate -> delegate.scannerDataEnd(reqId));
     }
 
     // @Override
@@ -327,16 +372,12 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void currentTime(long time) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.currentTime(time);
-        });
+        broadcast(delegate -> delegate.currentTime(time));
     }
 
     @Override
     public void fundamentalData(int reqId, String data) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.fundamentalData(reqId, data);
-        });
+        route(IBMessageCategory.FUNDAMENTAL_DATA, reqId, delegate -> delegate.fundamentalData(reqId, data));
     }
 
     // @Override
@@ -348,16 +389,12 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void tickSnapshotEnd(int reqId) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.tickSnapshotEnd(reqId);
-        });
+        route(IBMessageCategory.MARKET_DATA, reqId, delegate -> delegate.tickSnapshotEnd(reqId));
     }
 
     @Override
     public void marketDataType(int reqId, int marketDataType) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.marketDataType(reqId, marketDataType);
-        });
+        route(IBMessageCategory.MARKET_DATA, reqId, delegate -> delegate.marketDataType(reqId, marketDataType));
     }
 
     // @Override
@@ -376,65 +413,47 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void positionEnd() {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.positionEnd();
-        });
+        route(IBMessageCategory.ACCOUNT, delegate -> delegate.positionEnd());
     }
 
     @Override
     public void accountSummary(int reqId, String account, String tag, String value, String currency) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.accountSummary(reqId, account, tag, value, currency);
-        });
+        route(IBMessageCategory.ACCOUNT, reqId, delegate -> delegate.accountSummary(reqId, account, tag, value, currency));
     }
 
     @Override
     public void accountSummaryEnd(int reqId) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.accountSummaryEnd(reqId);
-        });
+        route(IBMessageCategory.ACCOUNT, reqId, delegate -> delegate.accountSummaryEnd(reqId));
     }
 
     @Override
     public void verifyMessageAPI(String apiData) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.verifyMessageAPI(apiData);
-        });
+        broadcast(delegate -> delegate.verifyMessageAPI(apiData));
     }
 
     @Override
     public void verifyCompleted(boolean isSuccessful, String errorText) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.verifyCompleted(isSuccessful, errorText);
-        });
+        broadcast(delegate -> delegate.verifyCompleted(isSuccessful, errorText));
     }
 
     @Override
     public void displayGroupList(int reqId, String groups) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.displayGroupList(reqId, groups);
-        });
+        broadcast(delegate -> delegate.displayGroupList(reqId, groups));
     }
 
     @Override
     public void displayGroupUpdated(int reqId, String contractInfo) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.displayGroupUpdated(reqId, contractInfo);
-        });
+        broadcast(delegate -> delegate.displayGroupUpdated(reqId, contractInfo));
     }
 
     @Override
     public void error(Exception e) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.error(e);
-        });
+        broadcast(delegate -> delegate.error(e));
     }
 
     @Override
     public void error(String str) {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.error(str);
-        });
+        broadcast(delegate -> delegate.error(str));
     }
 
         // @Override
@@ -446,9 +465,7 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void connectionClosed() {
-        ibConnectionDelegates.stream().forEach((delegate) -> {
-            delegate.connectionClosed();
-        });
+        broadcast(delegate -> delegate.connectionClosed());
     }
 
     @Override
@@ -495,8 +512,7 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void error(int arg0, long arg1, int arg2, String arg3, String arg4) {
-        throw new UnsupportedOperationException();
-        
+        routeToRequestOwner(arg0, delegate -> delegate.error(arg0, arg1, arg2, arg3, arg4));
     }
 
     @Override
@@ -519,20 +535,17 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void historicalData(int arg0, Bar arg1) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.HISTORICAL_DATA, arg0, delegate -> delegate.historicalData(arg0, arg1));
     }
 
     @Override
     public void historicalDataEnd(int arg0, String arg1, String arg2) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.HISTORICAL_DATA, arg0, delegate -> delegate.historicalDataEnd(arg0, arg1, arg2));
     }
 
     @Override
     public void historicalDataUpdate(int arg0, Bar arg1) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.HISTORICAL_DATA, arg0, delegate -> delegate.historicalDataUpdate(arg0, arg1));
     }
 
     @Override
@@ -604,8 +617,7 @@ public class IBConnection implements IBConnectionInterface {
     @Override
     public void orderStatus(int arg0, String arg1, Decimal arg2, Decimal arg3, double arg4, long arg5, int arg6,
             double arg7, int arg8, String arg9, double arg10) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.ORDER, arg0, delegate -> delegate.orderStatus(arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8, arg9, arg10));
     }
 
     @Override
@@ -622,8 +634,7 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void position(String arg0, Contract arg1, Decimal arg2, double arg3) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.ACCOUNT, delegate -> delegate.position(arg0, arg1, arg2, arg3));
     }
 
     @Override
@@ -641,8 +652,7 @@ public class IBConnection implements IBConnectionInterface {
     @Override
     public void realtimeBar(int arg0, long arg1, double arg2, double arg3, double arg4, double arg5, Decimal arg6,
             Decimal arg7, int arg8) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.REAL_TIME_BARS, arg0, delegate -> delegate.realtimeBar(arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8));
     }
 
     @Override
@@ -723,14 +733,12 @@ public class IBConnection implements IBConnectionInterface {
     @Override
     public void tickOptionComputation(int arg0, int arg1, int arg2, double arg3, double arg4, double arg5, double arg6,
             double arg7, double arg8, double arg9, double arg10) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.MARKET_DATA, arg0, delegate -> delegate.tickOptionComputation(arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8, arg9, arg10));
     }
 
     @Override
     public void tickPrice(int arg0, int arg1, double arg2, TickAttrib arg3) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.MARKET_DATA, arg0, delegate -> delegate.tickPrice(arg0, arg1, arg2, arg3));
     }
 
     @Override
@@ -741,28 +749,24 @@ public class IBConnection implements IBConnectionInterface {
 
     @Override
     public void tickSize(int arg0, int arg1, Decimal arg2) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.MARKET_DATA, arg0, delegate -> delegate.tickSize(arg0, arg1, arg2));
     }
 
     @Override
     public void updateMktDepth(int arg0, int arg1, int arg2, int arg3, double arg4, Decimal arg5) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.MARKET_DEPTH, arg0, delegate -> delegate.updateMktDepth(arg0, arg1, arg2, arg3, arg4, arg5));
     }
 
     @Override
     public void updateMktDepthL2(int arg0, int arg1, String arg2, int arg3, int arg4, double arg5, Decimal arg6,
             boolean arg7) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.MARKET_DEPTH, arg0, delegate -> delegate.updateMktDepthL2(arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7));
     }
 
     @Override
     public void updatePortfolio(Contract arg0, Decimal arg1, double arg2, double arg3, double arg4, double arg5,
             double arg6, String arg7) {
-        throw new UnsupportedOperationException();
-        
+        route(IBMessageCategory.ACCOUNT, delegate -> delegate.updatePortfolio(arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7));
     }
 
     @Override
@@ -45,6 +45,21 @@ public interface IBConnectionInterface extends EWrapper, EReaderSignal {
 
     public void removeIbConnectionDelegate(IBConnectionInterface delegate);
 
+    /**
+     * Sends callbacks for the request or ticker id in the category only to the
+     * delegate, instead of broadcasting them to every delegate. Connections
+     * that do not support routing ignore this.
+     *
+     * @param category The category the request was made in
+     * @param requestId The request or ticker id
+     * @param delegate The delegate that owns the request
+     */
+    public default void addCallbackRoute(IBMessageCategory category, int requestId, IBConnectionInterface delegate) {
+    }
+
+    public default void removeCallbackRoute(IBMessageCategory category, int requestId) {
+    }
+
 
 
 }
@@ -0,0 +1,137 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A fixed set of sockets to the same TWS/Gateway, each with its own client id,
+ * so market data and historical requests can be spread across connections and
+ * stay under IB's per-connection limits.
+ */
+public class IBConnectionPool {
+
+    protected final List<IBPooledConnection> connections;
+
+    public IBConnectionPool(List<IBSocket> sockets) {
+        if (sockets.isEmpty()) {
+            throw new IllegalArgumentException("A connection pool needs at least one socket");
+        }
+        List<IBPooledConnection> list = new ArrayList<>();
+        for (IBSocket socket : sockets) {
+            list.add(new IBPooledConnection(socket));
+        }
+        connections = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Creates a pool of sockets using the client ids firstClientId through
+     * firstClientId + size - 1.
+     *
+     * @param host The TWS/Gateway host
+     * @param port The TWS/Gateway port
+     * @param firstClientId The client id of the first connection
+     * @param size The number of connections
+     * @return The pool
+     */
+    public static IBConnectionPool create(String host, int port, int firstClientId, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + size);
+        }
+        List<IBSocket> sockets = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            sockets.add(IBConnectionRegistry.getIBSocket(new IBConnectionInfo(host, port, firstClientId + i)));
+        }
+        return new IBConnectionPool(sockets);
+    }
+
+    public List<IBPooledConnection> getConnections() {
+        return connections;
+    }
+
+    public int size() {
+        return connections.size();
+    }
+
+    /**
+     * @return The connection with the fewest market data lines
+     */
+    public IBPooledConnection leastLoadedForMarketData() {
+        IBPooledConnection best = connections.get(0);
+        for (IBPooledConnection connection : connections) {
+            if (connection.getMarketDataLines() < best.getMarketDataLines()) {
+                best = connection;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The connection with the fewest historical requests in flight,
+     * preferring the one with fewer market data lines on a tie
+     */
+    public IBPooledConnection leastLoadedForHistoricalData() {
+        IBPooledConnection best = connections.get(0);
+        for (IBPooledConnection connection : connections) {
+            int requests = connection.getHistoricalRequests();
+            if (requests < best.getHistoricalRequests()
+                    || (requests == best.getHistoricalRequests() && connection.getMarketDataLines() < best.getMarketDataLines())) {
+                best = connection;
+            }
+        }
+        return best;
+    }
+
+    public void connect() {
+        for (IBPooledConnection connection : connections) {
+            connection.getSocket().connect();
+        }
+    }
+
+    public void disconnect() {
+        for (IBPooledConnection connection : connections) {
+            connection.getSocket().disconnect();
+        }
+    }
+
+    public boolean isConnected() {
+        for (IBPooledConnection connection : connections) {
+            if (!connection.getSocket().isConnected()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Statistics for each connection, with message rates measured
+     * since the previous call
+     */
+    public List<IBConnectionStats> getStats() {
+        List<IBConnectionStats> stats = new ArrayList<>();
+        for (IBPooledConnection connection : connections) {
+            stats.add(connection.sampleStats());
+        }
+        return stats;
+    }
+
+}
@@ -43,6 +43,10 @@ public class IBConnectionRegistry {
                 connection.setHost(info.getHost());
                 connection.setPort(info.getPort());
 
+                IBCallbackPipeline<IBConnectionInterface> pipeline = new IBCallbackPipeline<>("client-" + info.getClientId());
+                pipeline.start();
+                connection.setCallbackPipeline(pipeline);
+
                 EClientSocket clientSocket = new EClientSocket(connection, connection);
 
                 savedSocket = new IBSocket(connection, clientSocket);
@@ -0,0 +1,202 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps an IBSocket connected.
+ *
+ * Every heartbeat interval the supervisor sends reqCurrentTime. If nothing
+ * has been heard from TWS for the heartbeat timeout, or TWS closes the
+ * connection, the supervisor reconnects with exponential backoff. Once the
+ * socket is back it replays the socket's IBSubscriptionJournal through the
+ * request scheduler, so subscriptions are restored within the pacing limits.
+ *
+ * check() does all the work and takes its time from the supplied clock, so
+ * tests can call it directly instead of starting the timer.
+ */
+public class IBConnectionSupervisor extends BaseIBConnectionDelegate {
+
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 10_000;
+    public static final long DEFAULT_HEARTBEAT_TIMEOUT_MILLIS = 30_000;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1_000;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 60_000;
+    protected static final long CHECK_INTERVAL_MILLIS = 1_000;
+
+    protected Logger logger = Logger.getLogger(IBConnectionSupervisor.class);
+    protected final IBSocket socket;
+    protected final LongSupplier clock;
+    protected long heartbeatIntervalMillis = DEFAULT_HEARTBEAT_INTERVAL_MILLIS;
+    protected long heartbeatTimeoutMillis = DEFAULT_HEARTBEAT_TIMEOUT_MILLIS;
+    protected long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    protected long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+    protected volatile long lastHeardMillis;
+    protected volatile boolean connectionLost = false;
+    //only touched by check()
+    protected long lastMessageCount = -1;
+    protected long lastHeartbeatMillis;
+    protected boolean reconnecting = false;
+    protected long backoffMillis;
+    protected long nextAttemptMillis;
+    protected int reconnectCount = 0;
+    protected ScheduledExecutorService timer;
+
+    public IBConnectionSupervisor(IBSocket socket) {
+        this(socket, System::currentTimeMillis);
+    }
+
+    public IBConnectionSupervisor(IBSocket socket, LongSupplier clock) {
+        this.socket = socket;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.lastHeardMillis = now;
+        this.lastHeartbeatMillis = now;
+        this.backoffMillis = initialBackoffMillis;
+    }
+
+    /**
+     * Registers for callbacks from the connection and starts checking it
+     * every second.
+     */
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        socket.getConnection().addIbConnectionDelegate(this);
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "IBConnectionSupervisor-" + socket.getClientId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::checkSafely, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+            socket.getConnection().removeIbConnectionDelegate(this);
+        }
+    }
+
+    /**
+     * Sends a heartbeat if one is due, detects a dead connection, and makes a
+     * reconnect attempt when the backoff has elapsed.
+     */
+    public synchronized void check() {
+        long now = clock.getAsLong();
+        if (reconnecting) {
+            if (now >= nextAttemptMillis) {
+                attemptReconnect(now);
+            }
+            return;
+        }
+
+        IBConnectionInterface connection = socket.getConnection();
+        if (connection instanceof IBConnection) {
+            long messageCount = ((IBConnection) connection).getMessageCount();
+            if (messageCount != lastMessageCount) {
+                lastMessageCount = messageCount;
+                lastHeardMillis = now;
+            }
+        }
+
+        if (connectionLost || !socket.isConnected() || now - lastHeardMillis > heartbeatTimeoutMillis) {
+            logger.warn("Lost connection to TWS for client id " + socket.getClientId() + ", reconnecting");
+            connectionLost = false;
+            reconnecting = true;
+            backoffMillis = initialBackoffMillis;
+            attemptReconnect(now);
+        } else if (now - lastHeartbeatMillis >= heartbeatIntervalMillis) {
+            lastHeartbeatMillis = now;
+            //sent directly so a backlog in the scheduler can't look like a dead connection
+            socket.getClientSocket().reqCurrentTime();
+        }
+    }
+
+    @Override
+    public void currentTime(long time) {
+        lastHeardMillis = clock.getAsLong();
+    }
+
+    @Override
+    public void connectionClosed() {
+        connectionLost = true;
+    }
+
+    public boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    public int getReconnectCount() {
+        return reconnectCount;
+    }
+
+    public void setHeartbeatIntervalMillis(long heartbeatIntervalMillis) {
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+    }
+
+    public void setHeartbeatTimeoutMillis(long heartbeatTimeoutMillis) {
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+    }
+
+    public void setBackoffMillis(long initialBackoffMillis, long maxBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    protected void attemptReconnect(long now) {
+        boolean connected;
+        try {
+            connected = socket.reconnect();
+        } catch (Exception ex) {
+            logger.error("Reconnect to TWS failed", ex);
+            connected = false;
+        }
+
+        if (connected) {
+            reconnecting = false;
+            reconnectCount++;
+            lastHeardMillis = now;
+            lastHeartbeatMillis = now;
+            int replayed = socket.getSubscriptionJournal().replay(socket.getRequestScheduler());
+            logger.info("Reconnected to TWS for client id " + socket.getClientId() + ", replaying " + replayed + " requests");
+        } else {
+            nextAttemptMillis = now + backoffMillis;
+            logger.info("Reconnect to TWS failed, retrying in " + backoffMillis + "ms");
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+        }
+    }
+
+    protected void checkSafely() {
+        try {
+            check();
+        } catch (Exception ex) {
+            logger.error("Error supervising TWS connection", ex);
+        }
+    }
+
+}
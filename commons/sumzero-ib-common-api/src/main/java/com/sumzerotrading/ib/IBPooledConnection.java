@@ -0,0 +1,111 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One socket in an IBConnectionPool, along with the load that has been
+ * assigned to it.
+ */
+public class IBPooledConnection {
+
+    protected final IBSocket socket;
+    protected final AtomicInteger marketDataLines = new AtomicInteger();
+    protected final AtomicInteger historicalRequests = new AtomicInteger();
+
+    //guarded by this, used to turn the message count into a rate
+    protected long lastMessageCount = 0;
+    protected long lastSampleNanos;
+
+    public IBPooledConnection(IBSocket socket) {
+        this.socket = socket;
+        this.lastSampleNanos = System.nanoTime();
+    }
+
+    public IBSocket getSocket() {
+        return socket;
+    }
+
+    public int getClientId() {
+        return socket.getClientId();
+    }
+
+    /**
+     * @return The number of level 1 and market depth lines subscribed through
+     * this connection
+     */
+    public int getMarketDataLines() {
+        return marketDataLines.get();
+    }
+
+    public void addMarketDataLine() {
+        marketDataLines.incrementAndGet();
+    }
+
+    public void removeMarketDataLine() {
+        marketDataLines.decrementAndGet();
+    }
+
+    /**
+     * @return The number of historical data requests currently in flight on
+     * this connection
+     */
+    public int getHistoricalRequests() {
+        return historicalRequests.get();
+    }
+
+    public void startHistoricalRequest() {
+        historicalRequests.incrementAndGet();
+    }
+
+    public void endHistoricalRequest() {
+        historicalRequests.decrementAndGet();
+    }
+
+    /**
+     * @return The number of callbacks received on this connection, or 0 if
+     * the connection does not count them
+     */
+    public long getMessageCount() {
+        IBConnectionInterface connection = socket.getConnection();
+        if (connection instanceof IBConnection) {
+            return ((IBConnection) connection).getMessageCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Samples the statistics for this connection. The message rate is
+     * measured since the previous call.
+     *
+     * @return The current statistics
+     */
+    public synchronized IBConnectionStats sampleStats() {
+        long now = System.nanoTime();
+        long messageCount = getMessageCount();
+        long elapsedNanos = now - lastSampleNanos;
+        double messagesPerSecond = elapsedNanos > 0 ? (messageCount - lastMessageCount) * 1_000_000_000.0 / elapsedNanos : 0;
+        lastMessageCount = messageCount;
+        lastSampleNanos = now;
+        return new IBConnectionStats(getClientId(), getMarketDataLines(), getHistoricalRequests(), messageCount, messagesPerSecond);
+    }
+
+}
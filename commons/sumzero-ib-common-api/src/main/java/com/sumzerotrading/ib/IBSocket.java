@@ -33,7 +33,10 @@ public class IBSocket {
     protected IBConnectionInterface connection;
     protected EClientSocket clientSocket;
     protected int clientId;
-    protected boolean connected = false;
+    protected volatile boolean connected = false;
+    protected IBRequestScheduler requestScheduler = new IBRequestScheduler();
+    protected IBSubscriptionJournal subscriptionJournal = new IBSubscriptionJournal();
+    protected IBConnectionSupervisor supervisor;
 
     public IBSocket(IBConnectionInterface connection, EClientSocket clientSocket) {
         this.connection = connection;
@@ -48,10 +51,29 @@ public class IBSocket {
     public EClientSocket getClientSocket() {
         return clientSocket;
     }
+
+    /**
+     * @return The scheduler that paces requests sent through this socket
+     */
+    public IBRequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * @return The requests to send again after a reconnect
+     */
+    public IBSubscriptionJournal getSubscriptionJournal() {
+        return subscriptionJournal;
+    }
+
+    public IBConnectionSupervisor getSupervisor() {
+        return supervisor;
+    }
     
     
     
     public void connect() {
+                requestScheduler.start();
                 final CyclicBarrier barrier = new CyclicBarrier(2);
             try {
                 Thread thread = new Thread( new Runnable() {
@@ -74,9 +96,21 @@ public class IBSocket {
             } catch( Exception ex ) {
                 ex.printStackTrace();
             }
+            synchronized (this) {
+                if (supervisor == null) {
+                    supervisor = new IBConnectionSupervisor(this);
+                    supervisor.start();
+                }
+            }
     }
     
     public void disconnect() {
+        synchronized (this) {
+            if (supervisor != null) {
+                supervisor.stop();
+                supervisor = null;
+            }
+        }
         if( clientSocket.isConnected() ) {
             clientSocket.eDisconnect();
             connected = false;
@@ -89,13 +123,27 @@ public class IBSocket {
     }
     
     
-    protected void startConnection() {
+    protected synchronized void startConnection() {
         if( !connected ) {
-            connected = true;
             clientSocket.eConnect(connection.getHost(), connection.getPort(), connection.getClientId() );
+            connected = clientSocket.isConnected();
         }
     }
 
+    /**
+     * Drops the current socket connection, if any, and connects again.
+     *
+     * @return true if the socket is connected afterwards
+     */
+    public synchronized boolean reconnect() {
+        if( clientSocket.isConnected() ) {
+            clientSocket.eDisconnect();
+        }
+        connected = false;
+        startConnection();
+        return connected;
+    }
+
     public int getClientId() {
         return clientId;
     }
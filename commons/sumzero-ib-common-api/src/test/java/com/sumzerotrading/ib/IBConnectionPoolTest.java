@@ -0,0 +1,110 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IBConnectionPoolTest {
+
+    protected IBSocket socket1;
+    protected IBSocket socket2;
+    protected IBConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        socket1 = mock(IBSocket.class);
+        socket2 = mock(IBSocket.class);
+        when(socket1.getClientId()).thenReturn(10);
+        when(socket2.getClientId()).thenReturn(11);
+        pool = new IBConnectionPool(Arrays.asList(socket1, socket2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPool() {
+        new IBConnectionPool(Collections.<IBSocket>emptyList());
+    }
+
+    @Test
+    public void testLeastLoadedForMarketData() {
+        IBPooledConnection first = pool.getConnections().get(0);
+        IBPooledConnection second = pool.getConnections().get(1);
+
+        assertTrue(first == pool.leastLoadedForMarketData());
+        first.addMarketDataLine();
+        assertTrue(second == pool.leastLoadedForMarketData());
+        second.addMarketDataLine();
+        second.addMarketDataLine();
+        assertTrue(first == pool.leastLoadedForMarketData());
+    }
+
+    @Test
+    public void testLeastLoadedForHistoricalData() {
+        IBPooledConnection first = pool.getConnections().get(0);
+        IBPooledConnection second = pool.getConnections().get(1);
+
+        first.addMarketDataLine();
+        assertTrue(second == pool.leastLoadedForHistoricalData());
+
+        second.startHistoricalRequest();
+        assertTrue(first == pool.leastLoadedForHistoricalData());
+
+        second.endHistoricalRequest();
+        assertTrue(second == pool.leastLoadedForHistoricalData());
+    }
+
+    @Test
+    public void testConnectAndIsConnected() {
+        when(socket1.isConnected()).thenReturn(true);
+        when(socket2.isConnected()).thenReturn(false);
+
+        pool.connect();
+
+        verify(socket1).connect();
+        verify(socket2).connect();
+        assertFalse(pool.isConnected());
+    }
+
+    @Test
+    public void testStats() {
+        pool.getConnections().get(1).addMarketDataLine();
+        pool.getConnections().get(1).startHistoricalRequest();
+
+        List<IBConnectionStats> stats = pool.getStats();
+
+        assertEquals(2, stats.size());
+        assertEquals(10, stats.get(0).getClientId());
+        assertEquals(0, stats.get(0).getMarketDataLines());
+        assertEquals(11, stats.get(1).getClientId());
+        assertEquals(1, stats.get(1).getMarketDataLines());
+        assertEquals(1, stats.get(1).getHistoricalRequests());
+        assertEquals(0, stats.get(1).getMessageCount());
+    }
+
+}
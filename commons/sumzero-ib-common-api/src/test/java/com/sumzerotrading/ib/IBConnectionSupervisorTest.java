@@ -0,0 +1,136 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import com.ib.client.EClientSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IBConnectionSupervisorTest {
+
+    protected long now = 0;
+    protected long schedulerNow = 0;
+    protected IBSocket mockSocket;
+    protected EClientSocket mockClientSocket;
+    protected IBSubscriptionJournal journal;
+    protected IBRequestScheduler scheduler;
+    protected IBConnectionSupervisor supervisor;
+    protected List<String> replayed = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mockSocket = mock(IBSocket.class);
+        mockClientSocket = mock(EClientSocket.class);
+        journal = new IBSubscriptionJournal();
+        scheduler = new IBRequestScheduler(() -> schedulerNow, 2, new HistoricalPacingRules());
+        when(mockSocket.getClientSocket()).thenReturn(mockClientSocket);
+        when(mockSocket.getConnection()).thenReturn(mock(IBConnectionInterface.class));
+        when(mockSocket.getSubscriptionJournal()).thenReturn(journal);
+        when(mockSocket.getRequestScheduler()).thenReturn(scheduler);
+        when(mockSocket.isConnected()).thenReturn(true);
+
+        supervisor = new IBConnectionSupervisor(mockSocket, () -> now);
+        supervisor.setHeartbeatIntervalMillis(10);
+        supervisor.setHeartbeatTimeoutMillis(30);
+        supervisor.setBackoffMillis(100, 400);
+    }
+
+    @Test
+    public void testHeartbeat() {
+        now = 5;
+        supervisor.check();
+        verify(mockClientSocket, never()).reqCurrentTime();
+
+        now = 10;
+        supervisor.check();
+        verify(mockClientSocket).reqCurrentTime();
+
+        now = 25;
+        supervisor.currentTime(0);
+        now = 50;
+        supervisor.check();
+        assertFalse(supervisor.isReconnecting());
+        verify(mockClientSocket, times(2)).reqCurrentTime();
+    }
+
+    @Test
+    public void testReconnectsWithBackoffAndReplaysJournal() {
+        journal.record(IBMessageCategory.MARKET_DATA, 1, IBRequestPriority.MARKET_DATA, () -> replayed.add("md1"));
+        journal.record(IBMessageCategory.MARKET_DEPTH, 2, IBRequestPriority.MARKET_DATA, () -> replayed.add("depth2"));
+        journal.record(IBMessageCategory.MARKET_DATA, 3, IBRequestPriority.MARKET_DATA, () -> replayed.add("md3"));
+        when(mockSocket.reconnect()).thenReturn(false, false, false, true);
+
+        //no message for longer than the timeout
+        now = 31;
+        supervisor.check();
+        assertTrue(supervisor.isReconnecting());
+
+        now = 130;
+        supervisor.check();
+        verify(mockSocket, times(1)).reconnect();
+        now = 131;
+        supervisor.check();
+        verify(mockSocket, times(2)).reconnect();
+
+        //backoff doubles
+        now = 330;
+        supervisor.check();
+        verify(mockSocket, times(2)).reconnect();
+        now = 331;
+        supervisor.check();
+        verify(mockSocket, times(3)).reconnect();
+
+        now = 731;
+        supervisor.check();
+        verify(mockSocket, times(4)).reconnect();
+        assertFalse(supervisor.isReconnecting());
+        assertEquals(1, supervisor.getReconnectCount());
+
+        //replayed through the scheduler, so within the 2 messages per second limit
+        scheduler.runPending();
+        assertEquals(Arrays.asList("md1", "depth2"), replayed);
+        schedulerNow += 1_000_000_000L;
+        scheduler.runPending();
+        assertEquals(Arrays.asList("md1", "depth2", "md3"), replayed);
+    }
+
+    @Test
+    public void testConnectionClosedTriggersReconnect() {
+        when(mockSocket.reconnect()).thenReturn(true);
+
+        supervisor.connectionClosed();
+        supervisor.check();
+
+        verify(mockSocket).reconnect();
+        assertEquals(1, supervisor.getReconnectCount());
+    }
+
+}
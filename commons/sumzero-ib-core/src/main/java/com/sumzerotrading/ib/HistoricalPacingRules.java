@@ -0,0 +1,98 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IB's historical data pacing rules:
+ * <ul>
+ * <li>No identical requests within 15 seconds</li>
+ * <li>No more than 5 requests for the same contract, exchange and tick type
+ * within 2 seconds</li>
+ * <li>No more than 60 requests within any 10 minute period</li>
+ * </ul>
+ * Not thread safe.
+ */
+public class HistoricalPacingRules {
+
+    public static final long IDENTICAL_REQUEST_NANOS = TimeUnit.SECONDS.toNanos(15);
+    public static final int SAME_CONTRACT_REQUESTS = 5;
+    public static final long SAME_CONTRACT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+    public static final int TOTAL_REQUESTS = 60;
+    public static final long TOTAL_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    protected final SlidingWindowLimit totalLimit;
+    protected final Map<String, SlidingWindowLimit> contractLimits = new HashMap<>();
+    protected final Map<String, Long> lastIdenticalRequest = new HashMap<>();
+
+    public HistoricalPacingRules() {
+        this(TOTAL_REQUESTS, TOTAL_WINDOW_NANOS);
+    }
+
+    public HistoricalPacingRules(int totalRequests, long totalWindowNanos) {
+        totalLimit = new SlidingWindowLimit(totalRequests, totalWindowNanos);
+    }
+
+    /**
+     * @param requestKey Identifies the request, two requests with the same key
+     * are identical
+     * @param contractKey Identifies the contract, exchange and tick type
+     * @param nowNanos The current time
+     * @return 0 if the request may be sent now, otherwise how long until it
+     * may be
+     */
+    public long nanosUntilAllowed(String requestKey, String contractKey, long nowNanos) {
+        long wait = totalLimit.nanosUntilAvailable(nowNanos);
+        Long last = lastIdenticalRequest.get(requestKey);
+        if (last != null) {
+            wait = Math.max(wait, last + IDENTICAL_REQUEST_NANOS - nowNanos);
+        }
+        SlidingWindowLimit contractLimit = contractLimits.get(contractKey);
+        if (contractLimit != null) {
+            wait = Math.max(wait, contractLimit.nanosUntilAvailable(nowNanos));
+        }
+        return Math.max(wait, 0);
+    }
+
+    public void record(String requestKey, String contractKey, long nowNanos) {
+        totalLimit.record(nowNanos);
+        lastIdenticalRequest.put(requestKey, nowNanos);
+        contractLimits.computeIfAbsent(contractKey, key -> new SlidingWindowLimit(SAME_CONTRACT_REQUESTS, SAME_CONTRACT_WINDOW_NANOS)).record(nowNanos);
+        purge(nowNanos);
+    }
+
+    protected void purge(long nowNanos) {
+        for (Iterator<Long> i = lastIdenticalRequest.values().iterator(); i.hasNext();) {
+            if (nowNanos - i.next() >= IDENTICAL_REQUEST_NANOS) {
+                i.remove();
+            }
+        }
+        for (Iterator<SlidingWindowLimit> i = contractLimits.values().iterator(); i.hasNext();) {
+            if (i.next().isEmpty(nowNanos)) {
+                i.remove();
+            }
+        }
+    }
+
+}
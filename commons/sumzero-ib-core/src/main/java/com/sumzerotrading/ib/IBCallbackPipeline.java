@@ -0,0 +1,202 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.log4j.Logger;
+
+/**
+ * Moves delivery of EWrapper callbacks off the EReader thread.
+ *
+ * Each Lane has its own IBCallbackRingBuffer and consumer thread, so a slow
+ * delegate (such as a broker persisting its order maps in orderStatus) only
+ * delays callbacks in its own lane and never the reading of the socket.
+ * Callbacks within a lane are delivered in the order they were read. A
+ * consumer with nothing to deliver blocks until the next publish() to its
+ * lane instead of polling.
+ *
+ * publish() must only be called from a single thread, normally the EReader.
+ */
+public class IBCallbackPipeline<D> {
+
+    public enum Lane {
+        MARKET_DATA,
+        ORDERS,
+        HISTORICAL,
+        GENERAL
+    }
+
+    public static final int DEFAULT_CAPACITY = 16384;
+    protected static final int DRAIN_BATCH = 256;
+
+    protected Logger logger = Logger.getLogger(IBCallbackPipeline.class);
+    protected final Map<Lane, Consumer> consumers = new EnumMap<>(Lane.class);
+    protected final String name;
+
+    public IBCallbackPipeline(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    public IBCallbackPipeline(String name, int capacityPerLane) {
+        this.name = name;
+        for (Lane lane : Lane.values()) {
+            consumers.put(lane, new Consumer(lane, new IBCallbackRingBuffer<>(capacityPerLane)));
+        }
+    }
+
+    public static Lane laneFor(IBMessageCategory category) {
+        if (category == null) {
+            return Lane.GENERAL;
+        }
+        switch (category) {
+            case MARKET_DATA:
+            case MARKET_DEPTH:
+            case REAL_TIME_BARS:
+                return Lane.MARKET_DATA;
+            case ORDER:
+            case ACCOUNT:
+                return Lane.ORDERS;
+            case HISTORICAL_DATA:
+                return Lane.HISTORICAL;
+            default:
+                return Lane.GENERAL;
+        }
+    }
+
+    public synchronized void start() {
+        for (Consumer consumer : consumers.values()) {
+            consumer.start();
+        }
+    }
+
+    /**
+     * Stops the consumer threads once they have delivered everything already
+     * published.
+     */
+    public synchronized void stop() {
+        for (Consumer consumer : consumers.values()) {
+            consumer.running = false;
+            LockSupport.unpark(consumer.thread);
+        }
+        for (Consumer consumer : consumers.values()) {
+            if (consumer.thread != null) {
+                try {
+                    consumer.thread.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the callback for delivery to the delegates on the lane for the
+     * category. Never blocks.
+     *
+     * @param category The category of the callback, or null if it has none
+     * @param delegates The delegates to deliver the callback to
+     * @param callback The callback
+     */
+    public void publish(IBMessageCategory category, D[] delegates, IBCallback<D> callback) {
+        if (delegates.length == 0) {
+            return;
+        }
+        Consumer consumer = consumers.get(laneFor(category));
+        consumer.buffer.publish(delegates, callback);
+        if (consumer.waiting) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    public long getDeliveredCount(Lane lane) {
+        return consumers.get(lane).delivered.get();
+    }
+
+    public long getFailedCount(Lane lane) {
+        return consumers.get(lane).failed.get();
+    }
+
+    public long getBacklog(Lane lane) {
+        return consumers.get(lane).buffer.getBacklog();
+    }
+
+    public long getOverflowCount(Lane lane) {
+        return consumers.get(lane).buffer.getOverflowCount();
+    }
+
+    protected class Consumer implements Runnable, IBCallbackRingBuffer.Handler<D> {
+
+        protected final Lane lane;
+        protected final IBCallbackRingBuffer<D> buffer;
+        protected final AtomicLong delivered = new AtomicLong();
+        protected final AtomicLong failed = new AtomicLong();
+        protected volatile boolean running = false;
+        protected volatile boolean waiting = false;
+        protected volatile Thread thread;
+
+        protected Consumer(Lane lane, IBCallbackRingBuffer<D> buffer) {
+            this.lane = lane;
+            this.buffer = buffer;
+        }
+
+        protected void start() {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = new Thread(this, "IBCallbackPipeline-" + name + "-" + lane);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (running || !buffer.isEmpty()) {
+                if (buffer.drain(DRAIN_BATCH, this) == 0) {
+                    //publish() writes the buffer before it reads waiting, and
+                    //this writes waiting before it reads the buffer, so either
+                    //the callback is seen here or publish() unparks the thread
+                    waiting = true;
+                    if (buffer.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    waiting = false;
+                }
+            }
+        }
+
+        @Override
+        public void handle(D[] delegates, IBCallback<D> callback) {
+            for (D delegate : delegates) {
+                try {
+                    callback.deliver(delegate);
+                } catch (Exception ex) {
+                    failed.incrementAndGet();
+                    logger.error("Error delivering IB callback to " + delegate, ex);
+                }
+            }
+            delivered.incrementAndGet();
+        }
+    }
+}
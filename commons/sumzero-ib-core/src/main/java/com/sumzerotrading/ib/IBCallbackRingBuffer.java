@@ -0,0 +1,176 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single-producer, single-consumer ring of preallocated slots holding
+ * callbacks decoded by the EReader thread.
+ *
+ * The producer never waits for the consumer. If the ring is full the callback
+ * is copied to an unbounded overflow queue instead, and every callback is
+ * stamped with a sequence number so the consumer still delivers them in the
+ * order they were published.
+ */
+public class IBCallbackRingBuffer<D> {
+
+    protected final Slot<D>[] slots;
+    protected final int mask;
+    //index of the next slot the consumer will read, written only by the consumer
+    protected final AtomicLong head = new AtomicLong();
+    //index of the next slot the producer will write, written only by the producer
+    protected final AtomicLong tail = new AtomicLong();
+    protected final ConcurrentLinkedQueue<Slot<D>> overflow = new ConcurrentLinkedQueue<>();
+    protected final AtomicLong overflowCount = new AtomicLong();
+
+    //producer state
+    protected long nextSequence = 0;
+    protected boolean overflowing = false;
+
+    /**
+     * @param capacity The number of preallocated slots, rounded up to a power
+     * of two.
+     */
+    @SuppressWarnings("unchecked")
+    public IBCallbackRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot<>();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Publishes a callback. Must only be called from the producer thread.
+     *
+     * @param delegates The delegates the callback should be delivered to
+     * @param callback The callback
+     * @return true if the callback went into the ring, false if it had to be
+     * put on the overflow queue
+     */
+    public boolean publish(D[] delegates, IBCallback<D> callback) {
+        long sequence = nextSequence++;
+        if (overflowing && overflow.isEmpty()) {
+            //the consumer has caught up with everything that overflowed
+            overflowing = false;
+        }
+        if (!overflowing) {
+            long index = tail.get();
+            if (index - head.get() < slots.length) {
+                Slot<D> slot = slots[(int) index & mask];
+                slot.sequence = sequence;
+                slot.delegates = delegates;
+                slot.callback = callback;
+                //a full volatile write, so a consumer that is about to park
+                //either sees this slot or is seen waiting by the pipeline
+                tail.set(index + 1);
+                return true;
+            }
+            overflowing = true;
+        }
+        Slot<D> slot = new Slot<>();
+        slot.sequence = sequence;
+        slot.delegates = delegates;
+        slot.callback = callback;
+        overflow.add(slot);
+        overflowCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Delivers up to maxCallbacks callbacks, in the order they were
+     * published. Must only be called from the consumer thread.
+     *
+     * @param maxCallbacks The most callbacks to deliver
+     * @param handler Invoked for each callback
+     * @return The number of callbacks delivered
+     */
+    public int drain(int maxCallbacks, Handler<D> handler) {
+        int count = 0;
+        while (count < maxCallbacks) {
+            //peek the overflow queue before reading the tail, so any ring slot
+            //published ahead of the overflow head is guaranteed to be visible
+            Slot<D> overflowSlot = overflow.peek();
+            long index = head.get();
+            D[] delegates;
+            IBCallback<D> callback;
+            if (index < tail.get() && (overflowSlot == null || slots[(int) index & mask].sequence < overflowSlot.sequence)) {
+                Slot<D> slot = slots[(int) index & mask];
+                delegates = slot.delegates;
+                callback = slot.callback;
+                slot.delegates = null;
+                slot.callback = null;
+                head.lazySet(index + 1);
+            } else if (overflowSlot != null) {
+                overflow.poll();
+                delegates = overflowSlot.delegates;
+                callback = overflowSlot.callback;
+            } else {
+                break;
+            }
+            handler.handle(delegates, callback);
+            count++;
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get() && overflow.isEmpty();
+    }
+
+    /**
+     * @return The number of callbacks published but not yet delivered
+     */
+    public long getBacklog() {
+        return tail.get() - head.get() + overflow.size();
+    }
+
+    /**
+     * @return The number of callbacks that found the ring full
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public interface Handler<D> {
+
+        public void handle(D[] delegates, IBCallback<D> callback);
+    }
+
+    protected static final class Slot<D> {
+
+        protected long sequence;
+        protected D[] delegates;
+        protected IBCallback<D> callback;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single entry in the IBCallbackRouter: the delegate that owns a request or
+ * ticker id within a message category, along with a count of the callbacks
+ * that have been routed to it.
+ */
+public class IBCallbackRoute<D> {
+
+    public static final int ALL_IDS = Integer.MIN_VALUE;
+
+    protected final IBMessageCategory category;
+    protected final int requestId;
+    protected final D delegate;
+    protected final D[] delegates;
+    protected final AtomicLong messageCount = new AtomicLong();
+
+    /**
+     * @param category The category of the route
+     * @param requestId The request/ticker id, or ALL_IDS
+     * @param delegates A single element array holding the delegate that owns
+     * the route
+     */
+    public IBCallbackRoute(IBMessageCategory category, int requestId, D[] delegates) {
+        if (delegates.length != 1) {
+            throw new IllegalArgumentException("A route has exactly one delegate: " + delegates.length);
+        }
+        this.category = category;
+        this.requestId = requestId;
+        this.delegate = delegates[0];
+        this.delegates = delegates;
+    }
+
+    public IBMessageCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * @return The request/ticker id, or ALL_IDS if this is the default route
+     * for its category.
+     */
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public D getDelegate() {
+        return delegate;
+    }
+
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    protected D[] route() {
+        messageCount.incrementAndGet();
+        return delegates;
+    }
+
+    @Override
+    public String toString() {
+        return "IBCallbackRoute{" + "category=" + category + ", requestId=" + requestId + ", messageCount=" + messageCount + '}';
+    }
+
+}
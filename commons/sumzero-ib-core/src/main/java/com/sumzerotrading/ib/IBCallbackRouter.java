@@ -0,0 +1,305 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Decides which delegates, normally the IBConnectionInterface implementations
+ * sharing a connection, should receive a callback.
+ *
+ * A callback carrying a request or ticker id goes only to the delegate that
+ * registered a route for that id in the message's category. If there is no
+ * such route it goes to the delegate registered as the default for the
+ * category, and failing that it is broadcast to every delegate, which is how
+ * IBConnection behaved before routes existed.
+ *
+ * All lookups are lock free; the delegate list and route tables are replaced
+ * atomically when they change.
+ */
+public class IBCallbackRouter<D> {
+
+    protected static final IBMessageCategory[] CATEGORIES = IBMessageCategory.values();
+
+    protected final IntFunction<D[]> arrayFactory;
+    protected final D[] noDelegates;
+    protected final AtomicReference<D[]> delegates;
+    protected final List<IntRouteTable<IBCallbackRoute<D>>> routeTables = new ArrayList<>();
+    protected final AtomicReferenceArray<IBCallbackRoute<D>> categoryRoutes = new AtomicReferenceArray<>(CATEGORIES.length);
+    protected final AtomicLongArray broadcastCounts = new AtomicLongArray(CATEGORIES.length);
+
+    /**
+     * @param arrayFactory Creates delegate arrays of the given length, e.g.
+     * <code>IBConnectionInterface[]::new</code>
+     */
+    public IBCallbackRouter(IntFunction<D[]> arrayFactory) {
+        this.arrayFactory = arrayFactory;
+        this.noDelegates = arrayFactory.apply(0);
+        this.delegates = new AtomicReference<>(noDelegates);
+        for (IBMessageCategory category : CATEGORIES) {
+            routeTables.add(new IntRouteTable<>());
+        }
+    }
+
+    public void addDelegate(D delegate) {
+        D[] current;
+        D[] updated;
+        do {
+            current = delegates.get();
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = delegate;
+        } while (!delegates.compareAndSet(current, updated));
+    }
+
+    /**
+     * Removes the delegate along with every route that points to it.
+     *
+     * @param delegate The delegate to remove
+     */
+    public void removeDelegate(D delegate) {
+        D[] current;
+        D[] updated;
+        do {
+            current = delegates.get();
+            int index = Arrays.asList(current).indexOf(delegate);
+            if (index < 0) {
+                break;
+            }
+            updated = arrayFactory.apply(current.length - 1);
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        } while (!delegates.compareAndSet(current, updated));
+
+        for (IBMessageCategory category : CATEGORIES) {
+            for (IBCallbackRoute<D> route : routeTable(category).values()) {
+                if (route.getDelegate() == delegate) {
+                    routeTable(category).remove(route.getRequestId());
+                }
+            }
+            IBCallbackRoute<D> categoryRoute = categoryRoutes.get(category.ordinal());
+            if (categoryRoute != null && categoryRoute.getDelegate() == delegate) {
+                categoryRoutes.compareAndSet(category.ordinal(), categoryRoute, null);
+            }
+        }
+    }
+
+    /**
+     * Routes callbacks for the request or ticker id in the category to the
+     * delegate, replacing any existing route for that id.
+     *
+     * @param category The category the request was made in
+     * @param requestId The request or ticker id
+     * @param delegate The delegate that owns the request
+     * @return The new route
+     */
+    public IBCallbackRoute<D> addRoute(IBMessageCategory category, int requestId, D delegate) {
+        D[] routeDelegates = arrayFactory.apply(1);
+        routeDelegates[0] = delegate;
+        IBCallbackRoute<D> route = new IBCallbackRoute<>(category, requestId, routeDelegates);
+        if (requestId == IBCallbackRoute.ALL_IDS) {
+            categoryRoutes.set(category.ordinal(), route);
+        } else {
+            routeTable(category).put(requestId, route);
+        }
+        return route;
+    }
+
+    /**
+     * Makes the delegate the default receiver for callbacks in the category
+     * that have no id, or whose id has no route of its own.
+     *
+     * @param category The category
+     * @param delegate The delegate
+     * @return The new route
+     */
+    public IBCallbackRoute<D> addCategoryRoute(IBMessageCategory category, D delegate) {
+        return addRoute(category, IBCallbackRoute.ALL_IDS, delegate);
+    }
+
+    public IBCallbackRoute<D> removeRoute(IBMessageCategory category, int requestId) {
+        if (requestId == IBCallbackRoute.ALL_IDS) {
+            return categoryRoutes.getAndSet(category.ordinal(), null);
+        }
+        return routeTable(category).remove(requestId);
+    }
+
+    public IBCallbackRoute<D> getRoute(IBMessageCategory category, int requestId) {
+        if (requestId == IBCallbackRoute.ALL_IDS) {
+            return categoryRoutes.get(category.ordinal());
+        }
+        return routeTable(category).get(requestId);
+    }
+
+    /**
+     * @return A snapshot of every registered route, including category
+     * defaults.
+     */
+    public List<IBCallbackRoute<D>> getRoutes() {
+        List<IBCallbackRoute<D>> routes = new ArrayList<>();
+        for (IBMessageCategory category : CATEGORIES) {
+            routes.addAll(routeTable(category).values());
+            IBCallbackRoute<D> categoryRoute = categoryRoutes.get(category.ordinal());
+            if (categoryRoute != null) {
+                routes.add(categoryRoute);
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * @param category The category
+     * @return The number of callbacks in the category that had no route and
+     * were broadcast to every delegate.
+     */
+    public long getBroadcastCount(IBMessageCategory category) {
+        return broadcastCounts.get(category.ordinal());
+    }
+
+    /**
+     * @return Every registered delegate, for callbacks that belong to no
+     * category. The returned array must not be modified.
+     */
+    public D[] getDelegates() {
+        return delegates.get();
+    }
+
+    /**
+     * Returns the delegates that should receive a callback carrying the id.
+     * The returned array must not be modified.
+     *
+     * @param category The category of the callback
+     * @param requestId The request or ticker id of the callback
+     * @return The delegates to call
+     */
+    public D[] getDelegates(IBMessageCategory category, int requestId) {
+        IBCallbackRoute<D> route = routeTable(category).get(requestId);
+        if (route != null) {
+            return route.route();
+        }
+        return getDelegates(category);
+    }
+
+    /**
+     * Returns the delegates that should receive a callback in the category
+     * which carries no id. The returned array must not be modified.
+     *
+     * @param category The category of the callback
+     * @return The delegates to call
+     */
+    public D[] getDelegates(IBMessageCategory category) {
+        IBCallbackRoute<D> categoryRoute = categoryRoutes.get(category.ordinal());
+        if (categoryRoute != null) {
+            return categoryRoute.route();
+        }
+        broadcastCounts.incrementAndGet(category.ordinal());
+        return delegates.get();
+    }
+
+    /**
+     * Returns the delegates for an id whose category is unknown, such as the
+     * id on an error callback, grouped by the category each delegate owns the
+     * id in. Order ids share their number space with data request ids, so the
+     * id may belong to a routed data request and to an order at the same
+     * time. The result holds every delegate with a route for the id, plus the
+     * delegates that would receive an order callback for the id under ORDER,
+     * so an order rejection is never swallowed by a data request that happens
+     * to use the same id. If no route has the id every delegate is listed
+     * under ORDER.
+     *
+     * Each delegate appears once. A delegate with an order route for the id is
+     * listed under ORDER, so the callback can be delivered in order with the
+     * orderStatus callbacks for the same id.
+     *
+     * @param requestId The request or ticker id
+     * @return The delegates to call, by category
+     */
+    public Map<IBMessageCategory, D[]> getDelegatesByCategory(int requestId) {
+        Map<IBMessageCategory, D[]> owners = new EnumMap<>(IBMessageCategory.class);
+        IBCallbackRoute<D> orderRoute = routeTable(IBMessageCategory.ORDER).get(requestId);
+        D[] assigned = noDelegates;
+        if (orderRoute != null) {
+            assigned = orderRoute.route();
+            owners.put(IBMessageCategory.ORDER, assigned);
+        }
+        for (IBMessageCategory category : CATEGORIES) {
+            IBCallbackRoute<D> route = category == IBMessageCategory.ORDER ? null : routeTable(category).get(requestId);
+            if (route != null) {
+                D[] routed = difference(route.route(), assigned);
+                if (routed.length > 0) {
+                    owners.put(category, routed);
+                    assigned = union(assigned, routed);
+                }
+            }
+        }
+        if (orderRoute == null) {
+            IBCallbackRoute<D> orderCategoryRoute = categoryRoutes.get(IBMessageCategory.ORDER.ordinal());
+            D[] orderDelegates = owners.isEmpty() || orderCategoryRoute == null ? delegates.get() : orderCategoryRoute.route();
+            D[] remaining = difference(orderDelegates, assigned);
+            if (remaining.length > 0) {
+                owners.put(IBMessageCategory.ORDER, remaining);
+            }
+        }
+        return owners;
+    }
+
+    protected static <D> D[] union(D[] first, D[] second) {
+        D[] merged = Arrays.copyOf(first, first.length + second.length);
+        int size = first.length;
+        for (D delegate : second) {
+            if (indexOf(merged, size, delegate) < 0) {
+                merged[size++] = delegate;
+            }
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    protected static <D> D[] difference(D[] first, D[] second) {
+        D[] remaining = Arrays.copyOf(first, first.length);
+        int size = 0;
+        for (D delegate : first) {
+            if (indexOf(second, second.length, delegate) < 0) {
+                remaining[size++] = delegate;
+            }
+        }
+        return size == first.length ? first : Arrays.copyOf(remaining, size);
+    }
+
+    protected static <D> int indexOf(D[] delegates, int size, D delegate) {
+        for (int i = 0; i < size; i++) {
+            if (delegates[i] == delegate) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected IntRouteTable<IBCallbackRoute<D>> routeTable(IBMessageCategory category) {
+        return routeTables.get(category.ordinal());
+    }
+
+}
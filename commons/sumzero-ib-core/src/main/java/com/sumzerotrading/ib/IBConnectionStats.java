@@ -0,0 +1,66 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+/**
+ * A point in time view of the load on one connection in an IBConnectionPool.
+ */
+public class IBConnectionStats {
+
+    protected final int clientId;
+    protected final int marketDataLines;
+    protected final int historicalRequests;
+    protected final long messageCount;
+    protected final double messagesPerSecond;
+
+    public IBConnectionStats(int clientId, int marketDataLines, int historicalRequests, long messageCount, double messagesPerSecond) {
+        this.clientId = clientId;
+        this.marketDataLines = marketDataLines;
+        this.historicalRequests = historicalRequests;
+        this.messageCount = messageCount;
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    public int getMarketDataLines() {
+        return marketDataLines;
+    }
+
+    public int getHistoricalRequests() {
+        return historicalRequests;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return "IBConnectionStats{" + "clientId=" + clientId + ", marketDataLines=" + marketDataLines + ", historicalRequests=" + historicalRequests + ", messageCount=" + messageCount + ", messagesPerSecond=" + messagesPerSecond + '}';
+    }
+
+}
@@ -0,0 +1,232 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import org.apache.log4j.Logger;
+
+/**
+ * Paces requests sent to TWS so they stay within IB's limits.
+ *
+ * Every request takes a token from a bucket that refills at the global
+ * message rate (50 per second by default). Historical data requests must also
+ * pass the HistoricalPacingRules. Requests wait in one FIFO lane per
+ * IBRequestPriority, and a lane is only served when every higher priority lane
+ * is empty, so orders and cancels always go ahead of queued market data and
+ * historical requests. Historical requests that are blocked by their pacing
+ * rules let later historical requests that are allowed go first.
+ *
+ * The clock is pluggable, and runPending() sends whatever is allowed without
+ * needing the worker thread, so tests can drive the scheduler with a fake
+ * clock.
+ */
+public class IBRequestScheduler {
+
+    public static final int DEFAULT_MESSAGES_PER_SECOND = 50;
+
+    protected Logger logger = Logger.getLogger(IBRequestScheduler.class);
+    protected final LongSupplier clock;
+    protected final TokenBucket messageBucket;
+    protected final HistoricalPacingRules historicalRules;
+    protected final Map<IBRequestPriority, ArrayDeque<PacedRequest>> lanes = new EnumMap<>(IBRequestPriority.class);
+    protected final Map<IBRequestPriority, AtomicLong> sentCounts = new EnumMap<>(IBRequestPriority.class);
+    protected volatile Thread worker;
+    protected volatile boolean running = false;
+
+    public IBRequestScheduler() {
+        this(System::nanoTime, DEFAULT_MESSAGES_PER_SECOND, new HistoricalPacingRules());
+    }
+
+    /**
+     * @param clock Returns the current time in nanoseconds
+     * @param messagesPerSecond The most requests to send in any second
+     * @param historicalRules The pacing rules for historical data requests
+     */
+    public IBRequestScheduler(LongSupplier clock, int messagesPerSecond, HistoricalPacingRules historicalRules) {
+        this.clock = clock;
+        this.messageBucket = new TokenBucket(messagesPerSecond, messagesPerSecond, TimeUnit.SECONDS.toNanos(1), clock.getAsLong());
+        this.historicalRules = historicalRules;
+        for (IBRequestPriority priority : IBRequestPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            sentCounts.put(priority, new AtomicLong());
+        }
+    }
+
+    /**
+     * Queues a request. Historical data requests should use submitHistorical
+     * instead so the historical pacing rules are applied.
+     *
+     * @param priority The lane to queue the request in
+     * @param request Sends the request to TWS
+     */
+    public void submit(IBRequestPriority priority, Runnable request) {
+        enqueue(new PacedRequest(priority, request, null, null));
+    }
+
+    /**
+     * Queues a historical data request.
+     *
+     * @param requestKey Identifies the request; requests with equal keys are
+     * identical as far as IB's pacing rules are concerned
+     * @param contractKey Identifies the contract, exchange and tick type
+     * @param request Sends the request to TWS
+     */
+    public void submitHistorical(String requestKey, String contractKey, Runnable request) {
+        enqueue(new PacedRequest(IBRequestPriority.HISTORICAL, request, requestKey, contractKey));
+    }
+
+    /**
+     * Sends every queued request that the limits allow right now. Requests
+     * are sent on the calling thread, so only one thread should call this at
+     * a time; once start() has been called that is the worker thread.
+     *
+     * @return -1 if nothing is queued, otherwise how long until the next
+     * queued request might be allowed (0 if it is allowed now)
+     */
+    public long runPending() {
+        while (true) {
+            PacedRequest next;
+            long wait;
+            synchronized (this) {
+                long now = clock.getAsLong();
+                wait = messageBucket.nanosUntilAvailable(now);
+                if (wait > 0) {
+                    return isEmpty() ? -1 : wait;
+                }
+                wait = Long.MAX_VALUE;
+                next = null;
+                for (IBRequestPriority priority : IBRequestPriority.values()) {
+                    ArrayDeque<PacedRequest> lane = lanes.get(priority);
+                    if (lane.isEmpty()) {
+                        continue;
+                    }
+                    if (priority != IBRequestPriority.HISTORICAL) {
+                        next = lane.poll();
+                        break;
+                    }
+                    for (Iterator<PacedRequest> i = lane.iterator(); i.hasNext();) {
+                        PacedRequest request = i.next();
+                        long allowedIn = historicalRules.nanosUntilAllowed(request.requestKey, request.contractKey, now);
+                        if (allowedIn == 0) {
+                            i.remove();
+                            historicalRules.record(request.requestKey, request.contractKey, now);
+                            next = request;
+                            break;
+                        }
+                        wait = Math.min(wait, allowedIn);
+                    }
+                }
+                if (next == null) {
+                    return wait == Long.MAX_VALUE ? -1 : wait;
+                }
+                messageBucket.tryAcquire(now);
+            }
+            send(next);
+        }
+    }
+
+    public synchronized int getPendingCount(IBRequestPriority priority) {
+        return lanes.get(priority).size();
+    }
+
+    public long getSentCount(IBRequestPriority priority) {
+        return sentCounts.get(priority).get();
+    }
+
+    /**
+     * Starts a daemon thread that sends requests as soon as they are allowed.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "IBRequestScheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    protected void runWorker() {
+        while (running) {
+            long wait = runPending();
+            if (wait < 0) {
+                LockSupport.park(this);
+            } else if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    protected void enqueue(PacedRequest request) {
+        synchronized (this) {
+            lanes.get(request.priority).add(request);
+        }
+        Thread thread = worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    protected boolean isEmpty() {
+        for (ArrayDeque<PacedRequest> lane : lanes.values()) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void send(PacedRequest request) {
+        try {
+            request.request.run();
+        } catch (Exception ex) {
+            logger.error("Error sending " + request.priority + " request to IB", ex);
+        }
+        sentCounts.get(request.priority).incrementAndGet();
+    }
+
+    protected static class PacedRequest {
+
+        protected final IBRequestPriority priority;
+        protected final Runnable request;
+        protected final String requestKey;
+        protected final String contractKey;
+
+        protected PacedRequest(IBRequestPriority priority, Runnable request, String requestKey, String contractKey) {
+            this.priority = priority;
+            this.request = request;
+            this.requestKey = requestKey;
+            this.contractKey = contractKey;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The requests that have to be sent again to restore a connection's state
+ * after TWS reconnects: market data and depth subscriptions, and historical
+ * requests still waiting for their data. Entries are replayed in the order
+ * they were first recorded.
+ */
+public class IBSubscriptionJournal {
+
+    protected final Map<Key, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Records a request, replacing any earlier entry with the same category
+     * and id.
+     *
+     * @param category The category of the request
+     * @param requestId The request or ticker id
+     * @param priority The scheduler lane to replay the request in
+     * @param request Sends the request to TWS
+     */
+    public synchronized void record(IBMessageCategory category, int requestId, IBRequestPriority priority, Runnable request) {
+        entries.put(new Key(category, requestId), new Entry(category, requestId, priority, request));
+    }
+
+    /**
+     * Records a historical data request, which is replayed through
+     * IBRequestScheduler.submitHistorical so it is paced by its own keys.
+     *
+     * @param requestId The request id
+     * @param requestKey Identifies the request for the historical pacing rules
+     * @param contractKey Identifies the contract, exchange and tick type
+     * @param request Sends the request to TWS
+     */
+    public synchronized void recordHistorical(int requestId, String requestKey, String contractKey, Runnable request) {
+        entries.put(new Key(IBMessageCategory.HISTORICAL_DATA, requestId), new Entry(IBMessageCategory.HISTORICAL_DATA, requestId, IBRequestPriority.HISTORICAL, request, requestKey, contractKey));
+    }
+
+    public synchronized boolean remove(IBMessageCategory category, int requestId) {
+        return entries.remove(new Key(category, requestId)) != null;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Queues every recorded request on the scheduler, so a bulk resubscribe
+     * stays within IB's pacing limits.
+     *
+     * @param scheduler The scheduler to send the requests through
+     * @return The number of requests queued
+     */
+    public int replay(IBRequestScheduler scheduler) {
+        List<Entry> toReplay = getEntries();
+        for (Entry entry : toReplay) {
+            if (entry.getRequestKey() != null) {
+                scheduler.submitHistorical(entry.getRequestKey(), entry.getContractKey(), entry.getRequest());
+            } else {
+                scheduler.submit(entry.getPriority(), entry.getRequest());
+            }
+        }
+        return toReplay.size();
+    }
+
+    public static class Entry {
+
+        protected final IBMessageCategory category;
+        protected final int requestId;
+        protected final IBRequestPriority priority;
+        protected final Runnable request;
+        protected final String requestKey;
+        protected final String contractKey;
+
+        public Entry(IBMessageCategory category, int requestId, IBRequestPriority priority, Runnable request) {
+            this(category, requestId, priority, request, null, null);
+        }
+
+        public Entry(IBMessageCategory category, int requestId, IBRequestPriority priority, Runnable request, String requestKey, String contractKey) {
+            this.category = category;
+            this.requestId = requestId;
+            this.priority = priority;
+            this.request = request;
+            this.requestKey = requestKey;
+            this.contractKey = contractKey;
+        }
+
+        public IBMessageCategory getCategory() {
+            return category;
+        }
+
+        public int getRequestId() {
+            return requestId;
+        }
+
+        public IBRequestPriority getPriority() {
+            return priority;
+        }
+
+        public Runnable getRequest() {
+            return request;
+        }
+
+        /**
+         * @return The historical pacing key of the request, or null if it is
+         * not a historical data request
+         */
+        public String getRequestKey() {
+            return requestKey;
+        }
+
+        public String getContractKey() {
+            return contractKey;
+        }
+    }
+
+    protected static class Key {
+
+        protected final IBMessageCategory category;
+        protected final int requestId;
+
+        protected Key(IBMessageCategory category, int requestId) {
+            this.category = category;
+            this.requestId = requestId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * category.hashCode() + requestId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return category == other.category && requestId == other.requestId;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A map from primitive int keys to values which readers can query without
+ * locking or boxing. Every write publishes a new immutable open-addressed
+ * table, so writes cost O(n) and are intended for subscribe/unsubscribe, while
+ * lookups from the reader thread stay a couple of array reads.
+ *
+ * @param <V> The type of value stored in the table
+ */
+public class IntRouteTable<V> {
+
+    protected final AtomicReference<Table> table = new AtomicReference<>(new Table(new int[0], new Object[0], 0));
+
+    /**
+     * Returns the value for the key, or null if there is none.
+     *
+     * @param key The key to look up
+     * @return The value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) table.get().get(key);
+    }
+
+    /**
+     * Maps the key to the value, replacing any existing mapping.
+     *
+     * @param key The key
+     * @param value The value, which may not be null
+     * @return The previous value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value can not be null");
+        }
+        while (true) {
+            Table current = table.get();
+            Object previous = current.get(key);
+            Table updated = current.copy(previous == null ? current.size + 1 : current.size);
+            updated.insert(key, value);
+            if (table.compareAndSet(current, updated)) {
+                return (V) previous;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @param key The key
+     * @return The value that was removed, or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        while (true) {
+            Table current = table.get();
+            Object previous = current.get(key);
+            if (previous == null) {
+                return null;
+            }
+            Table updated = current.copyWithout(key);
+            if (table.compareAndSet(current, updated)) {
+                return (V) previous;
+            }
+        }
+    }
+
+    public int size() {
+        return table.get().size;
+    }
+
+    /**
+     * @return A snapshot of the values currently in the table
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        Table current = table.get();
+        List<V> values = new ArrayList<>(current.size);
+        for (Object value : current.values) {
+            if (value != null) {
+                values.add((V) value);
+            }
+        }
+        return values;
+    }
+
+    protected static final class Table {
+
+        protected final int[] keys;
+        protected final Object[] values;
+        protected final int size;
+
+        protected Table(int[] keys, Object[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        protected Object get(int key) {
+            int length = keys.length;
+            if (length == 0) {
+                return null;
+            }
+            int mask = length - 1;
+            for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return value;
+                }
+            }
+        }
+
+        protected Table copy(int newSize) {
+            Table copy = new Table(new int[capacityFor(newSize)], new Object[capacityFor(newSize)], newSize);
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    copy.insert(keys[i], values[i]);
+                }
+            }
+            return copy;
+        }
+
+        protected Table copyWithout(int key) {
+            Table copy = new Table(new int[capacityFor(size - 1)], new Object[capacityFor(size - 1)], size - 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null && keys[i] != key) {
+                    copy.insert(keys[i], values[i]);
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Only used while building a table that has not been published yet.
+         */
+        protected void insert(int key, Object value) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        protected static int capacityFor(int size) {
+            if (size == 0) {
+                return 0;
+            }
+            //keep the table at most half full so probe chains stay short
+            return Integer.highestOneBit(size * 2 - 1) << 1;
+        }
+
+        protected static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayDeque;
+
+/**
+ * Allows at most maxEvents events within any window of windowNanos. Unlike a
+ * token bucket this never lets a burst at the end of one window combine with
+ * a burst at the start of the next. Not thread safe.
+ */
+public class SlidingWindowLimit {
+
+    protected final int maxEvents;
+    protected final long windowNanos;
+    protected final ArrayDeque<Long> eventTimes = new ArrayDeque<>();
+
+    public SlidingWindowLimit(int maxEvents, long windowNanos) {
+        if (maxEvents < 1 || windowNanos < 1) {
+            throw new IllegalArgumentException("Invalid window: maxEvents=" + maxEvents + ", windowNanos=" + windowNanos);
+        }
+        this.maxEvents = maxEvents;
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * @param nowNanos The current time
+     * @return 0 if an event may happen now, otherwise how long until one may
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        expire(nowNanos);
+        if (eventTimes.size() < maxEvents) {
+            return 0;
+        }
+        return eventTimes.peekFirst() + windowNanos - nowNanos;
+    }
+
+    public void record(long nowNanos) {
+        expire(nowNanos);
+        eventTimes.addLast(nowNanos);
+    }
+
+    public boolean isEmpty(long nowNanos) {
+        expire(nowNanos);
+        return eventTimes.isEmpty();
+    }
+
+    protected void expire(long nowNanos) {
+        while (!eventTimes.isEmpty() && nowNanos - eventTimes.peekFirst() >= windowNanos) {
+            eventTimes.removeFirst();
+        }
+    }
+
+}
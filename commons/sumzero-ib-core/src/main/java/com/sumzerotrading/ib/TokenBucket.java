@@ -0,0 +1,84 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+/**
+ * A token bucket that holds at most capacity tokens and gains refillTokens
+ * every refillPeriodNanos, one at a time. Times are supplied by the caller so
+ * the bucket can be driven by a fake clock. Not thread safe.
+ */
+public class TokenBucket {
+
+    protected final long capacity;
+    protected final long nanosPerToken;
+    protected long tokens;
+    protected long lastRefillNanos;
+
+    public TokenBucket(long capacity, long refillTokens, long refillPeriodNanos, long nowNanos) {
+        if (capacity < 1 || refillTokens < 1 || refillPeriodNanos < refillTokens) {
+            throw new IllegalArgumentException("Invalid token bucket: capacity=" + capacity + ", refillTokens=" + refillTokens + ", refillPeriodNanos=" + refillPeriodNanos);
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = refillPeriodNanos / refillTokens;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        refill(nowNanos);
+        if (tokens > 0) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param nowNanos The current time
+     * @return 0 if a token is available now, otherwise how long until one is
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        refill(nowNanos);
+        if (tokens > 0) {
+            return 0;
+        }
+        return lastRefillNanos + nanosPerToken - nowNanos;
+    }
+
+    public long getAvailableTokens(long nowNanos) {
+        refill(nowNanos);
+        return tokens;
+    }
+
+    protected void refill(long nowNanos) {
+        long newTokens = (nowNanos - lastRefillNanos) / nanosPerToken;
+        if (newTokens <= 0) {
+            return;
+        }
+        if (tokens + newTokens >= capacity) {
+            tokens = capacity;
+            lastRefillNanos = nowNanos;
+        } else {
+            tokens += newTokens;
+            lastRefillNanos += newTokens * nanosPerToken;
+        }
+    }
+
+}
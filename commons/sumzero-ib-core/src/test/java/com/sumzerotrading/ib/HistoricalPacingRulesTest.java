@@ -0,0 +1,56 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class HistoricalPacingRulesTest {
+
+    protected static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testSameContractLimit() {
+        HistoricalPacingRules rules = new HistoricalPacingRules();
+        for (int i = 0; i < HistoricalPacingRules.SAME_CONTRACT_REQUESTS; i++) {
+            assertEquals(0, rules.nanosUntilAllowed("req" + i, "ES", i));
+            rules.record("req" + i, "ES", i);
+        }
+
+        assertEquals(2 * SECOND - 5, rules.nanosUntilAllowed("req6", "ES", 5));
+        assertEquals(0, rules.nanosUntilAllowed("req6", "NQ", 5));
+        assertEquals(0, rules.nanosUntilAllowed("req6", "ES", 2 * SECOND));
+    }
+
+    @Test
+    public void testTotalLimitIsASlidingWindow() {
+        HistoricalPacingRules rules = new HistoricalPacingRules(3, 600 * SECOND);
+        rules.record("a", "A", 0);
+        rules.record("b", "B", 500 * SECOND);
+        rules.record("c", "C", 599 * SECOND);
+
+        assertEquals(SECOND, rules.nanosUntilAllowed("d", "D", 599 * SECOND));
+        assertEquals(0, rules.nanosUntilAllowed("d", "D", 600 * SECOND));
+        rules.record("d", "D", 600 * SECOND);
+        assertEquals(500 * SECOND - 1, rules.nanosUntilAllowed("e", "E", 600 * SECOND + 1));
+    }
+
+}
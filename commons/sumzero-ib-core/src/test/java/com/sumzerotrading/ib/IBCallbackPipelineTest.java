@@ -0,0 +1,109 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IBCallbackPipelineTest {
+
+    protected IBCallbackPipeline<Object> pipeline;
+    protected Object[] delegates = {new Object()};
+
+    @Before
+    public void setUp() {
+        pipeline = new IBCallbackPipeline<>("test", 16);
+        pipeline.start();
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    public void testLaneForCategory() {
+        assertEquals(IBCallbackPipeline.Lane.MARKET_DATA, IBCallbackPipeline.laneFor(IBMessageCategory.MARKET_DEPTH));
+        assertEquals(IBCallbackPipeline.Lane.ORDERS, IBCallbackPipeline.laneFor(IBMessageCategory.ACCOUNT));
+        assertEquals(IBCallbackPipeline.Lane.HISTORICAL, IBCallbackPipeline.laneFor(IBMessageCategory.HISTORICAL_DATA));
+        assertEquals(IBCallbackPipeline.Lane.GENERAL, IBCallbackPipeline.laneFor(null));
+    }
+
+    @Test
+    public void testSlowOrderDelegateDoesNotBlockPublisherOrMarketData() throws Exception {
+        CountDownLatch releaseOrders = new CountDownLatch(1);
+        CountDownLatch ticks = new CountDownLatch(1000);
+
+        pipeline.publish(IBMessageCategory.ORDER, delegates, delegate -> {
+            try {
+                releaseOrders.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        //more order callbacks than the ring holds, all queued behind the stuck one
+        for (int i = 0; i < 100; i++) {
+            pipeline.publish(IBMessageCategory.ORDER, delegates, delegate -> {
+            });
+        }
+        for (int i = 0; i < 1000; i++) {
+            pipeline.publish(IBMessageCategory.MARKET_DATA, delegates, delegate -> ticks.countDown());
+        }
+
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.getOverflowCount(IBCallbackPipeline.Lane.ORDERS) > 0);
+
+        releaseOrders.countDown();
+        pipeline.stop();
+        assertEquals(101, pipeline.getDeliveredCount(IBCallbackPipeline.Lane.ORDERS));
+        assertEquals(0, pipeline.getBacklog(IBCallbackPipeline.Lane.ORDERS));
+    }
+
+    @Test
+    public void testIdleConsumerBlocksUntilPublish() throws Exception {
+        Thread consumer = pipeline.consumers.get(IBCallbackPipeline.Lane.GENERAL).thread;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (consumer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, consumer.getState());
+
+        CountDownLatch delivered = new CountDownLatch(1);
+        pipeline.publish(null, delegates, delegate -> delivered.countDown());
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailingDelegateIsCountedAndSkipped() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        pipeline.publish(IBMessageCategory.HISTORICAL_DATA, delegates, delegate -> {
+            throw new IllegalStateException("test");
+        });
+        pipeline.publish(IBMessageCategory.HISTORICAL_DATA, delegates, delegate -> delivered.countDown());
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, pipeline.getFailedCount(IBCallbackPipeline.Lane.HISTORICAL));
+    }
+}
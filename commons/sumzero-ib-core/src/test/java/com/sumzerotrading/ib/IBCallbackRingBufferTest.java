@@ -0,0 +1,126 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class IBCallbackRingBufferTest {
+
+    protected Object[] delegates = {new Object()};
+
+    @Test
+    public void testCapacityRoundedToPowerOfTwo() {
+        assertEquals(8, new IBCallbackRingBuffer<>(5).getCapacity());
+        assertEquals(8, new IBCallbackRingBuffer<>(8).getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new IBCallbackRingBuffer<>(0);
+    }
+
+    @Test
+    public void testDeliversInOrder() {
+        IBCallbackRingBuffer<Object> buffer = new IBCallbackRingBuffer<>(8);
+        List<Integer> delivered = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.publish(delegates, new Numbered(i)));
+        }
+        assertEquals(5, buffer.getBacklog());
+
+        assertEquals(3, buffer.drain(3, (d, callback) -> delivered.add(((Numbered) callback).number)));
+        assertEquals(2, buffer.drain(10, (d, callback) -> delivered.add(((Numbered) callback).number)));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), delivered);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testFullRingOverflowsWithoutReordering() {
+        IBCallbackRingBuffer<Object> buffer = new IBCallbackRingBuffer<>(4);
+        List<Integer> delivered = new ArrayList<>();
+        IBCallbackRingBuffer.Handler<Object> handler = (d, callback) -> delivered.add(((Numbered) callback).number);
+
+        for (int i = 0; i < 10; i++) {
+            buffer.publish(delegates, new Numbered(i));
+        }
+        assertEquals(6, buffer.getOverflowCount());
+        assertEquals(10, buffer.getBacklog());
+
+        //the consumer frees ring slots, but later callbacks must still queue behind the overflow
+        buffer.drain(5, handler);
+        assertFalse(buffer.publish(delegates, new Numbered(10)));
+        buffer.drain(100, handler);
+
+        //once the overflow has drained the ring is used again
+        assertTrue(buffer.publish(delegates, new Numbered(11)));
+        buffer.drain(100, handler);
+
+        assertEquals(12, delivered.size());
+        for (int i = 0; i < delivered.size(); i++) {
+            assertEquals(i, delivered.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testConcurrentProducerAndConsumer() throws Exception {
+        IBCallbackRingBuffer<Object> buffer = new IBCallbackRingBuffer<>(64);
+        int count = 200000;
+        int[] next = {0};
+        boolean[] inOrder = {true};
+        Thread consumer = new Thread(() -> {
+            while (next[0] < count) {
+                buffer.drain(32, (d, callback) -> {
+                    if (((Numbered) callback).number != next[0]) {
+                        inOrder[0] = false;
+                    }
+                    next[0]++;
+                });
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            buffer.publish(delegates, new Numbered(i));
+        }
+        consumer.join(30000);
+
+        assertEquals(count, next[0]);
+        assertTrue(inOrder[0]);
+    }
+
+    protected static class Numbered implements IBCallback<Object> {
+
+        protected final int number;
+
+        protected Numbered(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public void deliver(Object delegate) {
+        }
+    }
+}
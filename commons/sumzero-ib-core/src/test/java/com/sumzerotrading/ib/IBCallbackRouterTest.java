@@ -0,0 +1,146 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IBCallbackRouterTest {
+
+    protected IBCallbackRouter<Delegate> router;
+    protected Delegate quoteEngine;
+    protected Delegate broker;
+
+    @Before
+    public void setUp() {
+        router = new IBCallbackRouter<>(Delegate[]::new);
+        quoteEngine = new Delegate();
+        broker = new Delegate();
+        router.addDelegate(quoteEngine);
+        router.addDelegate(broker);
+    }
+
+    @Test
+    public void testRoutedIdReachesOnlyOwner() {
+        IBCallbackRoute<Delegate> route = router.addRoute(IBMessageCategory.MARKET_DATA, 100001, quoteEngine);
+
+        Delegate[] delegates = router.getDelegates(IBMessageCategory.MARKET_DATA, 100001);
+        router.getDelegates(IBMessageCategory.MARKET_DATA, 100001);
+
+        assertEquals(1, delegates.length);
+        assertTrue(delegates[0] == quoteEngine);
+        assertEquals(2, route.getMessageCount());
+        assertEquals(0, router.getBroadcastCount(IBMessageCategory.MARKET_DATA));
+    }
+
+    @Test
+    public void testSameIdInOtherCategoryIsNotRouted() {
+        router.addRoute(IBMessageCategory.MARKET_DATA, 100001, quoteEngine);
+
+        assertEquals(2, router.getDelegates(IBMessageCategory.HISTORICAL_DATA, 100001).length);
+        assertEquals(1, router.getBroadcastCount(IBMessageCategory.HISTORICAL_DATA));
+    }
+
+    @Test
+    public void testCategoryRouteIsDefaultForCategory() {
+        router.addRoute(IBMessageCategory.ORDER, 5, quoteEngine);
+        IBCallbackRoute<Delegate> categoryRoute = router.addCategoryRoute(IBMessageCategory.ORDER, broker);
+
+        assertTrue(router.getDelegates(IBMessageCategory.ORDER, 6)[0] == broker);
+        assertTrue(router.getDelegates(IBMessageCategory.ORDER)[0] == broker);
+        assertTrue(router.getDelegates(IBMessageCategory.ORDER, 5)[0] == quoteEngine);
+        assertEquals(2, categoryRoute.getMessageCount());
+    }
+
+    @Test
+    public void testAnyCategoryLookup() {
+        router.addRoute(IBMessageCategory.MARKET_DEPTH, 100002, quoteEngine);
+        router.addCategoryRoute(IBMessageCategory.ORDER, broker);
+
+        Map<IBMessageCategory, Delegate[]> owners = router.getDelegatesByCategory(100002);
+        assertEquals(2, owners.size());
+        assertTrue(owners.get(IBMessageCategory.MARKET_DEPTH)[0] == quoteEngine);
+        assertTrue(owners.get(IBMessageCategory.ORDER)[0] == broker);
+    }
+
+    @Test
+    public void testUnroutedIdGoesToEveryDelegateAsAnOrder() {
+        router.addCategoryRoute(IBMessageCategory.ORDER, broker);
+
+        Map<IBMessageCategory, Delegate[]> owners = router.getDelegatesByCategory(9);
+        assertEquals(1, owners.size());
+        assertEquals(2, owners.get(IBMessageCategory.ORDER).length);
+    }
+
+    @Test
+    public void testAnyCategoryLookupAlsoReachesOrderDelegates() {
+        router.addRoute(IBMessageCategory.MARKET_DATA, 7, quoteEngine);
+
+        Map<IBMessageCategory, Delegate[]> owners = router.getDelegatesByCategory(7);
+        assertEquals(2, owners.size());
+        assertEquals(1, owners.get(IBMessageCategory.MARKET_DATA).length);
+        assertTrue(owners.get(IBMessageCategory.MARKET_DATA)[0] == quoteEngine);
+        //the quote engine is a delegate too, but already hears about the id as market data
+        assertEquals(1, owners.get(IBMessageCategory.ORDER).length);
+        assertTrue(owners.get(IBMessageCategory.ORDER)[0] == broker);
+
+        router.addRoute(IBMessageCategory.ORDER, 7, broker);
+        owners = router.getDelegatesByCategory(7);
+        assertEquals(2, owners.size());
+        assertTrue(owners.get(IBMessageCategory.ORDER)[0] == broker);
+
+        //an order route wins over a data route for the same delegate
+        router.addRoute(IBMessageCategory.ORDER, 7, quoteEngine);
+        owners = router.getDelegatesByCategory(7);
+        assertEquals(1, owners.size());
+        assertEquals(1, owners.get(IBMessageCategory.ORDER).length);
+        assertTrue(owners.get(IBMessageCategory.ORDER)[0] == quoteEngine);
+    }
+
+    @Test
+    public void testRemoveDelegateRemovesItsRoutes() {
+        router.addRoute(IBMessageCategory.MARKET_DATA, 100001, quoteEngine);
+        router.addCategoryRoute(IBMessageCategory.ACCOUNT, quoteEngine);
+        router.addRoute(IBMessageCategory.ORDER, 1, broker);
+
+        router.removeDelegate(quoteEngine);
+
+        assertNull(router.getRoute(IBMessageCategory.MARKET_DATA, 100001));
+        assertNull(router.getRoute(IBMessageCategory.ACCOUNT, IBCallbackRoute.ALL_IDS));
+        assertEquals(1, router.getRoutes().size());
+        assertEquals(1, router.getDelegates().length);
+    }
+
+    @Test
+    public void testRemoveRoute() {
+        IBCallbackRoute<Delegate> route = router.addRoute(IBMessageCategory.MARKET_DATA, 100001, quoteEngine);
+
+        assertTrue(route == router.removeRoute(IBMessageCategory.MARKET_DATA, 100001));
+        assertEquals(2, router.getDelegates(IBMessageCategory.MARKET_DATA, 100001).length);
+    }
+
+    protected static class Delegate {
+    }
+
+}
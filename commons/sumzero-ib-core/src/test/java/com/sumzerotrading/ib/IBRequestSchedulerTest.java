@@ -0,0 +1,109 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IBRequestSchedulerTest {
+
+    protected long now = 0;
+    protected List<String> sent = new ArrayList<>();
+    protected IBRequestScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new IBRequestScheduler(() -> now, 2, new HistoricalPacingRules());
+    }
+
+    @Test
+    public void testGlobalRateLimit() {
+        for (int i = 0; i < 5; i++) {
+            String name = "md" + i;
+            scheduler.submit(IBRequestPriority.MARKET_DATA, () -> sent.add(name));
+        }
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), scheduler.runPending());
+        assertEquals(Arrays.asList("md0", "md1"), sent);
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        scheduler.runPending();
+        assertEquals(3, sent.size());
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertEquals(-1, scheduler.runPending());
+        assertEquals(Arrays.asList("md0", "md1", "md2", "md3", "md4"), sent);
+        assertEquals(5, scheduler.getSentCount(IBRequestPriority.MARKET_DATA));
+    }
+
+    @Test
+    public void testOrdersJumpTheQueue() {
+        scheduler.submit(IBRequestPriority.HISTORICAL, () -> sent.add("historical"));
+        scheduler.submit(IBRequestPriority.MARKET_DATA, () -> sent.add("md"));
+        scheduler.submit(IBRequestPriority.MARKET_DATA, () -> sent.add("md2"));
+        scheduler.submit(IBRequestPriority.ORDER, () -> sent.add("order"));
+        scheduler.submit(IBRequestPriority.ORDER, () -> sent.add("cancel"));
+
+        scheduler.runPending();
+        assertEquals(Arrays.asList("order", "cancel"), sent);
+        assertEquals(2, scheduler.getPendingCount(IBRequestPriority.MARKET_DATA));
+
+        now += TimeUnit.SECONDS.toNanos(1);
+        scheduler.runPending();
+        assertEquals(Arrays.asList("order", "cancel", "md", "md2"), sent);
+        assertEquals(1, scheduler.getPendingCount(IBRequestPriority.HISTORICAL));
+    }
+
+    @Test
+    public void testIdenticalHistoricalRequestIsDelayed() {
+        scheduler = new IBRequestScheduler(() -> now, 100, new HistoricalPacingRules());
+        scheduler.submitHistorical("ES-1min-1D", "ES-TRADES", () -> sent.add("first"));
+        scheduler.submitHistorical("ES-1min-1D", "ES-TRADES", () -> sent.add("identical"));
+        scheduler.submitHistorical("NQ-1min-1D", "NQ-TRADES", () -> sent.add("other"));
+
+        long wait = scheduler.runPending();
+
+        assertEquals(Arrays.asList("first", "other"), sent);
+        assertEquals(HistoricalPacingRules.IDENTICAL_REQUEST_NANOS, wait);
+
+        now += wait;
+        scheduler.runPending();
+        assertEquals(Arrays.asList("first", "other", "identical"), sent);
+    }
+
+    @Test
+    public void testRequestExceptionDoesNotStopScheduler() {
+        scheduler.submit(IBRequestPriority.ACCOUNT, () -> {
+            throw new IllegalStateException("test");
+        });
+        scheduler.submit(IBRequestPriority.ACCOUNT, () -> sent.add("next"));
+
+        scheduler.runPending();
+
+        assertEquals(Arrays.asList("next"), sent);
+        assertEquals(2, scheduler.getSentCount(IBRequestPriority.ACCOUNT));
+    }
+
+}
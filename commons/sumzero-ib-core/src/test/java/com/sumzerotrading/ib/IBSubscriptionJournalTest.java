@@ -0,0 +1,72 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class IBSubscriptionJournalTest {
+
+    protected IBSubscriptionJournal journal = new IBSubscriptionJournal();
+    protected List<String> replayed = new ArrayList<>();
+
+    @Test
+    public void testRemove() {
+        journal.record(IBMessageCategory.MARKET_DATA, 1, IBRequestPriority.MARKET_DATA, () -> replayed.add("md1"));
+        journal.record(IBMessageCategory.MARKET_DEPTH, 1, IBRequestPriority.MARKET_DATA, () -> replayed.add("depth1"));
+
+        assertTrue(journal.remove(IBMessageCategory.MARKET_DATA, 1));
+        assertFalse(journal.remove(IBMessageCategory.MARKET_DATA, 1));
+        assertEquals(1, journal.size());
+        assertEquals(IBMessageCategory.MARKET_DEPTH, journal.getEntries().get(0).getCategory());
+    }
+
+
+    @Test
+    public void testRecordReplacesSameId() {
+        journal.record(IBMessageCategory.MARKET_DATA, 1, IBRequestPriority.MARKET_DATA, () -> replayed.add("first"));
+        journal.record(IBMessageCategory.MARKET_DATA, 1, IBRequestPriority.MARKET_DATA, () -> replayed.add("second"));
+
+        assertEquals(1, journal.size());
+        journal.getEntries().get(0).getRequest().run();
+        assertEquals("second", replayed.get(0));
+    }
+
+    @Test
+    public void testHistoricalRequestsReplayWithTheirPacingKeys() {
+        IBRequestScheduler scheduler = new IBRequestScheduler(() -> 0L, 50, new HistoricalPacingRules());
+        journal.record(IBMessageCategory.MARKET_DATA, 1, IBRequestPriority.MARKET_DATA, () -> replayed.add("md1"));
+        journal.recordHistorical(2, "AAPL:1 D", "AAPL", () -> replayed.add("hist2"));
+        journal.recordHistorical(3, "MSFT:1 D", "MSFT", () -> replayed.add("hist3"));
+
+        assertEquals(3, journal.replay(scheduler));
+        scheduler.runPending();
+
+        //distinct requests are not held back by the identical request rule
+        assertEquals(Arrays.asList("md1", "hist2", "hist3"), replayed);
+        assertEquals("AAPL:1 D", journal.getEntries().get(1).getRequestKey());
+    }
+
+}
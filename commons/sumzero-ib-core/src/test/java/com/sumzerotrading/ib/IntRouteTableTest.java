@@ -0,0 +1,75 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.ib;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class IntRouteTableTest {
+
+    @Test
+    public void testPutGetRemove() {
+        IntRouteTable<String> table = new IntRouteTable<>();
+        assertNull(table.get(0));
+
+        assertNull(table.put(0, "zero"));
+        assertNull(table.put(-7, "minus seven"));
+        assertEquals("zero", table.put(0, "ZERO"));
+
+        assertEquals("ZERO", table.get(0));
+        assertEquals("minus seven", table.get(-7));
+        assertEquals(2, table.size());
+
+        assertEquals("ZERO", table.remove(0));
+        assertNull(table.remove(0));
+        assertNull(table.get(0));
+        assertEquals(1, table.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValueRejected() {
+        new IntRouteTable<String>().put(1, null);
+    }
+
+    @Test
+    public void testMatchesHashMap() {
+        IntRouteTable<Integer> table = new IntRouteTable<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            int key = 100000 + random.nextInt(300);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), table.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), table.remove(key));
+            }
+            int probe = 100000 + random.nextInt(400);
+            assertEquals(expected.get(probe), table.get(probe));
+        }
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected.size(), table.values().size());
+    }
+
+}
@@ -43,6 +43,7 @@ import com.sumzerotrading.ib.BaseIBConnectionDelegate;
 import com.sumzerotrading.ib.ContractBuilderFactory;
 import com.sumzerotrading.ib.ContractWrapper;
 import com.sumzerotrading.ib.IBConnectionInterface;
+import com.sumzerotrading.ib.IBRequestPriority;
 import com.sumzerotrading.ib.IBSocket;
 import com.sumzerotrading.ib.IbUtils;
 import com.sumzerotrading.time.TimeUpdatedListener;
@@ -322,6 +323,14 @@ public class InteractiveBrokersBroker extends BaseIBConnectionDelegate implement
         return ++nextOrderId + "";
     }
 
+    /**
+     * Queues the order on the socket's request scheduler and returns without
+     * waiting for it to be sent to TWS. Orders go ahead of any queued market
+     * data and historical requests. The order's status, including a
+     * rejection, is reported to the OrderEventListeners once TWS responds.
+     *
+     * @param order The order to place
+     */
     public void placeOrder(TradeOrder order) {
         logger.info("Order received: " + order);
         order.setOrderEntryTime(getZoneDateTime());
@@ -330,9 +339,10 @@ public class InteractiveBrokersBroker extends BaseIBConnectionDelegate implement
         logger.debug("Order converted to " + orders.size() + " IB Order(s)");
         orders.get(orders.size() - 1).getOrder().transmit(true);
         for (IbOrderAndContract ibOrder : orders) {
-            ibConnection.placeOrder(ibOrder.getOrder().orderId(), ibOrder.getContract(), ibOrder.getOrder());
+            ibSocket.getRequestScheduler().submit(IBRequestPriority.ORDER,
+                    () -> ibConnection.placeOrder(ibOrder.getOrder().orderId(), ibOrder.getContract(), ibOrder.getOrder()));
         }
-        logger.debug("Orders placed at IB");
+        logger.debug("Orders queued for IB");
     }
 
     public void aquireLock() {
@@ -25,24 +25,27 @@ import com.sumzerotrading.ib.historical.HistoricalData;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.SynchronousQueue;
-import java.util.logging.Level;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 //import org.apache.log4j.Logger;
 
 /**
+ * Collects the bars for one historical data request and completes a future
+ * once IB signals the end of the series.  Bars for a request are delivered on
+ * a single callback thread, so the bar list itself needs no locking; the
+ * future publishes it safely to whoever is waiting.
  *
  * @author Rob Terpilowski
  */
 public class IBHistoricalDataEventProcessor {
 
-    protected volatile boolean shouldRun = false;
     protected int requestId;
-    protected List<BarData> historicalData = new ArrayList<BarData>();
-    protected BlockingQueue<List<BarData>> dataQueue = new SynchronousQueue<List<BarData>>();
-    protected List<BarData> dataList = new ArrayList<BarData>();
+    protected volatile List<BarData> dataList = new ArrayList<BarData>();
+    protected CompletableFuture<List<BarData>> future = new CompletableFuture<>();
+    protected final AtomicBoolean sent = new AtomicBoolean();
   //  protected Logger logger = Logger.getLogger( IBHistoricalDataEventProcessor.class );
-    protected BarData.LengthUnit barSizeUnit;
     protected SimpleDateFormat dateFormatter;
     
     public IBHistoricalDataEventProcessor( int requestId, BarData.LengthUnit barSizeUnit ) {
@@ -55,39 +58,73 @@ public class IBHistoricalDataEventProcessor {
     }
     
     
-    
+    /**
+     * Blocks until the series is complete.
+     * @return The bars for the request
+     */
     public List<BarData> getHistoricalData() {
         try {
-            return dataQueue.take();
-        } catch (InterruptedException ex) {
-           // logger.error( ex, ex );
-            ex.printStackTrace();
-            throw new IllegalStateException( ex );
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (CancellationException ex) {
+            throw new IllegalStateException("Historical data request " + requestId + " was cancelled", ex);
         }
     }
     
     
     public void addHistoricalData( HistoricalData data ) {
         if( data.getOpen() == -1 ) {
-            try {
-            //    logger.debug( data );
-                dataQueue.put(dataList);
-            } catch (InterruptedException ex) {
-              // logger.error( ex, ex );
-            ex.printStackTrace();
-            }
-        } else {
+            finished();
+        } else if (!future.isDone()) {
             dataList.add( HistoricalDataUtils.buildBarData(data));
         }
     }
     
     public void finished() {
-        try {
-            dataQueue.put(dataList);
-        } catch (InterruptedException ex) {
-            // logger.error( ex, ex );
-            ex.printStackTrace();
+        future.complete(dataList);
+    }
+    
+    /**
+     * Completes the request exceptionally, e.g. when IB reports an error for it.
+     * @param error The reason the request failed
+     */
+    public void failed(Throwable error) {
+        future.completeExceptionally(error);
+    }
+
+    /**
+     * Records that the request is being sent to TWS.  When it is sent again
+     * after a reconnect TWS returns the whole series again, so any bars
+     * received before the disconnect are dropped.
+     * @return true the first time the request is sent, false when it is sent
+     * again after a reconnect
+     */
+    public boolean markSent() {
+        if (sent.compareAndSet(false, true)) {
+            return true;
         }
+        dataList = new ArrayList<BarData>();
+        return false;
+    }
+
+    /**
+     * @return true if the request has been sent to TWS, so TWS needs to be
+     * told if it is cancelled
+     */
+    public boolean isSent() {
+        return sent.get();
+    }
+
+    public CompletableFuture<List<BarData>> getFuture() {
+        return future;
+    }
+
+    public int getRequestId() {
+        return requestId;
     }
 
     public SimpleDateFormat getDateFormatter() {
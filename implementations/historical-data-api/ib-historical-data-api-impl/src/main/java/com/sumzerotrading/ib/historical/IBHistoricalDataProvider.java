@@ -21,6 +21,7 @@ OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 package com.sumzerotrading.ib.historical;
 
+import com.ib.client.Bar;
 import com.ib.client.Contract;
 import com.ib.client.EClientSocket;
 import com.sumzerotrading.data.BarData;
@@ -29,31 +30,43 @@ import com.sumzerotrading.historicaldata.IHistoricalDataProvider;
 import com.sumzerotrading.ib.BaseIBConnectionDelegate;
 import com.sumzerotrading.ib.ContractBuilderFactory;
 import com.sumzerotrading.ib.IBConnectionInterface;
+import com.sumzerotrading.ib.IBMessageCategory;
+import com.sumzerotrading.ib.IBRequestPriority;
 import com.sumzerotrading.ib.IBSocket;
-import com.sumzerotrading.ib.IbUtils;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Historical data provider for Interactive Brokers.  Any number of requests
+ * may be in flight at once over the one socket; each has its own request id,
+ * processor and timeout, and is sent through the socket's request scheduler so
+ * IB's historical pacing rules are respected.
  *
  * @author Rob Terpilowski
  */
 public class IBHistoricalDataProvider extends BaseIBConnectionDelegate  implements IHistoricalDataProvider {
 
+    public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
     protected Logger logger = LoggerFactory.getLogger(IBHistoricalDataProvider.class);
     protected EClientSocket ibConnection;
     protected IBConnectionInterface callbackInterface;
     protected IBSocket ibSocket;
-    protected BlockingQueue<List<BarData>> dataQueue = new SynchronousQueue<List<BarData>>();
-    protected static int requestId = 1;
-    protected Map<Integer, IBHistoricalDataEventProcessor> historicalProcessorMap = new HashMap<Integer, IBHistoricalDataEventProcessor>();
+    protected static final AtomicInteger requestId = new AtomicInteger(1);
+    protected Map<Integer, IBHistoricalDataEventProcessor> historicalProcessorMap = new ConcurrentHashMap<>();
     // protected Logger logger = Logger.getLogger(IBHistoricalDataProvider.class);
-    protected SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyyMMdd HH:mm:ss");
+    protected DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss").withZone(ZoneId.systemDefault());
+    protected volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
 
     public IBHistoricalDataProvider(IBSocket ibSocket) {
         this.ibSocket = ibSocket;
@@ -76,7 +89,25 @@ public class IBHistoricalDataProvider extends BaseIBConnectionDelegate  implemen
         //do nothing
     }
 
-    
+    /**
+     * @param timeoutMillis How long a request may take once it has been sent
+     * to TWS before it is cancelled and its future completed with a
+     * TimeoutException. Time spent waiting for a pacing slot doesn't count.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return The number of requests waiting for data
+     */
+    public int getPendingRequestCount() {
+        return historicalProcessorMap.size();
+    }
     
     
     @Override
@@ -86,53 +117,130 @@ public class IBHistoricalDataProvider extends BaseIBConnectionDelegate  implemen
 
     @Override
     public List<BarData> requestHistoricalData(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
-        int id = requestId++;
+        return startRequest(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH, timeoutMillis).getHistoricalData();
+    }
+
+    @Override
+    public CompletableFuture<List<BarData>> requestHistoricalDataAsync(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+        return requestHistoricalDataAsync(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH, timeoutMillis);
+    }
+
+    /**
+     * Requests historical data without blocking the caller.
+     *
+     * @param timeoutMillis How long to wait for the complete series, from when
+     * the request is sent to TWS, before the request is cancelled
+     * @return A future completed with the bars.  Cancelling it, or the timeout
+     * expiring, sends cancelHistoricalData to TWS.
+     * @see IHistoricalDataProvider#requestHistoricalDataAsync
+     */
+    public CompletableFuture<List<BarData>> requestHistoricalDataAsync(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH, long timeoutMillis) {
+        return startRequest(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH, timeoutMillis).getFuture();
+    }
+
+    protected IBHistoricalDataEventProcessor startRequest(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH, long timeoutMillis) {
+        int id = requestId.getAndIncrement();
         Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
         String durationString = HistoricalDataUtils.buildDurationString(duration, durationLengthUnit);
         String barSizeString = HistoricalDataUtils.buildBarDataSizeString(barSize, barSizeUnit);
         String whatToShowString = HistoricalDataUtils.showPropertyToString(whatToShow);
-        IBHistoricalDataEventProcessor processor = new IBHistoricalDataEventProcessor(requestId, barSizeUnit);
-        int rth = 1;
-        if( useRTH == false ) {
-            rth = 0;
-        }
-        historicalProcessorMap.put(id, processor);
+        IBHistoricalDataEventProcessor processor = new IBHistoricalDataEventProcessor(id, barSizeUnit);
+        int rth = useRTH ? 1 : 0;
         if (endDateTime == null) {
             endDateTime = new Date();
         }
-        String endDate = dateFormatter.format(endDateTime);
+        String endDate = dateFormatter.format(endDateTime.toInstant());
 
-        //ibConnection.reqHistoricalData(id, contract, new Date(), null, null, null, barSize, duration);
-       // ibConnection.reqHistoricalData(id, contract, endDate, durationString, barSizeString, whatToShowString, rth, 1, IbUtils.getDefaultTagVector());
-       IbUtils.throwUnsupportedException();
-        List<BarData> bars = processor.getHistoricalData();
+        historicalProcessorMap.put(id, processor);
+        callbackInterface.addCallbackRoute(IBMessageCategory.HISTORICAL_DATA, id, this);
+        Runnable request = () -> {
+            if (processor.getFuture().isDone()) {
+                return;
+            }
+            boolean firstSend = processor.markSent();
+            try {
+                sendHistoricalRequest(id, contract, endDate, durationString, barSizeString, whatToShowString, rth);
+            } catch (RuntimeException ex) {
+                processor.failed(ex);
+                return;
+            }
+            if (firstSend) {
+                //the timeout starts once TWS has the request, not while it waits in the scheduler for its pacing slot
+                processor.getFuture().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        };
+        String contractKey = ticker.getSymbol() + ":" + ticker.getExchange() + ":" + whatToShowString;
+        String requestKey = contractKey + ":" + endDate + ":" + durationString + ":" + barSizeString + ":" + rth;
+        //recorded while in flight so the request is sent again if TWS reconnects before it completes
+        ibSocket.getSubscriptionJournal().recordHistorical(id, requestKey, contractKey, request);
+
+        processor.getFuture().whenComplete((bars, error) -> finishRequest(processor, error));
+
+        ibSocket.getRequestScheduler().submitHistorical(requestKey, contractKey, request);
+        return processor;
+    }
+
+    protected void finishRequest(IBHistoricalDataEventProcessor processor, Throwable error) {
+        int id = processor.getRequestId();
         historicalProcessorMap.remove(id);
-        return bars;
+        callbackInterface.removeCallbackRoute(IBMessageCategory.HISTORICAL_DATA, id);
+        ibSocket.getSubscriptionJournal().remove(IBMessageCategory.HISTORICAL_DATA, id);
+        //a request still waiting in the scheduler won't be sent once its future is done, so TWS has nothing to cancel
+        if (processor.isSent() && (error instanceof CancellationException || error instanceof TimeoutException)) {
+            logger.info("Cancelling historical data request " + id + ": " + error);
+            //cancels don't count against the historical pacing limits, so they skip that lane
+            ibSocket.getRequestScheduler().submit(IBRequestPriority.MARKET_DATA, () -> ibConnection.cancelHistoricalData(id));
+        }
     }
 
-    public void historicalData(int reqId, String date, double open, double high, double low, double close, int volume, int count, double WAP, boolean hasGaps) {
+    protected void sendHistoricalRequest(int id, Contract contract, String endDate, String durationString, String barSizeString, String whatToShowString, int rth) {
+        ibConnection.reqHistoricalData(id, contract, endDate, durationString, barSizeString, whatToShowString, rth, 1, false, null);
+    }
+
+    @Override
+    public void historicalData(int reqId, Bar bar) {
+        addHistoricalData(reqId, bar.time(), bar.open(), bar.high(), bar.low(), bar.close(), (int) bar.volume().longValue(), bar.count(), bar.wap().value().doubleValue(), false);
+    }
+
+    @Override
+    public void historicalDataEnd(int reqId, String startDate, String endDate) {
         IBHistoricalDataEventProcessor processor = historicalProcessorMap.get(reqId);
+        if (processor != null) {
+            processor.finished();
+        }
+    }
+
+    @Override
+    public void error(int id, long errorTime, int errorCode, String errorMsg, String advancedOrderRejectJson) {
+        IBHistoricalDataEventProcessor processor = historicalProcessorMap.get(id);
+        //2100-2199 are informational warnings that don't end the request
+        if (processor != null && (errorCode < 2100 || errorCode >= 2200)) {
+            processor.failed(new IllegalStateException("Historical data request " + id + " failed with error " + errorCode + ": " + errorMsg));
+        }
+    }
+
+    public void historicalData(int reqId, String date, double open, double high, double low, double close, int volume, int count, double WAP, boolean hasGaps) {
         if (date != null && date.indexOf("finished") != -1) {
-            if (processor != null) {
-                processor.finished();
-                return;
-            }
+            historicalDataEnd(reqId, null, null);
+            return;
+        }
+        addHistoricalData(reqId, date, open, high, low, close, volume, count, WAP, hasGaps);
+    }
+
+    protected void addHistoricalData(int reqId, String date, double open, double high, double low, double close, int volume, int count, double WAP, boolean hasGaps) {
+        IBHistoricalDataEventProcessor processor = historicalProcessorMap.get(reqId);
+        if (processor == null) {
+            logger.error("Unable to find Historical Data Processor for requestId: " + reqId);
+            return;
         }
         GregorianCalendar calendarDate = new GregorianCalendar();
         try {
-            if (processor != null) {
-                Date tempDate = processor.getDateFormatter().parse(date);
-                calendarDate.setTime(tempDate);
-            } else {
-                logger.error("Unable to find Historical Data Processor for requestId: " + reqId);
-            }
+            Date tempDate = processor.getDateFormatter().parse(date);
+            calendarDate.setTime(tempDate);
         } catch (ParseException ex) {
-            throw new IllegalStateException(ex);
-        }
-        if (processor != null) {
-            processor.addHistoricalData(new HistoricalData(reqId, calendarDate, open, high, low, close, volume, count, WAP, hasGaps));
-        } else {
-            logger.error("Unable to find Historical Data Processor for requestId: " + reqId);
+            processor.failed(ex);
+            return;
         }
+        processor.addHistoricalData(new HistoricalData(reqId, calendarDate, open, high, low, close, volume, count, WAP, hasGaps));
     }
 }
@@ -0,0 +1,215 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historical;
+
+import com.ib.client.Contract;
+import com.ib.client.EClientSocket;
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.historicaldata.IHistoricalDataProvider.ShowProperty;
+import com.sumzerotrading.ib.IBConnectionInterface;
+import com.sumzerotrading.ib.IBMessageCategory;
+import com.sumzerotrading.ib.IBSocket;
+import com.sumzerotrading.ib.IBSubscriptionJournal;
+import com.sumzerotrading.ib.historical.IBHistoricalDataProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class IBHistoricalDataProviderTest {
+
+    protected IBConnectionInterface mockConnection;
+    protected EClientSocket mockClientSocket;
+    protected IBSocket ibSocket;
+    protected TestProvider provider;
+    protected Ticker ticker = new StockTicker("IBM");
+
+    @Before
+    public void setUp() {
+        mockConnection = mock(IBConnectionInterface.class);
+        mockClientSocket = mock(EClientSocket.class);
+        ibSocket = new IBSocket(mockConnection, mockClientSocket);
+        provider = new TestProvider(ibSocket);
+    }
+
+    @Test
+    public void testConcurrentRequestsCompleteIndependently() throws Exception {
+        //different durations, otherwise the second would be paced as an identical request
+        CompletableFuture<List<BarData>> first = requestAsync(1);
+        CompletableFuture<List<BarData>> second = requestAsync(2);
+        ibSocket.getRequestScheduler().runPending();
+
+        assertEquals(2, provider.sentIds.size());
+        int firstId = provider.sentIds.get(0);
+        int secondId = provider.sentIds.get(1);
+        assertTrue(firstId != secondId);
+        verify(mockConnection).addCallbackRoute(IBMessageCategory.HISTORICAL_DATA, firstId, provider);
+        verify(mockConnection).addCallbackRoute(IBMessageCategory.HISTORICAL_DATA, secondId, provider);
+
+        provider.historicalData(secondId, "20240102 09:30:00", 1, 2, 0.5, 1.5, 100, 10, 1.2, false);
+        provider.historicalData(secondId, "finished-20240102", -1, -1, -1, -1, -1, -1, -1, false);
+
+        assertTrue(second.isDone());
+        assertFalse(first.isDone());
+        assertEquals(1, second.get().size());
+        assertEquals(1, provider.getPendingRequestCount());
+        verify(mockConnection).removeCallbackRoute(IBMessageCategory.HISTORICAL_DATA, secondId);
+
+        provider.historicalDataEnd(firstId, "", "");
+        assertTrue(first.get().isEmpty());
+        assertEquals(0, provider.getPendingRequestCount());
+        assertEquals(0, ibSocket.getSubscriptionJournal().size());
+    }
+
+    @Test
+    public void testResentRequestDropsBarsFromBeforeTheDisconnect() throws Exception {
+        CompletableFuture<List<BarData>> future = requestAsync(1);
+        ibSocket.getRequestScheduler().runPending();
+        int id = provider.sentIds.get(0);
+        provider.historicalData(id, "20240102 09:30:00", 1, 2, 0.5, 1.5, 100, 10, 1.2, false);
+
+        IBSubscriptionJournal.Entry entry = ibSocket.getSubscriptionJournal().getEntries().get(0);
+        assertNotNull(entry.getRequestKey());
+        assertNotNull(entry.getContractKey());
+        //what a replay after a reconnect runs
+        entry.getRequest().run();
+        assertEquals(2, provider.sentIds.size());
+
+        provider.historicalData(id, "20240102 09:30:00", 1, 2, 0.5, 1.5, 100, 10, 1.2, false);
+        provider.historicalData(id, "20240102 09:31:00", 1, 2, 0.5, 1.5, 100, 10, 1.2, false);
+        provider.historicalDataEnd(id, "", "");
+
+        assertEquals(2, future.get().size());
+    }
+
+    @Test
+    public void testCancelSendsCancelHistoricalData() {
+        CompletableFuture<List<BarData>> future = requestAsync(1);
+        ibSocket.getRequestScheduler().runPending();
+        int id = provider.sentIds.get(0);
+
+        assertTrue(future.cancel(true));
+        ibSocket.getRequestScheduler().runPending();
+
+        verify(mockClientSocket).cancelHistoricalData(id);
+        assertEquals(0, provider.getPendingRequestCount());
+    }
+
+    @Test
+    public void testCancelBeforeSendDoesNotSendRequest() {
+        CompletableFuture<List<BarData>> future = requestAsync(1);
+        future.cancel(true);
+        ibSocket.getRequestScheduler().runPending();
+
+        assertTrue(provider.sentIds.isEmpty());
+        verify(mockClientSocket, never()).cancelHistoricalData(anyInt());
+    }
+
+    @Test
+    public void testTimeoutStartsWhenRequestIsSent() throws Exception {
+        CompletableFuture<List<BarData>> future = provider.requestHistoricalDataAsync(ticker, null, 1, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.MINUTE, ShowProperty.TRADES, false, 50);
+        //still queued behind the pacing rules, so the timeout hasn't started
+        Thread.sleep(200);
+        assertFalse(future.isDone());
+
+        ibSocket.getRequestScheduler().runPending();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testTimeoutCancelsRequest() throws Exception {
+        CompletableFuture<List<BarData>> future = provider.requestHistoricalDataAsync(ticker, null, 1, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.MINUTE, ShowProperty.TRADES, false, 50);
+        ibSocket.getRequestScheduler().runPending();
+        int id = provider.sentIds.get(0);
+
+        try {
+            future.get();
+            fail("Expected a timeout");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (provider.getPendingRequestCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        ibSocket.getRequestScheduler().runPending();
+
+        verify(mockClientSocket).cancelHistoricalData(id);
+    }
+
+    @Test
+    public void testErrorFailsRequest() throws Exception {
+        CompletableFuture<List<BarData>> future = requestAsync(1);
+        ibSocket.getRequestScheduler().runPending();
+        int id = provider.sentIds.get(0);
+
+        provider.error(id, 0, 2106, "HMDS data farm connection is OK", "");
+        assertFalse(future.isDone());
+
+        provider.error(id, 0, 162, "Historical Market Data Service error message", "");
+        assertTrue(future.isCompletedExceptionally());
+        verify(mockClientSocket, never()).cancelHistoricalData(id);
+    }
+
+    @Test
+    public void testSendFailureFailsRequest() {
+        provider.failSend = true;
+        CompletableFuture<List<BarData>> future = requestAsync(1);
+        ibSocket.getRequestScheduler().runPending();
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, provider.getPendingRequestCount());
+    }
+
+    protected CompletableFuture<List<BarData>> requestAsync(int durationDays) {
+        return provider.requestHistoricalDataAsync(ticker, null, durationDays, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.MINUTE, ShowProperty.TRADES, false);
+    }
+
+    protected static class TestProvider extends IBHistoricalDataProvider {
+
+        protected List<Integer> sentIds = new ArrayList<>();
+        protected boolean failSend = false;
+
+        public TestProvider(IBSocket ibSocket) {
+            super(ibSocket);
+        }
+
+        @Override
+        protected void sendHistoricalRequest(int id, Contract contract, String endDate, String durationString, String barSizeString, String whatToShowString, int rth) {
+            if (failSend) {
+                throw new UnsupportedOperationException("IB changed implementation");
+            }
+            sentIds.add(id);
+        }
+    }
+}
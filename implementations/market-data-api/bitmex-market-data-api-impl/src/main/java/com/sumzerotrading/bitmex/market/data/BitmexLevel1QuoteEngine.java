@@ -13,11 +13,10 @@ import com.sumzerotrading.bitmex.entity.BitmexTrade;
 import com.sumzerotrading.bitmex.listener.IQuoteListener;
 import com.sumzerotrading.bitmex.listener.ITradeListener;
 import com.sumzerotrading.data.Ticker;
-import com.sumzerotrading.marketdata.Level1Quote;
 import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
 import com.sumzerotrading.marketdata.QuoteEngine;
 import com.sumzerotrading.marketdata.QuoteType;
-import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.Date;
 import java.util.HashMap;
@@ -31,6 +30,8 @@ import org.eclipse.jetty.websocket.client.WebSocketClient;
  */
 public class BitmexLevel1QuoteEngine extends QuoteEngine implements IQuoteListener, ITradeListener  {
 
+    protected static final int PRICE_SCALE = 8;
+
     protected BitmexRestClient restClient;
     protected BitmexWebsocketClient websocketClient;
     protected boolean isStarted = false;
@@ -81,16 +82,16 @@ public class BitmexLevel1QuoteEngine extends QuoteEngine implements IQuoteListen
     public void quoteUpdated(BitmexQuote quoteData) {
         logger.debug("Received from Bitmex: " + quoteData );
         Ticker ticker = tickerMap.get(quoteData.getSymbol());
-        Map<QuoteType, BigDecimal> quoteMap = new HashMap<>();
-        quoteMap.put(QuoteType.ASK, new BigDecimal(quoteData.getAskPrice()));
-        quoteMap.put(QuoteType.BID, new BigDecimal(quoteData.getBidPrice()));
-        quoteMap.put(QuoteType.BID_SIZE, new BigDecimal(quoteData.getBidSize()));
-        quoteMap.put(QuoteType.ASK_SIZE, new BigDecimal(quoteData.getAskSize()));
-        quoteMap.put(QuoteType.MIDPOINT, new BigDecimal((quoteData.getAskPrice() + quoteData.getBidPrice()) / 2.0));
         ZonedDateTime timestamp = getTimestamp(quoteData.getTimestamp());
+        PrimitiveLevel1Quote quote = newLevel1Quote(ticker, timestamp);
+        quote.setValue(QuoteType.ASK, quoteData.getAskPrice(), PRICE_SCALE);
+        quote.setValue(QuoteType.BID, quoteData.getBidPrice(), PRICE_SCALE);
+        quote.setValue(QuoteType.BID_SIZE, quoteData.getBidSize(), 0);
+        quote.setValue(QuoteType.ASK_SIZE, quoteData.getAskSize(), 0);
+        quote.setValue(QuoteType.MIDPOINT, (quoteData.getAskPrice() + quoteData.getBidPrice()) / 2.0, PRICE_SCALE);
         
-        Level1Quote quote = new Level1Quote(ticker, timestamp, quoteMap);
         fireLevel1Quote(quote);
+        quote.release();
         
     }
 
@@ -98,13 +99,13 @@ public class BitmexLevel1QuoteEngine extends QuoteEngine implements IQuoteListen
     @Override
     public void tradeUpdated(BitmexTrade trade) {
         Ticker ticker = tickerMap.get(trade.getSymbol());
-        Map<QuoteType, BigDecimal> quoteMap = new HashMap<>();
-        quoteMap.put(QuoteType.LAST, new BigDecimal(trade.getPrice()));
-        quoteMap.put(QuoteType.LAST_SIZE, new BigDecimal(trade.getSize()));
         ZonedDateTime timestamp = getTimestamp(trade.getTimestamp());
+        PrimitiveLevel1Quote quote = newLevel1Quote(ticker, timestamp);
+        quote.setValue(QuoteType.LAST, trade.getPrice(), PRICE_SCALE);
+        quote.setValue(QuoteType.LAST_SIZE, trade.getSize(), 0);
         
-        Level1Quote quote = new Level1Quote(ticker, timestamp, quoteMap);
         fireLevel1Quote(quote);
+        quote.release();
     }
     
     public int getMessageProcessorQueueSize() {
@@ -1,12 +1,16 @@
 package com.sumzerotrading.marketdata.dydx;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,11 +18,17 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sumzerotrading.data.Ticker;
-import com.sumzerotrading.marketdata.Level1Quote;
 import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
 import com.sumzerotrading.marketdata.QuoteEngine;
 import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+import com.sumzerotrading.util.QuoteUtil;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -29,42 +39,96 @@ public class DyDxLevel1QuoteEngine extends QuoteEngine implements Runnable {
 
     public static final String SLEEP_TIME_PROPERTY_KEY = "sleep.time.in.seconds";
     public static final String INCLUDE_FUNDING_RATE_PROPERTY_KEY = "include.funding.rates";
+    public static final String MAX_CONCURRENT_REQUESTS_PROPERTY_KEY = "max.concurrent.requests";
+    public static final String REQUEST_TIMEOUT_PROPERTY_KEY = "request.timeout.in.millis";
+    public static final String REST_URL_PROPERTY_KEY = "rest.url";
     protected volatile boolean started = false;
     protected boolean threadCompleted = false;
     protected Thread mainThread = new Thread(this);
     protected Thread fundingThread = new Thread(this);
     protected Thread blockHeightThread = new Thread(this);
     private static final String BASE_URL = "https://indexer.dydx.trade/v4/";
-    private static final String ORDER_BOOK_URL = BASE_URL + "orderbooks/perpetualMarket/";
-    private static final String FUNDING_URL = BASE_URL + "perpetualMarkets/";
-    private final OkHttpClient httpClient;
+    private static final String ORDER_BOOK_PATH = "orderbooks/perpetualMarket/";
+    private static final String FUNDING_PATH = "perpetualMarkets/";
+    private OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    protected final DyDxOrderBookParser orderBookParser = new DyDxOrderBookParser();
     protected int sleepTimeInSeconds = 10;
+    protected int maxConcurrentRequests = 16;
+    protected long requestTimeoutMillis = 5000;
+    protected String baseUrl = BASE_URL;
     protected ArrayList<String> urlStrings = new ArrayList<>();
-    private OrderBookResponse orderBook;
-    protected MarketsResponse allFundingRates;
+    protected volatile MarketsResponse allFundingRates;
     protected boolean includeFundingRate = false;
 
     public DyDxLevel1QuoteEngine() {
-        this.httpClient = new OkHttpClient();
+        this.httpClient = buildHttpClient();
         this.objectMapper = new ObjectMapper();
     }
 
-    public OrderBookResponse getOrderBook(String market) {
-        String url = ORDER_BOOK_URL + market;
-        Request request = new Request.Builder().url(url).get().build();
+    /**
+     * All of the order book requests in a cycle go to the same host, so the
+     * per host limit is raised to the overall limit and enough idle
+     * connections are kept alive to reuse one per request.
+     */
+    protected OkHttpClient buildHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxConcurrentRequests, 5, TimeUnit.MINUTES))
+                .callTimeout(Duration.ofMillis(requestTimeoutMillis))
+                .build();
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new RuntimeException("Unexpected response code: " + response.code());
-            }
-            String jsonResponse = response.body().string();
-            return objectMapper.readValue(jsonResponse, OrderBookResponse.class);
+    public OrderBookResponse getOrderBook(String market) {
+        try (Response response = httpClient.newCall(getOrderBookRequest(market)).execute()) {
+            return readOrderBook(response);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching order book for market: " + market, e);
         }
     }
 
+    protected Request getOrderBookRequest(String market) {
+        return new Request.Builder().url(baseUrl + ORDER_BOOK_PATH + market).get().build();
+    }
+
+    protected OrderBookResponse readOrderBook(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Unexpected response code: " + response.code());
+        }
+        String jsonResponse = response.body().string();
+        return objectMapper.readValue(jsonResponse, OrderBookResponse.class);
+    }
+
+    /**
+     * Reads only the best bid and offer from the response stream, with sizes
+     * scaled to the step size of the market.
+     */
+    protected OrderBook readTopOfBook(Response response, String market) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Unexpected response code: " + response.code());
+        }
+        return orderBookParser.parse(response.body().byteStream(), 1, new OrderBook(getSizeScale(market)));
+    }
+
+    /**
+     * The step sizes come from the perpetualMarkets response, until it has
+     * been received sizes are read with the default scale.
+     */
+    protected int getSizeScale(String market) {
+        MarketsResponse marketsResponse = allFundingRates;
+        if (marketsResponse == null || marketsResponse.getMarkets() == null) {
+            return OrderBook.DEFAULT_SIZE_SCALE;
+        }
+        Market details = marketsResponse.getMarkets().get(market);
+        if (details == null || details.getStepSize() == null) {
+            return OrderBook.DEFAULT_SIZE_SCALE;
+        }
+        return QuoteUtil.getScale(details.getStepSize());
+    }
+
     @Override
     public Date getServerTime() {
         // TODO Auto-generated method stub
@@ -98,6 +162,22 @@ public class DyDxLevel1QuoteEngine extends QuoteEngine implements Runnable {
             includeFundingRate = Boolean.parseBoolean(includeFundingRatesString);
         }
 
+        String maxRequestsString = props.getProperty(MAX_CONCURRENT_REQUESTS_PROPERTY_KEY);
+        if (maxRequestsString != null) {
+            maxConcurrentRequests = Integer.parseInt(maxRequestsString);
+        }
+
+        String timeoutString = props.getProperty(REQUEST_TIMEOUT_PROPERTY_KEY);
+        if (timeoutString != null) {
+            requestTimeoutMillis = Long.parseLong(timeoutString);
+        }
+
+        String restUrl = props.getProperty(REST_URL_PROPERTY_KEY);
+        if (restUrl != null) {
+            baseUrl = restUrl;
+        }
+
+        httpClient = buildHttpClient();
         startEngine();
     }
 
@@ -141,56 +221,140 @@ public class DyDxLevel1QuoteEngine extends QuoteEngine implements Runnable {
         threadCompleted = true;
     }
 
+    /**
+     * Requests the order book for every subscribed ticker at once, and
+     * publishes each quote as soon as its response arrives. Requests which
+     * haven't completed by the deadline are cancelled, so a cycle takes about
+     * one round trip no matter how many tickers are subscribed.
+     *
+     * Funding rates are requested alongside the order books, and quotes use
+     * the most recent rates which have been received. The same response
+     * carries the step sizes, so it is requested until it has been received
+     * even when funding rates aren't included.
+     */
     protected void getQuotes() {
-        if (includeFundingRate) {
-            try {
-                allFundingRates = getAllFundingRates();
-            } catch (Exception ex) {
-                logger.error(ex.getMessage(), ex);
+        if (includeFundingRate || allFundingRates == null) {
+            requestFundingRates();
+        }
+        List<Ticker> tickers = new ArrayList<>();
+        for (Ticker ticker : level1Listeners.getTickers()) {
+            if (level1Listeners.hasListeners(ticker)) {
+                tickers.add(ticker);
             }
         }
-        for (Ticker ticker : level1ListenerMap.keySet()) {
-            try {
-                if (!level1ListenerMap.get(ticker).isEmpty()) {
-                    orderBook = getOrderBook(ticker.getSymbol());
-                    HashMap<QuoteType, BigDecimal> quoteMap = new HashMap<>();
-                    quoteMap.put(QuoteType.ASK, new BigDecimal(orderBook.asks[0].price));
-                    quoteMap.put(QuoteType.ASK_SIZE, new BigDecimal(orderBook.asks[0].size));
-                    quoteMap.put(QuoteType.BID, new BigDecimal(orderBook.bids[0].price));
-                    quoteMap.put(QuoteType.BID_SIZE, new BigDecimal(orderBook.bids[0].size));
-                    if (includeFundingRate) {
-                        quoteMap.put(QuoteType.FUNDING_RATE,
-                                allFundingRates.getMarkets().get(ticker.getSymbol()).getAnnualizedFundingRate());
+        CountDownLatch latch = new CountDownLatch(tickers.size());
+        List<Call> calls = new ArrayList<>(tickers.size());
+        for (Ticker ticker : tickers) {
+            Call call = httpClient.newCall(getOrderBookRequest(ticker.getSymbol()));
+            calls.add(call);
+            call.enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        publishQuote(ticker, readTopOfBook(response, ticker.getSymbol()));
+                    } catch (Exception ex) {
+                        logger.error("DyDxLevel1 Quote Engine Caught an exception, but will continue:  "
+                                + ex.getMessage(), ex);
+                    } finally {
+                        latch.countDown();
                     }
-                    Level1Quote quote = new Level1Quote(ticker, ZonedDateTime.now(), quoteMap);
-                    fireLevel1Quote(quote);
                 }
-            } catch (Exception ex) {
-                logger.error("DyDxLevel1 Quote Engine Caught an exception, but will continue:  " + ex.getMessage(), ex);
 
+                @Override
+                public void onFailure(Call call, IOException ex) {
+                    if (!call.isCanceled()) {
+                        logger.error("Error fetching order book for market: " + ticker.getSymbol(), ex);
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        try {
+            if (!latch.await(requestTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn(latch.getCount() + " of " + tickers.size() + " order book requests missed the deadline");
+                for (Call call : calls) {
+                    call.cancel();
+                }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
+    }
 
+    protected void publishQuote(Ticker ticker, OrderBook orderBook) {
+        SortedMarketDepthBook bids = orderBook.getBids();
+        SortedMarketDepthBook asks = orderBook.getAsks();
+        if (bids.getLevelCount() == 0 || asks.getLevelCount() == 0) {
+            throw new IllegalStateException("Order book for " + ticker.getSymbol() + " is missing a side");
+        }
+        PrimitiveLevel1Quote quote = newLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.ASK, asks.getScaledPriceAt(0), OrderBook.PRICE_SCALE);
+        quote.setValue(QuoteType.ASK_SIZE, asks.getScaledSizeAt(0), asks.getSizeScale());
+        quote.setValue(QuoteType.BID, bids.getScaledPriceAt(0), OrderBook.PRICE_SCALE);
+        quote.setValue(QuoteType.BID_SIZE, bids.getScaledSizeAt(0), bids.getSizeScale());
+        MarketsResponse fundingRates = allFundingRates;
+        if (includeFundingRate && fundingRates != null) {
+            quote.setValue(QuoteType.FUNDING_RATE,
+                    fundingRates.getMarkets().get(ticker.getSymbol()).getAnnualizedFundingRate());
+        }
+        fireLevel1Quote(quote);
+        quote.release();
+    }
+
+    protected void requestFundingRates() {
+        httpClient.newCall(new Request.Builder().url(baseUrl + FUNDING_PATH).get().build()).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    allFundingRates = readFundingRates(response);
+                } catch (Exception ex) {
+                    logger.error(ex.getMessage(), ex);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                logger.error("Error fetching funding rates", ex);
+            }
+        });
     }
 
     public MarketsResponse getAllFundingRates() {
-        Request request = new Request.Builder().url(FUNDING_URL).get().build();
+        Request request = new Request.Builder().url(baseUrl + FUNDING_PATH).get().build();
 
         try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new RuntimeException("Unexpected response code: " + response.code());
-            }
-            String jsonResponse = response.body().string();
-            return objectMapper.readValue(jsonResponse, MarketsResponse.class); // Parse JSON
+            return readFundingRates(response);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching funding rates", e);
         }
     }
 
+    protected MarketsResponse readFundingRates(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Unexpected response code: " + response.code());
+        }
+        String jsonResponse = response.body().string();
+        return objectMapper.readValue(jsonResponse, MarketsResponse.class); // Parse JSON
+    }
+
     public void setSleepTimeInSeconds(int sleepTime) {
         this.sleepTimeInSeconds = sleepTime;
     }
 
+    /**
+     * Sets the number of order book requests which may be in flight at once,
+     * and the deadline for the requests in each cycle.
+     */
+    public void setRequestLimits(int maxConcurrentRequests, long requestTimeoutMillis) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        httpClient = buildHttpClient();
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
     // Classes for mapping JSON response
     @JsonIgnoreProperties(ignoreUnknown = true)
     static class OrderBookResponse {
@@ -264,6 +428,7 @@ public class DyDxLevel1QuoteEngine extends QuoteEngine implements Runnable {
     static class Market {
         private String nextFundingRate;
         private BigDecimal annualizedFundingRate;
+        private BigDecimal stepSize;
 
         public String getNextFundingRate() {
             return nextFundingRate;
@@ -283,5 +448,13 @@ public class DyDxLevel1QuoteEngine extends QuoteEngine implements Runnable {
             return annualizedFundingRate;
         }
 
+        public BigDecimal getStepSize() {
+            return stepSize;
+        }
+
+        public void setStepSize(BigDecimal stepSize) {
+            this.stepSize = stepSize;
+        }
+
     }
 }
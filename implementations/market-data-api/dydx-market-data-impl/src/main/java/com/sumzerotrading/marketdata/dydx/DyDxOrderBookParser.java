@@ -0,0 +1,144 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sumzerotrading.util.QuoteUtil;
+
+/**
+ * Reads the order book returned by the indexer's
+ * orderbooks/perpetualMarket endpoint straight from the response stream.
+ * Sizes are scaled to the size scale of the book passed in.
+ *
+ * Each side is sorted best price first, so only the first maxLevels levels
+ * are read. The rest of the first side is skipped without being decoded, and
+ * reading stops as soon as the second side has enough levels. Prices
+ * and sizes are parsed from the parser's character buffer into scaled longs,
+ * so no String, BigDecimal or object per level is created.
+ *
+ * Instances can be shared between threads.
+ */
+public class DyDxOrderBookParser {
+
+    protected final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Parses the book into the order book, which is cleared first.
+     *
+     * @param in The response body, which is not closed.
+     * @param maxLevels The number of levels to read on each side.
+     * @param orderBook The book to fill.
+     * @return The order book that was passed in.
+     */
+    public OrderBook parse(InputStream in, int maxLevels, OrderBook orderBook) throws IOException {
+        orderBook.clear();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an order book object");
+            }
+            TextView text = new TextView();
+            int sidesRead = 0;
+            while (sidesRead < 2 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("bids".equals(field) && token == JsonToken.START_ARRAY) {
+                    parseSide(parser, text, maxLevels, orderBook, true, ++sidesRead == 2);
+                } else if ("asks".equals(field) && token == JsonToken.START_ARRAY) {
+                    parseSide(parser, text, maxLevels, orderBook, false, ++sidesRead == 2);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return orderBook;
+    }
+
+    /**
+     * @param lastSide true if the other side has already been read, in which
+     * case the parser is left inside the array once enough levels are read.
+     */
+    protected void parseSide(JsonParser parser, TextView text, int maxLevels, OrderBook orderBook, boolean bids,
+            boolean lastSide) throws IOException {
+        int count = 0;
+        while (!(lastSide && count >= maxLevels) && parser.nextToken() == JsonToken.START_OBJECT) {
+            if (count >= maxLevels) {
+                parser.skipChildren();
+                continue;
+            }
+            long price = -1;
+            long size = -1;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("price".equals(field)) {
+                    price = QuoteUtil.parseScaledValue(text.wrap(parser), OrderBook.PRICE_SCALE);
+                } else if ("size".equals(field)) {
+                    size = QuoteUtil.parseScaledValue(text.wrap(parser), orderBook.getSizeScale());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (price < 0 || size < 0) {
+                throw new IOException("Order book level is missing a price or size");
+            }
+            if (bids) {
+                orderBook.updateBid(price, size);
+            } else {
+                orderBook.updateAsk(price, size);
+            }
+            count++;
+        }
+    }
+
+    /**
+     * A view of the current token's text in the parser's own buffer, which is
+     * only valid until the parser moves to the next token.
+     */
+    protected static class TextView implements CharSequence {
+        protected char[] chars;
+        protected int offset;
+        protected int length;
+
+        public TextView wrap(JsonParser parser) throws IOException {
+            chars = parser.getTextCharacters();
+            offset = parser.getTextOffset();
+            length = parser.getTextLength();
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, offset + start, end - start);
+        }
+
+        public boolean contentEquals(String value) {
+            if (value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.Level2Quote;
+import com.sumzerotrading.marketdata.Level2QuoteListener;
+import com.sumzerotrading.marketdata.MarketDepthSnapshot;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
+import com.sumzerotrading.marketdata.QuoteEngine;
+import com.sumzerotrading.marketdata.QuoteError;
+import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+import com.sumzerotrading.util.QuoteUtil;
+
+/**
+ * Streams dYdX order books over the v4_orderbook websocket channel. A local
+ * book is kept for each subscribed market and updated as each message arrives,
+ * and the top of book and the depth are published to the Level 1 and Level 2
+ * listeners after every update.
+ *
+ * The message ids on a connection have no gaps, so a skipped id means an
+ * update was lost. Every book is then dropped and its market is unsubscribed
+ * and subscribed again on the same connection. Updates which arrive before
+ * the new "subscribed" snapshot are ignored, and the snapshot replaces the
+ * book, so nothing blocks the websocket thread while the book is rebuilt.
+ *
+ * The v4_markets channel is subscribed before any order book, and sizes for
+ * each market are kept with the decimal places of its step size. A market
+ * whose step size changes is resubscribed so its book is rebuilt at the new
+ * scale.
+ */
+public class DyDxWebSocketQuoteEngine extends QuoteEngine implements WebsocketEventListener {
+
+    protected Logger logger = LoggerFactory.getLogger(DyDxWebSocketQuoteEngine.class);
+
+    public static final String WEBSOCKET_URL_PROPERTY_KEY = "websocket.url";
+    public static final String SNAPSHOT_LEVELS_PROPERTY_KEY = "snapshot.levels";
+    public static final String RECONNECT_DELAY_PROPERTY_KEY = "reconnect.delay.in.millis";
+    public static final String DEFAULT_WEBSOCKET_URL = "wss://indexer.dydx.trade/v4/ws";
+    protected static final String CHANNEL = "v4_orderbook";
+    protected static final String MARKETS_CHANNEL = "v4_markets";
+
+    protected final Map<String, MarketBook> markets = new ConcurrentHashMap<>();
+    protected final Map<String, Integer> sizeScales = new ConcurrentHashMap<>();
+    protected final WebsocketMessageParser parser = new WebsocketMessageParser(this);
+    protected final ScheduledExecutorService reconnectExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "dydx-websocket-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+    protected URI websocketUri = URI.create(DEFAULT_WEBSOCKET_URL);
+    protected int snapshotLevels = MarketDepthSnapshot.ALL_LEVELS;
+    protected long reconnectDelayMillis = 5000;
+    protected volatile WebSocketClient client;
+    protected volatile boolean started = false;
+    protected volatile boolean connected = false;
+
+    public DyDxWebSocketQuoteEngine() {
+    }
+
+    public DyDxWebSocketQuoteEngine(URI websocketUri) {
+        this.websocketUri = websocketUri;
+    }
+
+    @Override
+    public void startEngine() {
+        started = true;
+        connect();
+    }
+
+    @Override
+    public void startEngine(Properties props) {
+        String url = props.getProperty(WEBSOCKET_URL_PROPERTY_KEY);
+        if (url != null) {
+            websocketUri = URI.create(url);
+        }
+        String levels = props.getProperty(SNAPSHOT_LEVELS_PROPERTY_KEY);
+        if (levels != null) {
+            snapshotLevels = Integer.parseInt(levels);
+        }
+        String delay = props.getProperty(RECONNECT_DELAY_PROPERTY_KEY);
+        if (delay != null) {
+            reconnectDelayMillis = Long.parseLong(delay);
+        }
+        startEngine();
+    }
+
+    @Override
+    public void stopEngine() {
+        started = false;
+        WebSocketClient current = client;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public boolean started() {
+        return started;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public Date getServerTime() {
+        return new Date();
+    }
+
+    @Override
+    public void useDelayedData(boolean useDelayed) {
+        logger.error(" useDelayedData() Not supported for dYdX market data");
+    }
+
+    @Override
+    public void subscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+        super.subscribeLevel1(ticker, listener);
+        subscribeMarket(ticker);
+    }
+
+    @Override
+    public void unsubscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+        super.unsubscribeLevel1(ticker, listener);
+        unsubscribeMarketIfUnused(ticker);
+    }
+
+    @Override
+    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        super.subscribeMarketDepth(ticker, listener);
+        subscribeMarket(ticker);
+    }
+
+    @Override
+    public void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        super.unsubscribeMarketDepth(ticker, listener);
+        unsubscribeMarketIfUnused(ticker);
+    }
+
+    protected void subscribeMarket(Ticker ticker) {
+        String market = ticker.getSymbol();
+        if (markets.putIfAbsent(market, new MarketBook(ticker)) == null) {
+            send(getSubscribeMessage("subscribe", market));
+        }
+    }
+
+    protected void unsubscribeMarketIfUnused(Ticker ticker) {
+        if (level1Listeners.hasListeners(ticker) || level2Listeners.hasListeners(ticker)) {
+            return;
+        }
+        if (markets.remove(ticker.getSymbol()) != null) {
+            send(getSubscribeMessage("unsubscribe", ticker.getSymbol()));
+        }
+    }
+
+    protected String getSubscribeMessage(String type, String market) {
+        return "{\"type\":\"" + type + "\",\"channel\":\"" + CHANNEL + "\",\"id\":\"" + market + "\"}";
+    }
+
+    /**
+     * Messages sent before the connection is open are dropped, the markets are
+     * all subscribed once it opens.
+     */
+    protected void send(String message) {
+        WebSocketClient current = client;
+        if (current != null && current.isOpen()) {
+            current.send(message);
+        }
+    }
+
+    protected void connect() {
+        parser.reset();
+        client = newClient(websocketUri);
+        client.connect();
+    }
+
+    protected WebSocketClient newClient(URI uri) {
+        return new WebSocketClient(uri) {
+
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+                logger.info("Connected to " + uri);
+                send("{\"type\":\"subscribe\",\"channel\":\"" + MARKETS_CHANNEL + "\"}");
+                for (String market : markets.keySet()) {
+                    send(getSubscribeMessage("subscribe", market));
+                }
+            }
+
+            @Override
+            public void onMessage(String message) {
+                parser.messageReceived(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                logger.info("Connection closed: " + code + " " + reason);
+                disconnected();
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                logger.error(ex.getMessage(), ex);
+                fireErrorEvent(new QuoteError(ex));
+            }
+        };
+    }
+
+    @Override
+    public void isConnected(boolean isConnected) {
+        connected = isConnected;
+    }
+
+    @Override
+    public void disconnected() {
+        connected = false;
+        if (started) {
+            reconnectExecutor.schedule(() -> {
+                if (started) {
+                    connect();
+                }
+            }, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void initialBook(String market, OrderBook orderBook) {
+        MarketBook marketBook = markets.get(market);
+        if (marketBook != null) {
+            marketBook.book = orderBook;
+            publish(marketBook);
+        }
+    }
+
+    /**
+     * Update messages are applied directly to the market's book.
+     */
+    @Override
+    public OrderBook getOrderBook(String market) {
+        MarketBook marketBook = markets.get(market);
+        return marketBook == null ? null : marketBook.book;
+    }
+
+    @Override
+    public int getSizeScale(String market) {
+        return sizeScales.getOrDefault(market, OrderBook.DEFAULT_SIZE_SCALE);
+    }
+
+    @Override
+    public void stepSizeReceived(String market, String stepSize) {
+        int sizeScale = QuoteUtil.getScale(new BigDecimal(stepSize));
+        sizeScales.put(market, sizeScale);
+        MarketBook marketBook = markets.get(market);
+        if (marketBook != null && marketBook.book != null && marketBook.book.getSizeScale() != sizeScale) {
+            logger.info("Step size of " + market + " is now " + stepSize + ", resubscribing order book");
+            // Sizes at the old scale can't be compared with the new ones
+            marketBook.bidSize = -1;
+            marketBook.askSize = -1;
+            resync(marketBook);
+        }
+    }
+
+    @Override
+    public void updateBid(String market, String bid, String size) {
+        MarketBook marketBook = markets.get(market);
+        if (marketBook != null && marketBook.book != null) {
+            marketBook.book.updateBid(bid, size);
+        }
+    }
+
+    @Override
+    public void updateAsk(String market, String ask, String size) {
+        MarketBook marketBook = markets.get(market);
+        if (marketBook != null && marketBook.book != null) {
+            marketBook.book.updateAsk(ask, size);
+        }
+    }
+
+    @Override
+    public void bookUpdated(String market) {
+        MarketBook marketBook = markets.get(market);
+        if (marketBook != null && marketBook.book != null) {
+            publish(marketBook);
+        }
+    }
+
+    @Override
+    public void messageGap(long expectedMessageId, long receivedMessageId) {
+        logger.warn("Missed messages " + expectedMessageId + " to " + (receivedMessageId - 1) + ", resubscribing order books");
+        for (MarketBook marketBook : markets.values()) {
+            resync(marketBook);
+        }
+    }
+
+    /**
+     * Drops the book and subscribes to the market again, the "subscribed"
+     * reply carries a fresh snapshot which initialBook() installs.
+     */
+    protected void resync(MarketBook marketBook) {
+        marketBook.book = null;
+        send(getSubscribeMessage("unsubscribe", marketBook.ticker.getSymbol()));
+        send(getSubscribeMessage("subscribe", marketBook.ticker.getSymbol()));
+    }
+
+    protected void publish(MarketBook marketBook) {
+        Ticker ticker = marketBook.ticker;
+        if (level1Listeners.hasListeners(ticker)) {
+            publishLevel1(marketBook);
+        }
+        if (level2Listeners.hasListeners(ticker)) {
+            publishLevel2(marketBook);
+        }
+    }
+
+    /**
+     * Only fires a quote when the best bid or offer has changed.
+     */
+    protected void publishLevel1(MarketBook marketBook) {
+        SortedMarketDepthBook bids = marketBook.book.getBids();
+        SortedMarketDepthBook asks = marketBook.book.getAsks();
+        if (bids.getLevelCount() == 0 || asks.getLevelCount() == 0) {
+            return;
+        }
+        long bid = bids.getScaledPriceAt(0);
+        long bidSize = bids.getScaledSizeAt(0);
+        long ask = asks.getScaledPriceAt(0);
+        long askSize = asks.getScaledSizeAt(0);
+        if (bid == marketBook.bid && bidSize == marketBook.bidSize && ask == marketBook.ask
+                && askSize == marketBook.askSize) {
+            return;
+        }
+        marketBook.bid = bid;
+        marketBook.bidSize = bidSize;
+        marketBook.ask = ask;
+        marketBook.askSize = askSize;
+
+        PrimitiveLevel1Quote quote = newLevel1Quote(marketBook.ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.BID, bid, OrderBook.PRICE_SCALE);
+        quote.setValue(QuoteType.BID_SIZE, bidSize, bids.getSizeScale());
+        quote.setValue(QuoteType.ASK, ask, OrderBook.PRICE_SCALE);
+        quote.setValue(QuoteType.ASK_SIZE, askSize, asks.getSizeScale());
+        fireLevel1Quote(quote);
+        quote.release();
+    }
+
+    /**
+     * Publishes an immutable snapshot of each side whose top levels changed.
+     */
+    protected void publishLevel2(MarketBook marketBook) {
+        ZonedDateTime now = ZonedDateTime.now();
+        MarketDepthSnapshot bids = marketBook.book.getBids().snapshot(snapshotLevels);
+        if (!bids.hasSameTopLevels(marketBook.lastBids, snapshotLevels)) {
+            marketBook.lastBids = bids;
+            fireMarketDepthQuote(new Level2Quote(marketBook.ticker, QuoteType.MARKET_DEPTH_BID, now, bids));
+        }
+        MarketDepthSnapshot asks = marketBook.book.getAsks().snapshot(snapshotLevels);
+        if (!asks.hasSameTopLevels(marketBook.lastAsks, snapshotLevels)) {
+            marketBook.lastAsks = asks;
+            fireMarketDepthQuote(new Level2Quote(marketBook.ticker, QuoteType.MARKET_DEPTH_ASK, now, asks));
+        }
+    }
+
+    public void setSnapshotLevels(int snapshotLevels) {
+        this.snapshotLevels = snapshotLevels;
+    }
+
+    public void setReconnectDelayMillis(long reconnectDelayMillis) {
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    /**
+     * The book for a market along with the last values published for it. Only
+     * the websocket thread reads or writes these.
+     */
+    protected static class MarketBook {
+        protected final Ticker ticker;
+        protected volatile OrderBook book;
+        protected long bid = -1;
+        protected long bidSize = -1;
+        protected long ask = -1;
+        protected long askSize = -1;
+        protected MarketDepthSnapshot lastBids;
+        protected MarketDepthSnapshot lastAsks;
+
+        public MarketBook(Ticker ticker) {
+            this.ticker = ticker;
+        }
+    }
+}
@@ -1,56 +1,106 @@
 package com.sumzerotrading.marketdata.dydx;
 
+import com.sumzerotrading.marketdata.MarketDepthBook;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+import com.sumzerotrading.util.QuoteUtil;
 import java.math.BigDecimal;
+import java.util.AbstractMap;
 import java.util.Map;
-import java.util.TreeMap;
 
 public class OrderBook {
-    private final TreeMap<BigDecimal, String> bids; // Price -> Size
-    private final TreeMap<BigDecimal, String> asks; // Price -> Size
+    // Prices are kept as longs with 8 decimal places
+    protected static final int PRICE_SCALE = 8;
+    // Sizes use the decimal places of the market's step size, or 8 if it isn't known
+    protected static final int DEFAULT_SIZE_SCALE = 8;
+
+    private final int sizeScale;
+    private final SortedMarketDepthBook bids; // Highest price first
+    private final SortedMarketDepthBook asks; // Lowest price first
 
     public OrderBook() {
-        // Bids: Highest price first
-        bids = new TreeMap<>((a, b) -> b.compareTo(a));
+        this(DEFAULT_SIZE_SCALE);
+    }
 
-        // Asks: Lowest price first
-        asks = new TreeMap<>();
+    public OrderBook(int sizeScale) {
+        this.sizeScale = sizeScale;
+        bids = new SortedMarketDepthBook(MarketDepthBook.Side.BID, PRICE_SCALE, sizeScale);
+        asks = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, PRICE_SCALE, sizeScale);
     }
 
-    // Add or update a bid
+    // Add or update a bid, a size of zero removes the level
     public void updateBid(String price, String size) {
-        BigDecimal priceKey = new BigDecimal(price);
-        if (size.equals("0")) {
-            bids.remove(priceKey); // Remove if size is zero
-        } else {
-            bids.put(priceKey, size);
-        }
+        bids.setLevel(QuoteUtil.parseScaledValue(price, PRICE_SCALE), QuoteUtil.parseScaledValue(size, sizeScale));
     }
 
-    // Add or update an ask
+    // Add or update an ask, a size of zero removes the level
     public void updateAsk(String price, String size) {
-        BigDecimal priceKey = new BigDecimal(price);
-        if (size.equals("0")) {
-            asks.remove(priceKey); // Remove if size is zero
-        } else {
-            asks.put(priceKey, size);
-        }
+        asks.setLevel(QuoteUtil.parseScaledValue(price, PRICE_SCALE), QuoteUtil.parseScaledValue(size, sizeScale));
+    }
+
+    // Add or update a bid already scaled to PRICE_SCALE and the book's size scale
+    public void updateBid(long price, long size) {
+        bids.setLevel(price, size);
+    }
+
+    // Add or update an ask already scaled to PRICE_SCALE and the book's size scale
+    public void updateAsk(long price, long size) {
+        asks.setLevel(price, size);
+    }
+
+    // Remove every level from both sides
+    public void clear() {
+        bids.clearLevels();
+        asks.clearLevels();
     }
 
     // Get best bid (highest price)
     public Map.Entry<BigDecimal, String> getBestBid() {
-        return bids.firstEntry();
+        return getEntry(bids, 0);
     }
 
     // Get best ask (lowest price)
     public Map.Entry<BigDecimal, String> getBestAsk() {
-        return asks.firstEntry();
+        return getEntry(asks, 0);
+    }
+
+    public int getSizeScale() {
+        return sizeScale;
+    }
+
+    public SortedMarketDepthBook getBids() {
+        return bids;
+    }
+
+    public SortedMarketDepthBook getAsks() {
+        return asks;
     }
 
     // Debug print for the entire order book
     public void printOrderBook() {
         System.out.println("Bids:");
-        bids.forEach((price, size) -> System.out.println(price + " -> " + size));
+        printSide(bids);
         System.out.println("Asks:");
-        asks.forEach((price, size) -> System.out.println(price + " -> " + size));
+        printSide(asks);
+    }
+
+    protected void printSide(SortedMarketDepthBook book) {
+        for (int i = 0; i < book.getLevelCount(); i++) {
+            Map.Entry<BigDecimal, String> entry = getEntry(book, i);
+            System.out.println(entry.getKey() + " -> " + entry.getValue());
+        }
+    }
+
+    protected Map.Entry<BigDecimal, String> getEntry(SortedMarketDepthBook book, int index) {
+        if (book.getLevelCount() <= index) {
+            return null;
+        }
+        BigDecimal price = strip(BigDecimal.valueOf(book.getScaledPriceAt(index), PRICE_SCALE));
+        String size = strip(BigDecimal.valueOf(book.getScaledSizeAt(index), sizeScale)).toPlainString();
+        return new AbstractMap.SimpleImmutableEntry<>(price, size);
+    }
+
+    protected static BigDecimal strip(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
     }
 }
@@ -11,4 +11,56 @@ public interface WebsocketEventListener {
     public void updateAsk(String ticker, String ask, String size);
 
     public void initialBook(String ticker, OrderBook orderBook);
+
+    /**
+     * Gets the book that updates for the market should be applied to. If no
+     * book is returned, each level of an update is passed to updateBid() or
+     * updateAsk() instead.
+     *
+     * @param ticker The market the update is for.
+     * @return The book for the market, or null.
+     */
+    public default OrderBook getOrderBook(String ticker) {
+        return null;
+    }
+
+    /**
+     * Gets the number of decimal places sizes for the market are parsed with.
+     * A book returned by getOrderBook() must use the same size scale.
+     *
+     * @param ticker The market the message is for.
+     * @return The size scale of the market.
+     */
+    public default int getSizeScale(String ticker) {
+        return OrderBook.DEFAULT_SIZE_SCALE;
+    }
+
+    /**
+     * Called for each market in a v4_markets message which carries the
+     * market's step size.
+     *
+     * @param ticker The market.
+     * @param stepSize The smallest size increment of the market.
+     */
+    public default void stepSizeReceived(String ticker, String stepSize) {
+    }
+
+    /**
+     * Called once all of the levels in a single update message have been
+     * applied.
+     *
+     * @param ticker The market the update was for.
+     */
+    public default void bookUpdated(String ticker) {
+    }
+
+    /**
+     * Called when a message on the connection was skipped, meaning any book
+     * on the connection may be missing updates.
+     *
+     * @param expectedMessageId The id of the next message that was expected.
+     * @param receivedMessageId The id of the message that was received.
+     */
+    public default void messageGap(long expectedMessageId, long receivedMessageId) {
+    }
 }
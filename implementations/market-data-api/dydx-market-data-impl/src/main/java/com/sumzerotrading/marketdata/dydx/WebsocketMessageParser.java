@@ -1,129 +1,338 @@
 package com.sumzerotrading.marketdata.dydx;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sumzerotrading.util.QuoteUtil;
+
+/**
+ * Decodes v4_orderbook messages and applies them to the listener's books, and
+ * passes the step sizes from v4_markets messages on to the listener.
+ *
+ * Messages are handled one at a time, in order, on the thread which calls
+ * messageReceived(). Each message is copied into a reusable buffer and read
+ * with a streaming parser. Its levels are collected as scaled longs in
+ * reusable arrays, and are only applied to the book once the whole message
+ * has been read. A message that fails to parse therefore leaves the book
+ * untouched, and because its message id isn't recorded, the next message is
+ * reported as a gap.
+ *
+ * Sizes are parsed with the market's size scale, so the contents of a message
+ * are read once its market id is known. The indexer sends the id first, if
+ * it doesn't the contents are skipped and read again afterwards.
+ *
+ * Not thread safe, a parser belongs to a single connection.
+ */
 public class WebsocketMessageParser {
 
     protected static Logger logger = LoggerFactory.getLogger(WebsocketMessageParser.class);
 
+    protected static final String CONNECTED = "connected";
+    protected static final String SUBSCRIBED = "subscribed";
+    protected static final String CHANNEL_DATA = "channel_data";
+    protected static final String ERROR = "error";
+    protected static final String MARKETS_CHANNEL = "v4_markets";
+    protected static final String[] TYPES = { CONNECTED, SUBSCRIBED, CHANNEL_DATA, ERROR };
+
+    protected final JsonFactory jsonFactory = new JsonFactory();
+    protected final DyDxOrderBookParser.TextView text = new DyDxOrderBookParser.TextView();
+    protected final LevelBuffer bids = new LevelBuffer();
+    protected final LevelBuffer asks = new LevelBuffer();
+    protected final List<String> markets = new ArrayList<>();
     protected WebsocketEventListener listener;
     protected boolean connected = false;
-    protected ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
-    protected List<String> subscribedTickers = new ArrayList<>();
+    protected long lastMessageId = -1;
+    protected char[] buffer = new char[4096];
 
     public WebsocketMessageParser(WebsocketEventListener listener) {
         this.listener = listener;
     }
 
     public void messageReceived(String message) {
-        try {
-            JSONObject json = new JSONObject(message);
-
-            // Extract common fields
-            String type = json.getString("type");
-            String connectionId = json.getString("connection_id");
-            int messageId = json.getInt("message_id");
-            // String channelId = json.getString("id");
-            // String channel = json.getString("channel");
-
-            logger.debug("Type: " + type);
-            logger.debug("Connection ID: " + connectionId);
-            logger.debug("Message ID: " + messageId);
-            // logger.debug("Channel: " + channel);
-
-            if ("subscribed".equalsIgnoreCase(type)) {
-                handleInitialOrderBook(json.getJSONObject("contents"));
-            }
+        int length = message.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        message.getChars(0, length, buffer, 0);
+        bids.clear();
+        asks.clear();
 
-            if ("connected".equalsIgnoreCase(type)) {
-                connected = true;
-                handleIsConnected();
+        String type = null;
+        String market = null;
+        boolean marketsChannel = false;
+        boolean contentsSkipped = false;
+        long messageId = -1;
+        try (JsonParser parser = jsonFactory.createParser(buffer, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a message object");
             }
-
-            // Extract the contents field
-            if ("channel_data".equalsIgnoreCase(type)) {
-                JSONObject contents = json.getJSONObject("contents");
-                handleOrderBookUpdate(contents);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("type".equals(field)) {
+                    type = getType(parser);
+                } else if ("message_id".equals(field)) {
+                    messageId = parser.getLongValue();
+                } else if ("id".equals(field)) {
+                    market = getMarket(parser);
+                } else if ("channel".equals(field)) {
+                    marketsChannel = text.wrap(parser).contentEquals(MARKETS_CHANNEL);
+                } else if ("contents".equals(field) && token == JsonToken.START_OBJECT) {
+                    if (market == null) {
+                        contentsSkipped = true;
+                        parser.skipChildren();
+                    } else {
+                        parseContents(parser, listener.getSizeScale(market));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (contentsSkipped) {
+                parseContents(length, market == null ? OrderBook.DEFAULT_SIZE_SCALE : listener.getSizeScale(market));
             }
-
         } catch (Exception e) {
             logger.error("Failed to process message: " + message);
             logger.error(e.getMessage(), e);
-
+            return;
         }
-    }
 
-    protected void handleIsConnected() {
-        threadPool.submit(() -> {
+        logger.debug("Type: {} Message ID: {} Market: {}", type, messageId, market);
+        if (CONNECTED == type) {
+            lastMessageId = messageId;
+            connected = true;
             listener.isConnected(connected);
-        });
-    }
+            return;
+        }
+
+        checkMessageId(messageId);
 
-    public void handleInitialOrderBook(JSONObject orderBookArray) {
-        try {
-            OrderBook orderBook = new OrderBook();
-            JSONArray bidsArray = orderBookArray.getJSONArray("bids");
-            JSONArray asksArray = orderBookArray.getJSONArray("asks");
-
-            for (int i = 0; i < bidsArray.length(); i++) {
-                JSONObject bid = bidsArray.getJSONObject(i);
-                String price = bid.getString("price");
-                String size = bid.getString("size");
-                orderBook.updateBid(price, size);
+        if (ERROR == type) {
+            logger.error("Error message received: " + message);
+        } else if (marketsChannel || market == null) {
+            return;
+        } else if (SUBSCRIBED == type) {
+            OrderBook orderBook = new OrderBook(listener.getSizeScale(market));
+            apply(orderBook);
+            listener.initialBook(market, orderBook);
+        } else if (CHANNEL_DATA == type) {
+            OrderBook orderBook = listener.getOrderBook(market);
+            if (orderBook != null) {
+                apply(orderBook);
+            } else {
+                fireLevelUpdates(market, listener.getSizeScale(market));
             }
+            listener.bookUpdated(market);
+        }
+    }
 
-            // Populate asks TreeMap
-            for (int i = 0; i < asksArray.length(); i++) {
-                JSONObject ask = asksArray.getJSONObject(i);
-                String price = ask.getString("price");
-                String size = ask.getString("size");
-                orderBook.updateAsk(price, size);
+    /**
+     * Reads the contents of the message in the buffer again, for messages
+     * whose market id came after the contents.
+     */
+    protected void parseContents(int length, int sizeScale) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(buffer, 0, length)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && "contents".equals(field)) {
+                    parseContents(parser, sizeScale);
+                    return;
+                }
+                parser.skipChildren();
             }
+        }
+    }
 
-            listener.initialBook("", orderBook);
-        } catch (Exception ex) {
-            logger.error(ex.getMessage(), ex);
+    /**
+     * The message id is incremented for every message sent on a connection, so
+     * any jump means a message was lost.
+     */
+    protected void checkMessageId(long messageId) {
+        long expected = lastMessageId + 1;
+        lastMessageId = messageId;
+        if (messageId != expected) {
+            logger.warn("Expected message id " + expected + " but received " + messageId);
+            listener.messageGap(expected, messageId);
         }
     }
 
-    protected void handleOrderBookUpdate(JSONObject orderbookArray) {
-        try {
+    /**
+     * Clears the connection state so the next "connected" message starts a new
+     * message id sequence.
+     */
+    public void reset() {
+        connected = false;
+        lastMessageId = -1;
+    }
 
-            JSONArray bidsArray = orderbookArray.getJSONArray("bids");
-            JSONArray asksArray = orderbookArray.getJSONArray("asks");
+    /**
+     * Returns the matching type constant, so types can be compared by
+     * reference without creating a String for every message.
+     */
+    protected String getType(JsonParser parser) throws IOException {
+        text.wrap(parser);
+        for (String type : TYPES) {
+            if (text.contentEquals(type)) {
+                return type;
+            }
+        }
+        return text.toString();
+    }
 
-            for (int i = 0; i < bidsArray.length(); i++) {
-                JSONObject bid = bidsArray.getJSONObject(i);
-                String price = bid.getString("price");
-                String size = bid.getString("size");
-                threadPool.submit(() -> {
-                    listener.updateBid("", price, size);
-                });
+    /**
+     * A connection only carries a handful of markets, so each market id is
+     * created once and reused for every later message.
+     */
+    protected String getMarket(JsonParser parser) throws IOException {
+        text.wrap(parser);
+        for (int i = 0; i < markets.size(); i++) {
+            if (text.contentEquals(markets.get(i))) {
+                return markets.get(i);
+            }
+        }
+        String market = text.toString();
+        markets.add(market);
+        return market;
+    }
 
+    /**
+     * The v4_markets snapshot lists the markets under "markets" and its
+     * updates under "trading", both keyed by market id.
+     */
+    protected void parseContents(JsonParser parser, int sizeScale) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("bids".equals(field) && token == JsonToken.START_ARRAY) {
+                parseSide(parser, bids, sizeScale);
+            } else if ("asks".equals(field) && token == JsonToken.START_ARRAY) {
+                parseSide(parser, asks, sizeScale);
+            } else if (("markets".equals(field) || "trading".equals(field)) && token == JsonToken.START_OBJECT) {
+                parseMarkets(parser);
+            } else {
+                parser.skipChildren();
             }
+        }
+    }
 
-            // Populate asks TreeMap
-            for (int i = 0; i < asksArray.length(); i++) {
-                JSONObject ask = asksArray.getJSONObject(i);
-                String price = ask.getString("price");
-                String size = ask.getString("size");
-                threadPool.submit(() -> {
-                    listener.updateAsk("", price, size);
-                });
+    protected void parseMarkets(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String market = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("stepSize".equals(field)) {
+                    listener.stepSizeReceived(market, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
 
+    /**
+     * Snapshots send levels as {"price": .., "size": ..} objects while updates
+     * send them as [price, size] pairs.
+     */
+    protected void parseSide(JsonParser parser, LevelBuffer levels, int sizeScale) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            long price = -1;
+            long size = -1;
+            if (token == JsonToken.START_ARRAY) {
+                if (parser.nextToken() != JsonToken.END_ARRAY) {
+                    price = QuoteUtil.parseScaledValue(text.wrap(parser), OrderBook.PRICE_SCALE);
+                    if (parser.nextToken() != JsonToken.END_ARRAY) {
+                        size = QuoteUtil.parseScaledValue(text.wrap(parser), sizeScale);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("price".equals(field)) {
+                        price = QuoteUtil.parseScaledValue(text.wrap(parser), OrderBook.PRICE_SCALE);
+                    } else if ("size".equals(field)) {
+                        size = QuoteUtil.parseScaledValue(text.wrap(parser), sizeScale);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                throw new IOException("Unexpected order book level: " + token);
             }
+            if (price < 0 || size < 0) {
+                throw new IOException("Order book level is missing a price or size");
+            }
+            levels.add(price, size);
+        }
+    }
+
+    protected void apply(OrderBook orderBook) {
+        for (int i = 0; i < bids.count; i++) {
+            orderBook.updateBid(bids.prices[i], bids.sizes[i]);
+        }
+        for (int i = 0; i < asks.count; i++) {
+            orderBook.updateAsk(asks.prices[i], asks.sizes[i]);
+        }
+    }
 
-        } catch (Exception ex) {
-            logger.error(ex.getMessage(), ex);
+    /**
+     * For listeners which don't expose their books, each level is passed on
+     * individually.
+     */
+    protected void fireLevelUpdates(String market, int sizeScale) {
+        for (int i = 0; i < bids.count; i++) {
+            listener.updateBid(market, toPlainString(bids.prices[i], OrderBook.PRICE_SCALE),
+                    toPlainString(bids.sizes[i], sizeScale));
+        }
+        for (int i = 0; i < asks.count; i++) {
+            listener.updateAsk(market, toPlainString(asks.prices[i], OrderBook.PRICE_SCALE),
+                    toPlainString(asks.sizes[i], sizeScale));
         }
     }
 
+    protected static String toPlainString(long value, int scale) {
+        return OrderBook.strip(BigDecimal.valueOf(value, scale)).toPlainString();
+    }
+
+    /**
+     * The levels of one side of a message, reused for every message.
+     */
+    protected static class LevelBuffer {
+        protected long[] prices = new long[64];
+        protected long[] sizes = new long[64];
+        protected int count;
+
+        public void add(long price, long size) {
+            if (count == prices.length) {
+                prices = Arrays.copyOf(prices, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+            }
+            prices[count] = price;
+            sizes[count] = size;
+            count++;
+        }
+
+        public void clear() {
+            count = 0;
+        }
+    }
 }
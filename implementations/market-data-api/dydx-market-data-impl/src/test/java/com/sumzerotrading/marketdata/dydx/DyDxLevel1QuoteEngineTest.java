@@ -0,0 +1,126 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sumzerotrading.data.CryptoTicker;
+import com.sumzerotrading.data.Exchange;
+import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.marketdata.StubHttpServer;
+
+public class DyDxLevel1QuoteEngineTest {
+
+    protected StubHttpServer server;
+    protected DyDxLevel1QuoteEngine engine;
+    protected Map<String, String> bids = new ConcurrentHashMap<>();
+
+    /**
+     * Stands in for the indexer's order book endpoint, the market is the last
+     * part of the path.
+     */
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer((path, body) -> path.substring(path.lastIndexOf('/') + 1),
+                market -> "{\"bids\":[{\"price\":\"" + bids.getOrDefault(market, "100")
+                        + "\",\"size\":\"1\"},{\"price\":\"99\",\"size\":\"5\"}],"
+                        + "\"asks\":[{\"price\":\"101\",\"size\":\"2\"}]}");
+
+        engine = new DyDxLevel1QuoteEngine();
+        engine.setBaseUrl(server.getUrl() + "/");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Quotes are delivered to listeners on the dispatcher's threads.
+     */
+    protected void awaitSize(Map<String, String> received, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (received.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testRequestsAreIssuedConcurrently() throws Exception {
+        Map<String, String> received = new ConcurrentHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            String market = "MKT" + i + "-USD";
+            server.setDelay(market, 300L);
+            bids.put(market, String.valueOf(100 + i));
+            engine.subscribeLevel1(new CryptoTicker(market, Exchange.DYDX),
+                    quote -> received.put(quote.getTicker().getSymbol(),
+                            quote.getValue(QuoteType.BID).stripTrailingZeros().toPlainString()));
+        }
+
+        long start = System.currentTimeMillis();
+        engine.getQuotes();
+        long elapsed = System.currentTimeMillis() - start;
+        awaitSize(received, 8);
+
+        assertEquals(8, received.size());
+        assertEquals("103", received.get("MKT3-USD"));
+        assertTrue("Cycle took " + elapsed + "ms", elapsed < 8 * 300);
+        assertTrue(server.getMaxInFlight() > 1);
+    }
+
+    @Test
+    public void testConcurrencyIsCapped() throws Exception {
+        engine.setRequestLimits(2, 5000);
+        Map<String, String> received = new ConcurrentHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            String market = "MKT" + i + "-USD";
+            server.setDelay(market, 100L);
+            engine.subscribeLevel1(new CryptoTicker(market, Exchange.DYDX),
+                    quote -> received.put(quote.getTicker().getSymbol(),
+                            quote.getValue(QuoteType.BID).stripTrailingZeros().toPlainString()));
+        }
+
+        engine.getQuotes();
+        awaitSize(received, 6);
+
+        assertEquals(6, received.size());
+        assertTrue(server.getMaxInFlight() <= 2);
+    }
+
+    @Test
+    public void testSlowRequestsAreDroppedAtTheDeadline() throws Exception {
+        engine.setRequestLimits(16, 500);
+        Map<String, String> received = new ConcurrentHashMap<>();
+        server.setDelay("SLOW-USD", 3000L);
+        for (String market : new String[] { "BTC-USD", "ETH-USD", "SLOW-USD" }) {
+            engine.subscribeLevel1(new CryptoTicker(market, Exchange.DYDX),
+                    quote -> received.put(quote.getTicker().getSymbol(),
+                            quote.getValue(QuoteType.BID).stripTrailingZeros().toPlainString()));
+        }
+
+        long start = System.currentTimeMillis();
+        engine.getQuotes();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("Cycle took " + elapsed + "ms", elapsed < 2000);
+        awaitSize(received, 3);
+        assertEquals(2, received.size());
+        assertTrue(received.containsKey("BTC-USD"));
+        assertTrue(received.containsKey("ETH-USD"));
+    }
+
+    @Test
+    public void testGetOrderBook() {
+        bids.put("BTC-USD", "65000.5");
+        DyDxLevel1QuoteEngine.OrderBookResponse orderBook = engine.getOrderBook("BTC-USD");
+        assertEquals("65000.5", orderBook.getBids()[0].getPrice());
+        assertEquals(2, orderBook.getBids().length);
+        assertEquals("101", orderBook.getAsks()[0].getPrice());
+    }
+}
@@ -0,0 +1,79 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares reading the best bid and offer from a full depth order book
+ * payload by data binding the whole body, as getOrderBook() does, against the
+ * streaming parser reading one level and the whole book. Run the main method
+ * to include the GC profiler, gc.alloc.rate.norm gives the bytes allocated per
+ * payload.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DyDxOrderBookParserBenchmark {
+
+    protected ObjectMapper objectMapper = new ObjectMapper();
+    protected DyDxOrderBookParser parser = new DyDxOrderBookParser();
+    protected byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/dydx-orderbook-btc-usd.json")) {
+            payload = in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public double dataBinding() throws IOException {
+        String json = new String(payload, StandardCharsets.UTF_8);
+        DyDxLevel1QuoteEngine.OrderBookResponse book = objectMapper.readValue(json,
+                DyDxLevel1QuoteEngine.OrderBookResponse.class);
+        return new BigDecimal(book.getBids()[0].getPrice()).doubleValue()
+                + new BigDecimal(book.getAsks()[0].getPrice()).doubleValue();
+    }
+
+    @Benchmark
+    public long streamingTopOfBook() throws IOException {
+        OrderBook book = parser.parse(new ByteArrayInputStream(payload), 1, new OrderBook());
+        return book.getBids().getScaledPriceAt(0) + book.getAsks().getScaledPriceAt(0);
+    }
+
+    @Benchmark
+    public long streamingFullDepth() throws IOException {
+        OrderBook book = parser.parse(new ByteArrayInputStream(payload), Integer.MAX_VALUE, new OrderBook());
+        return book.getBids().getScaledPriceAt(0) + book.getAsks().getScaledPriceAt(0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DyDxOrderBookParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+
+public class DyDxOrderBookParserTest {
+
+    protected static final String PAYLOAD = "/dydx-orderbook-btc-usd.json";
+
+    protected DyDxOrderBookParser parser = new DyDxOrderBookParser();
+
+    protected InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected void assertLevel(DyDxLevel1QuoteEngine.Order expected, SortedMarketDepthBook book, int index) {
+        assertEquals(new BigDecimal(expected.getPrice()).movePointRight(OrderBook.PRICE_SCALE).longValueExact(),
+                book.getScaledPriceAt(index));
+        assertEquals(new BigDecimal(expected.getSize()).movePointRight(OrderBook.DEFAULT_SIZE_SCALE).longValueExact(),
+                book.getScaledSizeAt(index));
+    }
+
+    @Test
+    public void testFullDepthMatchesDataBinding() throws Exception {
+        DyDxLevel1QuoteEngine.OrderBookResponse expected = new ObjectMapper()
+                .readValue(getClass().getResourceAsStream(PAYLOAD), DyDxLevel1QuoteEngine.OrderBookResponse.class);
+
+        OrderBook book = parser.parse(getClass().getResourceAsStream(PAYLOAD), Integer.MAX_VALUE, new OrderBook());
+
+        assertEquals(expected.getBids().length, book.getBids().getLevelCount());
+        assertEquals(expected.getAsks().length, book.getAsks().getLevelCount());
+        for (int i = 0; i < expected.getBids().length; i++) {
+            assertLevel(expected.getBids()[i], book.getBids(), i);
+            assertLevel(expected.getAsks()[i], book.getAsks(), i);
+        }
+    }
+
+    @Test
+    public void testTopLevelsOnly() throws Exception {
+        OrderBook book = parser.parse(getClass().getResourceAsStream(PAYLOAD), 3, new OrderBook());
+
+        assertEquals(3, book.getBids().getLevelCount());
+        assertEquals(3, book.getAsks().getLevelCount());
+        assertEquals(new BigDecimal("97000.5"), book.getBestBid().getKey());
+        assertEquals(new BigDecimal("97002.5"), book.getBestAsk().getKey());
+    }
+
+    @Test
+    public void testStopsReadingOnceBothSidesAreRead() throws Exception {
+        String json = "{\"bids\":[{\"price\":\"100\",\"size\":\"1\"},{\"price\":\"99\",\"size\":\"2\"}],"
+                + "\"asks\":[{\"price\":\"101\",\"size\":\"3\"}, this is never read";
+
+        OrderBook book = parser.parse(stream(json), 1, new OrderBook());
+
+        assertEquals(1, book.getBids().getLevelCount());
+        assertEquals(10000000000L, book.getBids().getScaledPriceAt(0));
+        assertEquals(300000000L, book.getAsks().getScaledSizeAt(0));
+    }
+
+    @Test
+    public void testUnknownFieldsAndEmptySides() throws Exception {
+        String json = "{\"market\":{\"id\":\"BTC-USD\",\"tags\":[1,2]},\"asks\":[],"
+                + "\"bids\":[{\"price\":\"0.00012345\",\"size\":\"15\",\"orders\":[{\"id\":1}]}]}";
+
+        OrderBook book = parser.parse(stream(json), Integer.MAX_VALUE, new OrderBook());
+
+        assertEquals(0, book.getAsks().getLevelCount());
+        assertEquals(12345L, book.getBids().getScaledPriceAt(0));
+        assertEquals(1500000000L, book.getBids().getScaledSizeAt(0));
+    }
+
+    @Test
+    public void testBookIsClearedFirst() throws Exception {
+        OrderBook book = new OrderBook();
+        book.updateBid("50", "1");
+        book.updateAsk("150", "1");
+
+        parser.parse(stream("{\"bids\":[{\"price\":\"100\",\"size\":\"1\"}],\"asks\":[]}"), 5, book);
+
+        assertEquals(1, book.getBids().getLevelCount());
+        assertEquals(new BigDecimal("100"), book.getBestBid().getKey());
+        assertEquals(0, book.getAsks().getLevelCount());
+    }
+}
@@ -0,0 +1,254 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sumzerotrading.data.CryptoTicker;
+import com.sumzerotrading.data.Exchange;
+import com.sumzerotrading.marketdata.ILevel2Quote;
+import com.sumzerotrading.marketdata.IMarketDepthBook;
+import com.sumzerotrading.marketdata.MarketDepthBook.Side;
+import com.sumzerotrading.marketdata.QuoteType;
+
+public class DyDxWebSocketQuoteEngineTest {
+
+    protected StubServer server;
+    protected DyDxWebSocketQuoteEngine engine;
+    protected CryptoTicker ticker = new CryptoTicker("BTC-USD", Exchange.DYDX);
+    protected BlockingQueue<BigDecimal[]> level1Quotes = new LinkedBlockingQueue<>();
+    protected BlockingQueue<ILevel2Quote> level2Quotes = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubServer();
+        server.start();
+        assertTrue(server.started.await(5, TimeUnit.SECONDS));
+        engine = new DyDxWebSocketQuoteEngine(new URI("ws://localhost:" + server.getPort()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        engine.stopEngine();
+        server.stop(1000);
+    }
+
+    protected void subscribeLevel1() {
+        engine.subscribeLevel1(ticker, quote -> level1Quotes.add(new BigDecimal[] { quote.getValue(QuoteType.BID),
+                quote.getValue(QuoteType.BID_SIZE), quote.getValue(QuoteType.ASK), quote.getValue(QuoteType.ASK_SIZE) }));
+    }
+
+    protected void assertQuote(String bid, String bidSize, String ask, String askSize) throws Exception {
+        BigDecimal[] quote = level1Quotes.poll(5, TimeUnit.SECONDS);
+        assertNotNull("No quote received", quote);
+        assertEquals(0, new BigDecimal(bid).compareTo(quote[0]));
+        assertEquals(0, new BigDecimal(bidSize).compareTo(quote[1]));
+        assertEquals(0, new BigDecimal(ask).compareTo(quote[2]));
+        assertEquals(0, new BigDecimal(askSize).compareTo(quote[3]));
+    }
+
+    @Test
+    public void testInitialBookAndUpdatesPublishLevel1() throws Exception {
+        subscribeLevel1();
+        engine.startEngine();
+        assertTrue(server.subscribed.await(5, TimeUnit.SECONDS));
+
+        assertQuote("100", "1", "100.5", "2");
+
+        server.sendUpdate("{\"bids\":[[\"100.25\",\"3\"]]}");
+        assertQuote("100.25", "3", "100.5", "2");
+
+        server.sendUpdate("{\"asks\":[[\"100.5\",\"0\"]]}");
+        assertQuote("100.25", "3", "101", "4");
+
+        assertEquals(0, server.unsubscribeCount);
+    }
+
+    @Test
+    public void testUnchangedTopOfBookIsNotPublished() throws Exception {
+        subscribeLevel1();
+        engine.startEngine();
+        assertQuote("100", "1", "100.5", "2");
+
+        server.sendUpdate("{\"bids\":[[\"98\",\"5\"]]}");
+        server.sendUpdate("{\"bids\":[[\"100\",\"6\"]]}");
+        assertQuote("100", "6", "100.5", "2");
+    }
+
+    @Test
+    public void testMarketDepthIsPublished() throws Exception {
+        engine.subscribeMarketDepth(ticker, quote -> level2Quotes.add(quote));
+        engine.startEngine();
+
+        ILevel2Quote first = level2Quotes.poll(5, TimeUnit.SECONDS);
+        ILevel2Quote second = level2Quotes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(second);
+        IMarketDepthBook bids = first.getMarketDepthBook().getSide() == Side.BID ? first.getMarketDepthBook()
+                : second.getMarketDepthBook();
+        assertEquals(2, bids.getLevelCount());
+        assertEquals(0, new BigDecimal("100").compareTo(bids.getLevelAt(0).getPrice()));
+        assertEquals(0, new BigDecimal("99.5").compareTo(bids.getLevelAt(1).getPrice()));
+
+        server.sendUpdate("{\"bids\":[[\"99.75\",\"1\"]]}");
+        ILevel2Quote update = level2Quotes.poll(5, TimeUnit.SECONDS);
+        assertEquals(Side.BID, update.getMarketDepthBook().getSide());
+        assertEquals(3, update.getMarketDepthBook().getLevelCount());
+    }
+
+    @Test
+    public void testMessageGapResubscribesMarket() throws Exception {
+        subscribeLevel1();
+        engine.startEngine();
+        assertQuote("100", "1", "100.5", "2");
+
+        server.snapshot = "{\"bids\":[{\"price\":\"99\",\"size\":\"7\"}],\"asks\":[{\"price\":\"101\",\"size\":\"8\"}]}";
+        server.skipMessage();
+        //the update after the gap is dropped, the book comes from the new snapshot
+        server.sendUpdate("{\"bids\":[[\"99.5\",\"0\"]]}");
+        assertQuote("99", "7", "101", "8");
+        assertEquals(1, server.unsubscribeCount);
+
+        server.sendUpdate("{\"bids\":[[\"99\",\"9\"]]}");
+        assertQuote("99", "9", "101", "8");
+    }
+
+    @Test
+    public void testSizesUseTheStepSizeOfTheMarket() throws Exception {
+        server.stepSize = "1";
+        server.snapshot = "{\"bids\":[{\"price\":\"100\",\"size\":\"250000000000\"}],"
+                + "\"asks\":[{\"price\":\"101\",\"size\":\"3\"}]}";
+        engine.startEngine();
+        assertTrue(server.marketsSubscribed.await(5, TimeUnit.SECONDS));
+        subscribeLevel1();
+
+        assertQuote("100", "250000000000", "101", "3");
+        assertEquals(0, engine.getOrderBook("BTC-USD").getSizeScale());
+    }
+
+    @Test
+    public void testStepSizeChangeResubscribesMarket() throws Exception {
+        subscribeLevel1();
+        engine.startEngine();
+        assertQuote("100", "1", "100.5", "2");
+        assertEquals(4, engine.getOrderBook("BTC-USD").getSizeScale());
+
+        server.sendMarkets("channel_data", "trading", "0.01");
+        assertTrue(server.resubscribed.await(5, TimeUnit.SECONDS));
+        assertQuote("100", "1", "100.5", "2");
+        assertEquals(1, server.unsubscribeCount);
+        assertEquals(2, engine.getOrderBook("BTC-USD").getSizeScale());
+    }
+
+    @Test
+    public void testReconnectResubscribes() throws Exception {
+        engine.setReconnectDelayMillis(10);
+        subscribeLevel1();
+        engine.startEngine();
+        assertQuote("100", "1", "100.5", "2");
+
+        server.sendUpdateAfterReconnect = true;
+        server.closeConnections();
+        assertTrue(server.resubscribed.await(5, TimeUnit.SECONDS));
+        assertQuote("100.25", "1", "100.5", "2");
+        assertEquals(0, server.unsubscribeCount);
+    }
+
+    /**
+     * Stands in for the dYdX indexer, answering a subscription with the
+     * current snapshot and numbering every message it sends.
+     */
+    protected static class StubServer extends WebSocketServer {
+        protected CountDownLatch started = new CountDownLatch(1);
+        protected CountDownLatch marketsSubscribed = new CountDownLatch(1);
+        protected CountDownLatch subscribed = new CountDownLatch(1);
+        protected CountDownLatch resubscribed = new CountDownLatch(2);
+        protected volatile WebSocket connection;
+        protected volatile boolean sendUpdateAfterReconnect = false;
+        protected volatile String snapshot = "{\"bids\":[{\"price\":\"100\",\"size\":\"1\"},{\"price\":\"99.5\",\"size\":\"2\"}],"
+                + "\"asks\":[{\"price\":\"100.5\",\"size\":\"2\"},{\"price\":\"101\",\"size\":\"4\"}]}";
+        protected volatile String stepSize = "0.0001";
+        protected volatile int unsubscribeCount;
+        protected int messageId;
+
+        public StubServer() {
+            super(new InetSocketAddress("localhost", 0));
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public synchronized void onOpen(WebSocket conn, ClientHandshake handshake) {
+            connection = conn;
+            messageId = 0;
+            conn.send("{\"type\":\"connected\",\"connection_id\":\"c1\",\"message_id\":0}");
+        }
+
+        @Override
+        public synchronized void onMessage(WebSocket conn, String message) {
+            if (message.contains("\"v4_markets\"")) {
+                sendMarkets("subscribed", "markets", stepSize);
+                marketsSubscribed.countDown();
+            } else if (message.contains("\"unsubscribe\"")) {
+                unsubscribeCount++;
+                conn.send(message("unsubscribed", "{}"));
+            } else if (message.contains("\"subscribe\"")) {
+                conn.send(message("subscribed", snapshot));
+                subscribed.countDown();
+                resubscribed.countDown();
+                if (sendUpdateAfterReconnect) {
+                    conn.send(message("channel_data", "{\"bids\":[[\"100.25\",\"1\"]]}"));
+                }
+            }
+        }
+
+        public synchronized void sendUpdate(String contents) {
+            connection.send(message("channel_data", contents));
+        }
+
+        public synchronized void sendMarkets(String type, String field, String stepSize) {
+            connection.send("{\"type\":\"" + type + "\",\"connection_id\":\"c1\",\"message_id\":" + (++messageId)
+                    + ",\"channel\":\"v4_markets\",\"contents\":{\"" + field + "\":{\"BTC-USD\":{\"stepSize\":\""
+                    + stepSize + "\"}}}}");
+        }
+
+        public synchronized void skipMessage() {
+            messageId++;
+        }
+
+        public void closeConnections() {
+            connection.close();
+        }
+
+        protected String message(String type, String contents) {
+            return "{\"type\":\"" + type + "\",\"connection_id\":\"c1\",\"message_id\":" + (++messageId)
+                    + ",\"channel\":\"v4_orderbook\",\"id\":\"BTC-USD\",\"contents\":" + contents + "}";
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+    }
+}
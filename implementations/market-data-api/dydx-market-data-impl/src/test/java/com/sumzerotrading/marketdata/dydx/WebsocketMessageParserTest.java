@@ -0,0 +1,218 @@
+package com.sumzerotrading.marketdata.dydx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WebsocketMessageParserTest {
+
+    protected RecordingListener listener;
+    protected WebsocketMessageParser parser;
+
+    @Before
+    public void setUp() {
+        listener = new RecordingListener();
+        parser = new WebsocketMessageParser(listener);
+        parser.messageReceived("{\"type\":\"connected\",\"connection_id\":\"abc\",\"message_id\":0}");
+        parser.messageReceived("{\"type\":\"subscribed\",\"connection_id\":\"abc\",\"message_id\":1,"
+                + "\"channel\":\"v4_orderbook\",\"id\":\"BTC-USD\",\"contents\":{"
+                + "\"bids\":[{\"price\":\"100\",\"size\":\"1\"},{\"price\":\"99\",\"size\":\"2\"}],"
+                + "\"asks\":[{\"price\":\"101\",\"size\":\"3\"}]}}");
+    }
+
+    protected String update(long messageId, String contents) {
+        return "{\"type\":\"channel_data\",\"connection_id\":\"abc\",\"message_id\":" + messageId
+                + ",\"id\":\"BTC-USD\",\"channel\":\"v4_orderbook\",\"version\":\"1.0.0\",\"contents\":" + contents + "}";
+    }
+
+    @Test
+    public void testSnapshot() {
+        assertTrue(listener.connected);
+        OrderBook book = listener.books.get("BTC-USD");
+        assertEquals(new BigDecimal("100"), book.getBestBid().getKey());
+        assertEquals(2, book.getBids().getLevelCount());
+        assertEquals(new BigDecimal("101"), book.getBestAsk().getKey());
+        assertEquals(0, listener.gaps.size());
+    }
+
+    @Test
+    public void testBatchIsAppliedBeforeOneUpdateEvent() {
+        parser.messageReceived(update(2, "{\"bids\":[[\"100\",\"0\"],[\"100.5\",\"4\"]],\"asks\":[[\"101\",\"1.5\",\"77\"]]}"));
+
+        assertEquals(1, listener.updates.size());
+        assertEquals("BTC-USD", listener.updates.get(0));
+        assertEquals("100.5/4 101/1.5", listener.tops.get(0));
+        assertEquals(2, listener.books.get("BTC-USD").getBids().getLevelCount());
+    }
+
+    @Test
+    public void testUpdatesAreAppliedInOrder() {
+        parser.messageReceived(update(2, "{\"bids\":[[\"100\",\"5\"]]}"));
+        parser.messageReceived(update(3, "{\"bids\":[[\"100\",\"6\"]]}"));
+        parser.messageReceived(update(4, "{\"asks\":[[\"101\",\"0\"],[\"102\",\"1\"]]}"));
+
+        assertEquals(3, listener.updates.size());
+        assertEquals("100/5 101/3", listener.tops.get(0));
+        assertEquals("100/6 101/3", listener.tops.get(1));
+        assertEquals("100/6 102/1", listener.tops.get(2));
+        assertEquals(0, listener.gaps.size());
+    }
+
+    @Test
+    public void testMalformedMessageIsNotApplied() {
+        parser.messageReceived(update(2, "{\"bids\":[[\"100.5\",\"4\"],[\"100\"]]}"));
+        assertEquals(0, listener.updates.size());
+        assertEquals(new BigDecimal("100"), listener.books.get("BTC-USD").getBestBid().getKey());
+
+        parser.messageReceived(update(3, "{\"bids\":[[\"99\",\"0\"]]}"));
+        assertEquals(1, listener.gaps.size());
+        assertEquals("2/3", listener.gaps.get(0));
+    }
+
+    @Test
+    public void testMessageGap() {
+        parser.messageReceived(update(5, "{\"bids\":[[\"99\",\"0\"]]}"));
+        assertEquals(1, listener.gaps.size());
+        assertEquals("2/5", listener.gaps.get(0));
+
+        parser.messageReceived(update(6, "{\"bids\":[[\"98\",\"1\"]]}"));
+        assertEquals(1, listener.gaps.size());
+    }
+
+    @Test
+    public void testFieldsInAnyOrder() {
+        parser.messageReceived("{\"contents\":{\"asks\":[{\"size\":\"2\",\"price\":\"100.25\"}]},\"id\":\"BTC-USD\","
+                + "\"message_id\":2,\"type\":\"channel_data\"}");
+
+        assertEquals("100/1 100.25/2", listener.tops.get(0));
+    }
+
+    @Test
+    public void testMarketIdsAreReused() {
+        parser.messageReceived(update(2, "{\"bids\":[[\"100\",\"5\"]]}"));
+        parser.messageReceived(update(3, "{\"bids\":[[\"100\",\"6\"]]}"));
+
+        assertSame(listener.updates.get(0), listener.updates.get(1));
+    }
+
+    @Test
+    public void testMarketsStepSizesArePassedOn() {
+        parser.messageReceived("{\"type\":\"subscribed\",\"connection_id\":\"abc\",\"message_id\":2,"
+                + "\"channel\":\"v4_markets\",\"contents\":{\"markets\":{"
+                + "\"BTC-USD\":{\"ticker\":\"BTC-USD\",\"tickSize\":\"1\",\"stepSize\":\"0.0001\"},"
+                + "\"PEPE-USD\":{\"ticker\":\"PEPE-USD\",\"stepSize\":\"1000000\"}}}}");
+
+        assertEquals("0.0001", listener.stepSizes.get("BTC-USD"));
+        assertEquals("1000000", listener.stepSizes.get("PEPE-USD"));
+        assertEquals(0, listener.updates.size());
+        assertEquals(0, listener.gaps.size());
+    }
+
+    @Test
+    public void testSizesUseTheMarketsSizeScale() {
+        listener.sizeScale = 0;
+        parser.messageReceived("{\"type\":\"subscribed\",\"connection_id\":\"abc\",\"message_id\":2,"
+                + "\"channel\":\"v4_orderbook\",\"id\":\"PEPE-USD\",\"contents\":{"
+                + "\"bids\":[{\"price\":\"0.00001\",\"size\":\"250000000000\"}],"
+                + "\"asks\":[{\"price\":\"0.000011\",\"size\":\"90000000000000\"}]}}");
+        parser.messageReceived("{\"contents\":{\"bids\":[[\"0.00001\",\"300000000000\"]]},\"id\":\"PEPE-USD\","
+                + "\"message_id\":3,\"type\":\"channel_data\"}");
+
+        OrderBook book = listener.books.get("PEPE-USD");
+        assertEquals(0, book.getSizeScale());
+        assertEquals("300000000000", book.getBestBid().getValue());
+        assertEquals("90000000000000", book.getBestAsk().getValue());
+        assertEquals(0, listener.gaps.size());
+    }
+
+    @Test
+    public void testListenerWithoutBooksReceivesLevels() {
+        List<String> levels = new ArrayList<>();
+        WebsocketMessageParser levelParser = new WebsocketMessageParser(new WebsocketEventListener() {
+            public void isConnected(boolean isConnected) {
+            }
+
+            public void disconnected() {
+            }
+
+            public void updateBid(String ticker, String bid, String size) {
+                levels.add("bid " + bid + "/" + size);
+            }
+
+            public void updateAsk(String ticker, String ask, String size) {
+                levels.add("ask " + ask + "/" + size);
+            }
+
+            public void initialBook(String ticker, OrderBook orderBook) {
+            }
+        });
+        levelParser.messageReceived("{\"type\":\"connected\",\"message_id\":0}");
+        levelParser.messageReceived(update(1, "{\"bids\":[[\"100.50\",\"0\"]],\"asks\":[[\"101\",\"1.25\"]]}"));
+
+        assertEquals(2, levels.size());
+        assertEquals("bid 100.5/0", levels.get(0));
+        assertEquals("ask 101/1.25", levels.get(1));
+    }
+
+    protected static class RecordingListener implements WebsocketEventListener {
+        protected boolean connected;
+        protected Map<String, OrderBook> books = new HashMap<>();
+        protected List<String> updates = new ArrayList<>();
+        protected List<String> tops = new ArrayList<>();
+        protected List<String> gaps = new ArrayList<>();
+        protected Map<String, String> stepSizes = new HashMap<>();
+        protected int sizeScale = OrderBook.DEFAULT_SIZE_SCALE;
+
+        public void isConnected(boolean isConnected) {
+            connected = isConnected;
+        }
+
+        public void disconnected() {
+        }
+
+        public void updateBid(String ticker, String bid, String size) {
+            throw new IllegalStateException("Updates should be applied to the book");
+        }
+
+        public void updateAsk(String ticker, String ask, String size) {
+            throw new IllegalStateException("Updates should be applied to the book");
+        }
+
+        public void initialBook(String ticker, OrderBook orderBook) {
+            books.put(ticker, orderBook);
+        }
+
+        public OrderBook getOrderBook(String ticker) {
+            return books.get(ticker);
+        }
+
+        public int getSizeScale(String ticker) {
+            return sizeScale;
+        }
+
+        public void stepSizeReceived(String ticker, String stepSize) {
+            stepSizes.put(ticker, stepSize);
+        }
+
+        public void bookUpdated(String ticker) {
+            OrderBook book = books.get(ticker);
+            updates.add(ticker);
+            tops.add(book.getBestBid().getKey().toPlainString() + "/" + book.getBestBid().getValue()
+                    + " " + book.getBestAsk().getKey().toPlainString() + "/"
+                    + book.getBestAsk().getValue());
+        }
+
+        public void messageGap(long expectedMessageId, long receivedMessageId) {
+            gaps.add(expectedMessageId + "/" + receivedMessageId);
+        }
+    }
+}
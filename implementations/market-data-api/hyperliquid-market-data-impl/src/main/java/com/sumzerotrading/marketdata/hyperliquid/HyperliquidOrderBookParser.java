@@ -0,0 +1,131 @@
+package com.sumzerotrading.marketdata.hyperliquid;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+import com.sumzerotrading.util.QuoteUtil;
+
+/**
+ * Reads an l2Book response straight from the response stream. The levels are
+ * an array holding the bids and then the asks, each sorted best price first.
+ *
+ * Only the first maxLevels levels of each side are read. The rest of the bids
+ * are skipped without being decoded, and reading stops as soon as the asks
+ * have enough levels. Prices and sizes are parsed from the parser's character
+ * buffer into longs at each book's scale, so no String, map or object per
+ * level is created.
+ *
+ * Instances can be shared between threads.
+ */
+public class HyperliquidOrderBookParser {
+
+    protected final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Parses the book into the two sides, which are cleared first.
+     *
+     * @param in The response body, which is not closed.
+     * @param maxLevels The number of levels to read on each side.
+     * @param bids The book to fill with the bids.
+     * @param asks The book to fill with the asks.
+     */
+    public void parse(InputStream in, int maxLevels, SortedMarketDepthBook bids, SortedMarketDepthBook asks)
+            throws IOException {
+        bids.clearLevels();
+        asks.clearLevels();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an l2Book object");
+            }
+            TextView text = new TextView();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("levels".equals(field) && token == JsonToken.START_ARRAY) {
+                    if (parser.nextToken() == JsonToken.START_ARRAY) {
+                        parseSide(parser, text, maxLevels, bids, false);
+                        if (parser.nextToken() == JsonToken.START_ARRAY) {
+                            parseSide(parser, text, maxLevels, asks, true);
+                        }
+                    }
+                    return;
+                }
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * @param lastSide true if this is the asks, in which case the parser is
+     * left inside the array once enough levels are read.
+     */
+    protected void parseSide(JsonParser parser, TextView text, int maxLevels, SortedMarketDepthBook book,
+            boolean lastSide) throws IOException {
+        int count = 0;
+        while (!(lastSide && count >= maxLevels) && parser.nextToken() == JsonToken.START_OBJECT) {
+            if (count >= maxLevels) {
+                parser.skipChildren();
+                continue;
+            }
+            long price = -1;
+            long size = -1;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("px".equals(field)) {
+                    price = QuoteUtil.parseScaledValue(text.wrap(parser), book.getPriceScale());
+                } else if ("sz".equals(field)) {
+                    size = QuoteUtil.parseScaledValue(text.wrap(parser), book.getSizeScale());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (price < 0 || size < 0) {
+                throw new IOException("l2Book level is missing a px or sz");
+            }
+            book.setLevel(price, size);
+            count++;
+        }
+    }
+
+    /**
+     * A view of the current token's text in the parser's own buffer, which is
+     * only valid until the parser moves to the next token.
+     */
+    protected static class TextView implements CharSequence {
+        protected char[] chars;
+        protected int offset;
+        protected int length;
+
+        public TextView wrap(JsonParser parser) throws IOException {
+            chars = parser.getTextCharacters();
+            offset = parser.getTextOffset();
+            length = parser.getTextLength();
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
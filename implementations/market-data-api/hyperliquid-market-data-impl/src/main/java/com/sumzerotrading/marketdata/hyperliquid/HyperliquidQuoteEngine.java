@@ -2,6 +2,7 @@ package com.sumzerotrading.marketdata.hyperliquid;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Date;
@@ -9,6 +10,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,11 +21,17 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sumzerotrading.data.Ticker;
-import com.sumzerotrading.marketdata.Level1Quote;
 import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.MarketDepthBook;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
 import com.sumzerotrading.marketdata.QuoteEngine;
 import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -35,45 +44,84 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
 
     public static final String SLEEP_TIME_PROPERTY_KEY = "sleep.time.in.seconds";
     public static final String INCLUDE_FUNDING_RATE_PROPERTY_KEY = "include.funding.rates";
+    public static final String MAX_CONCURRENT_REQUESTS_PROPERTY_KEY = "max.concurrent.requests";
+    public static final String REQUEST_TIMEOUT_PROPERTY_KEY = "request.timeout.in.millis";
+    public static final String REST_URL_PROPERTY_KEY = "rest.url";
     protected volatile boolean started = false;
     protected boolean threadCompleted = false;
     protected Thread thread = new Thread(this);
-    private final OkHttpClient httpClient;
+    private OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    protected final HyperliquidOrderBookParser orderBookParser = new HyperliquidOrderBookParser();
 
     protected int sleepTimeInSeconds = 10;
+    protected int maxConcurrentRequests = 16;
+    protected long requestTimeoutMillis = 5000;
     protected ArrayList<String> urlStrings = new ArrayList<>();
-    private OrderBookResponse orderBook;
-    protected Map<String, FundingData> allFundingRates;
+    protected volatile Map<String, FundingData> allFundingRates;
     private static final String BASE_URL = "https://api.hyperliquid.xyz/info";
+    protected String baseUrl = BASE_URL;
     protected boolean includeFundingRate = false;
 
     public HyperliquidQuoteEngine() {
-        this.httpClient = new OkHttpClient();
+        this.httpClient = buildHttpClient();
         this.objectMapper = new ObjectMapper();
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     }
 
+    /**
+     * All of the l2Book requests in a cycle go to the same host, so the per
+     * host limit is raised to the overall limit and enough idle connections
+     * are kept alive to reuse one per request.
+     */
+    protected OkHttpClient buildHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxConcurrentRequests, 5, TimeUnit.MINUTES))
+                .callTimeout(Duration.ofMillis(requestTimeoutMillis))
+                .build();
+    }
+
     public OrderBookResponse getOrderBook(String coin) {
+        try (Response response = httpClient.newCall(getOrderBookRequest(coin)).execute()) {
+            return readOrderBook(response);
+        } catch (IOException e) {
+            throw new RuntimeException("Error fetching l2Book for coin: " + coin, e);
+        }
+    }
+
+    protected Request getOrderBookRequest(String coin) {
         // Create the JSON body for the request
         String jsonRequest = String.format("{\"type\":\"l2Book\", \"coin\":\"%s\"}", coin);
 
         RequestBody requestBody = RequestBody.create(jsonRequest, MediaType.parse("application/json"));
-        Request request = new Request.Builder().url(BASE_URL).post(requestBody)
+        return new Request.Builder().url(baseUrl).post(requestBody)
                 .addHeader("Content-Type", "application/json").build();
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new RuntimeException("Unexpected response code: " + response.code());
-            }
+    protected OrderBookResponse readOrderBook(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Unexpected response code: " + response.code());
+        }
 
-            // Parse the JSON response
-            String jsonResponse = response.body().string();
-            return objectMapper.readValue(jsonResponse, OrderBookResponse.class);
-        } catch (IOException e) {
-            throw new RuntimeException("Error fetching l2Book for coin: " + coin, e);
+        // Parse the JSON response
+        String jsonResponse = response.body().string();
+        return objectMapper.readValue(jsonResponse, OrderBookResponse.class);
+    }
+
+    /**
+     * Reads only the best bid and offer from the response stream.
+     */
+    protected void readTopOfBook(Response response, SortedMarketDepthBook bids, SortedMarketDepthBook asks)
+            throws IOException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Unexpected response code: " + response.code());
         }
+        orderBookParser.parse(response.body().byteStream(), 1, bids, asks);
     }
 
     @Override
@@ -107,6 +155,19 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
         if (includeFundingRatesString != null) {
             includeFundingRate = Boolean.parseBoolean(includeFundingRatesString);
         }
+        String maxRequestsString = props.getProperty(MAX_CONCURRENT_REQUESTS_PROPERTY_KEY);
+        if (maxRequestsString != null) {
+            maxConcurrentRequests = Integer.parseInt(maxRequestsString);
+        }
+        String timeoutString = props.getProperty(REQUEST_TIMEOUT_PROPERTY_KEY);
+        if (timeoutString != null) {
+            requestTimeoutMillis = Long.parseLong(timeoutString);
+        }
+        String restUrl = props.getProperty(REST_URL_PROPERTY_KEY);
+        if (restUrl != null) {
+            baseUrl = restUrl;
+        }
+        httpClient = buildHttpClient();
         startEngine();
     }
 
@@ -151,65 +212,132 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
         threadCompleted = true;
     }
 
+    /**
+     * Requests the l2Book for every subscribed ticker at once, and publishes
+     * each quote as soon as its response arrives. Requests which haven't
+     * completed by the deadline are cancelled, so a cycle takes about one
+     * round trip no matter how many tickers are subscribed.
+     *
+     * Funding rates are requested alongside the books, and quotes use the most
+     * recent rates which have been received. The same response carries the
+     * szDecimals of each coin, so it is requested until it has been received
+     * even when funding rates aren't included.
+     */
     protected void getQuotes() {
-        if (includeFundingRate) {
-            try {
-                allFundingRates = getAllFundingRates();
-            } catch (Exception ex) {
-                ex.printStackTrace();
+        if (includeFundingRate || allFundingRates == null) {
+            requestFundingRates();
+        }
+        List<Ticker> tickers = new ArrayList<>();
+        for (Ticker ticker : level1Listeners.getTickers()) {
+            if (level1Listeners.hasListeners(ticker)) {
+                tickers.add(ticker);
             }
         }
-        for (Ticker ticker : level1ListenerMap.keySet()) {
-            try {
-                if (!level1ListenerMap.get(ticker).isEmpty()) {
-                    orderBook = getOrderBook(ticker.getSymbol());
-                    List<Map<String, String>> bids = orderBook.getLevels().get(0);
-                    List<Map<String, String>> asks = orderBook.getLevels().size() > 1 ? orderBook.getLevels().get(1)
-                            : List.of();
-
-                    String bidPriceString = bids.get(0).get("px");
-                    String bidSizeString = bids.get(0).get("sz");
-
-                    String askPriceString = asks.get(0).get("px");
-                    String askSizeString = asks.get(0).get("sz");
-
-                    HashMap<QuoteType, BigDecimal> quoteMap = new HashMap<>();
-                    quoteMap.put(QuoteType.ASK, new BigDecimal(askPriceString));
-                    quoteMap.put(QuoteType.ASK_SIZE, new BigDecimal(askSizeString));
-                    quoteMap.put(QuoteType.BID, new BigDecimal(bidPriceString));
-                    quoteMap.put(QuoteType.BID_SIZE, new BigDecimal(bidSizeString));
-                    if (includeFundingRate) {
-                        String fundingString = allFundingRates.get(ticker.getSymbol()).funding;
-                        Double annualFunding = Double.parseDouble(fundingString) * 24.0 * 365.0 * 100.0;
-                        quoteMap.put(QuoteType.FUNDING_RATE, new BigDecimal(annualFunding));
+        CountDownLatch latch = new CountDownLatch(tickers.size());
+        List<Call> calls = new ArrayList<>(tickers.size());
+        for (Ticker ticker : tickers) {
+            Call call = httpClient.newCall(getOrderBookRequest(ticker.getSymbol()));
+            calls.add(call);
+            call.enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        int sizeScale = getSizeScale(ticker.getSymbol());
+                        SortedMarketDepthBook bids = new SortedMarketDepthBook(MarketDepthBook.Side.BID,
+                                HyperliquidWebSocketQuoteEngine.PRICE_SCALE, sizeScale);
+                        SortedMarketDepthBook asks = new SortedMarketDepthBook(MarketDepthBook.Side.ASK,
+                                HyperliquidWebSocketQuoteEngine.PRICE_SCALE, sizeScale);
+                        readTopOfBook(response, bids, asks);
+                        publishQuote(ticker, bids, asks);
+                    } catch (Exception ex) {
+                        logger.error("Hyperliquid Quote Engine Caught an exception, but will continue:  "
+                                + ex.getMessage(), ex);
+                    } finally {
+                        latch.countDown();
                     }
-                    Level1Quote quote = new Level1Quote(ticker, ZonedDateTime.now(), quoteMap);
-                    fireLevel1Quote(quote);
                 }
-            } catch (Exception ex) {
-                logger.error("Hyperliquid Quote Engine Caught an exception, but will continue:  " + ex.getMessage(),
-                        ex);
+
+                @Override
+                public void onFailure(Call call, IOException ex) {
+                    if (!call.isCanceled()) {
+                        logger.error("Error fetching l2Book for coin: " + ticker.getSymbol(), ex);
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        try {
+            if (!latch.await(requestTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn(latch.getCount() + " of " + tickers.size() + " l2Book requests missed the deadline");
+                for (Call call : calls) {
+                    call.cancel();
+                }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
+    }
 
+    /**
+     * Sizes are read with the coin's szDecimals, or the default scale until
+     * the metaAndAssetCtxs response has been received.
+     */
+    protected int getSizeScale(String coin) {
+        Map<String, FundingData> fundingRates = allFundingRates;
+        FundingData fundingData = fundingRates == null ? null : fundingRates.get(coin);
+        if (fundingData == null || fundingData.szDecimals == null) {
+            return HyperliquidWebSocketQuoteEngine.DEFAULT_SIZE_SCALE;
+        }
+        return fundingData.szDecimals;
     }
 
-    public Map<String, FundingData> getAllFundingRates() throws Exception {
-        return parseResponse(fetchFundingRates());
+    protected void publishQuote(Ticker ticker, SortedMarketDepthBook bids, SortedMarketDepthBook asks) {
+        if (bids.getLevelCount() == 0 || asks.getLevelCount() == 0) {
+            throw new IllegalStateException("l2Book for " + ticker.getSymbol() + " is missing a side");
+        }
+        PrimitiveLevel1Quote quote = newLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.ASK, asks.getScaledPriceAt(0), asks.getPriceScale());
+        quote.setValue(QuoteType.ASK_SIZE, asks.getScaledSizeAt(0), asks.getSizeScale());
+        quote.setValue(QuoteType.BID, bids.getScaledPriceAt(0), bids.getPriceScale());
+        quote.setValue(QuoteType.BID_SIZE, bids.getScaledSizeAt(0), bids.getSizeScale());
+        Map<String, FundingData> fundingRates = allFundingRates;
+        if (includeFundingRate && fundingRates != null) {
+            String fundingString = fundingRates.get(ticker.getSymbol()).funding;
+            Double annualFunding = Double.parseDouble(fundingString) * 24.0 * 365.0 * 100.0;
+            quote.setValue(QuoteType.FUNDING_RATE, new BigDecimal(annualFunding));
+        }
+        fireLevel1Quote(quote);
+        quote.release();
     }
 
-    public String fetchFundingRates() throws Exception {
-        OkHttpClient client = new OkHttpClient();
+    protected void requestFundingRates() {
+        httpClient.newCall(getFundingRatesRequest()).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        throw new RuntimeException("Failed to fetch funding rates: " + response.code());
+                    }
+                    allFundingRates = parseResponse(response.body().string());
+                } catch (Exception ex) {
+                    logger.error(ex.getMessage(), ex);
+                }
+            }
 
-        // Define the JSON request body
-        String jsonBody = "{ \"type\": \"metaAndAssetCtxs\" }";
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                logger.error("Error fetching funding rates", ex);
+            }
+        });
+    }
 
-        // Build the HTTP request
-        Request request = new Request.Builder().url(BASE_URL)
-                .post(RequestBody.create(jsonBody, MediaType.get("application/json"))).build();
+    public Map<String, FundingData> getAllFundingRates() throws Exception {
+        return parseResponse(fetchFundingRates());
+    }
 
+    public String fetchFundingRates() throws Exception {
         // Execute the request
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = httpClient.newCall(getFundingRatesRequest()).execute()) {
             if (!response.isSuccessful()) {
                 throw new RuntimeException("Failed to fetch funding rates: " + response.code());
             }
@@ -217,6 +345,15 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
         }
     }
 
+    protected Request getFundingRatesRequest() {
+        // Define the JSON request body
+        String jsonBody = "{ \"type\": \"metaAndAssetCtxs\" }";
+
+        // Build the HTTP request
+        return new Request.Builder().url(baseUrl)
+                .post(RequestBody.create(jsonBody, MediaType.get("application/json"))).build();
+    }
+
     public Map<String, FundingData> parseResponse(String jsonResponse) throws Exception {
         // Deserialize the response into two parts: Universe and FundingData
         List<Object> response = objectMapper.readValue(jsonResponse, List.class);
@@ -230,6 +367,7 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
         for (int i = 0; i < fundingDataList.size(); i++) {
             FundingData fundingData = fundingDataList.get(i);
             fundingData.name = universeData.assets.get(i).name; // Assign name from universe data
+            fundingData.szDecimals = universeData.assets.get(i).szDecimals;
             fundingRates.put(fundingData.name, fundingData);
         }
 
@@ -289,6 +427,8 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
 
         // Added to link funding data with asset name
         public String name;
+        // Added to size the coin's order book from the universe data
+        public Integer szDecimals;
     }
 
     public void setSleepTimeInSeconds(int seconds) {
@@ -299,4 +439,18 @@ public class HyperliquidQuoteEngine extends QuoteEngine implements Runnable {
         return sleepTimeInSeconds;
     }
 
+    /**
+     * Sets the number of l2Book requests which may be in flight at once, and
+     * the deadline for the requests in each cycle.
+     */
+    public void setRequestLimits(int maxConcurrentRequests, long requestTimeoutMillis) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        httpClient = buildHttpClient();
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
 }
@@ -0,0 +1,479 @@
+package com.sumzerotrading.marketdata.hyperliquid;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.Level2Quote;
+import com.sumzerotrading.marketdata.Level2QuoteListener;
+import com.sumzerotrading.marketdata.MarketDepthBook;
+import com.sumzerotrading.marketdata.MarketDepthSnapshot;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
+import com.sumzerotrading.marketdata.QuoteEngine;
+import com.sumzerotrading.marketdata.QuoteError;
+import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+import com.sumzerotrading.util.QuoteUtil;
+
+/**
+ * Streams Hyperliquid quotes over the websocket API. Level 1 listeners are fed
+ * from the bbo and trades subscriptions, and Level 2 listeners from the
+ * l2Book subscription.
+ *
+ * Each l2Book message carries the complete top of the book for the coin, so
+ * the local book for the coin is rebuilt from every message and nothing has to
+ * be resynchronized after a lost message or a reconnect.
+ *
+ * The meta info is requested over the websocket whenever it opens, and sizes
+ * for each coin are kept with the coin's szDecimals decimal places.
+ */
+public class HyperliquidWebSocketQuoteEngine extends QuoteEngine {
+
+    protected static Logger logger = LoggerFactory.getLogger(HyperliquidWebSocketQuoteEngine.class);
+
+    public static final String WEBSOCKET_URL_PROPERTY_KEY = "websocket.url";
+    public static final String INCLUDE_FUNDING_RATE_PROPERTY_KEY = "include.funding.rates";
+    public static final String SNAPSHOT_LEVELS_PROPERTY_KEY = "snapshot.levels";
+    public static final String RECONNECT_DELAY_PROPERTY_KEY = "reconnect.delay.in.millis";
+    public static final String DEFAULT_WEBSOCKET_URL = "wss://api.hyperliquid.xyz/ws";
+    // Prices are kept as longs with 8 decimal places
+    protected static final int PRICE_SCALE = 8;
+    // Sizes use the coin's szDecimals, or 8 until the meta info has been received
+    protected static final int DEFAULT_SIZE_SCALE = 8;
+    protected static final String META_REQUEST = "{\"method\":\"post\",\"id\":1,\"request\":{\"type\":\"info\","
+            + "\"payload\":{\"type\":\"meta\"}}}";
+    // Hours in a year times 100, turns the hourly funding rate into an annual percentage
+    protected static final BigDecimal ANNUAL_PERCENT = BigDecimal.valueOf(24 * 365 * 100);
+    // The server drops connections that are idle for a minute
+    protected static final long PING_INTERVAL_SECONDS = 50;
+
+    protected final Map<String, CoinBook> coins = new ConcurrentHashMap<>();
+    protected final Map<String, Integer> sizeScales = new ConcurrentHashMap<>();
+    protected final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    protected final ObjectMapper objectMapper = new ObjectMapper();
+    protected final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hyperliquid-websocket");
+        thread.setDaemon(true);
+        return thread;
+    });
+    protected URI websocketUri = URI.create(DEFAULT_WEBSOCKET_URL);
+    protected boolean includeFundingRate = false;
+    protected int snapshotLevels = MarketDepthSnapshot.ALL_LEVELS;
+    protected long reconnectDelayMillis = 5000;
+    protected volatile WebSocketClient client;
+    protected volatile boolean started = false;
+    protected volatile boolean connected = false;
+    protected ScheduledFuture<?> pingTask;
+
+    public HyperliquidWebSocketQuoteEngine() {
+    }
+
+    public HyperliquidWebSocketQuoteEngine(URI websocketUri) {
+        this.websocketUri = websocketUri;
+    }
+
+    @Override
+    public void startEngine() {
+        started = true;
+        connect();
+        pingTask = executor.scheduleAtFixedRate(() -> send("{\"method\":\"ping\"}"), PING_INTERVAL_SECONDS,
+                PING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void startEngine(Properties props) {
+        String url = props.getProperty(WEBSOCKET_URL_PROPERTY_KEY);
+        if (url != null) {
+            websocketUri = URI.create(url);
+        }
+        String includeFundingRatesString = props.getProperty(INCLUDE_FUNDING_RATE_PROPERTY_KEY);
+        if (includeFundingRatesString != null) {
+            includeFundingRate = Boolean.parseBoolean(includeFundingRatesString);
+        }
+        String levels = props.getProperty(SNAPSHOT_LEVELS_PROPERTY_KEY);
+        if (levels != null) {
+            snapshotLevels = Integer.parseInt(levels);
+        }
+        String delay = props.getProperty(RECONNECT_DELAY_PROPERTY_KEY);
+        if (delay != null) {
+            reconnectDelayMillis = Long.parseLong(delay);
+        }
+        startEngine();
+    }
+
+    @Override
+    public void stopEngine() {
+        started = false;
+        if (pingTask != null) {
+            pingTask.cancel(false);
+        }
+        WebSocketClient current = client;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public boolean started() {
+        return started;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public Date getServerTime() {
+        return new Date();
+    }
+
+    @Override
+    public void useDelayedData(boolean useDelayed) {
+        logger.error("useDelayedData() Not supported for hyperliquid market data");
+    }
+
+    @Override
+    public void subscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+        super.subscribeLevel1(ticker, listener);
+        getCoinBook(ticker);
+        subscribe("bbo", ticker.getSymbol());
+        subscribe("trades", ticker.getSymbol());
+        if (includeFundingRate) {
+            subscribe("activeAssetCtx", ticker.getSymbol());
+        }
+    }
+
+    @Override
+    public void unsubscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+        super.unsubscribeLevel1(ticker, listener);
+        if (!level1Listeners.hasListeners(ticker)) {
+            unsubscribe("bbo", ticker.getSymbol());
+            unsubscribe("trades", ticker.getSymbol());
+            unsubscribe("activeAssetCtx", ticker.getSymbol());
+            removeIfUnused(ticker);
+        }
+    }
+
+    @Override
+    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        super.subscribeMarketDepth(ticker, listener);
+        getCoinBook(ticker);
+        subscribe("l2Book", ticker.getSymbol());
+    }
+
+    @Override
+    public void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        super.unsubscribeMarketDepth(ticker, listener);
+        if (!level2Listeners.hasListeners(ticker)) {
+            unsubscribe("l2Book", ticker.getSymbol());
+            removeIfUnused(ticker);
+        }
+    }
+
+    protected CoinBook getCoinBook(Ticker ticker) {
+        return coins.computeIfAbsent(ticker.getSymbol(),
+                coin -> new CoinBook(ticker, sizeScales.getOrDefault(coin, DEFAULT_SIZE_SCALE)));
+    }
+
+    protected void removeIfUnused(Ticker ticker) {
+        if (!level1Listeners.hasListeners(ticker) && !level2Listeners.hasListeners(ticker)) {
+            coins.remove(ticker.getSymbol());
+        }
+    }
+
+    protected void subscribe(String type, String coin) {
+        if (subscriptions.add(getSubscription(type, coin))) {
+            send(getSubscriptionMessage("subscribe", getSubscription(type, coin)));
+        }
+    }
+
+    protected void unsubscribe(String type, String coin) {
+        if (subscriptions.remove(getSubscription(type, coin))) {
+            send(getSubscriptionMessage("unsubscribe", getSubscription(type, coin)));
+        }
+    }
+
+    protected String getSubscription(String type, String coin) {
+        return "{\"type\":\"" + type + "\",\"coin\":\"" + coin + "\"}";
+    }
+
+    protected String getSubscriptionMessage(String method, String subscription) {
+        return "{\"method\":\"" + method + "\",\"subscription\":" + subscription + "}";
+    }
+
+    /**
+     * Messages sent before the connection is open are dropped, every
+     * subscription is sent once it opens.
+     */
+    protected void send(String message) {
+        WebSocketClient current = client;
+        if (current != null && current.isOpen()) {
+            current.send(message);
+        }
+    }
+
+    protected void connect() {
+        client = newClient(websocketUri);
+        client.connect();
+    }
+
+    protected WebSocketClient newClient(URI uri) {
+        return new WebSocketClient(uri) {
+
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+                logger.info("Connected to " + uri);
+                connected = true;
+                send(META_REQUEST);
+                for (String subscription : subscriptions) {
+                    send(getSubscriptionMessage("subscribe", subscription));
+                }
+            }
+
+            @Override
+            public void onMessage(String message) {
+                messageReceived(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                logger.info("Connection closed: " + code + " " + reason);
+                disconnected();
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                logger.error(ex.getMessage(), ex);
+                fireErrorEvent(new QuoteError(ex));
+            }
+        };
+    }
+
+    protected void disconnected() {
+        connected = false;
+        if (started) {
+            executor.schedule(() -> {
+                if (started) {
+                    connect();
+                }
+            }, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void messageReceived(String message) {
+        try {
+            JsonNode json = objectMapper.readTree(message);
+            String channel = json.path("channel").asText();
+            JsonNode data = json.path("data");
+            switch (channel) {
+            case "l2Book":
+                handleBook(data);
+                break;
+            case "bbo":
+                handleBbo(data);
+                break;
+            case "trades":
+                handleTrades(data);
+                break;
+            case "activeAssetCtx":
+                handleAssetContext(data);
+                break;
+            case "post":
+                handleMeta(data.path("response").path("payload"));
+                break;
+            case "error":
+                logger.error("Error message received: " + message);
+                break;
+            default:
+                break;
+            }
+        } catch (Exception ex) {
+            logger.error("Failed to process message: " + message);
+            logger.error(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Replaces the local book for the coin and publishes the sides that changed.
+     */
+    protected void handleBook(JsonNode data) {
+        CoinBook coinBook = coins.get(data.path("coin").asText());
+        if (coinBook == null) {
+            return;
+        }
+        JsonNode levels = data.path("levels");
+        setLevels(coinBook.bids, levels.path(0));
+        setLevels(coinBook.asks, levels.path(1));
+
+        if (level2Listeners.hasListeners(coinBook.ticker)) {
+            ZonedDateTime time = getTime(data);
+            MarketDepthSnapshot bids = coinBook.bids.snapshot(snapshotLevels);
+            if (!bids.hasSameTopLevels(coinBook.lastBids, snapshotLevels)) {
+                coinBook.lastBids = bids;
+                fireMarketDepthQuote(new Level2Quote(coinBook.ticker, QuoteType.MARKET_DEPTH_BID, time, bids));
+            }
+            MarketDepthSnapshot asks = coinBook.asks.snapshot(snapshotLevels);
+            if (!asks.hasSameTopLevels(coinBook.lastAsks, snapshotLevels)) {
+                coinBook.lastAsks = asks;
+                fireMarketDepthQuote(new Level2Quote(coinBook.ticker, QuoteType.MARKET_DEPTH_ASK, time, asks));
+            }
+        }
+    }
+
+    protected void setLevels(SortedMarketDepthBook book, JsonNode levels) {
+        book.clearLevels();
+        for (JsonNode level : levels) {
+            book.setLevel(QuoteUtil.parseScaledValue(level.path("px").asText(), PRICE_SCALE),
+                    QuoteUtil.parseScaledValue(level.path("sz").asText(), book.getSizeScale()));
+        }
+    }
+
+    /**
+     * Either side of the bbo is null when that side of the book is empty.
+     */
+    protected void handleBbo(JsonNode data) {
+        CoinBook coinBook = coins.get(data.path("coin").asText());
+        if (coinBook == null || !level1Listeners.hasListeners(coinBook.ticker)) {
+            return;
+        }
+        JsonNode bid = data.path("bbo").path(0);
+        JsonNode ask = data.path("bbo").path(1);
+        PrimitiveLevel1Quote quote = newLevel1Quote(coinBook.ticker, getTime(data));
+        if (bid.isObject()) {
+            quote.setValue(QuoteType.BID, QuoteUtil.parseScaledValue(bid.path("px").asText(), PRICE_SCALE), PRICE_SCALE);
+            quote.setValue(QuoteType.BID_SIZE, QuoteUtil.parseScaledValue(bid.path("sz").asText(), coinBook.sizeScale),
+                    coinBook.sizeScale);
+        }
+        if (ask.isObject()) {
+            quote.setValue(QuoteType.ASK, QuoteUtil.parseScaledValue(ask.path("px").asText(), PRICE_SCALE), PRICE_SCALE);
+            quote.setValue(QuoteType.ASK_SIZE, QuoteUtil.parseScaledValue(ask.path("sz").asText(), coinBook.sizeScale),
+                    coinBook.sizeScale);
+        }
+        fireLevel1Quote(quote);
+        quote.release();
+    }
+
+    /**
+     * A trades message can hold several trades, each one is published in
+     * order so listeners see the full traded volume.
+     */
+    protected void handleTrades(JsonNode data) {
+        for (JsonNode trade : data) {
+            CoinBook coinBook = coins.get(trade.path("coin").asText());
+            if (coinBook == null || !level1Listeners.hasListeners(coinBook.ticker)) {
+                continue;
+            }
+            PrimitiveLevel1Quote quote = newLevel1Quote(coinBook.ticker, getTime(trade));
+            quote.setValue(QuoteType.LAST, QuoteUtil.parseScaledValue(trade.path("px").asText(), PRICE_SCALE), PRICE_SCALE);
+            quote.setValue(QuoteType.LAST_SIZE, QuoteUtil.parseScaledValue(trade.path("sz").asText(), coinBook.sizeScale),
+                    coinBook.sizeScale);
+            fireLevel1Quote(quote);
+            quote.release();
+        }
+    }
+
+    /**
+     * The funding string is scaled as a decimal so no binary rounding creeps
+     * into the published rate.
+     */
+    protected void handleAssetContext(JsonNode data) {
+        CoinBook coinBook = coins.get(data.path("coin").asText());
+        String funding = data.path("ctx").path("funding").asText(null);
+        if (coinBook == null || funding == null || !level1Listeners.hasListeners(coinBook.ticker)) {
+            return;
+        }
+        PrimitiveLevel1Quote quote = newLevel1Quote(coinBook.ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.FUNDING_RATE, new BigDecimal(funding).multiply(ANNUAL_PERCENT));
+        fireLevel1Quote(quote);
+        quote.release();
+    }
+
+    /**
+     * Records the szDecimals of every coin in the meta info. A coin whose
+     * scale changes starts with empty books, which the next l2Book fills.
+     */
+    protected void handleMeta(JsonNode payload) {
+        JsonNode meta = payload.has("data") ? payload.path("data") : payload;
+        for (JsonNode asset : meta.path("universe")) {
+            JsonNode szDecimals = asset.path("szDecimals");
+            if (!szDecimals.canConvertToInt()) {
+                continue;
+            }
+            String coin = asset.path("name").asText();
+            sizeScales.put(coin, szDecimals.asInt());
+            CoinBook coinBook = coins.get(coin);
+            if (coinBook != null) {
+                coinBook.setSizeScale(szDecimals.asInt());
+            }
+        }
+    }
+
+    protected ZonedDateTime getTime(JsonNode data) {
+        JsonNode time = data.path("time");
+        if (time.canConvertToLong()) {
+            return ZonedDateTime.ofInstant(Instant.ofEpochMilli(time.asLong()), ZoneOffset.UTC);
+        }
+        return ZonedDateTime.now();
+    }
+
+    public void setIncludeFundingRate(boolean includeFundingRate) {
+        this.includeFundingRate = includeFundingRate;
+    }
+
+    public void setSnapshotLevels(int snapshotLevels) {
+        this.snapshotLevels = snapshotLevels;
+    }
+
+    public void setReconnectDelayMillis(long reconnectDelayMillis) {
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    /**
+     * The local book for a coin along with the last depth published for it.
+     * Only the websocket thread reads or writes these.
+     */
+    protected static class CoinBook {
+        protected final Ticker ticker;
+        protected int sizeScale;
+        protected SortedMarketDepthBook bids;
+        protected SortedMarketDepthBook asks;
+        protected MarketDepthSnapshot lastBids;
+        protected MarketDepthSnapshot lastAsks;
+
+        public CoinBook(Ticker ticker, int sizeScale) {
+            this.ticker = ticker;
+            this.sizeScale = sizeScale;
+            bids = new SortedMarketDepthBook(MarketDepthBook.Side.BID, PRICE_SCALE, sizeScale);
+            asks = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, PRICE_SCALE, sizeScale);
+        }
+
+        public void setSizeScale(int sizeScale) {
+            if (this.sizeScale != sizeScale) {
+                this.sizeScale = sizeScale;
+                bids = new SortedMarketDepthBook(MarketDepthBook.Side.BID, PRICE_SCALE, sizeScale);
+                asks = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, PRICE_SCALE, sizeScale);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.sumzerotrading.marketdata.hyperliquid;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sumzerotrading.marketdata.MarketDepthBook.Side;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+
+/**
+ * Compares reading the best bid and offer from a full l2Book payload by data
+ * binding it into lists of maps, as getOrderBook() does, against the streaming
+ * parser reading one level and the whole book. Run the main method to include
+ * the GC profiler, gc.alloc.rate.norm gives the bytes allocated per payload.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HyperliquidOrderBookParserBenchmark {
+
+    protected ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    protected HyperliquidOrderBookParser parser = new HyperliquidOrderBookParser();
+    protected byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/hyperliquid-l2book-btc.json")) {
+            payload = in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public double dataBinding() throws IOException {
+        String json = new String(payload, StandardCharsets.UTF_8);
+        HyperliquidQuoteEngine.OrderBookResponse book = objectMapper.readValue(json,
+                HyperliquidQuoteEngine.OrderBookResponse.class);
+        return new BigDecimal(book.getLevels().get(0).get(0).get("px")).doubleValue()
+                + new BigDecimal(book.getLevels().get(1).get(0).get("px")).doubleValue();
+    }
+
+    @Benchmark
+    public long streamingTopOfBook() throws IOException {
+        return parse(1);
+    }
+
+    @Benchmark
+    public long streamingFullDepth() throws IOException {
+        return parse(Integer.MAX_VALUE);
+    }
+
+    protected long parse(int maxLevels) throws IOException {
+        SortedMarketDepthBook bids = new SortedMarketDepthBook(Side.BID, 8, 8);
+        SortedMarketDepthBook asks = new SortedMarketDepthBook(Side.ASK, 8, 8);
+        parser.parse(new ByteArrayInputStream(payload), maxLevels, bids, asks);
+        return bids.getScaledPriceAt(0) + asks.getScaledPriceAt(0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(HyperliquidOrderBookParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
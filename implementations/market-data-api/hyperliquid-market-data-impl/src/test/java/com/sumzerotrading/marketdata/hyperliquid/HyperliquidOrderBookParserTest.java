@@ -0,0 +1,85 @@
+package com.sumzerotrading.marketdata.hyperliquid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sumzerotrading.marketdata.MarketDepthBook.Side;
+import com.sumzerotrading.marketdata.SortedMarketDepthBook;
+
+public class HyperliquidOrderBookParserTest {
+
+    protected static final String PAYLOAD = "/hyperliquid-l2book-btc.json";
+
+    protected HyperliquidOrderBookParser parser = new HyperliquidOrderBookParser();
+    protected SortedMarketDepthBook bids = new SortedMarketDepthBook(Side.BID, 8, 8);
+    protected SortedMarketDepthBook asks = new SortedMarketDepthBook(Side.ASK, 8, 8);
+
+    protected InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected void assertLevels(List<Map<String, String>> expected, SortedMarketDepthBook book) {
+        assertEquals(expected.size(), book.getLevelCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(new BigDecimal(expected.get(i).get("px")).movePointRight(8).longValueExact(),
+                    book.getScaledPriceAt(i));
+            assertEquals(new BigDecimal(expected.get(i).get("sz")).movePointRight(8).longValueExact(),
+                    book.getScaledSizeAt(i));
+        }
+    }
+
+    @Test
+    public void testFullDepthMatchesDataBinding() throws Exception {
+        HyperliquidQuoteEngine.OrderBookResponse expected = new ObjectMapper()
+                .readValue(getClass().getResourceAsStream(PAYLOAD), HyperliquidQuoteEngine.OrderBookResponse.class);
+
+        parser.parse(getClass().getResourceAsStream(PAYLOAD), Integer.MAX_VALUE, bids, asks);
+
+        assertLevels(expected.getLevels().get(0), bids);
+        assertLevels(expected.getLevels().get(1), asks);
+    }
+
+    @Test
+    public void testTopLevelsOnly() throws Exception {
+        parser.parse(getClass().getResourceAsStream(PAYLOAD), 1, bids, asks);
+
+        assertEquals(1, bids.getLevelCount());
+        assertEquals(1, asks.getLevelCount());
+        assertEquals(9700100000000L, bids.getScaledPriceAt(0));
+        assertEquals(9700200000000L, asks.getScaledPriceAt(0));
+    }
+
+    @Test
+    public void testStopsReadingOnceBothSidesAreRead() throws Exception {
+        String json = "{\"coin\":\"ETH\",\"time\":1,\"levels\":[[{\"px\":\"3500.1\",\"sz\":\"2\",\"n\":1},"
+                + "{\"px\":\"3500\",\"sz\":\"1\",\"n\":1}],[{\"px\":\"3500.2\",\"sz\":\"0.5\",\"n\":2}, never read";
+
+        parser.parse(stream(json), 1, bids, asks);
+
+        assertEquals(1, bids.getLevelCount());
+        assertEquals(350010000000L, bids.getScaledPriceAt(0));
+        assertEquals(50000000L, asks.getScaledSizeAt(0));
+    }
+
+    @Test
+    public void testSidesAreClearedFirst() throws Exception {
+        bids.setLevel(100, 1);
+        asks.setLevel(200, 1);
+
+        parser.parse(stream("{\"coin\":\"ETH\",\"levels\":[[],[{\"px\":\"1.5\",\"sz\":\"3\",\"n\":1}]]}"), 5, bids,
+                asks);
+
+        assertEquals(0, bids.getLevelCount());
+        assertEquals(1, asks.getLevelCount());
+        assertEquals(150000000L, asks.getScaledPriceAt(0));
+    }
+}
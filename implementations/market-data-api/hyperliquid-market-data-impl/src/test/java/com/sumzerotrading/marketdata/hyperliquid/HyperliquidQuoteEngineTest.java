@@ -0,0 +1,126 @@
+package com.sumzerotrading.marketdata.hyperliquid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sumzerotrading.data.CryptoTicker;
+import com.sumzerotrading.data.Exchange;
+import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.marketdata.StubHttpServer;
+
+public class HyperliquidQuoteEngineTest {
+
+    protected static final Pattern COIN = Pattern.compile("\"coin\":\"([^\"]+)\"");
+    protected static final String META = "[{\"universe\":[{\"name\":\"BTC\",\"szDecimals\":5,\"maxLeverage\":40},"
+            + "{\"name\":\"kPEPE\",\"szDecimals\":0,\"maxLeverage\":10}]},"
+            + "[{\"funding\":\"0.0000125\",\"markPx\":\"97001.5\"},{\"funding\":\"0.00001\",\"markPx\":\"0.00001\"}]]";
+
+    protected StubHttpServer server;
+    protected HyperliquidQuoteEngine engine;
+    protected Map<String, String> bids = new ConcurrentHashMap<>();
+
+    /**
+     * Stands in for the info endpoint, the coin comes from the l2Book request
+     * body and requests without a coin get the metaAndAssetCtxs response.
+     */
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer((path, body) -> {
+            Matcher matcher = COIN.matcher(body);
+            return matcher.find() ? matcher.group(1) : "";
+        }, coin -> coin.isEmpty() ? META : "{\"coin\":\"" + coin + "\",\"time\":1733000000000,\"levels\":[[{\"px\":\""
+                + bids.getOrDefault(coin, "100") + "\",\"sz\":\"1\",\"n\":1},{\"px\":\"99\",\"sz\":\"5\",\"n\":2}],"
+                + "[{\"px\":\"101\",\"sz\":\"2\",\"n\":1}]]}");
+
+        engine = new HyperliquidQuoteEngine();
+        engine.setBaseUrl(server.getUrl() + "/info");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Quotes are delivered to listeners on the dispatcher's threads.
+     */
+    protected void awaitSize(Map<String, String> received, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (received.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testRequestsAreIssuedConcurrently() throws Exception {
+        Map<String, String> received = new ConcurrentHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            String coin = "COIN" + i;
+            server.setDelay(coin, 300L);
+            bids.put(coin, String.valueOf(100 + i));
+            engine.subscribeLevel1(new CryptoTicker(coin, Exchange.HYPERLIQUID),
+                    quote -> received.put(quote.getTicker().getSymbol(),
+                            quote.getValue(QuoteType.BID).stripTrailingZeros().toPlainString()));
+        }
+
+        long start = System.currentTimeMillis();
+        engine.getQuotes();
+        long elapsed = System.currentTimeMillis() - start;
+        awaitSize(received, 8);
+
+        assertEquals(8, received.size());
+        assertEquals("105", received.get("COIN5"));
+        assertTrue("Cycle took " + elapsed + "ms", elapsed < 8 * 300);
+        assertTrue(server.getMaxInFlight() > 1);
+    }
+
+    @Test
+    public void testSlowRequestsAreDroppedAtTheDeadline() throws Exception {
+        engine.setRequestLimits(16, 500);
+        Map<String, String> received = new ConcurrentHashMap<>();
+        server.setDelay("SLOW", 3000L);
+        for (String coin : new String[] { "BTC", "ETH", "SLOW" }) {
+            engine.subscribeLevel1(new CryptoTicker(coin, Exchange.HYPERLIQUID),
+                    quote -> received.put(quote.getTicker().getSymbol(),
+                            quote.getValue(QuoteType.BID).stripTrailingZeros().toPlainString()));
+        }
+
+        long start = System.currentTimeMillis();
+        engine.getQuotes();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("Cycle took " + elapsed + "ms", elapsed < 2000);
+        awaitSize(received, 3);
+        assertEquals(2, received.size());
+        assertTrue(received.containsKey("BTC"));
+        assertTrue(received.containsKey("ETH"));
+    }
+
+    @Test
+    public void testSizesUseTheSzDecimalsOfTheCoin() throws Exception {
+        assertEquals(8, engine.getSizeScale("kPEPE"));
+        engine.allFundingRates = engine.getAllFundingRates();
+
+        assertEquals(5, engine.getSizeScale("BTC"));
+        assertEquals(0, engine.getSizeScale("kPEPE"));
+        assertEquals(8, engine.getSizeScale("UNLISTED"));
+    }
+
+    @Test
+    public void testGetOrderBook() {
+        bids.put("BTC", "97001.5");
+        HyperliquidQuoteEngine.OrderBookResponse orderBook = engine.getOrderBook("BTC");
+        assertEquals("97001.5", orderBook.getLevels().get(0).get(0).get("px"));
+        assertEquals(2, orderBook.getLevels().get(0).size());
+        assertEquals("101", orderBook.getLevels().get(1).get(0).get("px"));
+    }
+}
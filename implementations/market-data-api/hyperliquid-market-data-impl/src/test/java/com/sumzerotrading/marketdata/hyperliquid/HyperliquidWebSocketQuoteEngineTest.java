@@ -0,0 +1,270 @@
+package com.sumzerotrading.marketdata.hyperliquid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sumzerotrading.data.CryptoTicker;
+import com.sumzerotrading.data.Exchange;
+import com.sumzerotrading.marketdata.ILevel1Quote;
+import com.sumzerotrading.marketdata.ILevel2Quote;
+import com.sumzerotrading.marketdata.IMarketDepthBook;
+import com.sumzerotrading.marketdata.MarketDepthBook.Side;
+import com.sumzerotrading.marketdata.QuoteType;
+
+public class HyperliquidWebSocketQuoteEngineTest {
+
+    protected ReplayServer server;
+    protected HyperliquidWebSocketQuoteEngine engine;
+    protected CryptoTicker ticker = new CryptoTicker("BTC", Exchange.HYPERLIQUID);
+    protected BlockingQueue<Map<QuoteType, BigDecimal>> level1Quotes = new LinkedBlockingQueue<>();
+    protected BlockingQueue<ILevel2Quote> level2Quotes = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ReplayServer(readMessages("/hyperliquid-ws-messages.txt"), 3);
+        server.start();
+        assertTrue(server.started.await(5, TimeUnit.SECONDS));
+        engine = new HyperliquidWebSocketQuoteEngine(new URI("ws://localhost:" + server.getPort()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        engine.stopEngine();
+        server.stop(1000);
+    }
+
+    protected List<String> readMessages(String resource) throws Exception {
+        List<String> messages = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(getClass().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                messages.add(line);
+            }
+        }
+        return messages;
+    }
+
+    protected void subscribe() {
+        engine.subscribeLevel1(ticker, this::copyQuote);
+        engine.subscribeMarketDepth(ticker, quote -> level2Quotes.add(quote));
+    }
+
+    protected void copyQuote(ILevel1Quote quote) {
+        Map<QuoteType, BigDecimal> values = new EnumMap<>(QuoteType.class);
+        for (QuoteType type : quote.getTypes()) {
+            values.put(type, quote.getValue(type));
+        }
+        level1Quotes.add(values);
+    }
+
+    protected void assertValue(String expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, new BigDecimal(expected).compareTo(actual));
+    }
+
+    @Test
+    public void testSubscriptionsAreSent() throws Exception {
+        subscribe();
+        engine.startEngine();
+        assertTrue(server.replayed.await(5, TimeUnit.SECONDS));
+
+        assertTrue(server.received.contains("{\"method\":\"subscribe\",\"subscription\":{\"type\":\"bbo\",\"coin\":\"BTC\"}}"));
+        assertTrue(server.received.contains("{\"method\":\"subscribe\",\"subscription\":{\"type\":\"trades\",\"coin\":\"BTC\"}}"));
+        assertTrue(server.received.contains("{\"method\":\"subscribe\",\"subscription\":{\"type\":\"l2Book\",\"coin\":\"BTC\"}}"));
+    }
+
+    @Test
+    public void testLevel1FromBboAndTrades() throws Exception {
+        subscribe();
+        engine.startEngine();
+
+        Map<QuoteType, BigDecimal> bbo = level1Quotes.poll(5, TimeUnit.SECONDS);
+        assertValue("97001", bbo.get(QuoteType.BID));
+        assertValue("0.52", bbo.get(QuoteType.BID_SIZE));
+        assertValue("97002", bbo.get(QuoteType.ASK));
+        assertValue("0.3", bbo.get(QuoteType.ASK_SIZE));
+
+        Map<QuoteType, BigDecimal> firstTrade = level1Quotes.poll(5, TimeUnit.SECONDS);
+        assertValue("97001.5", firstTrade.get(QuoteType.LAST));
+        assertValue("0.01", firstTrade.get(QuoteType.LAST_SIZE));
+
+        Map<QuoteType, BigDecimal> trade = level1Quotes.poll(5, TimeUnit.SECONDS);
+        assertValue("97002", trade.get(QuoteType.LAST));
+        assertValue("0.25", trade.get(QuoteType.LAST_SIZE));
+        assertFalse(trade.containsKey(QuoteType.BID));
+
+        Map<QuoteType, BigDecimal> oneSided = level1Quotes.poll(5, TimeUnit.SECONDS);
+        assertValue("97001", oneSided.get(QuoteType.BID));
+        assertFalse(oneSided.containsKey(QuoteType.ASK));
+    }
+
+    @Test
+    public void testFundingRateIsAnnualised() throws Exception {
+        server.expectedSubscriptions = new CountDownLatch(4);
+        engine.setIncludeFundingRate(true);
+        subscribe();
+        engine.startEngine();
+        assertTrue(server.replayed.await(5, TimeUnit.SECONDS));
+
+        Map<QuoteType, BigDecimal> quote;
+        do {
+            quote = level1Quotes.poll(5, TimeUnit.SECONDS);
+            assertNotNull("No funding rate received", quote);
+        } while (!quote.containsKey(QuoteType.FUNDING_RATE));
+        assertValue("10.95", quote.get(QuoteType.FUNDING_RATE));
+    }
+
+    @Test
+    public void testLevel2OnlyPublishesChangedSides() throws Exception {
+        subscribe();
+        engine.startEngine();
+
+        List<ILevel2Quote> quotes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ILevel2Quote quote = level2Quotes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(quote);
+            quotes.add(quote);
+        }
+        assertTrue(server.replayed.await(5, TimeUnit.SECONDS));
+        assertNull(level2Quotes.poll(200, TimeUnit.MILLISECONDS));
+
+        IMarketDepthBook bids = quotes.get(0).getMarketDepthBook();
+        assertEquals(Side.BID, bids.getSide());
+        assertEquals(3, bids.getLevelCount());
+        assertValue("97001", bids.getLevelAt(0).getPrice());
+        assertValue("0.00012", bids.getLevelAt(2).getSize());
+
+        IMarketDepthBook asks = quotes.get(1).getMarketDepthBook();
+        assertEquals(Side.ASK, asks.getSide());
+        assertValue("0.3", asks.getLevelAt(0).getSize());
+
+        IMarketDepthBook updatedAsks = quotes.get(2).getMarketDepthBook();
+        assertEquals(Side.ASK, updatedAsks.getSide());
+        assertValue("0.05", updatedAsks.getLevelAt(0).getSize());
+        assertValue("97003.5", updatedAsks.getLevelAt(1).getPrice());
+    }
+
+    @Test
+    public void testSizesUseTheSzDecimalsOfTheCoin() throws Exception {
+        server.stop(1000);
+        server = new ReplayServer(Arrays.asList(
+                "{\"channel\":\"l2Book\",\"data\":{\"coin\":\"BTC\",\"time\":1733000000000,\"levels\":["
+                        + "[{\"px\":\"0.00001\",\"sz\":\"250000000000\",\"n\":1}],"
+                        + "[{\"px\":\"0.000011\",\"sz\":\"90000000000000\",\"n\":1}]]}}",
+                "{\"channel\":\"bbo\",\"data\":{\"coin\":\"BTC\",\"time\":1733000000001,\"bbo\":["
+                        + "{\"px\":\"0.00001\",\"sz\":\"250000000000\",\"n\":1},null]}}"), 3);
+        server.szDecimals = 0;
+        server.start();
+        assertTrue(server.started.await(5, TimeUnit.SECONDS));
+        engine = new HyperliquidWebSocketQuoteEngine(new URI("ws://localhost:" + server.getPort()));
+        subscribe();
+        engine.startEngine();
+
+        ILevel2Quote bids = level2Quotes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(bids);
+        assertValue("250000000000", bids.getMarketDepthBook().getLevelAt(0).getSize());
+        ILevel2Quote asks = level2Quotes.poll(5, TimeUnit.SECONDS);
+        assertValue("90000000000000", asks.getMarketDepthBook().getTotalSize());
+        assertEquals(0, engine.coins.get("BTC").sizeScale);
+
+        Map<QuoteType, BigDecimal> bbo = level1Quotes.poll(5, TimeUnit.SECONDS);
+        assertValue("250000000000", bbo.get(QuoteType.BID_SIZE));
+    }
+
+    @Test
+    public void testLevel1OnlySubscriptionDoesNotRequestBook() throws Exception {
+        server.expectedSubscriptions = new CountDownLatch(2);
+        engine.subscribeLevel1(ticker, this::copyQuote);
+        engine.startEngine();
+        assertTrue(server.replayed.await(5, TimeUnit.SECONDS));
+
+        assertNotNull(level1Quotes.poll(5, TimeUnit.SECONDS));
+        for (String message : server.received) {
+            assertFalse(message.contains("l2Book"));
+        }
+    }
+
+    /**
+     * Stands in for the Hyperliquid websocket, answering the meta request and
+     * replaying a captured session once the expected number of subscriptions
+     * has been received.
+     */
+    protected static class ReplayServer extends WebSocketServer {
+        protected final List<String> messages;
+        protected final List<String> received = new CopyOnWriteArrayList<>();
+        protected CountDownLatch started = new CountDownLatch(1);
+        protected CountDownLatch replayed = new CountDownLatch(1);
+        protected volatile CountDownLatch expectedSubscriptions;
+        protected volatile int szDecimals = 5;
+
+        public ReplayServer(List<String> messages, int subscriptions) {
+            super(new InetSocketAddress("localhost", 0));
+            setReuseAddr(true);
+            this.messages = messages;
+            this.expectedSubscriptions = new CountDownLatch(subscriptions);
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            received.add(message);
+            if (message.contains("\"post\"")) {
+                conn.send("{\"channel\":\"post\",\"data\":{\"id\":1,\"response\":{\"type\":\"info\",\"payload\":{"
+                        + "\"type\":\"meta\",\"data\":{\"universe\":[{\"name\":\"BTC\",\"szDecimals\":" + szDecimals
+                        + ",\"maxLeverage\":40}]}}}}}");
+                return;
+            }
+            expectedSubscriptions.countDown();
+            if (expectedSubscriptions.getCount() == 0 && replayed.getCount() > 0) {
+                for (String captured : messages) {
+                    conn.send(captured);
+                }
+                replayed.countDown();
+            }
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+    }
+}
@@ -25,14 +25,10 @@ import com.sumzerotrading.data.StockTicker;
 import com.sumzerotrading.data.Ticker;
 import com.sumzerotrading.ib.IbUtils;
 import com.sumzerotrading.marketdata.IQuoteEngine;
-import com.sumzerotrading.marketdata.Level1Quote;
+import com.sumzerotrading.marketdata.Level1QuotePool;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
 import com.sumzerotrading.marketdata.QuoteType;
-import com.sumzerotrading.util.QuoteUtil;
-import java.math.BigDecimal;
 import java.time.ZonedDateTime;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 /**
@@ -41,6 +37,7 @@ import java.util.concurrent.BlockingQueue;
  */
 public class IBLevel1QuoteProcessor extends IBQuoteProcessor<Level1QuoteData> {
     
+    protected volatile Level1QuotePool quotePool;
 
 
     public IBLevel1QuoteProcessor(BlockingQueue<Level1QuoteData> queue, IQuoteEngine quoteEngine) {
@@ -66,8 +63,10 @@ public class IBLevel1QuoteProcessor extends IBQuoteProcessor<Level1QuoteData> {
             return;
         }
 
-        BigDecimal formattedPrice = QuoteUtil.getBigDecimalValue(data.getTicker(), data.getPrice());
-        processQuote(data.getTicker(), quoteType, formattedPrice);
+        Ticker ticker = data.getTicker();
+        PrimitiveLevel1Quote quote = newQuote(ticker);
+        quote.setValue(quoteType, data.getPrice(), ticker.getMinimumTickSize());
+        processQuote(quote);
 
     }
 
@@ -85,17 +84,33 @@ public class IBLevel1QuoteProcessor extends IBQuoteProcessor<Level1QuoteData> {
         if (ticker instanceof StockTicker) {
             size = size * 100;
         }
-        BigDecimal formattedValue = QuoteUtil.getBigDecimalValue(size);
-        processQuote(ticker, quoteType, formattedValue);
+        PrimitiveLevel1Quote quote = newQuote(ticker);
+        quote.setValue(quoteType, size, 0);
+        processQuote(quote);
     }
 
 
-    protected void processQuote(Ticker ticker, QuoteType quoteType, BigDecimal formattedValue) {
-        Map<QuoteType, BigDecimal> quoteMap = new HashMap<>();
-        quoteMap.put(quoteType, formattedValue);
-        Level1Quote quote = new Level1Quote(ticker, getTime(), quoteMap);
-
-        quoteEngine.fireLevel1Quote(quote);
+    protected void processQuote(PrimitiveLevel1Quote quote) {
+        try {
+            quoteEngine.fireLevel1Quote(quote);
+        } finally {
+            quote.release();
+        }
+    }
+    
+    protected PrimitiveLevel1Quote newQuote(Ticker ticker) {
+        Level1QuotePool pool = quotePool;
+        if (pool == null) {
+            return new PrimitiveLevel1Quote(ticker, getTime());
+        }
+        return pool.acquire(ticker, getTime());
+    }
+    
+    /**
+     * Sets the pool quotes are taken from, or null to create a new quote for each tick.
+     */
+    public void setQuotePool(Level1QuotePool quotePool) {
+        this.quotePool = quotePool;
     }
     
     protected ZonedDateTime getTime() {
@@ -38,6 +38,7 @@ public class IBLevel2QuoteProcessor extends IBQuoteProcessor<Level2QuoteData> {
     protected HashMap<Ticker, IMarketDepthBook> bidBookMap = new HashMap<Ticker, IMarketDepthBook>();
     protected HashMap<Ticker, IMarketDepthBook> askBookMap = new HashMap<Ticker, IMarketDepthBook>();
     protected int contractId = 0;
+    protected int snapshotLevels = MarketDepthSnapshot.ALL_LEVELS;
 
     protected int OP_INSERT = 0;
     protected int OP_UPDATE = 1;
@@ -51,6 +52,10 @@ public class IBLevel2QuoteProcessor extends IBQuoteProcessor<Level2QuoteData> {
 
     @Override
     protected void processData(Level2QuoteData data) {
+        if (data.getOperation() == Level2QuoteData.OP_RESET) {
+            removeTicker(data.getTicker());
+            return;
+        }
         double price = data.getPrice();
         Ticker ticker = data.getTicker();
         int operation = data.getOperation();
@@ -65,7 +70,7 @@ public class IBLevel2QuoteProcessor extends IBQuoteProcessor<Level2QuoteData> {
             book = bidBookMap.get(data.getTicker());
             depthSide = MarketDepthBook.Side.BID;
             if (book == null) {
-                book = MarketDepthBook.newInstance();
+                book = newBook(ticker);
                 book.setSide(MarketDepthBook.Side.BID);
                 bidBookMap.put(ticker, book);
             }
@@ -73,27 +78,59 @@ public class IBLevel2QuoteProcessor extends IBQuoteProcessor<Level2QuoteData> {
             book = askBookMap.get(data.getTicker());
             depthSide = MarketDepthBook.Side.ASK;
             if (book == null) {
-                book = MarketDepthBook.newInstance();
+                book = newBook(ticker);
                 book.setSide(MarketDepthBook.Side.ASK);
                 askBookMap.put(ticker, book);
             }
         }
 
-
-         BigDecimal bdPrice = QuoteUtil.getBigDecimalValue(ticker, price);
-
-        MarketDepthLevel level = new MarketDepthLevel(depthSide, bdPrice, size);
+        if( book instanceof SortedMarketDepthBook ) {
+            updateSortedBook((SortedMarketDepthBook) book, ticker, operation, position, price, size);
+        } else {
+            BigDecimal bdPrice = QuoteUtil.getBigDecimalValue(ticker, price);
+
+            MarketDepthLevel level = new MarketDepthLevel(depthSide, bdPrice, size);
+            if( operation == OP_INSERT ) {
+                book.insertLevel(position, level);
+            } else if ( operation == OP_UPDATE ) {
+                book.updateLevel( position, level );
+            } else if( operation == OP_DELETE ) {
+                book.deleteLevel(position);
+            } else {
+                throw new IllegalStateException( "Unknown operation: " + operation );
+            }
+        }
+        buildAndFireEvent(ticker, book);
+        
+    }
+    
+    
+    /**
+     * Applies the update to a primitive book without creating any
+     * intermediate BigDecimal or MarketDepthLevel objects.  IB depth is
+     * positional and several rows can share a price, so rows are applied by
+     * position rather than merged by price, otherwise the book drifts from
+     * IB's rows and later updates hit the wrong level.
+     */
+    protected void updateSortedBook(SortedMarketDepthBook book, Ticker ticker, int operation, int position, double price, int size) {
         if( operation == OP_INSERT ) {
-            book.insertLevel(position, level);
+            book.insertRow(position, QuoteUtil.getScaledValue(price, ticker.getMinimumTickSize()), size);
         } else if ( operation == OP_UPDATE ) {
-            book.updateLevel( position, level );
+            book.updateRow(position, QuoteUtil.getScaledValue(price, ticker.getMinimumTickSize()), size);
         } else if( operation == OP_DELETE ) {
-            book.deleteLevel(position);
+            book.deleteRow(position);
         } else {
             throw new IllegalStateException( "Unknown operation: " + operation );
         }
-        buildAndFireEvent(ticker, book);
-        
+    }
+    
+    
+    /**
+     * Creates a new book for the ticker which keeps prices at the ticker's
+     * tick size precision.
+     */
+    protected IMarketDepthBook newBook(Ticker ticker) {
+        return MarketDepthBook.newInstance(ticker.getMinimumTickSize().scale(), 0);
     }
     
     
@@ -110,10 +147,37 @@ public class IBLevel2QuoteProcessor extends IBQuoteProcessor<Level2QuoteData> {
         } else {
             type = QuoteType.MARKET_DEPTH_BID;
         }
-        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, type, getTime(), book));
+        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, type, getTime(), publishedBook(book)));
     }    
     
     
+    /**
+     * Listeners are called on other threads while this processor keeps
+     * updating the book, so sorted books are published as an immutable
+     * snapshot of their top levels.  Any other book is published as is.
+     */
+    protected IMarketDepthBook publishedBook(IMarketDepthBook book) {
+        if( book instanceof SortedMarketDepthBook ) {
+            return ((SortedMarketDepthBook) book).snapshot(snapshotLevels);
+        }
+        return book;
+    }
+    
+    
+    /**
+     * Sets the maximum number of levels copied into each published snapshot.
+     * @param snapshotLevels The number of levels, defaults to the whole book.
+     */
+    public void setSnapshotLevels(int snapshotLevels) {
+        this.snapshotLevels = snapshotLevels;
+    }
+    
+    
+    public int getSnapshotLevels() {
+        return snapshotLevels;
+    }
+    
+    
     /**
      * Overridden by unit tests.
      * @return 
@@ -22,23 +22,23 @@ OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 package com.sumzerotrading.marketdata.ib;
 
 import com.ib.client.Contract;
+import com.ib.client.Decimal;
 import com.ib.client.EClientSocket;
-import com.ib.client.TagValue;
+import com.ib.client.TickAttrib;
 import com.sumzerotrading.data.Ticker;
 import com.sumzerotrading.ib.ContractBuilderFactory;
 import com.sumzerotrading.ib.IBConnectionInterface;
 import com.sumzerotrading.ib.IBDataQueue;
+import com.sumzerotrading.ib.IBMessageCategory;
+import com.sumzerotrading.ib.IBRequestPriority;
 import com.sumzerotrading.ib.IBSocket;
 import com.sumzerotrading.ib.MarketDepthListener;
 import com.sumzerotrading.ib.TickListener;
 import com.sumzerotrading.marketdata.*;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Vector;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import org.slf4j.Logger;
@@ -56,8 +56,6 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
     protected IBConnectionInterface callbackInterface;
     protected BlockingQueue<Level1QuoteData> level1QuoteQueue = new LinkedBlockingQueue<Level1QuoteData>();
     protected BlockingQueue<Level2QuoteData> level2QuoteQueue = new LinkedBlockingQueue<Level2QuoteData>();
-    protected Map<Ticker, ILevel1Quote> closeQuoteMap = new HashMap<>();
-    protected Map<Ticker, ILevel1Quote> openQuoteMap = new HashMap<>();
     protected BlockingQueue<QuoteError> quoteErrorQueue = new LinkedBlockingQueue<QuoteError>();
     protected EClientSocket ibConnection;
     protected Map<Ticker, Integer> tickerMap = new HashMap<Ticker, Integer>();
@@ -65,6 +63,7 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
     protected Map<Ticker, Integer> level2TickerMap = new HashMap<Ticker, Integer>();
     protected Map<Integer, Ticker> level2IdToTickerMap = new HashMap<Integer, Ticker>();
     protected int nextQuoteId = 100000;
+    protected int marketDepthRows = 10;
     protected IBQuoteProcessor level1QuoteProcessor;
     protected IBQuoteProcessor level2QuoteProcessor;
     protected IBQuoteProcessor errorQuoteProcessor;
@@ -72,7 +71,6 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
     protected String name = "";
 
     public IBQuoteEngine(IBSocket ibSocket) {
-        if(true) throw new UnsupportedOperationException("IB CHanged implemenation need to fix this");
         this.ibSocket = ibSocket;
 
         callbackInterface = ibSocket.getConnection();
@@ -89,11 +87,14 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
         return ibSocket.isConnected();
     }
 
-    public void tickSize(int tickerId, int field, int size) {
-        buildLevel1QuoteDataAndSend(tickerId, field, 0, 0, size);
+    @Override
+    public void tickSize(int tickerId, int field, Decimal size) {
+        buildLevel1QuoteDataAndSend(tickerId, field, 0, 0, toInt(size));
     }
 
-    public void tickPrice(int tickerId, int field, double price, int canAutoExecute) {
+    @Override
+    public void tickPrice(int tickerId, int field, double price, TickAttrib attribs) {
+        int canAutoExecute = attribs != null && attribs.canAutoExecute() ? 1 : 0;
         buildLevel1QuoteDataAndSend(tickerId, field, price, canAutoExecute, 0);
     }
 
@@ -112,10 +113,11 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
         }
     }
 
-    public void updateMktDepth(int tickerId, int position, int operation, int side, double price, int size) {
+    @Override
+    public void updateMktDepth(int tickerId, int position, int operation, int side, double price, Decimal size) {
         Ticker ticker = level2IdToTickerMap.get(tickerId);
         if (ticker != null) {
-            Level2QuoteData data = new Level2QuoteData(ticker, position, operation, side, price, size);
+            Level2QuoteData data = new Level2QuoteData(ticker, position, operation, side, price, toInt(size));
             try {
                 level2QuoteQueue.put(data);
             } catch (InterruptedException ex) {
@@ -126,19 +128,29 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
         }
     }
 
-    public void updateMktDepth2(int tickerId, int position, String marketMaker, int operation, int side, double price, int size) {
-
+    /**
+     * Sizes are whole shares or contracts for the products this engine
+     * quotes, an invalid size from TWS is reported as 0.
+     */
+    protected static int toInt(Decimal size) {
+        if (size == null || !size.isValid()) {
+            return 0;
+        }
+        return size.value().intValue();
     }
 
+    @Override
     public void error(Exception e) {
         putOnErrorQueue(new QuoteError(e));
     }
 
+    @Override
     public void error(String str) {
         putOnErrorQueue(new QuoteError(str));
     }
 
-    public void error(int id, int errorCode, String errorMsg) {
+    @Override
+    public void error(int id, long errorTime, int errorCode, String errorMsg, String advancedOrderRejectJson) {
         putOnErrorQueue(new QuoteError(id, errorCode, errorMsg));
     }
 
@@ -151,33 +163,55 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
     }
 
     @Override
-    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+    public synchronized void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
         super.subscribeMarketDepth(ticker, listener);
         Integer quoteId = level2TickerMap.get(ticker);
         if (quoteId == null) {
             quoteId = ++nextQuoteId;
             level2TickerMap.put(ticker, quoteId);
             level2IdToTickerMap.put(quoteId, ticker);
-            Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
-            Vector<TagValue> v = new Vector<>();
-            v.add(new TagValue("XYZ", "XYZ"));
-           // ibConnection.reqMktDepth(quoteId, contract, 100, v);
-           if(true) throw new UnsupportedOperationException("IB changed implementation");
+            callbackInterface.addCallbackRoute(IBMessageCategory.MARKET_DEPTH, quoteId, this);
+            int requestId = quoteId;
+            ibSocket.getRequestScheduler().submit(IBRequestPriority.MARKET_DATA,
+                    () -> sendSubscription(IBMessageCategory.MARKET_DEPTH, level2TickerMap, level2IdToTickerMap, ticker, requestId,
+                            () -> resetAndRequestMarketDepth(requestId, ticker), () -> ibConnection.cancelMktDepth(requestId, false)));
+        }
+    }
 
+    /**
+     * TWS sends the whole book again when depth is requested, including when
+     * the subscription is replayed after a reconnect, so the processor's
+     * books for the ticker are dropped first.  The reset goes through the
+     * level 2 queue so it is applied after any updates already queued and
+     * before any sent in reply to this request.
+     */
+    protected void resetAndRequestMarketDepth(int requestId, Ticker ticker) {
+        try {
+            level2QuoteQueue.put(Level2QuoteData.reset(ticker));
+        } catch (InterruptedException ex) {
+            logger.error(ex.getMessage(), ex);
         }
+        requestMarketDepth(requestId, ticker);
+    }
+
+    protected void requestMarketDepth(int requestId, Ticker ticker) {
+        Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
+        ibConnection.reqMktDepth(requestId, contract, marketDepthRows, false, null);
     }
 
     @Override
-    public void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+    public synchronized void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
         super.unsubscribeMarketDepth(ticker, listener);
         //if there are no more listeners cancel the subscription
-        List<Level2QuoteListener> listeners = level2ListenerMap.get(ticker);
-        if ((listeners == null) || (listeners.isEmpty())) {
+        if (!level2Listeners.hasListeners(ticker)) {
             Integer requestId = level2TickerMap.remove(ticker);
             level2IdToTickerMap.remove(requestId);
             if (requestId != null) {
-                //ibConnection.cancelMktDepth(requestId);
-                if(true) throw new UnsupportedOperationException("IB changed implementation");
+                callbackInterface.removeCallbackRoute(IBMessageCategory.MARKET_DEPTH, requestId);
+                //only requests that have been sent are in the journal
+                if (ibSocket.getSubscriptionJournal().remove(IBMessageCategory.MARKET_DEPTH, requestId)) {
+                    ibSocket.getRequestScheduler().submit(IBRequestPriority.MARKET_DATA, () -> ibConnection.cancelMktDepth(requestId, false));
+                }
             }
         }
     }
@@ -190,38 +224,82 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
             quoteId = ++nextQuoteId;
             tickerMap.put(ticker, quoteId);
             idToTickerMap.put(quoteId, ticker);
-            Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
-            List<TagValue> list = new ArrayList<>();
-            list.add(new TagValue("XYZ","XYZ"));
-            //ibConnection.reqMktData(nextQuoteId, contract, "", false, list);
-            if(true) throw new UnsupportedOperationException("IB changed implementation");
+            callbackInterface.addCallbackRoute(IBMessageCategory.MARKET_DATA, quoteId, this);
+            int requestId = quoteId;
+            ibSocket.getRequestScheduler().submit(IBRequestPriority.MARKET_DATA,
+                    () -> sendSubscription(IBMessageCategory.MARKET_DATA, tickerMap, idToTickerMap, ticker, requestId,
+                            () -> requestLevel1(requestId, ticker), () -> ibConnection.cancelMktData(requestId)));
         }
 
-        if (closeQuoteMap.get(ticker) != null) {
-            listener.quoteRecieved(closeQuoteMap.get(ticker));
-        }
-
-        if (openQuoteMap.get(ticker) != null) {
-            listener.quoteRecieved(openQuoteMap.get(ticker));
-        }
+    }
 
+    protected void requestLevel1(int requestId, Ticker ticker) {
+        Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
+        ibConnection.reqMktData(requestId, contract, "", false, false, null);
     }
 
     @Override
-    public void unsubscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
+    public synchronized void unsubscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
         super.unsubscribeLevel1(ticker, listener);
 
         //if there are no more listeners cancel the subscription
-        List<Level1QuoteListener> listeners = level1ListenerMap.get(ticker);
-        if ((listeners == null) || (listeners.isEmpty())) {
+        if (!level1Listeners.hasListeners(ticker)) {
             Integer requestId = tickerMap.remove(ticker);
             idToTickerMap.remove(requestId);
             if (requestId != null) {
-                ibConnection.cancelMktData(requestId);
+                callbackInterface.removeCallbackRoute(IBMessageCategory.MARKET_DATA, requestId);
+                //only requests that have been sent are in the journal
+                if (ibSocket.getSubscriptionJournal().remove(IBMessageCategory.MARKET_DATA, requestId)) {
+                    ibSocket.getRequestScheduler().submit(IBRequestPriority.MARKET_DATA, () -> ibConnection.cancelMktData(requestId));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a subscription request from the request scheduler. The request is
+     * only added to the subscription journal, and so replayed after a
+     * reconnect, once it has been sent. If sending fails the ticker's request
+     * id and callback route are removed, so the next subscriber makes a new
+     * request, and the failure is reported as a quote error. If the ticker
+     * was unsubscribed while the request was queued nothing is sent, and if
+     * it was unsubscribed while the request was being sent it is cancelled.
+     */
+    protected void sendSubscription(IBMessageCategory category, Map<Ticker, Integer> tickerIds, Map<Integer, Ticker> idTickers,
+            Ticker ticker, int requestId, Runnable request, Runnable cancel) {
+        synchronized (this) {
+            if (!isCurrentRequest(tickerIds, ticker, requestId)) {
+                return;
+            }
+        }
+        try {
+            request.run();
+        } catch (RuntimeException ex) {
+            logger.error("Error requesting " + category + " for " + ticker, ex);
+            synchronized (this) {
+                if (isCurrentRequest(tickerIds, ticker, requestId)) {
+                    tickerIds.remove(ticker);
+                    idTickers.remove(requestId);
+                    callbackInterface.removeCallbackRoute(category, requestId);
+                }
+            }
+            putOnErrorQueue(new QuoteError(ex));
+            return;
+        }
+        synchronized (this) {
+            if (isCurrentRequest(tickerIds, ticker, requestId)) {
+                ibSocket.getSubscriptionJournal().record(category, requestId, IBRequestPriority.MARKET_DATA, request);
+            } else {
+                ibSocket.getRequestScheduler().submit(IBRequestPriority.MARKET_DATA, cancel);
             }
         }
     }
 
+    protected boolean isCurrentRequest(Map<Ticker, Integer> tickerIds, Ticker ticker, int requestId) {
+        Integer current = tickerIds.get(ticker);
+        return current != null && current == requestId;
+    }
+
     public Date getServerTime() {
         throw new UnsupportedOperationException("Not supported yet.");
     }
@@ -251,6 +329,22 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
         return ibSocket;
     }
 
+    /**
+     * @return The number of rows requested for each market depth
+     * subscription
+     */
+    public int getMarketDepthRows() {
+        return marketDepthRows;
+    }
+
+    /**
+     * Sets the number of rows requested for market depth subscriptions made
+     * after this call.
+     */
+    public void setMarketDepthRows(int marketDepthRows) {
+        this.marketDepthRows = marketDepthRows;
+    }
+
     public String getName() {
         return name;
     }
@@ -259,23 +353,20 @@ public class IBQuoteEngine extends AbstractIBQuoteEngine {
         this.name = name;
     }
 
-    @Override
-    public void fireLevel1Quote(ILevel1Quote quote) {
-        super.fireLevel1Quote(quote); 
-        if (quote.containsType(QuoteType.CLOSE) ) {
-            closeQuoteMap.put(quote.getTicker(), quote);
-        }
-        if (quote.containsType(QuoteType.OPEN) ) {
-            openQuoteMap.put(quote.getTicker(), quote);
-        }
+    protected ListenerRegistry<Level1QuoteListener> getLevel1Listeners() {
+        return level1Listeners;
     }
 
-    protected Map<Ticker, List<Level1QuoteListener>> getLevel1ListenerMap() {
-        return level1ListenerMap;
+    protected void setLevel1Listeners(ListenerRegistry<Level1QuoteListener> level1Listeners) {
+        this.level1Listeners = level1Listeners;
     }
 
-    protected void setLevel1ListenerMap(Map<Ticker, List<Level1QuoteListener>> map) {
-        this.level1ListenerMap = map;
+    @Override
+    public void setLevel1QuotePool(Level1QuotePool level1QuotePool) {
+        super.setLevel1QuotePool(level1QuotePool);
+        if (level1QuoteProcessor instanceof IBLevel1QuoteProcessor) {
+            ((IBLevel1QuoteProcessor) level1QuoteProcessor).setQuotePool(level1QuotePool);
+        }
     }
 
     @Override
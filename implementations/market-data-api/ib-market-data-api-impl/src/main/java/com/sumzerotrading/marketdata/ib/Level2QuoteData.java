@@ -29,6 +29,12 @@ import com.sumzerotrading.data.Ticker;
  */
 public class Level2QuoteData {
     
+    /**
+     * Not an IB operation, tells the processor to drop its books for the
+     * ticker because depth is about to be requested again.
+     */
+    public static final int OP_RESET = -1;
+    
     protected Ticker ticker;
     protected int position;
     protected int operation;
@@ -45,6 +51,10 @@ public class Level2QuoteData {
         this.size = size;
     }
 
+    public static Level2QuoteData reset(Ticker ticker) {
+        return new Level2QuoteData(ticker, 0, OP_RESET, 0, 0, 0);
+    }
+
     public int getOperation() {
         return operation;
     }
@@ -26,6 +26,7 @@ import com.sumzerotrading.data.StockTicker;
 import com.sumzerotrading.data.Ticker;
 import com.sumzerotrading.marketdata.ILevel1Quote;
 import com.sumzerotrading.marketdata.IQuoteEngine;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
 import com.sumzerotrading.marketdata.QuoteType;
 import com.sumzerotrading.util.QuoteUtil;
 import java.math.BigDecimal;
@@ -184,9 +185,9 @@ public class IBLevel1QuoteProcessorTest {
         }
         
         @Override
-        protected void processQuote(Ticker ticker, QuoteType quoteType, BigDecimal value) {
+        protected void processQuote(PrimitiveLevel1Quote quote) {
             processQuoteCalled = true;
-            formattedValue = value;
+            formattedValue = quote.getValue(quote.getTypes()[0]);
         }
     }
 }
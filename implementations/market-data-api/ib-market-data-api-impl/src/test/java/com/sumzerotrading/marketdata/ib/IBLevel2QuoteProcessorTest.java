@@ -279,6 +279,44 @@ public class IBLevel2QuoteProcessorTest {
 
     }
 
+    @Test
+    public void testProcessData_ResetDropsBooks() {
+        MockIBLevel2QuoteProcessor processor = buildQuoteProcessor();
+        Ticker ticker = getCurrencyTicker();
+        processor.processData(new Level2QuoteData(ticker, 0, processor.OP_INSERT, processor.SIDE_BID, 1.3553, 100));
+        processor.processData(new Level2QuoteData(ticker, 0, processor.OP_INSERT, processor.SIDE_ASK, 1.3555, 100));
+
+        processor.processData(Level2QuoteData.reset(ticker));
+        assertTrue(processor.bidBookMap.isEmpty());
+        assertTrue(processor.askBookMap.isEmpty());
+
+        //TWS resends the book from row 0 after the subscription is replayed
+        processor.processData(new Level2QuoteData(ticker, 0, processor.OP_INSERT, processor.SIDE_BID, 1.3552, 200));
+        IMarketDepthBook book = processor.buildAndFireEventBook;
+        assertEquals(1, book.getLevelCount());
+        assertEquals(new BigDecimal("1.3552"), book.getLevelAt(0).getPrice());
+    }
+
+    @Test
+    public void testProcessData_DuplicatePriceInsert() {
+        MockIBLevel2QuoteProcessor processor = buildQuoteProcessor();
+        Ticker ticker = getCurrencyTicker();
+        processor.processData(new Level2QuoteData(ticker, 0, processor.OP_INSERT, processor.SIDE_BID, 1.3553, 100));
+        processor.processData(new Level2QuoteData(ticker, 1, processor.OP_INSERT, processor.SIDE_BID, 1.3552, 200));
+        processor.processData(new Level2QuoteData(ticker, 1, processor.OP_INSERT, processor.SIDE_BID, 1.3553, 50));
+
+        IMarketDepthBook book = processor.buildAndFireEventBook;
+        assertEquals(3, book.getLevelCount());
+
+        //IB now deletes its second row and updates its third, which only works if the rows weren't merged
+        processor.processData(new Level2QuoteData(ticker, 1, processor.OP_DELETE, processor.SIDE_BID, 1.3553, 50));
+        processor.processData(new Level2QuoteData(ticker, 1, processor.OP_UPDATE, processor.SIDE_BID, 1.3552, 300));
+        assertEquals(2, book.getLevelCount());
+        assertEquals(100, book.getLevelAt(0).getSize().intValue());
+        assertEquals(new BigDecimal("1.3552"), book.getLevelAt(1).getPrice());
+        assertEquals(300, book.getLevelAt(1).getSize().intValue());
+    }
+
     @Test
     public void testBuildAndFireEvent_Bid() {
         final IQuoteEngine mockQuoteEngine = mockery.mock(IQuoteEngine.class, "new");
@@ -341,6 +379,35 @@ public class IBLevel2QuoteProcessorTest {
 
     }
 
+    @Test
+    public void testBuildAndFireEvent_PublishesSnapshot() {
+        final IQuoteEngine mockQuoteEngine = mockery.mock(IQuoteEngine.class, "new");
+        MockIBLevel2QuoteProcessor processor = buildQuoteProcessor(false);
+        processor.quoteEngine = mockQuoteEngine;
+        processor.setSnapshotLevels(1);
+        CurrencyTicker ticker = getCurrencyTicker();
+
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.BID, 4, 0);
+        book.setLevel(13553, 100);
+        book.setLevel(13552, 200);
+        final Level2Quote quote = new Level2Quote(ticker, QuoteType.MARKET_DEPTH_BID, processor.date, book.snapshot(1));
+
+        mockery.checking(new Expectations() {
+
+            {
+                one(mockQuoteEngine).fireMarketDepthQuote(quote);
+            }
+        });
+
+        processor.buildAndFireEvent(ticker, book);
+        mockery.assertIsSatisfied();
+
+        //Later changes to the book must not be visible in the published quote
+        book.setLevel(13553, 0);
+        assertEquals(1, quote.getMarketDepthBook().getLevelCount());
+        assertEquals(100, quote.getMarketDepthBook().getTotalSize().intValue());
+    }
+
     protected CurrencyTicker getCurrencyTicker() {
         CurrencyTicker ticker = new CurrencyTicker();
         ticker.setCurrency("EUR");
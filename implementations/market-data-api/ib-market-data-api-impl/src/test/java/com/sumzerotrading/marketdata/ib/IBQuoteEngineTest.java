@@ -22,17 +22,24 @@ OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 package com.sumzerotrading.marketdata.ib;
 
 import com.ib.client.Contract;
+import com.ib.client.Decimal;
 import com.ib.client.EClientSocket;
 import com.ib.client.TagValue;
+import com.ib.client.TickAttrib;
 import com.sumzerotrading.ib.ContractBuilderFactory;
 import com.sumzerotrading.data.StockTicker;
 import com.sumzerotrading.data.Ticker;
 import com.sumzerotrading.ib.IBConnectionInterface;
+import com.sumzerotrading.ib.IBMessageCategory;
+import com.sumzerotrading.ib.IBRequestPriority;
 import com.sumzerotrading.ib.IBSocket;
 import com.sumzerotrading.marketdata.ILevel1Quote;
 import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.Level2QuoteListener;
+import com.sumzerotrading.marketdata.PrimitiveLevel1Quote;
 import com.sumzerotrading.marketdata.QuoteError;
 import com.sumzerotrading.marketdata.QuoteType;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import org.jmock.Mockery;
@@ -45,20 +52,29 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.Ignore;
 import org.mockito.Mockito;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.timeout;
 
 /**
  *
  * @author Rob Terpilowski
  */
-@Ignore("Skipping this test class for now until IB issues are fixed")
 public class IBQuoteEngineTest {
 
     protected EClientSocket mockClientSocket;
     protected IBConnectionInterface mockIbConnection;
-    protected IBSocket mockIbSocket;
+    protected IBSocket ibSocket;
     protected IBQuoteEngine ibQuoteEngine;
     protected Mockery mockery;
 
@@ -77,12 +93,10 @@ public class IBQuoteEngineTest {
     public void setUp() {
         
         mockClientSocket = mock(EClientSocket.class);
-        mockIbSocket = mock(IBSocket.class);
         mockIbConnection = mock(IBConnectionInterface.class);
-        when(mockIbSocket.getClientSocket()).thenReturn(mockClientSocket);
-        when(mockIbSocket.getConnection()).thenReturn(mockIbConnection);
+        ibSocket = new IBSocket(mockIbConnection, mockClientSocket);
 
-        ibQuoteEngine = new IBQuoteEngine(mockIbSocket);
+        ibQuoteEngine = new IBQuoteEngine(ibSocket);
         verify(mockIbConnection).addIbConnectionDelegate(ibQuoteEngine);
     }
 
@@ -102,6 +116,112 @@ public class IBQuoteEngineTest {
         ibQuoteEngine.useDelayedData(false);
         verify(mockClientSocket).reqMarketDataType(1);
     }
+
+    @Test
+    public void testSubscribeLevel1RequestsMarketData() {
+        Ticker ticker = new StockTicker("ABC");
+        Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
+
+        ibQuoteEngine.subscribeLevel1(ticker, mock(Level1QuoteListener.class));
+        verify(mockClientSocket, never()).reqMktData(anyInt(), any(Contract.class), anyString(), anyBoolean(), anyBoolean(), anyListOf(TagValue.class));
+        assertEquals(1, ibSocket.getRequestScheduler().getPendingCount(IBRequestPriority.MARKET_DATA));
+        ibSocket.getRequestScheduler().runPending();
+
+        int requestId = ibQuoteEngine.tickerMap.get(ticker);
+        verify(mockClientSocket).reqMktData(requestId, contract, "", false, false, null);
+        verify(mockIbConnection).addCallbackRoute(IBMessageCategory.MARKET_DATA, requestId, ibQuoteEngine);
+    }
+
+    @Test
+    public void testSubscribeMarketDepthRequestsDepth() {
+        Ticker ticker = new StockTicker("ABC");
+        Contract contract = ContractBuilderFactory.getContractBuilder(ticker).buildContract(ticker);
+
+        ibQuoteEngine.subscribeMarketDepth(ticker, mock(Level2QuoteListener.class));
+        ibSocket.getRequestScheduler().runPending();
+
+        int requestId = ibQuoteEngine.level2TickerMap.get(ticker);
+        verify(mockClientSocket).reqMktDepth(requestId, contract, ibQuoteEngine.getMarketDepthRows(), false, null);
+    }
+
+    @Test
+    public void testMarketDepthReplayResetsBooksFirst() throws Exception {
+        Ticker ticker = new StockTicker("ABC");
+        ibQuoteEngine.subscribeMarketDepth(ticker, mock(Level2QuoteListener.class));
+        ibSocket.getRequestScheduler().runPending();
+        int requestId = ibQuoteEngine.level2TickerMap.get(ticker);
+        ibQuoteEngine.updateMktDepth(requestId, 0, 0, 1, 1.5, Decimal.get(100));
+
+        //what a replay after a reconnect runs
+        ibSocket.getSubscriptionJournal().getEntries().get(0).getRequest().run();
+
+        verify(mockClientSocket, times(2)).reqMktDepth(eq(requestId), any(Contract.class), anyInt(), anyBoolean(), anyListOf(TagValue.class));
+        assertEquals(Level2QuoteData.reset(ticker), ibQuoteEngine.level2QuoteQueue.take());
+        assertEquals(0, ibQuoteEngine.level2QuoteQueue.take().getOperation());
+        assertEquals(Level2QuoteData.reset(ticker), ibQuoteEngine.level2QuoteQueue.take());
+        assertTrue(ibQuoteEngine.level2QuoteQueue.isEmpty());
+    }
+
+    @Test
+    public void testSubscriptionIsJournalledOnceSent() {
+        ibQuoteEngine.subscribeLevel1(new StockTicker("ABC"), mock(Level1QuoteListener.class));
+        assertEquals(0, ibSocket.getSubscriptionJournal().size());
+
+        ibSocket.getRequestScheduler().runPending();
+        assertEquals(1, ibSocket.getSubscriptionJournal().size());
+    }
+
+    @Test
+    public void testFailedSendRollsBackSubscription() throws Exception {
+        Ticker ticker = new StockTicker("ABC");
+        RuntimeException failure = new IllegalStateException("Not connected");
+        doThrow(failure).when(mockClientSocket).reqMktData(anyInt(), any(Contract.class), anyString(), anyBoolean(), anyBoolean(), anyListOf(TagValue.class));
+
+        ibQuoteEngine.subscribeLevel1(ticker, mock(Level1QuoteListener.class));
+        int requestId = ibQuoteEngine.tickerMap.get(ticker);
+        ibSocket.getRequestScheduler().runPending();
+
+        assertNull(ibQuoteEngine.tickerMap.get(ticker));
+        assertNull(ibQuoteEngine.idToTickerMap.get(requestId));
+        assertEquals(0, ibSocket.getSubscriptionJournal().size());
+        verify(mockIbConnection).removeCallbackRoute(IBMessageCategory.MARKET_DATA, requestId);
+        assertEquals(new QuoteError(failure), ibQuoteEngine.quoteErrorQueue.take());
+    }
+
+    @Test
+    public void testUnsubscribeBeforeSendSendsNothing() {
+        Ticker ticker = new StockTicker("ABC");
+        Level2QuoteListener listener = mock(Level2QuoteListener.class);
+
+        ibQuoteEngine.subscribeMarketDepth(ticker, listener);
+        ibQuoteEngine.unsubscribeMarketDepth(ticker, listener);
+        ibSocket.getRequestScheduler().runPending();
+
+        verify(mockClientSocket, never()).reqMktDepth(anyInt(), any(Contract.class), anyInt(), anyBoolean(), anyListOf(TagValue.class));
+        verify(mockClientSocket, never()).cancelMktDepth(anyInt(), anyBoolean());
+        assertEquals(0, ibSocket.getSubscriptionJournal().size());
+    }
+
+    @Test
+    public void testTickCallbacksAreQueued() throws Exception {
+        Ticker ticker = new StockTicker("ABC");
+        ibQuoteEngine.idToTickerMap.put(1, ticker);
+
+        ibQuoteEngine.tickPrice(1, 2, 1.23, new TickAttrib());
+        ibQuoteEngine.tickSize(1, 3, Decimal.get(200));
+        ibQuoteEngine.tickSize(2, 3, Decimal.get(200));
+
+        assertEquals(new Level1QuoteData(ticker, 2, 1.23, 0, 0), ibQuoteEngine.level1QuoteQueue.take());
+        assertEquals(new Level1QuoteData(ticker, 3, 0, 0, 200), ibQuoteEngine.level1QuoteQueue.take());
+        assertTrue(ibQuoteEngine.level1QuoteQueue.isEmpty());
+    }
+
+    @Test
+    public void testErrorIsQueued() throws Exception {
+        ibQuoteEngine.error(100001, 0L, 200, "No security definition", "");
+
+        assertEquals(new QuoteError(100001, 200, "No security definition"), ibQuoteEngine.quoteErrorQueue.take());
+    }
     
     @Test
     @Ignore
@@ -345,25 +465,23 @@ public class IBQuoteEngineTest {
     @Test
     public void testSubscribeLevel1_ClosePriceExists() {
         Level1QuoteListener listener = Mockito.mock(Level1QuoteListener.class);
-        ILevel1Quote quote = Mockito.mock(ILevel1Quote.class);
         Ticker ticker = new StockTicker("abc");
-        ibQuoteEngine.closeQuoteMap.put(ticker, quote);
+        ibQuoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.CLOSE));
         ibQuoteEngine.tickerMap.put(ticker, 1);
         
         ibQuoteEngine.subscribeLevel1(ticker, listener);
-        verify(listener).quoteRecieved(quote);
+        verify(listener, timeout(1000)).quoteRecieved(ibQuoteEngine.getSnapshot(ticker));
     }
     
     @Test
     public void testSubscribeLevel1_OpenPriceExists() {
         Level1QuoteListener listener = Mockito.mock(Level1QuoteListener.class);
-        ILevel1Quote quote = Mockito.mock(ILevel1Quote.class);
         Ticker ticker = new StockTicker("abc");
-        ibQuoteEngine.openQuoteMap.put(ticker, quote);
+        ibQuoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.OPEN));
         ibQuoteEngine.tickerMap.put(ticker, 1);
         
         ibQuoteEngine.subscribeLevel1(ticker, listener);
-        verify(listener).quoteRecieved(quote);
+        verify(listener, timeout(1000)).quoteRecieved(ibQuoteEngine.getSnapshot(ticker));
     }    
 
     @Test
@@ -557,30 +675,26 @@ public class IBQuoteEngineTest {
 
     @Test
     public void testFireLevel1Quote_Close() {
-        ILevel1Quote quote = Mockito.mock(ILevel1Quote.class);
         Ticker ticker = new StockTicker("abc");
 
-        when(quote.containsType(QuoteType.CLOSE)).thenReturn(true);
-        when(quote.getTicker()).thenReturn(ticker);
-
-        ibQuoteEngine.fireLevel1Quote(quote);
-        assertEquals(1, ibQuoteEngine.closeQuoteMap.size());
-        assertEquals(quote, ibQuoteEngine.closeQuoteMap.get(ticker));
-        assertTrue(ibQuoteEngine.openQuoteMap.isEmpty());
+        ibQuoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.CLOSE));
+        assertTrue(ibQuoteEngine.getSnapshot(ticker).containsType(QuoteType.CLOSE));
+        assertFalse(ibQuoteEngine.getSnapshot(ticker).containsType(QuoteType.OPEN));
     }
 
     @Test
     public void testFireLevel1Quote_Open() {
-        ILevel1Quote quote = Mockito.mock(ILevel1Quote.class);
         Ticker ticker = new StockTicker("abc");
 
-        when(quote.containsType(QuoteType.OPEN)).thenReturn(true);
-        when(quote.getTicker()).thenReturn(ticker);
-
-        ibQuoteEngine.fireLevel1Quote(quote);
-        assertEquals(1, ibQuoteEngine.openQuoteMap.size());
-        assertEquals(quote, ibQuoteEngine.openQuoteMap.get(ticker));
-        assertTrue(ibQuoteEngine.closeQuoteMap.isEmpty());
+        ibQuoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.OPEN));
+        assertTrue(ibQuoteEngine.getSnapshot(ticker).containsType(QuoteType.OPEN));
+        assertFalse(ibQuoteEngine.getSnapshot(ticker).containsType(QuoteType.CLOSE));
+    }
+    
+    protected ILevel1Quote buildQuote(Ticker ticker, QuoteType type) {
+        PrimitiveLevel1Quote quote = new PrimitiveLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(type, 10000, 2);
+        return quote;
     }
 
 }
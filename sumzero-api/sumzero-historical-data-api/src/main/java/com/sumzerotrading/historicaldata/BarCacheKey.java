@@ -0,0 +1,113 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.historicaldata.IHistoricalDataProvider.ShowProperty;
+import java.util.Objects;
+
+/**
+ * Identifies one cached bar series: a ticker at a bar size, showing one
+ * price type, with or without data outside regular trading hours.
+ */
+public class BarCacheKey {
+
+    protected final Ticker ticker;
+    protected final int barSize;
+    protected final BarData.LengthUnit barSizeUnit;
+    protected final ShowProperty whatToShow;
+    protected final boolean useRTH;
+
+    public BarCacheKey(Ticker ticker, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+        this.ticker = ticker;
+        this.barSize = barSize;
+        this.barSizeUnit = barSizeUnit;
+        this.whatToShow = whatToShow;
+        this.useRTH = useRTH;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    public int getBarSize() {
+        return barSize;
+    }
+
+    public BarData.LengthUnit getBarSizeUnit() {
+        return barSizeUnit;
+    }
+
+    public ShowProperty getWhatToShow() {
+        return whatToShow;
+    }
+
+    public boolean isUseRTH() {
+        return useRTH;
+    }
+
+    /**
+     * Builds a file name that is stable across runs.  Ticker.toString() prints
+     * its DecimalFormat with an identity hash code, so that part is removed
+     * before the description is hashed.
+     *
+     * @return The name of the file this series is stored in
+     */
+    public String getFileName() {
+        String description = ticker.getClass().getName() + ":" + ticker.toString().replaceAll("decimalFormat=[^,}]*", "");
+        String name = ticker.getInstrumentType() + "_" + ticker.getSymbol() + "_" + barSize + barSizeUnit + "_" + whatToShow + (useRTH ? "_RTH" : "_ALL")
+                + "_" + Integer.toHexString(description.hashCode());
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + ".bars";
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 31 * hash + Objects.hashCode(this.ticker);
+        hash = 31 * hash + this.barSize;
+        hash = 31 * hash + Objects.hashCode(this.barSizeUnit);
+        hash = 31 * hash + Objects.hashCode(this.whatToShow);
+        hash = 31 * hash + (this.useRTH ? 1 : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final BarCacheKey other = (BarCacheKey) obj;
+        return barSize == other.barSize
+                && useRTH == other.useRTH
+                && barSizeUnit == other.barSizeUnit
+                && whatToShow == other.whatToShow
+                && Objects.equals(ticker, other.ticker);
+    }
+
+    @Override
+    public String toString() {
+        return "BarCacheKey{" + "ticker=" + ticker + ", barSize=" + barSize + ", barSizeUnit=" + barSizeUnit + ", whatToShow=" + whatToShow + ", useRTH=" + useRTH + '}';
+    }
+
+}
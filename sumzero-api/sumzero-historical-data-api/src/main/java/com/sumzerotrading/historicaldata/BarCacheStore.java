@@ -0,0 +1,176 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Map;
+import org.apache.log4j.Logger;
+
+/**
+ * Stores cached bar series on local disk, one binary file per series.  Prices
+ * are written as unscaled value and scale so they come back exactly as they
+ * went in.  Files are written to a temporary file and moved into place, so a
+ * crash part way through a save leaves the previous file intact.
+ */
+public class BarCacheStore {
+
+    protected static final int MAGIC = 0x535a4243;
+    protected static final int VERSION = 1;
+
+    protected Logger logger = Logger.getLogger(BarCacheStore.class);
+    protected final File directory;
+
+    public BarCacheStore(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param key The series to load
+     * @return The stored series, or null if none is stored or the file can't
+     * be read
+     */
+    public CachedBarSeries load(BarCacheKey key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unrecognised bar cache file format");
+            }
+            CachedBarSeries series = new CachedBarSeries();
+            int rangeCount = in.readInt();
+            for (int i = 0; i < rangeCount; i++) {
+                series.addCoveredRange(readTime(in), readTime(in));
+            }
+            int barCount = in.readInt();
+            for (int i = 0; i < barCount; i++) {
+                LocalDateTime dateTime = readTime(in);
+                BarData bar = new BarData(key.getTicker(), dateTime, readDecimal(in), readDecimal(in), readDecimal(in), readDecimal(in), readDecimal(in), key.getBarSize(), key.getBarSizeUnit());
+                bar.setOpenInterest(in.readLong());
+                series.addBar(bar);
+            }
+            return series;
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Discarding unreadable bar cache file " + file, ex);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * @param key The series being saved
+     * @param series The bars and covered ranges to save
+     * @throws IOException If the file can't be written
+     */
+    public void save(BarCacheKey key, CachedBarSeries series) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Path target = fileFor(key).toPath();
+        Path temp = Files.createTempFile(directory.toPath(), target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(series.getCoveredRanges().size());
+                for (Map.Entry<LocalDateTime, LocalDateTime> range : series.getCoveredRanges().entrySet()) {
+                    writeTime(out, range.getKey());
+                    writeTime(out, range.getValue());
+                }
+                Collection<BarData> bars = series.getAllBars();
+                out.writeInt(bars.size());
+                for (BarData bar : bars) {
+                    writeTime(out, bar.getDateTime());
+                    writeDecimal(out, bar.getOpen());
+                    writeDecimal(out, bar.getHigh());
+                    writeDecimal(out, bar.getLow());
+                    writeDecimal(out, bar.getClose());
+                    writeDecimal(out, bar.getVolume());
+                    out.writeLong(bar.getOpenInterest());
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Removes the stored file for a series.
+     *
+     * @param key The series to remove
+     */
+    public void delete(BarCacheKey key) {
+        fileFor(key).delete();
+    }
+
+    protected File fileFor(BarCacheKey key) {
+        return new File(directory, key.getFileName());
+    }
+
+    protected static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    protected static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    protected static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    protected static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+}
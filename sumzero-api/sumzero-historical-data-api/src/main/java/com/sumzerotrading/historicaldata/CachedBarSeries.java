@@ -0,0 +1,148 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The bars held for one series, together with the time ranges that are known
+ * to be complete.  Ranges are half open, [start, end), and are kept sorted
+ * and merged so finding the gaps in a request is a single walk.  Callers
+ * synchronize on the series while they use it.
+ */
+public class CachedBarSeries {
+
+    protected final NavigableMap<LocalDateTime, BarData> bars = new TreeMap<>();
+    protected final NavigableMap<LocalDateTime, LocalDateTime> coveredRanges = new TreeMap<>();
+
+    /**
+     * @param start The start of the range, inclusive
+     * @param end The end of the range, exclusive
+     * @return The parts of the range that are not covered, in time order
+     */
+    public List<LocalDateTime[]> getMissingRanges(LocalDateTime start, LocalDateTime end) {
+        List<LocalDateTime[]> missing = new ArrayList<>();
+        LocalDateTime cursor = start;
+        Map.Entry<LocalDateTime, LocalDateTime> previous = coveredRanges.floorEntry(start);
+        if (previous != null && previous.getValue().isAfter(cursor)) {
+            cursor = previous.getValue();
+        }
+        for (Map.Entry<LocalDateTime, LocalDateTime> range : coveredRanges.subMap(start, false, end, false).entrySet()) {
+            if (range.getKey().isAfter(cursor)) {
+                missing.add(new LocalDateTime[]{cursor, range.getKey()});
+            }
+            if (range.getValue().isAfter(cursor)) {
+                cursor = range.getValue();
+            }
+        }
+        if (cursor.isBefore(end)) {
+            missing.add(new LocalDateTime[]{cursor, end});
+        }
+        return missing;
+    }
+
+    /**
+     * Adds bars and marks a range as covered.  Bars replace any bar already
+     * held with the same time, so a bar that was still forming when it was
+     * first fetched is overwritten by the completed one.
+     *
+     * @param newBars The bars to add; they may fall outside the range
+     * @param start The start of the covered range, inclusive
+     * @param end The end of the covered range, exclusive
+     */
+    public void addBars(Collection<BarData> newBars, LocalDateTime start, LocalDateTime end) {
+        for (BarData bar : newBars) {
+            bars.put(bar.getDateTime(), bar);
+        }
+        addCoveredRange(start, end);
+    }
+
+    public void addBar(BarData bar) {
+        bars.put(bar.getDateTime(), bar);
+    }
+
+    public void addCoveredRange(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        Map.Entry<LocalDateTime, LocalDateTime> previous = coveredRanges.floorEntry(start);
+        if (previous != null && !previous.getValue().isBefore(start)) {
+            start = previous.getKey();
+            if (previous.getValue().isAfter(end)) {
+                end = previous.getValue();
+            }
+        }
+        for (Map.Entry<LocalDateTime, LocalDateTime> next = coveredRanges.ceilingEntry(start);
+                next != null && !next.getKey().isAfter(end);
+                next = coveredRanges.ceilingEntry(start)) {
+            if (next.getValue().isAfter(end)) {
+                end = next.getValue();
+            }
+            coveredRanges.remove(next.getKey());
+        }
+        coveredRanges.put(start, end);
+    }
+
+    /**
+     * @param start The start of the range, inclusive
+     * @param end The end of the range, exclusive
+     * @return The bars in the range, in time order
+     */
+    public List<BarData> getBars(LocalDateTime start, LocalDateTime end) {
+        return new ArrayList<>(bars.subMap(start, true, end, false).values());
+    }
+
+    /**
+     * Drops every bar, and every part of a covered range, before the cutoff.
+     *
+     * @param cutoff The earliest time to keep
+     */
+    public void trimBefore(LocalDateTime cutoff) {
+        bars.headMap(cutoff, false).clear();
+        Map.Entry<LocalDateTime, LocalDateTime> straddling = coveredRanges.lowerEntry(cutoff);
+        coveredRanges.headMap(cutoff, false).clear();
+        if (straddling != null && straddling.getValue().isAfter(cutoff)) {
+            coveredRanges.put(cutoff, straddling.getValue());
+        }
+    }
+
+    public Collection<BarData> getAllBars() {
+        return bars.values();
+    }
+
+    /**
+     * @return The covered ranges, keyed by start time with the end time as the value
+     */
+    public NavigableMap<LocalDateTime, LocalDateTime> getCoveredRanges() {
+        return coveredRanges;
+    }
+
+    public int size() {
+        return bars.size();
+    }
+
+}
@@ -0,0 +1,299 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.SumZeroException;
+import com.sumzerotrading.data.Ticker;
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.log4j.Logger;
+
+/**
+ * A historical data provider that keeps the bars it has fetched on local disk
+ * and in memory, and only asks the underlying provider for the parts of a
+ * request it doesn't already hold.
+ * <p>
+ * Each series (ticker, bar size, ShowProperty and RTH flag) remembers which
+ * time ranges are complete.  A request is split into the ranges that are
+ * missing, each of those is fetched and merged in, and the result is served
+ * from the merged series.  The bar that is still forming is never marked
+ * complete, so requests that end now always refresh it.  The most recently
+ * used series are kept in memory, so repeat requests are answered without
+ * touching the disk or the network.
+ * <p>
+ * Requests for the maximum lookback (Integer.MAX_VALUE) and for tick or
+ * second bars go straight to the underlying provider.
+ */
+public class CachingHistoricalDataProvider implements IHistoricalDataProvider {
+
+    public static final int DEFAULT_MEMORY_CAPACITY = 64;
+    protected static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    protected Logger logger = Logger.getLogger(CachingHistoricalDataProvider.class);
+    protected final IHistoricalDataProvider delegate;
+    protected final BarCacheStore store;
+    protected final Map<BarCacheKey, CachedBarSeries> memoryCache;
+    protected volatile int memoryCapacity = DEFAULT_MEMORY_CAPACITY;
+    protected volatile Duration retention;
+    protected Clock clock = Clock.systemDefaultZone();
+
+    /**
+     * @param delegate The provider to fetch missing bars from
+     * @param cacheDirectory The directory to store bars in
+     */
+    public CachingHistoricalDataProvider(IHistoricalDataProvider delegate, File cacheDirectory) {
+        this(delegate, new BarCacheStore(cacheDirectory));
+    }
+
+    public CachingHistoricalDataProvider(IHistoricalDataProvider delegate, BarCacheStore store) {
+        this.delegate = delegate;
+        this.store = store;
+        this.memoryCache = new LinkedHashMap<BarCacheKey, CachedBarSeries>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BarCacheKey, CachedBarSeries> eldest) {
+                //every series is saved as soon as it changes, so evicting it loses nothing
+                return size() > memoryCapacity;
+            }
+        };
+    }
+
+    @Override
+    public void init(Properties props) {
+        delegate.init(props);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void connect() {
+        delegate.connect();
+    }
+
+    /**
+     * @param memoryCapacity The number of series to keep in memory
+     */
+    public void setMemoryCapacity(int memoryCapacity) {
+        this.memoryCapacity = memoryCapacity;
+    }
+
+    public int getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * @param retention How far back bars are kept, or null to keep them forever.
+     * Requests reaching further back than this are fetched from the underlying
+     * provider every time.
+     */
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return The number of series currently held in memory
+     */
+    public int getMemoryCacheSize() {
+        synchronized (memoryCache) {
+            return memoryCache.size();
+        }
+    }
+
+    @Override
+    public List<BarData> requestHistoricalData(Ticker ticker, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+        try {
+            return requestBars(ticker, null, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+        } catch (IOException ex) {
+            throw new SumZeroException(ex);
+        }
+    }
+
+    @Override
+    public List<BarData> requestHistoricalData(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) throws IOException {
+        return requestBars(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+    }
+
+    protected List<BarData> requestBars(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) throws IOException {
+        ChronoUnit durationUnit = toChronoUnit(durationLengthUnit);
+        ChronoUnit barUnit = toChronoUnit(barSizeUnit);
+        if (duration == Integer.MAX_VALUE || durationUnit == null || barUnit == null || barUnit == ChronoUnit.SECONDS) {
+            if (endDateTime == null) {
+                return delegate.requestHistoricalData(ticker, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+            }
+            return delegate.requestHistoricalData(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+        }
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime end = endDateTime == null ? now : LocalDateTime.ofInstant(endDateTime.toInstant(), clock.getZone());
+        LocalDateTime start = barStart(end.minus(duration, durationUnit), barSize, barUnit);
+        LocalDateTime completeUntil = barStart(now.minus(barSize, barUnit), barSize, barUnit);
+
+        BarCacheKey key = new BarCacheKey(ticker, barSize, barSizeUnit, whatToShow, useRTH);
+        CachedBarSeries series = getSeries(key);
+        synchronized (series) {
+            List<LocalDateTime[]> missing = series.getMissingRanges(start, end);
+            for (LocalDateTime[] gap : missing) {
+                ChronoUnit gapUnit = gapUnit(gap[0], gap[1], barUnit);
+                List<BarData> bars = delegate.requestHistoricalData(ticker, toDate(gap[1]), lengthOf(gap[0], gap[1], gapUnit), toLengthUnit(gapUnit), barSize, barSizeUnit, whatToShow, useRTH);
+                LocalDateTime coveredEnd = gap[1].isAfter(completeUntil) ? completeUntil : gap[1];
+                series.addBars(bars, gap[0], coveredEnd);
+            }
+            //copied before retention is applied, the request may reach back further than the cache keeps
+            List<BarData> result = copyOf(series.getBars(start, end), key);
+            if (!missing.isEmpty()) {
+                applyRetention(series, key, now);
+                try {
+                    store.save(key, series);
+                } catch (IOException ex) {
+                    logger.error("Unable to save bar cache for " + key, ex);
+                }
+            }
+            return result;
+        }
+    }
+
+    protected CachedBarSeries getSeries(BarCacheKey key) {
+        synchronized (memoryCache) {
+            CachedBarSeries series = memoryCache.get(key);
+            if (series == null) {
+                series = store.load(key);
+                if (series == null) {
+                    series = new CachedBarSeries();
+                } else {
+                    applyRetention(series, key, LocalDateTime.now(clock));
+                }
+                memoryCache.put(key, series);
+            }
+            return series;
+        }
+    }
+
+    protected void applyRetention(CachedBarSeries series, BarCacheKey key, LocalDateTime now) {
+        Duration keep = retention;
+        if (keep != null) {
+            series.trimBefore(barStart(now.minus(keep), key.getBarSize(), toChronoUnit(key.getBarSizeUnit())));
+        }
+    }
+
+    /**
+     * Cached bars are shared between requests, so callers get their own
+     * copies to modify.
+     */
+    protected List<BarData> copyOf(List<BarData> bars, BarCacheKey key) {
+        List<BarData> copies = new ArrayList<>(bars.size());
+        for (BarData bar : bars) {
+            BarData copy = new BarData(bar.getTicker() == null ? key.getTicker() : bar.getTicker(), bar.getDateTime(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume(), key.getBarSize(), key.getBarSizeUnit());
+            copy.setOpenInterest(bar.getOpenInterest());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    protected Date toDate(LocalDateTime time) {
+        return Date.from(time.atZone(clock.getZone()).toInstant());
+    }
+
+    /**
+     * Gaps are sized in days or seconds, the smallest durations providers
+     * accept, rather than in the unit of the request.  Otherwise the forming
+     * bar at the end of a one year request would be refetched as a whole year
+     * every time.  Intraday gaps longer than a day are sized in days, since
+     * providers limit how many seconds a single request can cover.
+     *
+     * @return The unit to size the gap in
+     */
+    protected static ChronoUnit gapUnit(LocalDateTime start, LocalDateTime end, ChronoUnit barUnit) {
+        if (barUnit.compareTo(ChronoUnit.DAYS) >= 0 || ChronoUnit.SECONDS.between(start, end) > SECONDS_PER_DAY) {
+            return ChronoUnit.DAYS;
+        }
+        return ChronoUnit.SECONDS;
+    }
+
+    /**
+     * @return The length of the range in whole units, rounded up
+     */
+    protected static int lengthOf(LocalDateTime start, LocalDateTime end, ChronoUnit unit) {
+        long length = unit.between(start, end);
+        if (start.plus(length, unit).isBefore(end)) {
+            length++;
+        }
+        return (int) Math.max(1, length);
+    }
+
+    /**
+     * @return The start of the bar containing the time, e.g. 09:30 for a
+     * 5 minute bar at 09:33
+     */
+    protected static LocalDateTime barStart(LocalDateTime time, int barSize, ChronoUnit barUnit) {
+        if (barUnit.compareTo(ChronoUnit.DAYS) >= 0) {
+            return time.truncatedTo(ChronoUnit.DAYS);
+        }
+        LocalDateTime truncated = time.truncatedTo(barUnit);
+        long intoDay = barUnit.between(truncated.truncatedTo(ChronoUnit.DAYS), truncated);
+        return truncated.minus(intoDay % barSize, barUnit);
+    }
+
+    protected static ChronoUnit toChronoUnit(BarData.LengthUnit unit) {
+        switch (unit) {
+            case SECOND:
+                return ChronoUnit.SECONDS;
+            case MINUTE:
+                return ChronoUnit.MINUTES;
+            case HOUR:
+                return ChronoUnit.HOURS;
+            case DAY:
+                return ChronoUnit.DAYS;
+            case WEEK:
+                return ChronoUnit.WEEKS;
+            case MONTH:
+                return ChronoUnit.MONTHS;
+            case YEAR:
+                return ChronoUnit.YEARS;
+            default:
+                return null;
+        }
+    }
+
+    protected static BarData.LengthUnit toLengthUnit(ChronoUnit unit) {
+        return unit == ChronoUnit.SECONDS ? BarData.LengthUnit.SECOND : BarData.LengthUnit.DAY;
+    }
+
+}
@@ -26,6 +26,8 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Defines methods for a historical data provider.
@@ -73,6 +75,35 @@ public interface IHistoricalDataProvider {
         public abstract List<BarData> requestHistoricalData(Ticker ticker, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH);
         
         
+        /**
+         * Requests historical data for the specified ticker without blocking the caller.  Providers that can
+         * have several requests in flight at once should override this; the default runs the blocking
+         * request on the common fork-join pool.
+         * @param ticker The ticker for which to fetch the historical data
+         * @param endDateTime The end time of the historical data query, or null for the current time
+         * @param duration The length of lookback time
+         * @param durationLengthUnit The unit of time for the lookback duration
+         * @param barSize The size of the bars to return
+         * @param barSizeUnit The unit for the bar size
+         * @param whatToShow What to return, bid/ask/mid/last
+         * @param useRTH true if this only return data during "Regular Trading Hours" (Not supported by all data providers)
+         * @return A future completed with the bars, or completed exceptionally if the request fails.  Cancelling
+         * the future cancels the request where the provider supports it.
+         */
+        public default CompletableFuture<List<BarData>> requestHistoricalDataAsync(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    if (endDateTime == null) {
+                        return requestHistoricalData(ticker, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+                    }
+                    return requestHistoricalData(ticker, endDateTime, duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+                } catch (IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+        }
+        
+        
         /**
          * Checks to see if the application is connected to the historical data provider
          * @return true if connected to the provider
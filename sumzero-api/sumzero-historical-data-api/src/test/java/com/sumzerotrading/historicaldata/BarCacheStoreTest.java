@@ -0,0 +1,108 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.historicaldata.IHistoricalDataProvider.ShowProperty;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class BarCacheStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected BarCacheStore store;
+    protected BarCacheKey key = new BarCacheKey(new StockTicker("IBM"), 5, BarData.LengthUnit.MINUTE, ShowProperty.TRADES, true);
+
+    @Before
+    public void setUp() {
+        store = new BarCacheStore(new File(folder.getRoot(), "bars"));
+    }
+
+    @Test
+    public void testLoadMissingSeries() {
+        assertNull(store.load(key));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30);
+        CachedBarSeries series = new CachedBarSeries();
+        BarData first = new BarData(key.getTicker(), time, new BigDecimal("101.25"), new BigDecimal("102.5000"), new BigDecimal("0.00000001"), new BigDecimal("101.75"), new BigDecimal("12345678901234567890"), 5, BarData.LengthUnit.MINUTE);
+        first.setOpenInterest(42);
+        BarData second = new BarData(key.getTicker(), time.plusMinutes(5), new BigDecimal("101.75"), new BigDecimal("103"), new BigDecimal("101"), new BigDecimal("102"), BigDecimal.ZERO, 5, BarData.LengthUnit.MINUTE);
+        series.addBars(Arrays.asList(first, second), time, time.plusMinutes(10));
+        series.addCoveredRange(time.plusHours(1), time.plusHours(2));
+
+        store.save(key, series);
+        CachedBarSeries loaded = store.load(key);
+
+        assertEquals(series.getCoveredRanges(), loaded.getCoveredRanges());
+        List<BarData> bars = new ArrayList<>(loaded.getAllBars());
+        assertEquals(Arrays.asList(first, second), bars);
+        //scale is kept, not just the value
+        assertEquals("102.5000", bars.get(0).getHigh().toPlainString());
+        assertEquals(42, bars.get(0).getOpenInterest());
+    }
+
+    @Test
+    public void testSaveReplacesExistingFile() throws Exception {
+        CachedBarSeries series = new CachedBarSeries();
+        store.save(key, series);
+        series.addCoveredRange(LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 2, 0, 0));
+        store.save(key, series);
+
+        assertEquals(1, store.load(key).getCoveredRanges().size());
+        assertEquals(1, store.getDirectory().list().length);
+    }
+
+    @Test
+    public void testCorruptFileIsDiscarded() throws Exception {
+        store.save(key, new CachedBarSeries());
+        File file = new File(store.getDirectory(), key.getFileName());
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+
+        assertNull(store.load(key));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testFileNamesAreStableAndDistinct() {
+        BarCacheKey same = new BarCacheKey(new StockTicker("IBM"), 5, BarData.LengthUnit.MINUTE, ShowProperty.TRADES, true);
+        BarCacheKey allHours = new BarCacheKey(new StockTicker("IBM"), 5, BarData.LengthUnit.MINUTE, ShowProperty.TRADES, false);
+
+        assertEquals(key, same);
+        assertEquals(key.getFileName(), same.getFileName());
+        assertNotEquals(key.getFileName(), allHours.getFileName());
+        assertTrue(key.getFileName().matches("[A-Za-z0-9._-]+"));
+    }
+}
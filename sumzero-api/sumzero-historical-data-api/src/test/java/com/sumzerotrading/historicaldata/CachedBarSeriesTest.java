@@ -0,0 +1,133 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CachedBarSeriesTest {
+
+    protected CachedBarSeries series = new CachedBarSeries();
+
+    @Test
+    public void testMissingRangesOfEmptySeries() {
+        List<LocalDateTime[]> missing = series.getMissingRanges(time(1), time(5));
+
+        assertEquals(1, missing.size());
+        assertRange(missing.get(0), 1, 5);
+    }
+
+    @Test
+    public void testMissingRangesAroundCoveredRanges() {
+        series.addCoveredRange(time(2), time(3));
+        series.addCoveredRange(time(5), time(7));
+
+        List<LocalDateTime[]> missing = series.getMissingRanges(time(1), time(8));
+
+        assertEquals(3, missing.size());
+        assertRange(missing.get(0), 1, 2);
+        assertRange(missing.get(1), 3, 5);
+        assertRange(missing.get(2), 7, 8);
+    }
+
+    @Test
+    public void testNoMissingRangesInsideCoveredRange() {
+        series.addCoveredRange(time(1), time(10));
+
+        assertTrue(series.getMissingRanges(time(2), time(9)).isEmpty());
+        assertTrue(series.getMissingRanges(time(1), time(10)).isEmpty());
+    }
+
+    @Test
+    public void testRangeStartingInsideCoveredRange() {
+        series.addCoveredRange(time(1), time(4));
+
+        List<LocalDateTime[]> missing = series.getMissingRanges(time(3), time(6));
+
+        assertEquals(1, missing.size());
+        assertRange(missing.get(0), 4, 6);
+    }
+
+    @Test
+    public void testCoveredRangesMerge() {
+        series.addCoveredRange(time(1), time(3));
+        series.addCoveredRange(time(5), time(7));
+        series.addCoveredRange(time(9), time(10));
+        series.addCoveredRange(time(3), time(6));
+
+        assertEquals(2, series.getCoveredRanges().size());
+        assertEquals(time(7), series.getCoveredRanges().get(time(1)));
+        assertEquals(time(10), series.getCoveredRanges().get(time(9)));
+
+        series.addCoveredRange(time(0), time(12));
+        assertEquals(1, series.getCoveredRanges().size());
+        assertEquals(time(12), series.getCoveredRanges().get(time(0)));
+    }
+
+    @Test
+    public void testEmptyRangeIsIgnored() {
+        series.addCoveredRange(time(3), time(3));
+
+        assertTrue(series.getCoveredRanges().isEmpty());
+    }
+
+    @Test
+    public void testAddBarsReplacesBarsWithTheSameTime() {
+        series.addBars(Arrays.asList(bar(1, "1"), bar(2, "2")), time(1), time(3));
+        series.addBars(Arrays.asList(bar(2, "5"), bar(3, "3")), time(2), time(4));
+
+        List<BarData> bars = series.getBars(time(1), time(4));
+        assertEquals(3, bars.size());
+        assertEquals(new BigDecimal("5"), bars.get(1).getClose());
+        assertEquals(1, series.getBars(time(1), time(2)).size());
+    }
+
+    @Test
+    public void testTrimBefore() {
+        series.addBars(Arrays.asList(bar(1, "1"), bar(2, "2"), bar(5, "5")), time(1), time(3));
+        series.addCoveredRange(time(5), time(6));
+
+        series.trimBefore(time(2));
+
+        assertEquals(2, series.size());
+        assertEquals(time(3), series.getCoveredRanges().get(time(2)));
+        assertEquals(time(6), series.getCoveredRanges().get(time(5)));
+        assertEquals(2, series.getCoveredRanges().size());
+    }
+
+    protected static void assertRange(LocalDateTime[] range, int startDay, int endDay) {
+        assertEquals(time(startDay), range[0]);
+        assertEquals(time(endDay), range[1]);
+    }
+
+    protected static LocalDateTime time(int day) {
+        return LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(day);
+    }
+
+    protected static BarData bar(int day, String close) {
+        BigDecimal price = new BigDecimal(close);
+        return new BarData(time(day), price, price, price, price, BigDecimal.ONE);
+    }
+}
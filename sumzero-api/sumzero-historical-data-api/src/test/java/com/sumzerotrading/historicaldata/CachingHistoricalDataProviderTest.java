@@ -0,0 +1,236 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.historicaldata;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.historicaldata.IHistoricalDataProvider.ShowProperty;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class CachingHistoricalDataProviderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected Clock clock = Clock.fixed(Instant.parse("2024-03-15T12:00:00Z"), ZoneOffset.UTC);
+    protected FakeProvider delegate;
+    protected CachingHistoricalDataProvider provider;
+    protected Ticker ticker = new StockTicker("IBM");
+
+    @Before
+    public void setUp() {
+        delegate = new FakeProvider();
+        provider = newProvider();
+    }
+
+    @Test
+    public void testRepeatRequestIsServedFromMemory() throws Exception {
+        List<BarData> first = requestDaily("2024-03-10T00:00", 5);
+        List<BarData> second = requestDaily("2024-03-10T00:00", 5);
+
+        assertEquals(1, delegate.requests.size());
+        assertEquals(5, first.size());
+        assertEquals(first, second);
+        assertEquals(LocalDateTime.parse("2024-03-05T00:00"), first.get(0).getDateTime());
+        assertEquals(LocalDateTime.parse("2024-03-09T00:00"), first.get(4).getDateTime());
+    }
+
+    @Test
+    public void testOnlyMissingRangesAreFetched() throws Exception {
+        requestDaily("2024-03-10T00:00", 5);
+        List<BarData> bars = requestDaily("2024-03-12T00:00", 10);
+
+        assertEquals(3, delegate.requests.size());
+        assertEquals("2024-03-05T00:00:3", delegate.requests.get(1));
+        assertEquals("2024-03-12T00:00:2", delegate.requests.get(2));
+        assertEquals(10, bars.size());
+        for (int i = 0; i < bars.size(); i++) {
+            assertEquals(LocalDateTime.parse("2024-03-02T00:00").plusDays(i), bars.get(i).getDateTime());
+        }
+    }
+
+    @Test
+    public void testFormingBarIsRefreshed() throws Exception {
+        provider.requestHistoricalData(ticker, 10, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, false);
+        provider.requestHistoricalData(ticker, 10, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, false);
+
+        assertEquals(2, delegate.requests.size());
+        //only the incomplete bars since the 14th are fetched again
+        assertEquals("2024-03-15T12:00:2", delegate.requests.get(1));
+    }
+
+    @Test
+    public void testFormingBarOfYearRequestIsRefetchedInDays() throws Exception {
+        List<BarData> first = provider.requestHistoricalData(ticker, 1, BarData.LengthUnit.YEAR, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, false);
+        List<BarData> second = provider.requestHistoricalData(ticker, 1, BarData.LengthUnit.YEAR, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, false);
+
+        assertEquals(2, delegate.requests.size());
+        assertEquals("2024-03-15T12:00:367", delegate.requests.get(0));
+        //only the forming bars are fetched again, not another year
+        assertEquals("2024-03-15T12:00:2", delegate.requests.get(1));
+        assertEquals(BarData.LengthUnit.DAY, delegate.units.get(1));
+        assertEquals(first, second);
+        assertEquals(LocalDateTime.parse("2023-03-15T00:00"), second.get(0).getDateTime());
+    }
+
+    @Test
+    public void testShortIntradayGapIsFetchedInSeconds() throws Exception {
+        provider.requestHistoricalData(ticker, date("2024-03-10T00:00"), 1, BarData.LengthUnit.MONTH, 1, BarData.LengthUnit.HOUR, ShowProperty.TRADES, false);
+        provider.requestHistoricalData(ticker, date("2024-03-10T02:00"), 1, BarData.LengthUnit.MONTH, 1, BarData.LengthUnit.HOUR, ShowProperty.TRADES, false);
+
+        assertEquals(2, delegate.requests.size());
+        assertEquals(BarData.LengthUnit.DAY, delegate.units.get(0));
+        assertEquals("2024-03-10T02:00:7200", delegate.requests.get(1));
+        assertEquals(BarData.LengthUnit.SECOND, delegate.units.get(1));
+    }
+
+    @Test
+    public void testBarsAreServedFromDisk() throws Exception {
+        List<BarData> first = requestDaily("2024-03-10T00:00", 5);
+
+        provider = newProvider();
+        List<BarData> second = requestDaily("2024-03-10T00:00", 5);
+
+        assertEquals(1, delegate.requests.size());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSeriesIsEvicted() throws Exception {
+        provider.setMemoryCapacity(1);
+        requestDaily("2024-03-10T00:00", 5);
+        provider.requestHistoricalData(new StockTicker("MSFT"), date("2024-03-10T00:00"), 5, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, false);
+        assertEquals(1, provider.getMemoryCacheSize());
+
+        requestDaily("2024-03-10T00:00", 5);
+        assertEquals(2, delegate.requests.size());
+    }
+
+    @Test
+    public void testSeriesAreKeyedByShowPropertyAndRth() throws Exception {
+        requestDaily("2024-03-10T00:00", 5);
+        provider.requestHistoricalData(ticker, date("2024-03-10T00:00"), 5, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.DAY, ShowProperty.BID, false);
+        provider.requestHistoricalData(ticker, date("2024-03-10T00:00"), 5, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, true);
+
+        assertEquals(3, delegate.requests.size());
+    }
+
+    @Test
+    public void testRetentionDropsOldBars() throws Exception {
+        provider.setRetention(Duration.ofDays(7));
+        //the request reaches back past the retention window but still gets every bar
+        assertEquals(5, requestDaily("2024-03-10T00:00", 5).size());
+        assertEquals(5, requestDaily("2024-03-10T00:00", 5).size());
+
+        //everything before the 8th was dropped, so that part is fetched again
+        assertEquals(2, delegate.requests.size());
+        assertEquals("2024-03-08T00:00:3", delegate.requests.get(1));
+    }
+
+    @Test
+    public void testMaximumLookbackBypassesCache() throws Exception {
+        requestDaily("2024-03-10T00:00", Integer.MAX_VALUE);
+        requestDaily("2024-03-10T00:00", Integer.MAX_VALUE);
+
+        assertEquals(2, delegate.requests.size());
+    }
+
+    @Test
+    public void testCallersGetTheirOwnCopies() throws Exception {
+        requestDaily("2024-03-10T00:00", 5).get(0).setClose(new BigDecimal("999"));
+
+        assertEquals(new BigDecimal("5"), requestDaily("2024-03-10T00:00", 5).get(0).getClose());
+    }
+
+    protected CachingHistoricalDataProvider newProvider() {
+        CachingHistoricalDataProvider newProvider = new CachingHistoricalDataProvider(delegate, folder.getRoot());
+        newProvider.setClock(clock);
+        return newProvider;
+    }
+
+    protected List<BarData> requestDaily(String end, int days) throws Exception {
+        return provider.requestHistoricalData(ticker, date(end), days, BarData.LengthUnit.DAY, 1, BarData.LengthUnit.DAY, ShowProperty.TRADES, false);
+    }
+
+    protected static Date date(String time) {
+        return Date.from(LocalDateTime.parse(time).toInstant(ZoneOffset.UTC));
+    }
+
+    /**
+     * Returns one daily bar for each day in the requested range, closing at
+     * the day of the month.  Durations are in days unless the unit is
+     * SECOND.
+     */
+    protected static class FakeProvider implements IHistoricalDataProvider {
+
+        protected List<String> requests = new ArrayList<>();
+        protected List<BarData.LengthUnit> units = new ArrayList<>();
+
+        @Override
+        public List<BarData> requestHistoricalData(Ticker ticker, Date endDateTime, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+            LocalDateTime end = LocalDateTime.ofInstant(endDateTime.toInstant(), ZoneOffset.UTC);
+            requests.add(end + ":" + duration);
+            units.add(durationLengthUnit);
+            List<BarData> bars = new ArrayList<>();
+            if (duration == Integer.MAX_VALUE) {
+                return bars;
+            }
+            LocalDateTime start = durationLengthUnit == BarData.LengthUnit.SECOND ? end.minusSeconds(duration) : end.minusDays(duration);
+            for (LocalDateTime day = start.toLocalDate().atStartOfDay(); day.isBefore(end); day = day.plusDays(1)) {
+                BigDecimal price = new BigDecimal(day.getDayOfMonth());
+                bars.add(new BarData(day, price, price, price, price, BigDecimal.TEN));
+            }
+            return bars;
+        }
+
+        @Override
+        public List<BarData> requestHistoricalData(Ticker ticker, int duration, BarData.LengthUnit durationLengthUnit, int barSize, BarData.LengthUnit barSizeUnit, ShowProperty whatToShow, boolean useRTH) {
+            return requestHistoricalData(ticker, date("2024-03-15T12:00"), duration, durationLengthUnit, barSize, barSizeUnit, whatToShow, useRTH);
+        }
+
+        @Override
+        public void init(Properties props) {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void connect() {
+        }
+    }
+}
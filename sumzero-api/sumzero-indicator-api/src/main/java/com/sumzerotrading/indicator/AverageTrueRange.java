@@ -0,0 +1,82 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * Average true range with Wilder's smoothing.  The first value is the simple
+ * average of the first period true ranges.  A trade counts as a bar whose
+ * high, low and close are all the trade price.
+ */
+public class AverageTrueRange implements IIndicator {
+
+    protected final int period;
+    protected double previousClose = Double.NaN;
+    protected double value = Double.NaN;
+    protected double seedSum = 0;
+    protected int count = 0;
+
+    public AverageTrueRange(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least 1: " + period);
+        }
+        this.period = period;
+    }
+
+    @Override
+    public void onBar(double open, double high, double low, double close, double volume) {
+        double trueRange = high - low;
+        if (!Double.isNaN(previousClose)) {
+            trueRange = Math.max(trueRange, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+        }
+        previousClose = close;
+        if (count < period) {
+            seedSum += trueRange;
+            if (++count == period) {
+                value = seedSum / period;
+            }
+        } else {
+            value = (value * (period - 1) + trueRange) / period;
+        }
+    }
+
+    @Override
+    public void onTick(double price, double size) {
+        onBar(price, price, price, price, size);
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        previousClose = Double.NaN;
+        value = Double.NaN;
+        seedSum = 0;
+        count = 0;
+    }
+
+}
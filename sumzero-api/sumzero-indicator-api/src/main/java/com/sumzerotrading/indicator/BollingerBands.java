@@ -0,0 +1,84 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * Bollinger bands: a simple moving average with bands a multiple of the
+ * rolling standard deviation above and below it.  getValue() returns the
+ * middle band.
+ */
+public class BollingerBands extends AbstractPriceIndicator {
+
+    protected final RollingStandardDeviation deviation;
+    protected final double multiplier;
+
+    public BollingerBands(int period, double multiplier) {
+        this.deviation = new RollingStandardDeviation(period);
+        this.multiplier = multiplier;
+    }
+
+    @Override
+    public void update(double value) {
+        deviation.update(value);
+    }
+
+    @Override
+    public double getValue() {
+        return getMiddle();
+    }
+
+    public double getMiddle() {
+        return deviation.getMean();
+    }
+
+    public double getUpper() {
+        return deviation.getMean() + multiplier * deviation.getValue();
+    }
+
+    public double getLower() {
+        return deviation.getMean() - multiplier * deviation.getValue();
+    }
+
+    /**
+     * @return Where the latest value sits between the bands: 0 at the lower
+     * band, 1 at the upper band
+     */
+    public double getPercentB() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        double width = getUpper() - getLower();
+        if (width == 0) {
+            return 0.5;
+        }
+        return (deviation.window.getLast() + deviation.origin - getLower()) / width;
+    }
+
+    @Override
+    public boolean isReady() {
+        return deviation.isReady();
+    }
+
+    @Override
+    public void reset() {
+        deviation.reset();
+    }
+
+}
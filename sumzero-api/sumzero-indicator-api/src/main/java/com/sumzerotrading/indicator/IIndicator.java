@@ -0,0 +1,57 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * An indicator that is updated one bar or one trade at a time.  Updates run
+ * in constant time on primitive state and allocate nothing.  Indicators are
+ * not thread safe; IndicatorFeed serializes the updates for each ticker.
+ */
+public interface IIndicator {
+
+    /**
+     * Updates the indicator with a completed bar.
+     */
+    public void onBar(double open, double high, double low, double close, double volume);
+
+    /**
+     * Updates the indicator with a trade.
+     *
+     * @param price The trade price
+     * @param size The trade size
+     */
+    public void onTick(double price, double size);
+
+    /**
+     * @return The current value, or Double.NaN until the indicator is ready
+     */
+    public double getValue();
+
+    /**
+     * @return true once enough data has been seen for the value to be meaningful
+     */
+    public boolean isReady();
+
+    /**
+     * Clears all state, e.g. at the start of a new session.
+     */
+    public void reset();
+
+}
@@ -0,0 +1,113 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.marketdata.ILevel1Quote;
+import com.sumzerotrading.marketdata.Level1QuoteListener;
+import com.sumzerotrading.marketdata.QuoteType;
+import com.sumzerotrading.realtime.bar.RealtimeBarListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feeds realtime bars and trades to the indicators registered for each
+ * ticker.  Register the feed as a RealtimeBarListener and/or a
+ * Level1QuoteListener; quotes update the indicators only when they carry a
+ * LAST price, with LAST_SIZE as the size if present.
+ * <p>
+ * Updates for one ticker are serialized on that ticker's indicator group, so
+ * bars and quotes may arrive on different threads, and tickers are updated
+ * independently of each other.  Read indicator values while holding the
+ * group's lock (see getIndicators) or from the thread that delivers updates.
+ */
+public class IndicatorFeed implements RealtimeBarListener, Level1QuoteListener {
+
+    protected final Map<Ticker, IIndicator[]> indicators = new ConcurrentHashMap<>();
+
+    /**
+     * Adds indicators for a ticker.
+     *
+     * @param ticker The ticker whose bars and trades update the indicators
+     * @param newIndicators The indicators to add
+     */
+    public void addIndicators(Ticker ticker, IIndicator... newIndicators) {
+        indicators.compute(ticker, (key, existing) -> {
+            if (existing == null) {
+                return newIndicators.clone();
+            }
+            IIndicator[] combined = new IIndicator[existing.length + newIndicators.length];
+            System.arraycopy(existing, 0, combined, 0, existing.length);
+            System.arraycopy(newIndicators, 0, combined, existing.length, newIndicators.length);
+            return combined;
+        });
+    }
+
+    public void removeIndicators(Ticker ticker) {
+        indicators.remove(ticker);
+    }
+
+    /**
+     * @param ticker The ticker
+     * @return The ticker's indicators, which is also the lock updates are made
+     * under, or null if none are registered
+     */
+    public IIndicator[] getIndicators(Ticker ticker) {
+        return indicators.get(ticker);
+    }
+
+    @Override
+    public void realtimeBarReceived(int requestId, Ticker ticker, BarData bar) {
+        IIndicator[] group = indicators.get(ticker);
+        if (group == null) {
+            return;
+        }
+        double open = bar.getOpen().doubleValue();
+        double high = bar.getHigh().doubleValue();
+        double low = bar.getLow().doubleValue();
+        double close = bar.getClose().doubleValue();
+        double volume = bar.getVolume() == null ? 0 : bar.getVolume().doubleValue();
+        synchronized (group) {
+            for (IIndicator indicator : group) {
+                indicator.onBar(open, high, low, close, volume);
+            }
+        }
+    }
+
+    @Override
+    public void quoteRecieved(ILevel1Quote quote) {
+        if (!quote.containsType(QuoteType.LAST)) {
+            return;
+        }
+        IIndicator[] group = indicators.get(quote.getTicker());
+        if (group == null) {
+            return;
+        }
+        double price = quote.getDouble(QuoteType.LAST);
+        double size = quote.containsType(QuoteType.LAST_SIZE) ? quote.getDouble(QuoteType.LAST_SIZE) : 0;
+        synchronized (group) {
+            for (IIndicator indicator : group) {
+                indicator.onTick(price, size);
+            }
+        }
+    }
+
+}
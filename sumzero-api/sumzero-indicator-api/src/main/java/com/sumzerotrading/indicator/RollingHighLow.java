@@ -0,0 +1,145 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * Highest high and lowest low over the last period bars or trades, kept in
+ * monotonic deques so each update is amortized O(1).  The deques are
+ * primitive ring buffers of sequence numbers and values.  getValue() returns
+ * the high.
+ */
+public class RollingHighLow implements IIndicator {
+
+    protected final int period;
+    protected final MonotonicDeque highs;
+    protected final MonotonicDeque lows;
+    protected long sequence = 0;
+
+    public RollingHighLow(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least 1: " + period);
+        }
+        this.period = period;
+        highs = new MonotonicDeque(period, true);
+        lows = new MonotonicDeque(period, false);
+    }
+
+    @Override
+    public void onBar(double open, double high, double low, double close, double volume) {
+        update(high, low);
+    }
+
+    @Override
+    public void onTick(double price, double size) {
+        update(price, price);
+    }
+
+    public void update(double high, double low) {
+        long oldest = sequence - period + 1;
+        highs.add(sequence, high, oldest);
+        lows.add(sequence, low, oldest);
+        sequence++;
+    }
+
+    @Override
+    public double getValue() {
+        return getHigh();
+    }
+
+    public double getHigh() {
+        return highs.isEmpty() ? Double.NaN : highs.first();
+    }
+
+    public double getLow() {
+        return lows.isEmpty() ? Double.NaN : lows.first();
+    }
+
+    /**
+     * @return true once a full period has been seen
+     */
+    @Override
+    public boolean isReady() {
+        return sequence >= period;
+    }
+
+    @Override
+    public void reset() {
+        highs.clear();
+        lows.clear();
+        sequence = 0;
+    }
+
+    /**
+     * Values in a window ordered so the first is the extreme.  A new value
+     * removes every value behind it that it beats, since those can never be
+     * the extreme again.
+     */
+    protected static class MonotonicDeque {
+
+        protected final long[] sequences;
+        protected final double[] values;
+        protected final boolean max;
+        protected int head = 0;
+        protected int size = 0;
+
+        protected MonotonicDeque(int capacity, boolean max) {
+            sequences = new long[capacity];
+            values = new double[capacity];
+            this.max = max;
+        }
+
+        protected void add(long sequence, double value, long oldestInWindow) {
+            while (size > 0 && sequences[head] < oldestInWindow) {
+                head = head + 1 == values.length ? 0 : head + 1;
+                size--;
+            }
+            while (size > 0) {
+                double last = values[index(size - 1)];
+                if (max ? last > value : last < value) {
+                    break;
+                }
+                size--;
+            }
+            int tail = index(size);
+            sequences[tail] = sequence;
+            values[tail] = value;
+            size++;
+        }
+
+        protected double first() {
+            return values[head];
+        }
+
+        protected boolean isEmpty() {
+            return size == 0;
+        }
+
+        protected void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        protected int index(int offset) {
+            int index = head + offset;
+            return index >= values.length ? index - values.length : index;
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * Population standard deviation, mean and z-score over a fixed number of
+ * values.  Values are kept relative to the first value seen, which keeps the
+ * running sum of squares accurate for prices far from zero, and the sums are
+ * recomputed from the window once per period.
+ */
+public class RollingStandardDeviation extends AbstractPriceIndicator {
+
+    protected final RollingWindow window;
+    protected double origin = Double.NaN;
+    protected double sum = 0;
+    protected double sumOfSquares = 0;
+    protected int updatesSinceResum = 0;
+
+    public RollingStandardDeviation(int period) {
+        if (period < 2) {
+            throw new IllegalArgumentException("Period must be at least 2: " + period);
+        }
+        window = new RollingWindow(period);
+    }
+
+    @Override
+    public void update(double value) {
+        if (Double.isNaN(origin)) {
+            origin = value;
+        }
+        double shifted = value - origin;
+        boolean full = window.isFull();
+        double dropped = window.add(shifted);
+        if (++updatesSinceResum >= window.getCapacity()) {
+            updatesSinceResum = 0;
+            sum = 0;
+            sumOfSquares = 0;
+            for (int i = 0; i < window.size(); i++) {
+                double v = window.get(i);
+                sum += v;
+                sumOfSquares += v * v;
+            }
+        } else {
+            sum += shifted;
+            sumOfSquares += shifted * shifted;
+            if (full) {
+                sum -= dropped;
+                sumOfSquares -= dropped * dropped;
+            }
+        }
+    }
+
+    /**
+     * @return The standard deviation
+     */
+    @Override
+    public double getValue() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        int n = window.size();
+        double mean = sum / n;
+        return Math.sqrt(Math.max(0, sumOfSquares / n - mean * mean));
+    }
+
+    public double getMean() {
+        return isReady() ? origin + sum / window.size() : Double.NaN;
+    }
+
+    /**
+     * @return How many standard deviations the latest value is from the mean,
+     * or 0 if every value in the window is the same
+     */
+    public double getZScore() {
+        double deviation = getValue();
+        if (Double.isNaN(deviation)) {
+            return Double.NaN;
+        }
+        if (deviation == 0) {
+            return 0;
+        }
+        return (origin + window.getLast() - getMean()) / deviation;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    @Override
+    public void reset() {
+        window.clear();
+        origin = Double.NaN;
+        sum = 0;
+        sumOfSquares = 0;
+        updatesSinceResum = 0;
+    }
+
+    public int getPeriod() {
+        return window.getCapacity();
+    }
+
+}
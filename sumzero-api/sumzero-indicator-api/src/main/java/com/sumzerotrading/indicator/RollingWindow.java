@@ -0,0 +1,88 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * A fixed size window over the most recent values of a series, backed by a
+ * primitive ring buffer.
+ */
+public class RollingWindow {
+
+    protected final double[] values;
+    protected int next = 0;
+    protected int size = 0;
+
+    public RollingWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        values = new double[capacity];
+    }
+
+    /**
+     * Adds a value, dropping the oldest if the window is full.
+     *
+     * @param value The value to add
+     * @return The value that was dropped, or 0 if the window wasn't full
+     */
+    public double add(double value) {
+        double dropped = size == values.length ? values[next] : 0;
+        values[next] = value;
+        next = next + 1 == values.length ? 0 : next + 1;
+        if (size < values.length) {
+            size++;
+        }
+        return dropped;
+    }
+
+    /**
+     * @param index 0 for the oldest value in the window
+     * @return The value
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        int physical = next - size + index;
+        return values[physical < 0 ? physical + values.length : physical];
+    }
+
+    public double getLast() {
+        return get(size - 1);
+    }
+
+    public boolean isFull() {
+        return size == values.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return values.length;
+    }
+
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+}
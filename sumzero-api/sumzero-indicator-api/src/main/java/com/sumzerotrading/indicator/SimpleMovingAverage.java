@@ -0,0 +1,73 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * Simple moving average over a fixed number of values, kept as a running sum.
+ * The sum is recomputed from the window once per period so rounding errors
+ * can't accumulate.
+ */
+public class SimpleMovingAverage extends AbstractPriceIndicator {
+
+    protected final RollingWindow window;
+    protected double sum = 0;
+    protected int updatesSinceResum = 0;
+
+    public SimpleMovingAverage(int period) {
+        window = new RollingWindow(period);
+    }
+
+    @Override
+    public void update(double value) {
+        boolean full = window.isFull();
+        double dropped = window.add(value);
+        if (++updatesSinceResum >= window.getCapacity()) {
+            updatesSinceResum = 0;
+            sum = 0;
+            for (int i = 0; i < window.size(); i++) {
+                sum += window.get(i);
+            }
+        } else {
+            sum += value - (full ? dropped : 0);
+        }
+    }
+
+    @Override
+    public double getValue() {
+        return isReady() ? sum / window.size() : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    @Override
+    public void reset() {
+        window.clear();
+        sum = 0;
+        updatesSinceResum = 0;
+    }
+
+    public int getPeriod() {
+        return window.getCapacity();
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+/**
+ * Volume weighted average price since the last reset.  Bars are weighted at
+ * their typical price, (high + low + close) / 3; trades at their price.  Call
+ * reset() at the start of each session.
+ */
+public class VolumeWeightedAveragePrice implements IIndicator {
+
+    protected double priceVolume = 0;
+    protected double volume = 0;
+
+    @Override
+    public void onBar(double open, double high, double low, double close, double volume) {
+        add((high + low + close) / 3, volume);
+    }
+
+    @Override
+    public void onTick(double price, double size) {
+        add(price, size);
+    }
+
+    protected void add(double price, double size) {
+        priceVolume += price * size;
+        volume += size;
+    }
+
+    @Override
+    public double getValue() {
+        return volume > 0 ? priceVolume / volume : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return volume > 0;
+    }
+
+    @Override
+    public void reset() {
+        priceVolume = 0;
+        volume = 0;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+}
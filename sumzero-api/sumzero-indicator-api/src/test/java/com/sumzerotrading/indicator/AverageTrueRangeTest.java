@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AverageTrueRangeTest {
+
+    @Test
+    public void testTrueRangeIncludesGapFromPreviousClose() {
+        AverageTrueRange atr = new AverageTrueRange(2);
+        atr.onBar(10, 11, 9, 10, 0);
+        assertFalse(atr.isReady());
+        //gap up: true range is 14 - 10, not 14 - 13
+        atr.onBar(13, 14, 13, 14, 0);
+
+        assertTrue(atr.isReady());
+        assertEquals(3, atr.getValue(), 1e-12);
+
+        //Wilder: (3 * 1 + 1) / 2
+        atr.onBar(14, 14.5, 13.5, 14, 0);
+        assertEquals(2, atr.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testTicks() {
+        AverageTrueRange atr = new AverageTrueRange(2);
+        atr.onTick(10, 1);
+        atr.onTick(12, 1);
+
+        assertEquals(1, atr.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testReset() {
+        AverageTrueRange atr = new AverageTrueRange(1);
+        atr.onBar(10, 11, 9, 10, 0);
+        atr.reset();
+        atr.onBar(20, 20, 20, 20, 0);
+
+        assertEquals(0, atr.getValue(), 0);
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BollingerBandsTest {
+
+    @Test
+    public void testBands() {
+        BollingerBands bands = new BollingerBands(4, 2);
+        bands.update(2);
+        bands.update(4);
+        bands.update(4);
+        bands.update(6);
+
+        double deviation = Math.sqrt(2);
+        assertEquals(4, bands.getValue(), 1e-12);
+        assertEquals(4 + 2 * deviation, bands.getUpper(), 1e-12);
+        assertEquals(4 - 2 * deviation, bands.getLower(), 1e-12);
+        assertEquals((6 - bands.getLower()) / (4 * deviation), bands.getPercentB(), 1e-12);
+    }
+
+    @Test
+    public void testNotReady() {
+        BollingerBands bands = new BollingerBands(3, 2);
+        bands.update(1);
+
+        assertFalse(bands.isReady());
+        assertTrue(Double.isNaN(bands.getUpper()));
+        assertTrue(Double.isNaN(bands.getPercentB()));
+    }
+}
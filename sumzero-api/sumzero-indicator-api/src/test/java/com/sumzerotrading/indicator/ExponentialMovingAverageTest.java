@@ -0,0 +1,55 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ExponentialMovingAverageTest {
+
+    @Test
+    public void testSeededWithSimpleAverage() {
+        ExponentialMovingAverage ema = new ExponentialMovingAverage(3);
+        ema.update(1);
+        ema.update(2);
+        assertFalse(ema.isReady());
+        ema.update(3);
+
+        assertTrue(ema.isReady());
+        assertEquals(2, ema.getValue(), 1e-12);
+
+        //alpha = 2 / (3 + 1) = 0.5
+        ema.update(6);
+        assertEquals(4, ema.getValue(), 1e-12);
+        ema.onTick(2, 100);
+        assertEquals(3, ema.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testReset() {
+        ExponentialMovingAverage ema = new ExponentialMovingAverage(1);
+        ema.update(5);
+        ema.reset();
+
+        assertTrue(Double.isNaN(ema.getValue()));
+        ema.update(7);
+        assertEquals(7, ema.getValue(), 0);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import com.sumzerotrading.data.BarData;
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.marketdata.Level1Quote;
+import com.sumzerotrading.marketdata.QuoteType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IndicatorFeedTest {
+
+    protected IndicatorFeed feed = new IndicatorFeed();
+    protected Ticker ibm = new StockTicker("IBM");
+    protected Ticker msft = new StockTicker("MSFT");
+
+    @Test
+    public void testBarsUpdateTheTickersIndicators() {
+        SimpleMovingAverage ibmAverage = new SimpleMovingAverage(1);
+        SimpleMovingAverage msftAverage = new SimpleMovingAverage(1);
+        feed.addIndicators(ibm, ibmAverage);
+        feed.addIndicators(msft, msftAverage);
+
+        feed.realtimeBarReceived(1, ibm, new BarData(LocalDateTime.now(), BigDecimal.ONE, new BigDecimal("3"), BigDecimal.ONE, new BigDecimal("2"), BigDecimal.TEN));
+
+        assertEquals(2, ibmAverage.getValue(), 0);
+        assertFalse(msftAverage.isReady());
+    }
+
+    @Test
+    public void testTradesUpdateIndicators() {
+        VolumeWeightedAveragePrice vwap = new VolumeWeightedAveragePrice();
+        feed.addIndicators(ibm, vwap);
+
+        feed.quoteRecieved(quote(ibm, QuoteType.LAST, "10", QuoteType.LAST_SIZE, "100"));
+        feed.quoteRecieved(quote(ibm, QuoteType.LAST, "12", QuoteType.LAST_SIZE, "100"));
+        feed.quoteRecieved(quote(ibm, QuoteType.BID, "1", QuoteType.BID_SIZE, "100"));
+
+        assertEquals(11, vwap.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testAddAndRemoveIndicators() {
+        SimpleMovingAverage average = new SimpleMovingAverage(1);
+        RollingHighLow highLow = new RollingHighLow(1);
+        feed.addIndicators(ibm, average);
+        feed.addIndicators(ibm, highLow);
+
+        assertEquals(2, feed.getIndicators(ibm).length);
+        feed.quoteRecieved(quote(ibm, QuoteType.LAST, "5", QuoteType.LAST_SIZE, "1"));
+        assertEquals(5, average.getValue(), 0);
+        assertEquals(5, highLow.getValue(), 0);
+
+        feed.removeIndicators(ibm);
+        assertNull(feed.getIndicators(ibm));
+        feed.quoteRecieved(quote(ibm, QuoteType.LAST, "6", QuoteType.LAST_SIZE, "1"));
+        assertEquals(5, average.getValue(), 0);
+    }
+
+    protected static Level1Quote quote(Ticker ticker, QuoteType type, String value, QuoteType sizeType, String size) {
+        Map<QuoteType, BigDecimal> values = new EnumMap<>(QuoteType.class);
+        values.put(type, new BigDecimal(value));
+        values.put(sizeType, new BigDecimal(size));
+        return new Level1Quote(ticker, ZonedDateTime.now(), values);
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RelativeStrengthIndexTest {
+
+    @Test
+    public void testWilderSmoothing() {
+        RelativeStrengthIndex rsi = new RelativeStrengthIndex(2);
+        rsi.update(10);
+        rsi.update(12);
+        assertFalse(rsi.isReady());
+        rsi.update(11);
+
+        //average gain 1, average loss 0.5
+        assertEquals(100 - 100 / 3.0, rsi.getValue(), 1e-12);
+
+        //gain 3: average gain (1 + 3) / 2 = 2, average loss 0.5 / 2 = 0.25
+        rsi.update(14);
+        assertEquals(100 - 100 / 9.0, rsi.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testOnlyGains() {
+        RelativeStrengthIndex rsi = new RelativeStrengthIndex(3);
+        for (int i = 0; i < 5; i++) {
+            rsi.update(i);
+        }
+
+        assertEquals(100, rsi.getValue(), 0);
+    }
+
+    @Test
+    public void testFlat() {
+        RelativeStrengthIndex rsi = new RelativeStrengthIndex(2);
+        for (int i = 0; i < 4; i++) {
+            rsi.update(5);
+        }
+
+        assertEquals(50, rsi.getValue(), 0);
+    }
+}
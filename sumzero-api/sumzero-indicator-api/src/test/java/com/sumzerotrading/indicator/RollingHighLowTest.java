@@ -0,0 +1,74 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RollingHighLowTest {
+
+    @Test
+    public void testMatchesBruteForce() {
+        RollingHighLow highLow = new RollingHighLow(7);
+        Random random = new Random(42);
+        double[] highs = new double[5_000];
+        double[] lows = new double[5_000];
+        for (int i = 0; i < highs.length; i++) {
+            lows[i] = 100 + random.nextInt(50);
+            highs[i] = lows[i] + random.nextInt(5);
+            highLow.update(highs[i], lows[i]);
+
+            double expectedHigh = Double.NEGATIVE_INFINITY;
+            double expectedLow = Double.POSITIVE_INFINITY;
+            for (int j = Math.max(0, i - 6); j <= i; j++) {
+                expectedHigh = Math.max(expectedHigh, highs[j]);
+                expectedLow = Math.min(expectedLow, lows[j]);
+            }
+            assertEquals(expectedHigh, highLow.getHigh(), 0);
+            assertEquals(expectedLow, highLow.getLow(), 0);
+            assertEquals(i >= 6, highLow.isReady());
+        }
+    }
+
+    @Test
+    public void testBarsAndTicks() {
+        RollingHighLow highLow = new RollingHighLow(2);
+        highLow.onBar(10, 12, 8, 11, 0);
+        highLow.onTick(13, 1);
+
+        assertEquals(13, highLow.getValue(), 0);
+        assertEquals(8, highLow.getLow(), 0);
+
+        highLow.onTick(9, 1);
+        assertEquals(13, highLow.getHigh(), 0);
+        assertEquals(9, highLow.getLow(), 0);
+    }
+
+    @Test
+    public void testReset() {
+        RollingHighLow highLow = new RollingHighLow(3);
+        highLow.onTick(10, 1);
+        highLow.reset();
+
+        assertTrue(Double.isNaN(highLow.getHigh()));
+        assertFalse(highLow.isReady());
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RollingStandardDeviationTest {
+
+    @Test
+    public void testMatchesDirectCalculation() {
+        RollingStandardDeviation deviation = new RollingStandardDeviation(10);
+        double[] values = new double[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 65000 + Math.cos(i / 3.0) * 40 + (i % 5);
+            deviation.update(values[i]);
+            if (i >= 9) {
+                double mean = 0;
+                for (int j = i - 9; j <= i; j++) {
+                    mean += values[j];
+                }
+                mean /= 10;
+                double variance = 0;
+                for (int j = i - 9; j <= i; j++) {
+                    variance += (values[j] - mean) * (values[j] - mean);
+                }
+                double expected = Math.sqrt(variance / 10);
+                assertEquals(mean, deviation.getMean(), 1e-9);
+                assertEquals(expected, deviation.getValue(), 1e-7);
+                assertEquals((values[i] - mean) / expected, deviation.getZScore(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testConstantSeries() {
+        RollingStandardDeviation deviation = new RollingStandardDeviation(3);
+        for (int i = 0; i < 5; i++) {
+            deviation.update(7);
+        }
+
+        assertEquals(0, deviation.getValue(), 0);
+        assertEquals(0, deviation.getZScore(), 0);
+        assertEquals(7, deviation.getMean(), 0);
+    }
+
+    @Test
+    public void testNotReadyUntilFull() {
+        RollingStandardDeviation deviation = new RollingStandardDeviation(3);
+        deviation.update(1);
+        deviation.update(2);
+
+        assertFalse(deviation.isReady());
+        assertTrue(Double.isNaN(deviation.getValue()));
+        assertTrue(Double.isNaN(deviation.getZScore()));
+    }
+}
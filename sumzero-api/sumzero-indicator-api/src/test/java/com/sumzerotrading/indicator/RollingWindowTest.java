@@ -0,0 +1,58 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RollingWindowTest {
+
+    @Test
+    public void testAddReturnsDroppedValue() {
+        RollingWindow window = new RollingWindow(2);
+
+        assertEquals(0, window.add(1), 0);
+        assertEquals(0, window.add(2), 0);
+        assertTrue(window.isFull());
+        assertEquals(1, window.add(3), 0);
+        assertEquals(2, window.get(0), 0);
+        assertEquals(3, window.getLast(), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutsideWindow() {
+        RollingWindow window = new RollingWindow(3);
+        window.add(1);
+
+        window.get(1);
+    }
+
+    @Test
+    public void testClear() {
+        RollingWindow window = new RollingWindow(2);
+        window.add(1);
+        window.add(2);
+        window.clear();
+
+        assertEquals(0, window.size());
+        window.add(5);
+        assertEquals(5, window.get(0), 0);
+    }
+}
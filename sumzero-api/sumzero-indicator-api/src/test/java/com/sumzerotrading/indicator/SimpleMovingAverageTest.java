@@ -0,0 +1,76 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SimpleMovingAverageTest {
+
+    @Test
+    public void testAverageOfLastPeriodValues() {
+        SimpleMovingAverage sma = new SimpleMovingAverage(3);
+        sma.update(1);
+        sma.update(2);
+        assertFalse(sma.isReady());
+        assertTrue(Double.isNaN(sma.getValue()));
+
+        sma.update(3);
+        assertEquals(2, sma.getValue(), 1e-12);
+        sma.update(10);
+        assertEquals(5, sma.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testStaysAccurateOverLongSeries() {
+        SimpleMovingAverage sma = new SimpleMovingAverage(20);
+        double[] values = new double[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 4500 + Math.sin(i / 10.0) * 25 + (i % 7) * 0.25;
+            sma.update(values[i]);
+        }
+        double expected = 0;
+        for (int i = values.length - 20; i < values.length; i++) {
+            expected += values[i];
+        }
+        assertEquals(expected / 20, sma.getValue(), 1e-9);
+    }
+
+    @Test
+    public void testBarsUseClose() {
+        SimpleMovingAverage sma = new SimpleMovingAverage(1);
+        sma.onBar(1, 5, 0, 3, 100);
+
+        assertEquals(3, sma.getValue(), 0);
+    }
+
+    @Test
+    public void testReset() {
+        SimpleMovingAverage sma = new SimpleMovingAverage(2);
+        sma.update(1);
+        sma.update(2);
+        sma.reset();
+
+        assertFalse(sma.isReady());
+        sma.update(4);
+        sma.update(6);
+        assertEquals(5, sma.getValue(), 0);
+    }
+}
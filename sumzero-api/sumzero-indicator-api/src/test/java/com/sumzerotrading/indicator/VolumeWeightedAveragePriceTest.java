@@ -0,0 +1,55 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.indicator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class VolumeWeightedAveragePriceTest {
+
+    @Test
+    public void testTicksWeightedBySize() {
+        VolumeWeightedAveragePrice vwap = new VolumeWeightedAveragePrice();
+        assertTrue(Double.isNaN(vwap.getValue()));
+
+        vwap.onTick(10, 100);
+        vwap.onTick(11, 300);
+
+        assertEquals(10.75, vwap.getValue(), 1e-12);
+        assertEquals(400, vwap.getVolume(), 0);
+    }
+
+    @Test
+    public void testBarsUseTypicalPrice() {
+        VolumeWeightedAveragePrice vwap = new VolumeWeightedAveragePrice();
+        vwap.onBar(0, 12, 9, 9, 10);
+
+        assertEquals(10, vwap.getValue(), 1e-12);
+    }
+
+    @Test
+    public void testReset() {
+        VolumeWeightedAveragePrice vwap = new VolumeWeightedAveragePrice();
+        vwap.onTick(10, 100);
+        vwap.reset();
+
+        assertFalse(vwap.isReady());
+    }
+}
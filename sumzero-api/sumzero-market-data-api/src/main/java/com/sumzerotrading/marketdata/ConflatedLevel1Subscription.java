@@ -0,0 +1,51 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registered in place of a listener which subscribed with
+ * Level1DeliveryMode.CONFLATED, so the quote engine can tell which listeners
+ * want conflated delivery.
+ */
+class ConflatedLevel1Subscription implements Level1QuoteListener {
+
+    protected final Level1QuoteListener listener;
+    protected final AtomicLong mergedCount;
+
+    public ConflatedLevel1Subscription(Level1QuoteListener listener, AtomicLong mergedCount) {
+        this.listener = listener;
+        this.mergedCount = mergedCount;
+    }
+
+    @Override
+    public void quoteRecieved(ILevel1Quote quote) {
+        listener.quoteRecieved(quote);
+    }
+
+    public QuoteEvent newEvent(ILevel1Quote quote) {
+        return new Level1QuoteEvent(this, quote, mergedCount);
+    }
+
+    public Level1QuoteListener getListener() {
+        return listener;
+    }
+}
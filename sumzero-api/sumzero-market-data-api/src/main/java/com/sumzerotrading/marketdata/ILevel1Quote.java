@@ -37,4 +37,35 @@ public interface ILevel1Quote extends IQuote {
      */
     public BigDecimal getValue(QuoteType type);
     
+    /**
+     * The value of this quote as a fixed point number, to be read together with 
+     * getScale(), ie a value of 12345 with a scale of 2 is 123.45
+     * 
+     * @param type The quote type
+     * @return The unscaled value of the quote.
+     */
+    public default long getLong(QuoteType type) {
+        return PrimitiveLevel1Quote.fitToLong(getValue(type)).unscaledValue().longValueExact();
+    }
+    
+    /**
+     * The number of decimal places of the value returned by getLong()
+     * 
+     * @param type The quote type
+     * @return The scale of the quote value.
+     */
+    public default int getScale(QuoteType type) {
+        return PrimitiveLevel1Quote.fitToLong(getValue(type)).scale();
+    }
+    
+    /**
+     * The value of this quote as a double.
+     * 
+     * @param type The quote type
+     * @return The quote value.
+     */
+    public default double getDouble(QuoteType type) {
+        return getValue(type).doubleValue();
+    }
+    
 }
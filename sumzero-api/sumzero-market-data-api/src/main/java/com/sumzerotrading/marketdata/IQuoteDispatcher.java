@@ -0,0 +1,48 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+/**
+ * Delivers quote events from a quote engine to its listeners. Events submitted 
+ * to the same lane are delivered in the order they were submitted.
+ */
+public interface IQuoteDispatcher {
+
+    /**
+     * Queues an event for delivery on the specified lane.
+     * 
+     * @param laneKey The key identifying the lane, events on the same lane are delivered in order.
+     * @param event The event to deliver.
+     */
+    public void dispatch(Object laneKey, QuoteEvent event);
+
+    /**
+     * Releases the lane for the specified key. Events already queued on the 
+     * lane will still be delivered.
+     * 
+     * @param laneKey The key of the lane to release.
+     */
+    public void releaseLane(Object laneKey);
+
+    /**
+     * Stops the dispatcher's worker threads.
+     */
+    public void shutdown();
+}
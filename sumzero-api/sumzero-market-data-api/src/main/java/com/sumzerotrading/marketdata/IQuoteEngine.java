@@ -56,6 +56,35 @@ public interface IQuoteEngine {
     public abstract void subscribeLevel1(Ticker ticker, Level1QuoteListener listener);
     
     
+    /**
+     * Subscribe to level 1 market data with the specified delivery mode. 
+     * 
+     * @param ticker The ticker to create the subscription for
+     * @param listener The listener which will be invoked when quotes for the specified ticker arrive.
+     * @param deliveryMode ALL_QUOTES to receive every quote, CONFLATED to have quotes which arrive while the 
+     * listener is busy merged into a single quote.
+     */
+    public abstract void subscribeLevel1(Ticker ticker, Level1QuoteListener listener, Level1DeliveryMode deliveryMode);
+    
+    
+    /**
+     * Gets the latest value of each quote type received for the ticker, ie the 
+     * current bid, ask, last, sizes, volume, open, close and funding rate. 
+     * New Level 1 subscribers are sent this snapshot when they subscribe.
+     * 
+     * @param ticker The ticker to get the snapshot for
+     * @return The current snapshot for the ticker, or null if no quotes have been received.
+     */
+    public abstract ILevel1Quote getSnapshot(Ticker ticker);
+    
+    
+    /**
+     * @return The number of Level 1 quotes which have been merged into a pending quote for 
+     * listeners subscribed with Level1DeliveryMode.CONFLATED
+     */
+    public abstract long getConflatedLevel1Count();
+    
+    
     /**
      * Unsubscribe from Level 1 market data
      
@@ -89,6 +118,16 @@ public interface IQuoteEngine {
      */
     public abstract void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener);
 
+    /**
+     * Subscribe to MarketDepth (Level 2) quotes, receiving only the requested
+     * top levels of the book, only when they change and no more often than the
+     * request's minimum publish interval.
+     * @param ticker The ticker to subscribe to
+     * @param listener The listener which will receive the market depth quote events
+     * @param request The number of levels and the publish interval for the listener
+     */
+    public abstract void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener, MarketDepthRequest request);
+
     /**
      * Unsubscribe from Market Depth quotes
      * @param ticker The ticker that to unsubscribe from
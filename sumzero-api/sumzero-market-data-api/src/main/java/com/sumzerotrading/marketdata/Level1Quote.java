@@ -71,6 +71,26 @@ public class Level1Quote extends AbstractQuote implements ILevel1Quote {
 
     }
 
+    /**
+     * Merges two quotes for the same ticker into a single quote. Values in the
+     * latest quote take precedence over values in the previous quote.
+     *
+     * @param previous The earlier quote
+     * @param latest   The later quote
+     * @return A new quote containing the values from both quotes, with the
+     *         timestamp of the latest quote.
+     */
+    public static Level1Quote merge(ILevel1Quote previous, ILevel1Quote latest) {
+        Map<QuoteType, BigDecimal> mergedMap = new HashMap<>();
+        for (QuoteType type : previous.getTypes()) {
+            mergedMap.put(type, previous.getValue(type));
+        }
+        for (QuoteType type : latest.getTypes()) {
+            mergedMap.put(type, latest.getValue(type));
+        }
+        return new Level1Quote(latest.getTicker(), latest.getTimeStamp(), mergedMap);
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
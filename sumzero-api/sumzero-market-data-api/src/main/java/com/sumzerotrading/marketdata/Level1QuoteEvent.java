@@ -0,0 +1,95 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers a Level 1 quote to a single listener.
+ */
+class Level1QuoteEvent extends QuoteEvent {
+
+    protected final Level1QuoteListener listener;
+    protected final ILevel1Quote quote;
+    protected final AtomicLong mergedCount;
+
+    public Level1QuoteEvent(Level1QuoteListener listener, ILevel1Quote quote) {
+        this(listener, quote, null);
+    }
+
+    /**
+     * @param listener The listener to deliver the quote to
+     * @param quote The quote
+     * @param mergedCount If not null the event is merged into any pending event
+     * for the same listener, and the counter is incremented for each merge.
+     */
+    public Level1QuoteEvent(Level1QuoteListener listener, ILevel1Quote quote, AtomicLong mergedCount) {
+        this.listener = listener;
+        this.quote = quote;
+        this.mergedCount = mergedCount;
+    }
+
+    @Override
+    public void deliver() {
+        try {
+            listener.quoteRecieved(quote);
+        } finally {
+            release(quote);
+        }
+    }
+
+    @Override
+    public void discard() {
+        release(quote);
+    }
+
+    @Override
+    public QuoteEvent conflate(QuoteEvent newerEvent) {
+        if (!(newerEvent instanceof Level1QuoteEvent)) {
+            return null;
+        }
+        Level1QuoteEvent newer = (Level1QuoteEvent) newerEvent;
+        if (newer.listener != listener || !quote.getTicker().equals(newer.quote.getTicker())) {
+            return null;
+        }
+        if (mergedCount != null) {
+            mergedCount.incrementAndGet();
+        }
+        Level1QuoteEvent merged = new Level1QuoteEvent(listener, Level1Quote.merge(quote, newer.quote), mergedCount);
+        release(quote);
+        release(newer.quote);
+        return merged;
+    }
+
+    @Override
+    public boolean isConflatable() {
+        return mergedCount != null;
+    }
+
+    public ILevel1Quote getQuote() {
+        return quote;
+    }
+
+    protected static void release(ILevel1Quote quote) {
+        if (quote instanceof PrimitiveLevel1Quote) {
+            ((PrimitiveLevel1Quote) quote).release();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.Ticker;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of PrimitiveLevel1Quote objects so a quote engine can reuse quotes
+ * rather than allocating a new one for every tick. Quotes are returned to the
+ * pool when their last reference is released. If the pool is full released
+ * quotes are left for the garbage collector, and if it is empty a new quote is
+ * created.
+ */
+public class Level1QuotePool {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    protected final PrimitiveLevel1Quote[] freeQuotes;
+    protected int freeCount = 0;
+    protected final AtomicLong createdCount = new AtomicLong();
+
+    public Level1QuotePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The maximum number of idle quotes held by the pool.
+     */
+    public Level1QuotePool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        freeQuotes = new PrimitiveLevel1Quote[capacity];
+    }
+
+    /**
+     * Gets an empty quote from the pool. The caller holds the only reference
+     * to the quote, and must release() it when done.
+     *
+     * @param ticker The ticker of the quote
+     * @param timeStamp The time of the quote
+     * @return An empty quote.
+     */
+    public PrimitiveLevel1Quote acquire(Ticker ticker, ZonedDateTime timeStamp) {
+        PrimitiveLevel1Quote quote = null;
+        synchronized (this) {
+            if (freeCount > 0) {
+                quote = freeQuotes[--freeCount];
+                freeQuotes[freeCount] = null;
+            }
+        }
+        if (quote == null) {
+            quote = new PrimitiveLevel1Quote(this);
+            createdCount.incrementAndGet();
+        }
+        quote.reset(ticker, timeStamp);
+        PrimitiveLevel1Quote.REF_COUNT.set(quote, 1);
+        return quote;
+    }
+
+    protected void recycle(PrimitiveLevel1Quote quote) {
+        synchronized (this) {
+            if (freeCount < freeQuotes.length) {
+                freeQuotes[freeCount++] = quote;
+            }
+        }
+    }
+
+    /**
+     * @return The number of idle quotes in the pool.
+     */
+    public synchronized int getFreeCount() {
+        return freeCount;
+    }
+
+    /**
+     * @return The number of quotes the pool has had to create.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.Ticker;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the latest value of every QuoteType received for each ticker, so the
+ * current top of book for a ticker can be read at any time, even though each
+ * quote from a data source may only carry one or two fields.
+ *
+ * Each ticker has a single snapshot which is updated in place, so updating it
+ * doesn't allocate. getSnapshot() returns a copy taken under the snapshot's
+ * lock, so callers always see a consistent set of values and can keep it.
+ */
+public class Level1SnapshotCache {
+
+    public static final long DEFAULT_MAX_REPLAY_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    protected final ConcurrentHashMap<Ticker, Snapshot> snapshots = new ConcurrentHashMap<>();
+    protected volatile long maxReplayAgeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_REPLAY_AGE_MILLIS);
+
+    /**
+     * Merges the quote's values into the snapshot for the quote's ticker.
+     *
+     * @param quote The latest quote
+     */
+    public void update(ILevel1Quote quote) {
+        update(quote.getTicker(), quote);
+    }
+
+    /**
+     * Merges the quote's values into the snapshot for the specified ticker.
+     *
+     * @param ticker The ticker of the quote
+     * @param quote The latest quote
+     */
+    public void update(Ticker ticker, ILevel1Quote quote) {
+        Snapshot snapshot = snapshots.get(ticker);
+        if (snapshot == null) {
+            snapshot = snapshots.computeIfAbsent(ticker, Snapshot::new);
+        }
+        snapshot.merge(quote);
+    }
+
+    /**
+     * @param ticker The ticker
+     * @return A copy of the latest values received for the ticker, or null if
+     * no quotes have been received.
+     */
+    public ILevel1Quote getSnapshot(Ticker ticker) {
+        Snapshot snapshot = snapshots.get(ticker);
+        return snapshot == null ? null : snapshot.copy();
+    }
+
+    /**
+     * Checks whether the ticker's snapshot can be replayed to a new listener.
+     * When the ticker has no other listeners the snapshot may have been left
+     * behind by quotes which arrived after the previous subscription ended, so
+     * it is only used if it was updated within the maximum replay age, and is
+     * otherwise removed.
+     *
+     * @param ticker The ticker
+     * @param hasOtherListeners true if the ticker already has listeners
+     * @return true if a snapshot should be sent to the new listener.
+     */
+    public boolean isReplayable(Ticker ticker, boolean hasOtherListeners) {
+        Snapshot snapshot = snapshots.get(ticker);
+        if (snapshot == null) {
+            return false;
+        }
+        if (hasOtherListeners || System.nanoTime() - snapshot.updatedNanos <= maxReplayAgeNanos) {
+            return true;
+        }
+        snapshots.remove(ticker, snapshot);
+        return false;
+    }
+
+    public long getMaxReplayAgeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxReplayAgeNanos);
+    }
+
+    public void setMaxReplayAgeMillis(long maxReplayAgeMillis) {
+        this.maxReplayAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxReplayAgeMillis);
+    }
+
+    /**
+     * Removes the snapshot for the specified ticker.
+     */
+    public void remove(Ticker ticker) {
+        snapshots.remove(ticker);
+    }
+
+    public void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * The values for one ticker, guarded by the snapshot's lock.
+     */
+    protected static class Snapshot {
+
+        protected final PrimitiveLevel1Quote quote;
+        protected volatile long updatedNanos;
+
+        public Snapshot(Ticker ticker) {
+            quote = new PrimitiveLevel1Quote(ticker, null);
+        }
+
+        public synchronized void merge(ILevel1Quote latest) {
+            quote.timeStamp = latest.getTimeStamp();
+            if (latest instanceof PrimitiveLevel1Quote) {
+                PrimitiveLevel1Quote primitiveQuote = (PrimitiveLevel1Quote) latest;
+                long mask = primitiveQuote.presentMask;
+                while (mask != 0) {
+                    int index = Long.numberOfTrailingZeros(mask);
+                    quote.values[index] = primitiveQuote.values[index];
+                    quote.scales[index] = primitiveQuote.scales[index];
+                    mask &= mask - 1;
+                }
+                quote.presentMask |= primitiveQuote.presentMask;
+            } else {
+                for (QuoteType type : latest.getTypes()) {
+                    quote.setValue(type, latest.getValue(type));
+                }
+            }
+            updatedNanos = System.nanoTime();
+        }
+
+        public synchronized PrimitiveLevel1Quote copy() {
+            return quote.presentMask == 0 ? null : quote.copy();
+        }
+    }
+}
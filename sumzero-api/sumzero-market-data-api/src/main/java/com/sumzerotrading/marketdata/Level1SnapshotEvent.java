@@ -0,0 +1,53 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.Ticker;
+
+/**
+ * Delivers the current snapshot for a ticker to a new subscriber. The snapshot
+ * is read when the event is delivered rather than when it is queued, so it is
+ * never older than a quote queued ahead of it on the same lane.
+ */
+class Level1SnapshotEvent extends QuoteEvent {
+
+    protected final Level1QuoteListener listener;
+    protected final Level1SnapshotCache cache;
+    protected final Ticker ticker;
+
+    public Level1SnapshotEvent(Level1QuoteListener listener, Level1SnapshotCache cache, Ticker ticker) {
+        this.listener = listener;
+        this.cache = cache;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public void deliver() {
+        ILevel1Quote snapshot = cache.getSnapshot(ticker);
+        if (snapshot != null) {
+            listener.quoteRecieved(snapshot);
+        }
+    }
+
+    @Override
+    public QuoteEvent conflate(QuoteEvent newerEvent) {
+        return null;
+    }
+}
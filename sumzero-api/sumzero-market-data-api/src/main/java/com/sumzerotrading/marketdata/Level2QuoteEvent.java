@@ -0,0 +1,67 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+/**
+ * Delivers a Level 2 quote to a single listener.
+ */
+class Level2QuoteEvent extends QuoteEvent {
+
+    protected final Level2QuoteListener listener;
+    protected final ILevel2Quote quote;
+
+    public Level2QuoteEvent(Level2QuoteListener listener, ILevel2Quote quote) {
+        this.listener = listener;
+        this.quote = quote;
+    }
+
+    @Override
+    public void deliver() {
+        listener.level2QuoteReceived(quote);
+    }
+
+    /**
+     * A market depth quote carries the whole side of the book, so a newer
+     * event for the same side simply replaces this one.
+     */
+    @Override
+    public QuoteEvent conflate(QuoteEvent newerEvent) {
+        if (!(newerEvent instanceof Level2QuoteEvent)) {
+            return null;
+        }
+        Level2QuoteEvent newer = (Level2QuoteEvent) newerEvent;
+        if (newer.listener != listener || !quote.getTicker().equals(newer.quote.getTicker())) {
+            return null;
+        }
+        if (getSide(quote) != getSide(newer.quote)) {
+            return null;
+        }
+        return newer;
+    }
+
+    protected static MarketDepthBook.Side getSide(ILevel2Quote quote) {
+        IMarketDepthBook book = quote.getMarketDepthBook();
+        return book == null ? null : book.getSide();
+    }
+
+    public ILevel2Quote getQuote() {
+        return quote;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.Ticker;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the listeners subscribed to each ticker. The listeners for a ticker are
+ * kept in an immutable array which is replaced whenever a listener is added or
+ * removed, so reading the listeners for a ticker never takes a lock and never
+ * sees a partially updated list.
+ *
+ * @param <L> The listener type
+ */
+public class ListenerRegistry<L> {
+
+    protected final ConcurrentHashMap<Ticker, L[]> listenerMap = new ConcurrentHashMap<>();
+    protected final L[] emptyListeners;
+
+    /**
+     * Creates a new registry.
+     *
+     * @param emptyListeners An empty array of the listener type, returned for
+     * tickers with no listeners and used to create new listener arrays.
+     */
+    public ListenerRegistry(L[] emptyListeners) {
+        if (emptyListeners.length != 0) {
+            throw new IllegalArgumentException("Array must be empty");
+        }
+        this.emptyListeners = emptyListeners;
+    }
+
+    /**
+     * Adds a listener for the specified ticker.
+     *
+     * @param ticker The ticker to listen to
+     * @param listener The listener to add
+     */
+    public void add(Ticker ticker, L listener) {
+        listenerMap.compute(ticker, (key, current) -> {
+            if (current == null) {
+                current = emptyListeners;
+            }
+            L[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = listener;
+            return updated;
+        });
+    }
+
+    /**
+     * Removes a listener for the specified ticker. The ticker is removed from
+     * the registry once its last listener has been removed.
+     *
+     * @param ticker The ticker the listener is subscribed to
+     * @param listener The listener to remove
+     * @return true if the listener was subscribed to the ticker.
+     */
+    public boolean remove(Ticker ticker, L listener) {
+        boolean[] removed = new boolean[1];
+        listenerMap.computeIfPresent(ticker, (key, current) -> {
+            int index = indexOf(current, listener);
+            if (index < 0) {
+                return current;
+            }
+            removed[0] = true;
+            if (current.length == 1) {
+                return null;
+            }
+            L[] updated = Arrays.copyOf(current, current.length - 1);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            return updated;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Gets the listeners for the specified ticker. The returned array is a
+     * snapshot and must not be modified.
+     *
+     * @param ticker The ticker
+     * @return The listeners for the ticker, or an empty array if there are none.
+     */
+    public L[] getListeners(Ticker ticker) {
+        L[] listeners = listenerMap.get(ticker);
+        return listeners == null ? emptyListeners : listeners;
+    }
+
+    /**
+     * @param ticker The ticker
+     * @return true if there is at least one listener for the ticker.
+     */
+    public boolean hasListeners(Ticker ticker) {
+        return listenerMap.containsKey(ticker);
+    }
+
+    /**
+     * @return A live view of the tickers which currently have listeners.
+     */
+    public Set<Ticker> getTickers() {
+        return listenerMap.keySet();
+    }
+
+    /**
+     * @return The number of tickers which currently have listeners.
+     */
+    public int size() {
+        return listenerMap.size();
+    }
+
+    /**
+     * Removes all listeners for all tickers.
+     */
+    public void clear() {
+        listenerMap.clear();
+    }
+
+    protected int indexOf(L[] listeners, L listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -43,6 +43,23 @@ public class MarketDepthBook implements IMarketDepthBook {
     }
     
     
+    /**
+     * Creates a new price sorted book which stores prices and sizes with the
+     * specified number of decimal places.
+     *
+     * @param priceScale The number of decimal places of the prices
+     * @param sizeScale The number of decimal places of the sizes
+     * @return A new SortedMarketDepthBook, or the test instance if one is set.
+     */
+    public static IMarketDepthBook newInstance(int priceScale, int sizeScale) {
+        if( testBook != null ) {
+            return testBook;
+        } else {
+            return new SortedMarketDepthBook(priceScale, sizeScale);
+        }
+    }
+    
+    
     public static void setTestInstance( IMarketDepthBook book ) {
         testBook = book;
     }
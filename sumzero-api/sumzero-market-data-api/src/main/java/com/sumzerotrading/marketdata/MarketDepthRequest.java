@@ -0,0 +1,100 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+/**
+ * Describes how much of the order book a market depth listener wants to see
+ * and how often.  The quote engine only publishes to the listener when the
+ * requested top levels of the book have changed, and at most once per minimum
+ * publish interval for each side of the book.  Changes which arrive within
+ * the interval are held and the latest one is published when it elapses.
+ */
+public class MarketDepthRequest {
+
+    /**
+     * Requests every level of the book.
+     */
+    public static final int ALL_LEVELS = MarketDepthSnapshot.ALL_LEVELS;
+
+    protected final int levels;
+    protected final long minPublishIntervalMillis;
+
+    /**
+     * Builds a new request
+     *
+     * @param levels The number of levels of the book to publish, must be at
+     * least 1.
+     * @param minPublishIntervalMillis The minimum time between two quotes for
+     * the same side of the book, 0 to publish every change.
+     */
+    public MarketDepthRequest(int levels, long minPublishIntervalMillis) {
+        if (levels < 1) {
+            throw new IllegalArgumentException("Levels must be at least 1: " + levels);
+        }
+        if (minPublishIntervalMillis < 0) {
+            throw new IllegalArgumentException("Publish interval can't be negative: " + minPublishIntervalMillis);
+        }
+        this.levels = levels;
+        this.minPublishIntervalMillis = minPublishIntervalMillis;
+    }
+
+    /**
+     * @return The number of levels of the book to publish.
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * @return The minimum time between two quotes for the same side of the
+     * book in milliseconds.
+     */
+    public long getMinPublishIntervalMillis() {
+        return minPublishIntervalMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 41 * hash + levels;
+        hash = 41 * hash + Long.hashCode(minPublishIntervalMillis);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final MarketDepthRequest other = (MarketDepthRequest) obj;
+        return levels == other.levels && minPublishIntervalMillis == other.minPublishIntervalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "MarketDepthRequest{" + "levels=" + levels + ", minPublishIntervalMillis=" + minPublishIntervalMillis + '}';
+    }
+}
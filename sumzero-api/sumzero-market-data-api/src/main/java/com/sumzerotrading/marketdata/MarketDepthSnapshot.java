@@ -0,0 +1,329 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.marketdata.MarketDepthBook.Side;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the top levels of a SortedMarketDepthBook, tagged with
+ * the book's sequence number at the time the copy was taken. Other books can
+ * be copied with copyOf(). Snapshots can be
+ * handed to listeners on other threads while the book keeps changing, and the
+ * sequence number lets a consumer tell whether two snapshots are the same
+ * version of the book or detect that it skipped versions.
+ *
+ * Only the copied levels are visible, so the total size is the size of those
+ * levels rather than of the whole book. All of the methods which would modify
+ * the book throw an UnsupportedOperationException.
+ */
+public class MarketDepthSnapshot implements IMarketDepthBook {
+
+    /**
+     * Depth to request to copy every level of the book.
+     */
+    public static final int ALL_LEVELS = Integer.MAX_VALUE;
+
+    protected final Side side;
+    protected final long sequence;
+    protected final int priceScale;
+    protected final int sizeScale;
+    protected final long[] prices;
+    protected final long[] cumulativeSizes;
+    protected final int levelCount;
+
+    /**
+     * Builds a new snapshot, the arrays are owned by the snapshot and must not
+     * be modified after this call.
+     *
+     * @param side The side of the book
+     * @param sequence The sequence number of the book this is a copy of
+     * @param priceScale The number of decimal places of the prices
+     * @param sizeScale The number of decimal places of the sizes
+     * @param prices The unscaled prices, best price first
+     * @param cumulativeSizes The unscaled cumulative size up to each level
+     */
+    protected MarketDepthSnapshot(Side side, long sequence, int priceScale, int sizeScale, long[] prices, long[] cumulativeSizes) {
+        this.side = side;
+        this.sequence = sequence;
+        this.priceScale = priceScale;
+        this.sizeScale = sizeScale;
+        this.prices = prices;
+        this.cumulativeSizes = cumulativeSizes;
+        this.levelCount = prices.length;
+    }
+
+    /**
+     * Builds a view of the first levels of another snapshot, sharing its
+     * arrays.
+     */
+    protected MarketDepthSnapshot(MarketDepthSnapshot snapshot, int levelCount) {
+        this.side = snapshot.side;
+        this.sequence = snapshot.sequence;
+        this.priceScale = snapshot.priceScale;
+        this.sizeScale = snapshot.sizeScale;
+        this.prices = snapshot.prices;
+        this.cumulativeSizes = snapshot.cumulativeSizes;
+        this.levelCount = levelCount;
+    }
+
+    /**
+     * Copies the top levels of any book. A SortedMarketDepthBook is
+     * snapshotted directly, the levels of other books are read one at a time
+     * and stored with the largest number of decimal places among them. Books
+     * other than a SortedMarketDepthBook have no sequence number, so the copy
+     * has a sequence of 0.
+     *
+     * @param book The book to copy, which must not change during the call
+     * @param maxLevels The maximum number of levels to copy
+     * @return An immutable copy of the top levels of the book.
+     */
+    public static MarketDepthSnapshot copyOf(IMarketDepthBook book, int maxLevels) {
+        if (book instanceof MarketDepthSnapshot) {
+            return ((MarketDepthSnapshot) book).getTopLevels(maxLevels);
+        }
+        if (book instanceof SortedMarketDepthBook) {
+            return ((SortedMarketDepthBook) book).snapshot(maxLevels);
+        }
+        int depth = Math.min(book.getLevelCount(), Math.max(maxLevels, 0));
+        MarketDepthLevel[] levels = new MarketDepthLevel[depth];
+        int priceScale = 0;
+        int sizeScale = 0;
+        for (int i = 0; i < depth; i++) {
+            levels[i] = book.getLevelAt(i);
+            priceScale = Math.max(priceScale, levels[i].getPrice().stripTrailingZeros().scale());
+            sizeScale = Math.max(sizeScale, levels[i].getSize().stripTrailingZeros().scale());
+        }
+        long[] prices = new long[depth];
+        long[] cumulativeSizes = new long[depth];
+        long sum = 0;
+        for (int i = 0; i < depth; i++) {
+            prices[i] = levels[i].getPrice().setScale(priceScale).unscaledValue().longValueExact();
+            sum = SortedMarketDepthBook.addCapped(sum, levels[i].getSize().setScale(sizeScale).unscaledValue().longValueExact());
+            cumulativeSizes[i] = sum;
+        }
+        return new MarketDepthSnapshot(book.getSide(), 0, priceScale, sizeScale, prices, cumulativeSizes);
+    }
+
+    /**
+     * Gets a snapshot of only the top levels of this snapshot. The levels are
+     * shared rather than copied.
+     *
+     * @param maxLevels The maximum number of levels
+     * @return This snapshot if it has no more than maxLevels levels, otherwise
+     * a view of its first maxLevels levels.
+     */
+    public MarketDepthSnapshot getTopLevels(int maxLevels) {
+        if (maxLevels >= levelCount) {
+            return this;
+        }
+        return new MarketDepthSnapshot(this, Math.max(maxLevels, 0));
+    }
+
+    /**
+     * Compares the prices and sizes of the top levels of two snapshots.
+     *
+     * @param other The snapshot to compare to
+     * @param maxLevels The number of levels to compare
+     * @return true if both snapshots have the same side and the same top levels.
+     */
+    public boolean hasSameTopLevels(MarketDepthSnapshot other, int maxLevels) {
+        if (other == this) {
+            return true;
+        }
+        int depth = Math.min(levelCount, maxLevels);
+        if (other == null || side != other.side || depth != Math.min(other.levelCount, maxLevels)
+                || priceScale != other.priceScale || sizeScale != other.sizeScale) {
+            return false;
+        }
+        return Arrays.equals(prices, 0, depth, other.prices, 0, depth)
+                && Arrays.equals(cumulativeSizes, 0, depth, other.cumulativeSizes, 0, depth);
+    }
+
+    /**
+     * @return The sequence number of the book when this snapshot was taken.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @param index The level index
+     * @return The unscaled price of the level at the specified index
+     */
+    public long getScaledPriceAt(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    /**
+     * @param index The level index
+     * @return The unscaled size of the level at the specified index
+     */
+    public long getScaledSizeAt(int index) {
+        checkIndex(index);
+        return index == 0 ? cumulativeSizes[0] : cumulativeSizes[index] - cumulativeSizes[index - 1];
+    }
+
+    /**
+     * @param level The level to obtain the cumulative size up to.
+     * @return The unscaled cumulative size up to and including the level.
+     */
+    public long getScaledCumulativeSize(int level) {
+        if (level < 0 || levelCount == 0) {
+            return 0;
+        }
+        return cumulativeSizes[Math.min(level, levelCount - 1)];
+    }
+
+    /**
+     * @return The number of decimal places of the prices
+     */
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * @return The number of decimal places of the sizes
+     */
+    public int getSizeScale() {
+        return sizeScale;
+    }
+
+    @Override
+    public Side getSide() {
+        return side;
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    @Override
+    public MarketDepthLevel getLevelAt(int index) {
+        checkIndex(index);
+        return new MarketDepthLevel(side, BigDecimal.valueOf(prices[index], priceScale), BigDecimal.valueOf(getScaledSizeAt(index), sizeScale));
+    }
+
+    @Override
+    public MarketDepthLevel[] getLevels() {
+        MarketDepthLevel[] levels = new MarketDepthLevel[levelCount];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = getLevelAt(i);
+        }
+        return levels;
+    }
+
+    @Override
+    public BigDecimal getTotalSize() {
+        return BigDecimal.valueOf(getScaledCumulativeSize(levelCount - 1), sizeScale);
+    }
+
+    @Override
+    public BigDecimal getCumulativeSize(int level) {
+        return BigDecimal.valueOf(getScaledCumulativeSize(level), sizeScale);
+    }
+
+    @Override
+    public void addLevel(MarketDepthLevel level) {
+        throw immutable();
+    }
+
+    @Override
+    public void clearLevels() {
+        throw immutable();
+    }
+
+    @Override
+    public void deleteLevel(int index) {
+        throw immutable();
+    }
+
+    @Override
+    public void insertLevel(int index, MarketDepthLevel level) {
+        throw immutable();
+    }
+
+    @Override
+    public void setLevels(MarketDepthLevel[] levelArray) {
+        throw immutable();
+    }
+
+    @Override
+    public void setSide(Side side) {
+        throw immutable();
+    }
+
+    @Override
+    public void updateLevel(int index, MarketDepthLevel level) {
+        throw immutable();
+    }
+
+    /**
+     * Snapshots are always sorted, nothing to do here.
+     */
+    @Override
+    public void sort() {
+    }
+
+    protected UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Market depth snapshots can't be modified");
+    }
+
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= levelCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + levelCount);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(sequence);
+        for (int i = 0; i < levelCount; i++) {
+            result = 31 * result + Long.hashCode(prices[i]);
+            result = 31 * result + Long.hashCode(cumulativeSizes[i]);
+        }
+        result = 31 * result + ((side == null) ? 0 : side.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        MarketDepthSnapshot other = (MarketDepthSnapshot) obj;
+        return sequence == other.sequence && levelCount == other.levelCount
+                && hasSameTopLevels(other, levelCount);
+    }
+
+    @Override
+    public String toString() {
+        return "MarketDepthSnapshot [sequence=" + sequence + ", levels=" + Arrays.toString(getLevels()) + ", side=" + side + "]";
+    }
+}
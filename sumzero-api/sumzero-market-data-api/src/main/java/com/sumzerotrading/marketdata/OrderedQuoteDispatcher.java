@@ -0,0 +1,315 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Dispatches quote events on a bounded pool of worker threads. Each lane has
+ * its own bounded FIFO queue and is drained by at most one worker at a time, so
+ * events on a lane are delivered in order while different lanes are delivered
+ * in parallel. When a lane's queue is full the configured OverflowPolicy
+ * decides what happens to the new event.
+ */
+public class OrderedQuoteDispatcher implements IQuoteDispatcher {
+
+    public static final int DEFAULT_MAX_QUEUE_DEPTH = 1024;
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.CONFLATE;
+
+    /**
+     * Maximum number of events a worker delivers from one lane before giving
+     * the other lanes a turn.
+     */
+    protected static final int MAX_EVENTS_PER_DRAIN = 64;
+
+    protected static final AtomicInteger dispatcherCount = new AtomicInteger();
+
+    protected Logger logger = Logger.getLogger(OrderedQuoteDispatcher.class);
+    protected final ConcurrentHashMap<Object, DispatchLane> lanes = new ConcurrentHashMap<>();
+    protected final ExecutorService executor;
+    protected final int maxQueueDepth;
+    protected final OverflowPolicy overflowPolicy;
+    protected final AtomicLong droppedCount = new AtomicLong();
+    protected final AtomicLong conflatedCount = new AtomicLong();
+
+    /**
+     * Creates a dispatcher with one worker per available processor.
+     */
+    public OrderedQuoteDispatcher() {
+        this(getDefaultWorkerThreads(), DEFAULT_MAX_QUEUE_DEPTH, DEFAULT_OVERFLOW_POLICY);
+    }
+
+    /**
+     * @param workerThreads The number of threads used to deliver events.
+     * @param maxQueueDepth The maximum number of pending events per lane.
+     * @param overflowPolicy What to do with a new event when a lane is full.
+     */
+    public OrderedQuoteDispatcher(int workerThreads, int maxQueueDepth, OverflowPolicy overflowPolicy) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("workerThreads must be at least 1: " + workerThreads);
+        }
+        if (maxQueueDepth < 1) {
+            throw new IllegalArgumentException("maxQueueDepth must be at least 1: " + maxQueueDepth);
+        }
+        this.maxQueueDepth = maxQueueDepth;
+        this.overflowPolicy = overflowPolicy;
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workerThreads, workerThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DispatcherThreadFactory(dispatcherCount.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    @Override
+    public void dispatch(Object laneKey, QuoteEvent event) {
+        while (true) {
+            DispatchLane lane = lanes.get(laneKey);
+            if (lane == null) {
+                lane = lanes.computeIfAbsent(laneKey, DispatchLane::new);
+            }
+            if (lane.offer(event)) {
+                return;
+            }
+            //the lane was removed after we looked it up, try again with a new lane
+        }
+    }
+
+    /**
+     * The lane is only removed once it has no pending events, otherwise a new
+     * lane for the same key could deliver concurrently with the old one.
+     */
+    @Override
+    public void releaseLane(Object laneKey) {
+        DispatchLane lane = lanes.get(laneKey);
+        if (lane != null) {
+            lane.release();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return The number of events discarded because a lane was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return The number of events merged into a pending event because a lane
+     *         was full.
+     */
+    public long getConflatedCount() {
+        return conflatedCount.get();
+    }
+
+    /**
+     * @param laneKey The key of the lane
+     * @return The number of events waiting to be delivered on the lane.
+     */
+    public int getPendingCount(Object laneKey) {
+        DispatchLane lane = lanes.get(laneKey);
+        return lane == null ? 0 : lane.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    protected static int getDefaultWorkerThreads() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * A FIFO queue of events which is scheduled on the worker pool whenever it
+     * has events and isn't already being drained. A released lane stays in the
+     * lane map until it is idle, and is then removed by whichever thread finds
+     * it idle.
+     */
+    protected class DispatchLane implements Runnable {
+
+        protected final Object laneKey;
+        protected final ArrayDeque<QuoteEvent> queue = new ArrayDeque<>();
+        protected boolean scheduled = false;
+        protected boolean released = false;
+        protected boolean removed = false;
+
+        public DispatchLane(Object laneKey) {
+            this.laneKey = laneKey;
+        }
+
+        /**
+         * @return false if the lane has been removed and the event wasn't
+         *         queued.
+         */
+        public boolean offer(QuoteEvent event) {
+            boolean schedule;
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+                //a new event means the lane is in use again
+                released = false;
+                if (event.isConflatable() && !queue.isEmpty()) {
+                    //the lane is already scheduled if it has pending events
+                    QuoteEvent merged = queue.peekLast().conflate(event);
+                    if (merged != null) {
+                        queue.pollLast();
+                        queue.addLast(merged);
+                        return true;
+                    }
+                }
+                if (queue.size() >= maxQueueDepth) {
+                    if (!handleOverflow(event)) {
+                        return true;
+                    }
+                } else {
+                    queue.addLast(event);
+                }
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                executor.execute(this);
+            }
+            return true;
+        }
+
+        public synchronized void release() {
+            released = true;
+            removeIfIdle();
+        }
+
+        /**
+         * Called while holding the lane's lock.
+         */
+        protected void removeIfIdle() {
+            if (released && !scheduled && queue.isEmpty()) {
+                removed = true;
+                lanes.remove(laneKey, this);
+            }
+        }
+
+        /**
+         * Called while holding the lane's lock with a full queue.
+         *
+         * @return true if the event was queued and the lane may need scheduling.
+         */
+        protected boolean handleOverflow(QuoteEvent event) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    while (queue.size() >= maxQueueDepth) {
+                        try {
+                            wait();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            event.discard();
+                            droppedCount.incrementAndGet();
+                            return false;
+                        }
+                    }
+                    queue.addLast(event);
+                    return true;
+                case CONFLATE:
+                    QuoteEvent merged = queue.peekLast().conflate(event);
+                    if (merged != null) {
+                        queue.pollLast();
+                        queue.addLast(merged);
+                        conflatedCount.incrementAndGet();
+                        return true;
+                    }
+                    //fall through to drop the oldest event if the events can't be merged
+                default:
+                    queue.pollFirst().discard();
+                    queue.addLast(event);
+                    droppedCount.incrementAndGet();
+                    return true;
+            }
+        }
+
+        public synchronized int size() {
+            return queue.size();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_EVENTS_PER_DRAIN; i++) {
+                QuoteEvent event;
+                synchronized (this) {
+                    event = queue.pollFirst();
+                    if (event == null) {
+                        scheduled = false;
+                        removeIfIdle();
+                        return;
+                    }
+                    notifyAll();
+                }
+                try {
+                    event.deliver();
+                } catch (Throwable ex) {
+                    //don't let 1 listener blowing up prevent other quotes from being delivered.
+                    logger.error(ex.getMessage(), ex);
+                }
+            }
+
+            synchronized (this) {
+                if (queue.isEmpty()) {
+                    scheduled = false;
+                    removeIfIdle();
+                    return;
+                }
+            }
+            executor.execute(this);
+        }
+    }
+
+    protected static class DispatcherThreadFactory implements ThreadFactory {
+
+        protected final AtomicInteger threadCount = new AtomicInteger();
+        protected final int dispatcherId;
+
+        public DispatcherThreadFactory(int dispatcherId) {
+            this.dispatcherId = dispatcherId;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "QuoteDispatcher-" + dispatcherId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
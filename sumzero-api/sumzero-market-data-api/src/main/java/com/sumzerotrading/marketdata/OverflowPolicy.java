@@ -0,0 +1,46 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+/**
+ * Determines what a quote dispatcher does when a listener's queue of pending
+ * quotes is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Discard the oldest pending quote to make room for the new one.
+     */
+    DROP_OLDEST,
+    
+    /**
+     * Merge the new quote into the most recent pending quote so the listener
+     * still receives the latest state. Falls back to DROP_OLDEST if the quotes
+     * can't be merged. This is the default.
+     */
+    CONFLATE,
+    
+    /**
+     * Block the thread firing the quote until the listener has caught up. This
+     * stalls every other listener fed by the same thread, so it should only be
+     * used where losing a quote is worse than falling behind.
+     */
+    BLOCK
+}
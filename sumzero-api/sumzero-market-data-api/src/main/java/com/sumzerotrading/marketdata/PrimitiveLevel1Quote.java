@@ -0,0 +1,303 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.SumZeroException;
+import com.sumzerotrading.data.Ticker;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * An ILevel1Quote which stores its values as scaled longs in arrays indexed by
+ * QuoteType ordinal, with a bitmask recording which types are present. Setting
+ * and reading values with the long/double methods doesn't allocate, and quotes
+ * can be reused through a Level1QuotePool.
+ *
+ * A quote acquired from a pool is reference counted. The quote engine retains
+ * it for each listener it is dispatched to and releases it once delivered, so
+ * listeners which need to keep a quote after quoteRecieved returns should
+ * keep a copy().
+ */
+public class PrimitiveLevel1Quote implements ILevel1Quote {
+
+    protected static final QuoteType[] QUOTE_TYPES = QuoteType.values();
+    protected static final int MAX_SCALE = 18;
+    protected static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    protected static final MathContext LONG_CONTEXT = new MathContext(MAX_SCALE, RoundingMode.HALF_UP);
+    protected static final AtomicIntegerFieldUpdater<PrimitiveLevel1Quote> REF_COUNT
+            = AtomicIntegerFieldUpdater.newUpdater(PrimitiveLevel1Quote.class, "refCount");
+
+    static {
+        if (QUOTE_TYPES.length > Long.SIZE) {
+            throw new IllegalStateException("Too many quote types for presence mask: " + QUOTE_TYPES.length);
+        }
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    protected final long[] values = new long[QUOTE_TYPES.length];
+    protected final int[] scales = new int[QUOTE_TYPES.length];
+    protected final Level1QuotePool pool;
+    protected long presentMask;
+    protected Ticker ticker;
+    protected ZonedDateTime timeStamp;
+    protected volatile int refCount;
+
+    public PrimitiveLevel1Quote(Ticker ticker, ZonedDateTime timeStamp) {
+        this(null);
+        this.ticker = ticker;
+        this.timeStamp = timeStamp;
+    }
+
+    protected PrimitiveLevel1Quote(Level1QuotePool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Clears all values and sets the ticker and time of the quote so it can be
+     * reused.
+     */
+    public void reset(Ticker ticker, ZonedDateTime timeStamp) {
+        this.ticker = ticker;
+        this.timeStamp = timeStamp;
+        presentMask = 0;
+    }
+
+    /**
+     * Sets a value as a fixed point number.
+     *
+     * @param type The quote type
+     * @param scaledValue The unscaled value, ie 12345 with a scale of 2 is 123.45
+     * @param scale The number of decimal places in the value.
+     */
+    public void setValue(QuoteType type, long scaledValue, int scale) {
+        int index = type.ordinal();
+        values[index] = scaledValue;
+        scales[index] = scale;
+        presentMask |= 1L << index;
+    }
+
+    /**
+     * Sets a value, rounding it to the specified number of decimal places.
+     *
+     * @param type The quote type
+     * @param value The value
+     * @param scale The number of decimal places to keep, between 0 and 18
+     */
+    public void setValue(QuoteType type, double value, int scale) {
+        checkScale(scale);
+        setValue(type, Math.round(value * POWERS_OF_TEN[scale]), scale);
+    }
+
+    /**
+     * Sets a value, rounding it to the nearest multiple of the tick size.
+     *
+     * @param type The quote type
+     * @param value The value
+     * @param tickSize The tick size, the value keeps the tick size's number of
+     * decimal places.
+     */
+    public void setValue(QuoteType type, double value, BigDecimal tickSize) {
+        int scale = tickSize.scale();
+        checkScale(scale);
+        double tick = tickSize.doubleValue();
+        long scaledTick = Math.round(tick * POWERS_OF_TEN[scale]);
+        setValue(type, Math.round(value / tick) * scaledTick, scale);
+    }
+
+    /**
+     * Sets a value from a BigDecimal. Values with more than 18 significant
+     * digits are rounded to 18 digits so they fit in a long.
+     */
+    public void setValue(QuoteType type, BigDecimal value) {
+        value = fitToLong(value);
+        setValue(type, value.unscaledValue().longValueExact(), value.scale());
+    }
+
+    /**
+     * Rounds values with more than 18 significant digits to 18 digits so the
+     * unscaled value fits in a long.
+     */
+    protected static BigDecimal fitToLong(BigDecimal value) {
+        if (value.precision() > MAX_SCALE) {
+            return value.round(LONG_CONTEXT);
+        }
+        return value;
+    }
+
+    /**
+     * Removes a value from the quote.
+     */
+    public void removeValue(QuoteType type) {
+        presentMask &= ~(1L << type.ordinal());
+    }
+
+    @Override
+    public BigDecimal getValue(QuoteType type) {
+        int index = checkType(type);
+        return BigDecimal.valueOf(values[index], scales[index]);
+    }
+
+    @Override
+    public long getLong(QuoteType type) {
+        return values[checkType(type)];
+    }
+
+    @Override
+    public int getScale(QuoteType type) {
+        return scales[checkType(type)];
+    }
+
+    @Override
+    public double getDouble(QuoteType type) {
+        int index = checkType(type);
+        int scale = scales[index];
+        if (scale >= 0 && scale <= MAX_SCALE) {
+            return (double) values[index] / POWERS_OF_TEN[scale];
+        }
+        return BigDecimal.valueOf(values[index], scale).doubleValue();
+    }
+
+    @Override
+    public boolean containsType(QuoteType type) {
+        return (presentMask & (1L << type.ordinal())) != 0;
+    }
+
+    @Override
+    public QuoteType[] getTypes() {
+        QuoteType[] types = new QuoteType[Long.bitCount(presentMask)];
+        long mask = presentMask;
+        for (int i = 0; mask != 0; i++) {
+            int index = Long.numberOfTrailingZeros(mask);
+            types[i] = QUOTE_TYPES[index];
+            mask &= mask - 1;
+        }
+        return types;
+    }
+
+    @Override
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    @Override
+    public ZonedDateTime getTimeStamp() {
+        return timeStamp;
+    }
+
+    /**
+     * @return A copy of this quote which doesn't belong to a pool.
+     */
+    public PrimitiveLevel1Quote copy() {
+        PrimitiveLevel1Quote copy = new PrimitiveLevel1Quote(ticker, timeStamp);
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        System.arraycopy(scales, 0, copy.scales, 0, scales.length);
+        copy.presentMask = presentMask;
+        return copy;
+    }
+
+    /**
+     * Adds a reference to a pooled quote. Does nothing if the quote isn't
+     * pooled.
+     */
+    public void retain() {
+        if (pool != null) {
+            REF_COUNT.incrementAndGet(this);
+        }
+    }
+
+    /**
+     * Removes a reference to a pooled quote, returning it to its pool when there
+     * are no references left. Does nothing if the quote isn't pooled.
+     */
+    public void release() {
+        if (pool != null && REF_COUNT.decrementAndGet(this) == 0) {
+            pool.recycle(this);
+        }
+    }
+
+    protected int checkType(QuoteType type) {
+        if (!containsType(type)) {
+            throw new SumZeroException("Quote does not contain type: " + type);
+        }
+        return type.ordinal();
+    }
+
+    protected static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scale must be between 0 and " + MAX_SCALE + ": " + scale);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        long mask = presentMask;
+        while (mask != 0) {
+            int index = Long.numberOfTrailingZeros(mask);
+            hash = 29 * hash + Long.hashCode(values[index]);
+            hash = 29 * hash + scales[index];
+            mask &= mask - 1;
+        }
+        return 29 * hash + Long.hashCode(presentMask);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final PrimitiveLevel1Quote other = (PrimitiveLevel1Quote) obj;
+        if (presentMask != other.presentMask) {
+            return false;
+        }
+        long mask = presentMask;
+        while (mask != 0) {
+            int index = Long.numberOfTrailingZeros(mask);
+            if (values[index] != other.values[index] || scales[index] != other.scales[index]) {
+                return false;
+            }
+            mask &= mask - 1;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PrimitiveLevel1Quote [ticker=").append(ticker)
+                .append(", timeStamp=").append(timeStamp).append(", values={");
+        QuoteType[] types = getTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(types[i]).append('=').append(getValue(types[i]));
+        }
+        return sb.append("}]").toString();
+    }
+}
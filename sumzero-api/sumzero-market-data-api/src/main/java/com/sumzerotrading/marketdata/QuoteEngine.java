@@ -19,7 +19,12 @@
  */
 package com.sumzerotrading.marketdata;
 
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.sumzerotrading.data.Ticker;
 import org.apache.log4j.Logger;
@@ -33,9 +38,14 @@ import org.apache.log4j.Logger;
 public abstract class QuoteEngine implements IQuoteEngine {
 
     protected List<ErrorListener> errorListeners;
-    protected Map<Ticker, List<Level1QuoteListener>> level1ListenerMap = Collections.synchronizedMap(new HashMap<Ticker, List<Level1QuoteListener>>());
-    protected Map<Ticker, List<Level2QuoteListener>> level2ListenerMap = Collections.synchronizedMap(new HashMap<Ticker, List<Level2QuoteListener>>());
+    protected ListenerRegistry<Level1QuoteListener> level1Listeners = new ListenerRegistry<>(new Level1QuoteListener[0]);
+    protected ListenerRegistry<Level2QuoteListener> level2Listeners = new ListenerRegistry<>(new Level2QuoteListener[0]);
     protected Logger logger = Logger.getLogger( QuoteEngine.class );
+    protected volatile IQuoteDispatcher quoteDispatcher;
+    protected final AtomicLong conflatedLevel1Count = new AtomicLong();
+    protected volatile Level1QuotePool level1QuotePool;
+    protected final Level1SnapshotCache level1Snapshots = new Level1SnapshotCache();
+    protected volatile ScheduledExecutorService marketDepthScheduler;
 
     public QuoteEngine() {
         errorListeners = new ArrayList<ErrorListener>();
@@ -62,93 +72,284 @@ public abstract class QuoteEngine implements IQuoteEngine {
     }
 
     public void subscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
-        synchronized (level1ListenerMap) {
-            List<Level1QuoteListener> listeners = level1ListenerMap.get(ticker);
-            if (listeners == null) {
-                listeners = Collections.synchronizedList(new ArrayList<Level1QuoteListener>());
-                level1ListenerMap.put(ticker, listeners);
-            }
-            synchronized (listeners) {
-                listeners.add(listener);
-            }
+        boolean hasOtherListeners = level1Listeners.hasListeners(ticker);
+        level1Listeners.add(ticker, listener);
+        if (level1Snapshots.isReplayable(ticker, hasOtherListeners)) {
+            getQuoteDispatcher().dispatch(new LaneKey(ticker, listener), new Level1SnapshotEvent(listener, level1Snapshots, ticker));
+        }
+    }
+
+    @Override
+    public void subscribeLevel1(Ticker ticker, Level1QuoteListener listener, Level1DeliveryMode deliveryMode) {
+        if (deliveryMode == Level1DeliveryMode.CONFLATED) {
+            subscribeLevel1(ticker, new ConflatedLevel1Subscription(listener, conflatedLevel1Count));
+        } else {
+            subscribeLevel1(ticker, listener);
         }
     }
 
     public void unsubscribeLevel1(Ticker ticker, Level1QuoteListener listener) {
-        synchronized (level1ListenerMap) {
-            List<Level1QuoteListener> listeners = level1ListenerMap.get(ticker);
-            if (listeners != null) {
-                synchronized (listeners) {
-                    listeners.remove(listener);
-                }
-            }
+        Level1QuoteListener registered = getRegisteredLevel1Listener(ticker, listener);
+        level1Listeners.remove(ticker, registered);
+        releaseLane(ticker, registered);
+        if (!level1Listeners.hasListeners(ticker)) {
+            //nobody is keeping the snapshot up to date any more
+            level1Snapshots.remove(ticker);
         }
     }
 
     @Override
     public void fireLevel1Quote(final ILevel1Quote quote) {
-        synchronized (level1ListenerMap) {
-            List<Level1QuoteListener> listeners = level1ListenerMap.get(quote.getTicker());
-            if (listeners == null) {
-                return;
+        Ticker ticker = quote.getTicker();
+        level1Snapshots.update(ticker, quote);
+        Level1QuoteListener[] listeners = level1Listeners.getListeners(ticker);
+        if (listeners.length == 0) {
+            return;
+        }
+        IQuoteDispatcher dispatcher = getQuoteDispatcher();
+        PrimitiveLevel1Quote pooledQuote = quote instanceof PrimitiveLevel1Quote ? (PrimitiveLevel1Quote) quote : null;
+        for (Level1QuoteListener listener : listeners) {
+            if (pooledQuote != null) {
+                //released by the event once delivered
+                pooledQuote.retain();
             }
-            for (final Level1QuoteListener listener : listeners) {
-                try {
-                    synchronized (listeners) {
-                        Thread thread = new Thread(new Runnable() {
-                            public void run() {
-                                listener.quoteRecieved(quote);
-                            }
-                        });
-                        thread.start();
-                    }
-                } catch (Exception ex) {
-                    //don't let 1 listener blowing up prevent other listeners from getting the quote.
-                    //     logger.error(ex, ex);
-                }
+            QuoteEvent event;
+            if (listener instanceof ConflatedLevel1Subscription) {
+                event = ((ConflatedLevel1Subscription) listener).newEvent(quote);
+            } else {
+                event = new Level1QuoteEvent(listener, quote);
             }
+            dispatcher.dispatch(new LaneKey(ticker, listener), event);
         }
     }
 
+    @Override
+    public ILevel1Quote getSnapshot(Ticker ticker) {
+        return level1Snapshots.getSnapshot(ticker);
+    }
+
+    /**
+     * Sets how old a ticker's snapshot can be and still be sent to the first
+     * listener which subscribes to the ticker. Snapshots are always sent to
+     * listeners which subscribe while the ticker has other listeners.
+     *
+     * @param maxReplayAgeMillis The maximum age in milliseconds.
+     */
+    public void setMaxSnapshotReplayAgeMillis(long maxReplayAgeMillis) {
+        level1Snapshots.setMaxReplayAgeMillis(maxReplayAgeMillis);
+    }
+
+    @Override
+    public long getConflatedLevel1Count() {
+        return conflatedLevel1Count.get();
+    }
+
+    /**
+     * Creates an empty Level 1 quote, taken from the engine's quote pool if it 
+     * has one. The caller should release() the quote after firing it.
+     * 
+     * @param ticker The ticker of the quote
+     * @param timeStamp The time of the quote
+     * @return An empty quote
+     */
+    protected PrimitiveLevel1Quote newLevel1Quote(Ticker ticker, ZonedDateTime timeStamp) {
+        Level1QuotePool pool = level1QuotePool;
+        if (pool == null) {
+            return new PrimitiveLevel1Quote(ticker, timeStamp);
+        }
+        return pool.acquire(ticker, timeStamp);
+    }
+
+    public Level1QuotePool getLevel1QuotePool() {
+        return level1QuotePool;
+    }
+
+    /**
+     * Sets the pool the engine takes Level 1 quotes from. Pooling is off by 
+     * default, when it is enabled quotes are reused once every listener has 
+     * received them, so listeners must copy() any quote they keep.
+     * 
+     * @param level1QuotePool The pool to use, or null to disable pooling.
+     */
+    public void setLevel1QuotePool(Level1QuotePool level1QuotePool) {
+        this.level1QuotePool = level1QuotePool;
+    }
+
+    /**
+     * Listeners subscribed with Level1DeliveryMode.CONFLATED are registered 
+     * wrapped in a ConflatedLevel1Subscription. 
+     * 
+     * @return The object registered for the listener.
+     */
+    protected Level1QuoteListener getRegisteredLevel1Listener(Ticker ticker, Level1QuoteListener listener) {
+        for (Level1QuoteListener registered : level1Listeners.getListeners(ticker)) {
+            if (registered.equals(listener)) {
+                return registered;
+            }
+            if (registered instanceof ConflatedLevel1Subscription
+                    && ((ConflatedLevel1Subscription) registered).getListener().equals(listener)) {
+                return registered;
+            }
+        }
+        return listener;
+    }
+
     @Override
     public void fireMarketDepthQuote(ILevel2Quote quote) {
-        synchronized (level2ListenerMap) {
-            List<Level2QuoteListener> listeners = level2ListenerMap.get(quote.getTicker());
-            if (listeners == null) {
-                return;
+        Ticker ticker = quote.getTicker();
+        Level2QuoteListener[] listeners = level2Listeners.getListeners(ticker);
+        if (listeners.length == 0) {
+            return;
+        }
+        IQuoteDispatcher dispatcher = getQuoteDispatcher();
+        for (Level2QuoteListener listener : listeners) {
+            if (listener instanceof ThrottledLevel2Subscription) {
+                ((ThrottledLevel2Subscription) listener).offer(quote);
+            } else {
+                dispatcher.dispatch(new LaneKey(ticker, listener), new Level2QuoteEvent(listener, quote));
+            }
+        }
+    }
+
+    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        level2Listeners.add(ticker, listener);
+    }
+
+    @Override
+    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener, MarketDepthRequest request) {
+        subscribeMarketDepth(ticker, new ThrottledLevel2Subscription(listener, request, ticker, this));
+    }
+
+    /**
+     * Delivers a market depth quote to the listener on its lane.
+     */
+    protected void dispatchMarketDepthQuote(Ticker ticker, Level2QuoteListener listener, ILevel2Quote quote) {
+        getQuoteDispatcher().dispatch(new LaneKey(ticker, listener), new Level2QuoteEvent(listener, quote));
+    }
+
+    public void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
+        Level2QuoteListener registered = getRegisteredLevel2Listener(ticker, listener);
+        level2Listeners.remove(ticker, registered);
+        if (registered instanceof ThrottledLevel2Subscription) {
+            ((ThrottledLevel2Subscription) registered).close();
+        }
+        releaseLane(ticker, registered);
+    }
+
+    /**
+     * Listeners subscribed with a MarketDepthRequest are registered wrapped in
+     * a ThrottledLevel2Subscription.
+     *
+     * @return The object registered for the listener.
+     */
+    protected Level2QuoteListener getRegisteredLevel2Listener(Ticker ticker, Level2QuoteListener listener) {
+        for (Level2QuoteListener registered : level2Listeners.getListeners(ticker)) {
+            if (registered.equals(listener)) {
+                return registered;
+            }
+            if (registered instanceof ThrottledLevel2Subscription
+                    && ((ThrottledLevel2Subscription) registered).getListener().equals(listener)) {
+                return registered;
             }
-            for (Level2QuoteListener listener : listeners) {
-                try {
-                    synchronized (listeners) {
-                        Thread thread = new Thread(() -> {
-                            listener.level2QuoteReceived(quote);
-                        });
-                        thread.start();
-                    }
-                } catch (Exception ex) {
-                    //   logger.error(ex, ex);
+        }
+        return listener;
+    }
+
+    /**
+     * Gets the scheduler used to publish market depth quotes which were held
+     * back by a subscription's minimum publish interval, creating it the first
+     * time it is needed.
+     *
+     * @return The scheduler for throttled market depth subscriptions.
+     */
+    protected ScheduledExecutorService getMarketDepthScheduler() {
+        ScheduledExecutorService scheduler = marketDepthScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = marketDepthScheduler;
+                if (scheduler == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        Thread thread = new Thread(runnable, "MarketDepthThrottle");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+                    executor.allowCoreThreadTimeOut(true);
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = executor;
+                    marketDepthScheduler = scheduler;
                 }
             }
         }
+        return scheduler;
     }
 
-    public void subscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
-        synchronized (ticker) {
-            List<Level2QuoteListener> listeners = level2ListenerMap.get(ticker);
-            if (listeners == null) {
-                listeners = Collections.synchronizedList(new ArrayList<Level2QuoteListener>());
-                level2ListenerMap.put(ticker, listeners);
+    /**
+     * Gets the dispatcher used to deliver quotes to listeners, creating an 
+     * OrderedQuoteDispatcher with the default settings if one hasn't been set.
+     * 
+     * @return The dispatcher for this quote engine.
+     */
+    public IQuoteDispatcher getQuoteDispatcher() {
+        IQuoteDispatcher dispatcher = quoteDispatcher;
+        if (dispatcher == null) {
+            synchronized (this) {
+                dispatcher = quoteDispatcher;
+                if (dispatcher == null) {
+                    dispatcher = new OrderedQuoteDispatcher();
+                    quoteDispatcher = dispatcher;
+                }
             }
-            listeners.add(listener);
         }
+        return dispatcher;
     }
 
-    public void unsubscribeMarketDepth(Ticker ticker, Level2QuoteListener listener) {
-        synchronized (ticker) {
-            List<Level2QuoteListener> listeners = level2ListenerMap.get(ticker);
-            if (listeners != null) {
-                listeners.remove(listener);
+    /**
+     * Sets the dispatcher used to deliver quotes to listeners.  Should be called
+     * before any quotes are fired.
+     * 
+     * @param quoteDispatcher The dispatcher to use.
+     */
+    public void setQuoteDispatcher(IQuoteDispatcher quoteDispatcher) {
+        this.quoteDispatcher = quoteDispatcher;
+    }
+
+    protected void releaseLane(Ticker ticker, Object listener) {
+        IQuoteDispatcher dispatcher = quoteDispatcher;
+        if (dispatcher != null) {
+            dispatcher.releaseLane(new LaneKey(ticker, listener));
+        }
+    }
+
+    /**
+     * Each listener gets its own lane per ticker so quotes for a ticker arrive
+     * in order, and a slow listener doesn't hold up the other listeners.
+     */
+    protected static class LaneKey {
+
+        protected final Ticker ticker;
+        protected final Object listener;
+
+        public LaneKey(Ticker ticker, Object listener) {
+            this.ticker = ticker;
+            this.listener = listener;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ticker.hashCode() + System.identityHashCode(listener);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LaneKey)) {
+                return false;
             }
+            LaneKey other = (LaneKey) obj;
+            return listener == other.listener && ticker.equals(other.ticker);
         }
     }
 }
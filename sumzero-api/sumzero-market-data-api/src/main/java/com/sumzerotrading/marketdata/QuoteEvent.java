@@ -0,0 +1,54 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+/**
+ * A quote waiting to be delivered to a listener.
+ */
+public abstract class QuoteEvent {
+
+    /**
+     * Delivers the quote to the listener.
+     */
+    public abstract void deliver();
+
+    /**
+     * Merges a newer event for the same listener into this one.
+     * 
+     * @param newerEvent The event that arrived after this one.
+     * @return The merged event, or null if the events can't be merged.
+     */
+    public abstract QuoteEvent conflate(QuoteEvent newerEvent);
+
+    /**
+     * @return true if this event should be merged into an event already
+     *         pending for the same listener rather than queued behind it.
+     */
+    public boolean isConflatable() {
+        return false;
+    }
+
+    /**
+     * Called when the event is dropped without being delivered.
+     */
+    public void discard() {
+    }
+
+}
@@ -0,0 +1,551 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.marketdata.MarketDepthBook.Side;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * An order book side kept sorted by price, best price first (bids descending,
+ * asks ascending). Prices and sizes are stored as unscaled longs with a fixed
+ * number of decimal places so that level lookups are a binary search on a
+ * primitive array, and size-only updates are O(log n) with no allocation.
+ *
+ * The total size of the book is maintained as levels change, and cumulative
+ * sizes are served from a prefix-sum array which is only recalculated from
+ * the first level that changed since the last query. Totals which don't fit
+ * in a long are capped at Long.MAX_VALUE rather than wrapping around.
+ *
+ * Levels passed in through the IMarketDepthBook methods are rounded to the
+ * book's price and size scales; the index passed to insertLevel() is only
+ * used as a bounds check since the level is always placed by its price.
+ *
+ * Feeds such as IB which maintain the book by row position rather than by
+ * price should use insertRow(), updateRow() and deleteRow() instead. These
+ * keep each row exactly where the feed puts it, including rows which share a
+ * price, so the book always has the same number of rows as the feed. A book
+ * should be maintained either by price or by position, not both.
+ *
+ * The book itself is not thread safe. Every change increments the book's
+ * sequence number, and snapshot() returns an immutable copy of the top levels
+ * tagged with that number which can safely be passed to other threads.
+ */
+public class SortedMarketDepthBook implements IMarketDepthBook {
+
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    protected final int priceScale;
+    protected final int sizeScale;
+    protected Side side;
+    protected long[] prices;
+    protected long[] sizes;
+    protected long[] cumulativeSizes;
+    protected int levelCount = 0;
+    protected long totalSize = 0;
+    protected boolean totalSizeCapped = false;
+    protected int validCumulativeCount = 0;
+    protected long sequence = 0;
+    protected MarketDepthSnapshot lastSnapshot;
+
+    /**
+     * Builds a new book
+     *
+     * @param priceScale The number of decimal places prices are stored with
+     * @param sizeScale The number of decimal places sizes are stored with
+     */
+    public SortedMarketDepthBook(int priceScale, int sizeScale) {
+        this(null, priceScale, sizeScale);
+    }
+
+    /**
+     * Builds a new book for the specified side
+     *
+     * @param side The side of the book, bid or ask
+     * @param priceScale The number of decimal places prices are stored with
+     * @param sizeScale The number of decimal places sizes are stored with
+     */
+    public SortedMarketDepthBook(Side side, int priceScale, int sizeScale) {
+        this.side = side;
+        this.priceScale = priceScale;
+        this.sizeScale = sizeScale;
+        prices = new long[DEFAULT_CAPACITY];
+        sizes = new long[DEFAULT_CAPACITY];
+        cumulativeSizes = new long[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Sets the size at the specified price, adding the level if it doesn't
+     * exist. A size of 0 removes the level from the book.
+     *
+     * @param price The unscaled price
+     * @param size The unscaled size
+     * @return The index of the level, or -1 if the level was removed.
+     */
+    public int setLevel(long price, long size) {
+        int index = indexOf(price);
+        if (size == 0) {
+            if (index >= 0) {
+                removeAt(index);
+            }
+            return -1;
+        }
+        return putLevel(index, price, size);
+    }
+
+    /**
+     * Removes the level at the specified price if it exists.
+     *
+     * @param price The unscaled price
+     * @return true if a level was removed.
+     */
+    public boolean removeLevel(long price) {
+        int index = indexOf(price);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Inserts a row at the specified position, shifting the rows below it down.
+     * Positions past the end of the book are ignored.
+     *
+     * @param position The row position
+     * @param price The unscaled price
+     * @param size The unscaled size
+     */
+    public void insertRow(int position, long price, long size) {
+        if (position < 0 || position > levelCount) {
+            return;
+        }
+        putLevel(-(position + 1), price, size);
+    }
+
+    /**
+     * Replaces the price and size of the row at the specified position.
+     * Positions past the end of the book are ignored.
+     *
+     * @param position The row position
+     * @param price The unscaled price
+     * @param size The unscaled size
+     */
+    public void updateRow(int position, long price, long size) {
+        if (position < 0 || position >= levelCount) {
+            return;
+        }
+        prices[position] = price;
+        setSizeAt(position, size);
+    }
+
+    /**
+     * Removes the row at the specified position, shifting the rows below it up.
+     * Positions past the end of the book are ignored.
+     *
+     * @param position The row position
+     */
+    public void deleteRow(int position) {
+        if (position < 0 || position >= levelCount) {
+            return;
+        }
+        removeAt(position);
+    }
+
+    /**
+     * Finds the level for the specified price.
+     *
+     * @param price The unscaled price
+     * @return The index of the level, or (-(insertion point) - 1) if there is
+     * no level at that price.
+     */
+    public int indexOf(long price) {
+        int low = 0;
+        int high = levelCount - 1;
+        boolean descending = isDescending();
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = prices[mid];
+            if (midPrice == price) {
+                return mid;
+            }
+            if ((midPrice < price) != descending) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @param index The level index
+     * @return The unscaled price of the level at the specified index
+     */
+    public long getScaledPriceAt(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    /**
+     * @param index The level index
+     * @return The unscaled size of the level at the specified index
+     */
+    public long getScaledSizeAt(int index) {
+        checkIndex(index);
+        return sizes[index];
+    }
+
+    /**
+     * @return The unscaled total size of the book
+     */
+    public long getScaledTotalSize() {
+        if (totalSizeCapped) {
+            long sum = 0;
+            for (int i = 0; i < levelCount; i++) {
+                sum = addCapped(sum, sizes[i]);
+            }
+            totalSize = sum;
+            totalSizeCapped = sum == Long.MAX_VALUE;
+        }
+        return totalSize;
+    }
+
+    /**
+     * Gets the unscaled cumulative size of the book up to and including the
+     * specified level.
+     *
+     * @param level The level to obtain the cumulative size up to.
+     * @return The unscaled cumulative size.
+     */
+    public long getScaledCumulativeSize(int level) {
+        if (level < 0 || levelCount == 0) {
+            return 0;
+        }
+        if (level >= levelCount - 1) {
+            return getScaledTotalSize();
+        }
+        updateCumulativeSizes(level);
+        return cumulativeSizes[level];
+    }
+
+    /**
+     * @return The number of changes made to this book, incremented every time
+     * a level is added, changed or removed.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Takes an immutable copy of the top levels of the book. If the book
+     * hasn't changed since the last snapshot of the same depth, the previous
+     * snapshot is returned instead of a new copy.
+     *
+     * @param maxLevels The maximum number of levels to copy, or
+     * MarketDepthSnapshot.ALL_LEVELS for the entire book.
+     * @return A snapshot tagged with the current sequence number.
+     */
+    public MarketDepthSnapshot snapshot(int maxLevels) {
+        int depth = Math.min(levelCount, Math.max(maxLevels, 0));
+        MarketDepthSnapshot snapshot = lastSnapshot;
+        if (snapshot != null && snapshot.getSequence() == sequence && snapshot.getLevelCount() == depth) {
+            return snapshot;
+        }
+        long[] snapshotCumulativeSizes = new long[depth];
+        if (depth > 0) {
+            updateCumulativeSizes(depth - 1);
+            System.arraycopy(cumulativeSizes, 0, snapshotCumulativeSizes, 0, depth);
+        }
+        snapshot = new MarketDepthSnapshot(side, sequence, priceScale, sizeScale, Arrays.copyOf(prices, depth), snapshotCumulativeSizes);
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return The number of decimal places prices are stored with.
+     */
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * @return The number of decimal places sizes are stored with.
+     */
+    public int getSizeScale() {
+        return sizeScale;
+    }
+
+    @Override
+    public Side getSide() {
+        return side;
+    }
+
+    @Override
+    public void setSide(Side side) {
+        boolean wasDescending = isDescending();
+        if (this.side != side) {
+            this.side = side;
+            sequence++;
+        }
+        if (wasDescending != isDescending()) {
+            for (int i = 0, j = levelCount - 1; i < j; i++, j--) {
+                swap(prices, i, j);
+                swap(sizes, i, j);
+            }
+            validCumulativeCount = 0;
+        }
+    }
+
+    @Override
+    public void addLevel(MarketDepthLevel level) {
+        long price = toPrice(level);
+        putLevel(indexOf(price), price, toSize(level));
+    }
+
+    @Override
+    public void insertLevel(int index, MarketDepthLevel level) {
+        if (levelCount >= index) {
+            addLevel(level);
+        }
+    }
+
+    @Override
+    public void updateLevel(int index, MarketDepthLevel level) {
+        if (levelCount > index) {
+            long price = toPrice(level);
+            if (prices[index] == price) {
+                setSizeAt(index, toSize(level));
+            } else {
+                removeAt(index);
+                putLevel(indexOf(price), price, toSize(level));
+            }
+        }
+    }
+
+    @Override
+    public void deleteLevel(int index) {
+        if (levelCount > index) {
+            removeAt(index);
+        }
+    }
+
+    @Override
+    public void clearLevels() {
+        levelCount = 0;
+        totalSize = 0;
+        totalSizeCapped = false;
+        validCumulativeCount = 0;
+        sequence++;
+    }
+
+    @Override
+    public void setLevels(MarketDepthLevel[] levelArray) {
+        for (MarketDepthLevel level : levelArray) {
+            addLevel(level);
+        }
+    }
+
+    @Override
+    public MarketDepthLevel getLevelAt(int index) {
+        checkIndex(index);
+        return buildLevel(index);
+    }
+
+    @Override
+    public MarketDepthLevel[] getLevels() {
+        MarketDepthLevel[] levels = new MarketDepthLevel[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = buildLevel(i);
+        }
+        return levels;
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    @Override
+    public BigDecimal getTotalSize() {
+        return BigDecimal.valueOf(getScaledTotalSize(), sizeScale);
+    }
+
+    @Override
+    public BigDecimal getCumulativeSize(int level) {
+        return BigDecimal.valueOf(getScaledCumulativeSize(level), sizeScale);
+    }
+
+    /**
+     * The book is always kept sorted, nothing to do here.
+     */
+    @Override
+    public void sort() {
+    }
+
+    protected int putLevel(int index, long price, long size) {
+        if (index >= 0) {
+            setSizeAt(index, size);
+            return index;
+        }
+        int insertAt = -(index + 1);
+        ensureCapacity(levelCount + 1);
+        int moved = levelCount - insertAt;
+        if (moved > 0) {
+            System.arraycopy(prices, insertAt, prices, insertAt + 1, moved);
+            System.arraycopy(sizes, insertAt, sizes, insertAt + 1, moved);
+        }
+        prices[insertAt] = price;
+        sizes[insertAt] = size;
+        levelCount++;
+        addToTotalSize(size);
+        invalidateFrom(insertAt);
+        return insertAt;
+    }
+
+    protected void setSizeAt(int index, long size) {
+        addToTotalSize(size - sizes[index]);
+        sizes[index] = size;
+        invalidateFrom(index);
+    }
+
+    protected void removeAt(int index) {
+        addToTotalSize(-sizes[index]);
+        int moved = levelCount - index - 1;
+        if (moved > 0) {
+            System.arraycopy(prices, index + 1, prices, index, moved);
+            System.arraycopy(sizes, index + 1, sizes, index, moved);
+        }
+        levelCount--;
+        invalidateFrom(index);
+    }
+
+    /**
+     * Once the total overflows it is no longer tracked incrementally, it is
+     * summed again by getScaledTotalSize() until it fits once more.
+     */
+    protected void addToTotalSize(long delta) {
+        if (!totalSizeCapped) {
+            long sum = totalSize + delta;
+            if (((totalSize ^ sum) & (delta ^ sum)) < 0) {
+                totalSizeCapped = true;
+            } else {
+                totalSize = sum;
+            }
+        }
+    }
+
+    protected static long addCapped(long sum, long size) {
+        long result = sum + size;
+        return ((sum ^ result) & (size ^ result)) < 0 ? Long.MAX_VALUE : result;
+    }
+
+    protected void invalidateFrom(int index) {
+        sequence++;
+        if (index < validCumulativeCount) {
+            validCumulativeCount = index;
+        }
+    }
+
+    protected void updateCumulativeSizes(int level) {
+        if (level >= validCumulativeCount) {
+            long sum = validCumulativeCount == 0 ? 0 : cumulativeSizes[validCumulativeCount - 1];
+            for (int i = validCumulativeCount; i <= level; i++) {
+                sum = addCapped(sum, sizes[i]);
+                cumulativeSizes[i] = sum;
+            }
+            validCumulativeCount = level + 1;
+        }
+    }
+
+    protected void ensureCapacity(int capacity) {
+        if (capacity > prices.length) {
+            int newLength = Math.max(capacity, prices.length * 2);
+            prices = Arrays.copyOf(prices, newLength);
+            sizes = Arrays.copyOf(sizes, newLength);
+            cumulativeSizes = Arrays.copyOf(cumulativeSizes, newLength);
+        }
+    }
+
+    protected boolean isDescending() {
+        return side == Side.BID;
+    }
+
+    protected MarketDepthLevel buildLevel(int index) {
+        return new MarketDepthLevel(side, BigDecimal.valueOf(prices[index], priceScale), BigDecimal.valueOf(sizes[index], sizeScale));
+    }
+
+    protected long toPrice(MarketDepthLevel level) {
+        return level.getPrice().setScale(priceScale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    protected long toSize(MarketDepthLevel level) {
+        return level.getSize().setScale(sizeScale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= levelCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + levelCount);
+        }
+    }
+
+    protected static void swap(long[] array, int i, int j) {
+        long temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < levelCount; i++) {
+            result = 31 * result + Long.hashCode(prices[i]);
+            result = 31 * result + Long.hashCode(sizes[i]);
+        }
+        result = 31 * result + ((side == null) ? 0 : side.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        SortedMarketDepthBook other = (SortedMarketDepthBook) obj;
+        if (side != other.side || priceScale != other.priceScale || sizeScale != other.sizeScale
+                || levelCount != other.levelCount) {
+            return false;
+        }
+        return Arrays.equals(prices, 0, levelCount, other.prices, 0, levelCount)
+                && Arrays.equals(sizes, 0, levelCount, other.sizes, 0, levelCount);
+    }
+
+    @Override
+    public String toString() {
+        return "SortedMarketDepthBook [levels=" + Arrays.toString(getLevels()) + ", side=" + side + "]";
+    }
+}
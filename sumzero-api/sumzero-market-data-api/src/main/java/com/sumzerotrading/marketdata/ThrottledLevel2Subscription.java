@@ -0,0 +1,165 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.Ticker;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registered in place of a listener which subscribed with a
+ * MarketDepthRequest. Quotes are copied and trimmed to the requested number
+ * of levels, dropped if those levels haven't changed since the last quote
+ * published for the same side, and held back until the minimum publish
+ * interval has elapsed. Since the copy is taken when the quote is offered, a
+ * held back quote shows the book as it was then even if the engine keeps
+ * changing its own book.
+ * Published quotes are dispatched back to this subscription on the listener's
+ * lane, and held back quotes are published from the quote engine's market
+ * depth scheduler.
+ */
+class ThrottledLevel2Subscription implements Level2QuoteListener {
+
+    protected final Level2QuoteListener listener;
+    protected final MarketDepthRequest request;
+    protected final Ticker ticker;
+    protected final QuoteEngine quoteEngine;
+    protected final long minIntervalNanos;
+    protected final SideState[] sides = {new SideState(), new SideState()};
+    protected volatile boolean closed = false;
+
+    public ThrottledLevel2Subscription(Level2QuoteListener listener, MarketDepthRequest request, Ticker ticker, QuoteEngine quoteEngine) {
+        this.listener = listener;
+        this.request = request;
+        this.ticker = ticker;
+        this.quoteEngine = quoteEngine;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(request.getMinPublishIntervalMillis());
+    }
+
+    @Override
+    public void level2QuoteReceived(ILevel2Quote quote) {
+        listener.level2QuoteReceived(quote);
+    }
+
+    /**
+     * Offers the latest quote for one side of the book, publishing it now,
+     * later or not at all.
+     *
+     * @param quote The latest quote from the quote engine.
+     */
+    public void offer(ILevel2Quote quote) {
+        IMarketDepthBook book = quote.getMarketDepthBook();
+        if (closed || book == null) {
+            return;
+        }
+        ILevel2Quote topQuote = getTopLevels(quote, book);
+        SideState state = sides[book.getSide() == MarketDepthBook.Side.BID ? 0 : 1];
+        ILevel2Quote toPublish = null;
+        synchronized (state) {
+            if (isUnchanged(state.published, topQuote)) {
+                //changed back to what the listener already has
+                state.pending = null;
+                return;
+            }
+            long now = System.nanoTime();
+            long wait = state.lastPublishTime + minIntervalNanos - now;
+            if (state.flushScheduled) {
+                state.pending = topQuote;
+            } else if (state.published == null || wait <= 0) {
+                toPublish = topQuote;
+                markPublished(state, topQuote, now);
+            } else {
+                state.pending = topQuote;
+                state.flushScheduled = true;
+                quoteEngine.getMarketDepthScheduler().schedule(() -> flush(state), wait, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (toPublish != null) {
+            quoteEngine.dispatchMarketDepthQuote(ticker, this, toPublish);
+        }
+    }
+
+    /**
+     * Publishes the quote held back while the interval hadn't elapsed.
+     */
+    protected void flush(SideState state) {
+        ILevel2Quote toPublish;
+        synchronized (state) {
+            state.flushScheduled = false;
+            toPublish = state.pending;
+            if (toPublish == null || closed) {
+                return;
+            }
+            markPublished(state, toPublish, System.nanoTime());
+        }
+        quoteEngine.dispatchMarketDepthQuote(ticker, this, toPublish);
+    }
+
+    /**
+     * Stops any quotes which are being held back from being published.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    protected void markPublished(SideState state, ILevel2Quote quote, long now) {
+        state.published = quote;
+        state.pending = null;
+        state.lastPublishTime = now;
+    }
+
+    protected boolean isUnchanged(ILevel2Quote published, ILevel2Quote quote) {
+        if (published == null) {
+            return false;
+        }
+        return ((MarketDepthSnapshot) published.getMarketDepthBook())
+                .hasSameTopLevels((MarketDepthSnapshot) quote.getMarketDepthBook(), request.getLevels());
+    }
+
+    /**
+     * Copies the requested number of levels out of the book, so the quote
+     * which is published or held back never sees later changes to it. A
+     * snapshot which already has no more levels than requested is passed on
+     * as it is.
+     */
+    protected ILevel2Quote getTopLevels(ILevel2Quote quote, IMarketDepthBook book) {
+        MarketDepthSnapshot topLevels = MarketDepthSnapshot.copyOf(book, request.getLevels());
+        if (topLevels == book) {
+            return quote;
+        }
+        QuoteType type = book.getSide() == MarketDepthBook.Side.BID ? QuoteType.MARKET_DEPTH_BID : QuoteType.MARKET_DEPTH_ASK;
+        return new Level2Quote(quote.getTicker(), type, quote.getTimeStamp(), topLevels);
+    }
+
+    public Level2QuoteListener getListener() {
+        return listener;
+    }
+
+    public MarketDepthRequest getRequest() {
+        return request;
+    }
+
+    protected static class SideState {
+
+        protected ILevel2Quote published;
+        protected ILevel2Quote pending;
+        protected long lastPublishTime;
+        protected boolean flushScheduled;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import com.sumzerotrading.util.QuoteUtil;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building and reading a bid/ask quote with the HashMap backed
+ * Level1Quote against PrimitiveLevel1Quote, both newly allocated and pooled.
+ * Run the main method to include the GC profiler, gc.alloc.rate.norm gives the
+ * bytes allocated per quote.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Level1QuoteBenchmark {
+
+    protected Ticker ticker = new StockTicker("ABC");
+    protected BigDecimal tickSize = ticker.getMinimumTickSize();
+    protected ZonedDateTime timeStamp = ZonedDateTime.now();
+    protected Level1QuotePool pool = new Level1QuotePool();
+    protected double bid = 100.25;
+    protected double ask = 100.26;
+
+    @Benchmark
+    public double level1Quote() {
+        Map<QuoteType, BigDecimal> values = new HashMap<>();
+        values.put(QuoteType.BID, QuoteUtil.getBigDecimalValue(ticker, bid));
+        values.put(QuoteType.ASK, QuoteUtil.getBigDecimalValue(ticker, ask));
+        ILevel1Quote quote = new Level1Quote(ticker, timeStamp, values);
+        return quote.getValue(QuoteType.BID).doubleValue() + quote.getValue(QuoteType.ASK).doubleValue();
+    }
+
+    @Benchmark
+    public double primitiveLevel1Quote() {
+        PrimitiveLevel1Quote quote = new PrimitiveLevel1Quote(ticker, timeStamp);
+        quote.setValue(QuoteType.BID, bid, tickSize);
+        quote.setValue(QuoteType.ASK, ask, tickSize);
+        return quote.getDouble(QuoteType.BID) + quote.getDouble(QuoteType.ASK);
+    }
+
+    @Benchmark
+    public double pooledPrimitiveLevel1Quote() {
+        PrimitiveLevel1Quote quote = pool.acquire(ticker, timeStamp);
+        quote.setValue(QuoteType.BID, bid, tickSize);
+        quote.setValue(QuoteType.ASK, ask, tickSize);
+        double total = quote.getDouble(QuoteType.BID) + quote.getDouble(QuoteType.ASK);
+        quote.release();
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(Level1QuoteBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -84,4 +84,35 @@ public class Level1QuoteTest {
         
                 
     }
+
+    @Test
+    public void testFixedPointValues() {
+        Map<QuoteType,BigDecimal> map = new HashMap<>();
+        map.put(QuoteType.BID, new BigDecimal("123.45"));
+        map.put(QuoteType.VOLUME, new BigDecimal("1234567890.1234567890123"));
+        Level1Quote quote = new Level1Quote(new StockTicker("ABC"), ZonedDateTime.now(), map);
+
+        assertEquals(12345L, quote.getLong(QuoteType.BID));
+        assertEquals(2, quote.getScale(QuoteType.BID));
+        assertEquals(123.45, quote.getDouble(QuoteType.BID), 0.0);
+
+        //more than 18 digits is rounded the same way PrimitiveLevel1Quote rounds it
+        PrimitiveLevel1Quote primitive = new PrimitiveLevel1Quote(quote.getTicker(), quote.getTimeStamp());
+        primitive.setValue(QuoteType.VOLUME, map.get(QuoteType.VOLUME));
+        assertEquals(primitive.getLong(QuoteType.VOLUME), quote.getLong(QuoteType.VOLUME));
+        assertEquals(primitive.getScale(QuoteType.VOLUME), quote.getScale(QuoteType.VOLUME));
+        assertEquals(123456789012345679L, quote.getLong(QuoteType.VOLUME));
+        assertEquals(8, quote.getScale(QuoteType.VOLUME));
+    }
+    
+    @Test
+    public void testGetLongAndDouble() {
+        Map<QuoteType,BigDecimal> map = new HashMap<>();
+        map.put(QuoteType.BID, new BigDecimal("123.45"));
+        Level1Quote quote = new Level1Quote(new StockTicker("ABC"), ZonedDateTime.now(), map);
+        
+        assertEquals(12345, quote.getLong(QuoteType.BID));
+        assertEquals(2, quote.getScale(QuoteType.BID));
+        assertEquals(123.45, quote.getDouble(QuoteType.BID), 0.0);
+    }
 }
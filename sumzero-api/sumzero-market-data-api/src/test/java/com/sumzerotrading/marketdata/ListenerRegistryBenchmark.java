@@ -0,0 +1,134 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how many quotes can be fired per second while another thread keeps
+ * subscribing and unsubscribing listeners on the same ticker. Compares the
+ * copy-on-write ListenerRegistry with the synchronized map of synchronized lists
+ * QuoteEngine used previously.
+ *
+ * Not run as part of the unit tests, run the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ListenerRegistryBenchmark {
+
+    protected static final int LISTENERS = 8;
+
+    protected Ticker ticker = new StockTicker("ABC");
+    protected ListenerRegistry<Level1QuoteListener> registry = new ListenerRegistry<>(new Level1QuoteListener[0]);
+    protected Map<Ticker, List<Level1QuoteListener>> synchronizedMap = Collections.synchronizedMap(new HashMap<Ticker, List<Level1QuoteListener>>());
+    protected Level1QuoteListener churnListener = quote -> {
+    };
+
+    @Setup
+    public void setup() {
+        List<Level1QuoteListener> list = Collections.synchronizedList(new ArrayList<Level1QuoteListener>());
+        synchronizedMap.put(ticker, list);
+        for (int i = 0; i < LISTENERS; i++) {
+            Level1QuoteListener listener = quote -> {
+            };
+            registry.add(ticker, listener);
+            list.add(listener);
+        }
+    }
+
+    @Benchmark
+    @Group("registry")
+    @GroupThreads(3)
+    public void registryFire(Blackhole blackhole) {
+        for (Level1QuoteListener listener : registry.getListeners(ticker)) {
+            blackhole.consume(listener);
+        }
+    }
+
+    @Benchmark
+    @Group("registry")
+    @GroupThreads(1)
+    public void registryChurn() {
+        registry.add(ticker, churnListener);
+        registry.remove(ticker, churnListener);
+    }
+
+    @Benchmark
+    @Group("synchronizedMap")
+    @GroupThreads(3)
+    public void synchronizedMapFire(Blackhole blackhole) {
+        List<Level1QuoteListener> listeners = synchronizedMap.get(ticker);
+        synchronized (listeners) {
+            for (Level1QuoteListener listener : listeners) {
+                blackhole.consume(listener);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("synchronizedMap")
+    @GroupThreads(1)
+    public void synchronizedMapChurn() {
+        synchronized (synchronizedMap) {
+            List<Level1QuoteListener> listeners = synchronizedMap.get(ticker);
+            synchronized (listeners) {
+                listeners.add(churnListener);
+            }
+        }
+        synchronized (synchronizedMap) {
+            List<Level1QuoteListener> listeners = synchronizedMap.get(ticker);
+            synchronized (listeners) {
+                listeners.remove(churnListener);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ListenerRegistryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ListenerRegistryTest {
+
+    protected Ticker ticker = new StockTicker("ABC");
+
+    @Test
+    public void testAddAndRemove() {
+        ListenerRegistry<String> registry = new ListenerRegistry<>(new String[0]);
+        registry.add(ticker, "a");
+        registry.add(ticker, "b");
+        registry.add(ticker, "c");
+        assertArrayEquals(new String[]{"a", "b", "c"}, registry.getListeners(ticker));
+
+        assertTrue(registry.remove(ticker, "b"));
+        assertArrayEquals(new String[]{"a", "c"}, registry.getListeners(ticker));
+        assertFalse(registry.remove(ticker, "b"));
+        assertFalse(registry.remove(new StockTicker("XYZ"), "a"));
+
+        registry.remove(ticker, "a");
+        registry.remove(ticker, "c");
+        assertFalse(registry.hasListeners(ticker));
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.getListeners(ticker).length);
+    }
+
+    @Test
+    public void testSnapshotNotAffectedByLaterChanges() {
+        ListenerRegistry<String> registry = new ListenerRegistry<>(new String[0]);
+        registry.add(ticker, "a");
+        String[] snapshot = registry.getListeners(ticker);
+        registry.add(ticker, "b");
+        registry.remove(ticker, "a");
+
+        assertArrayEquals(new String[]{"a"}, snapshot);
+        assertArrayEquals(new String[]{"b"}, registry.getListeners(ticker));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonEmptyArray() {
+        new ListenerRegistry<>(new String[]{"a"});
+    }
+
+    @Test
+    public void testConcurrentChurn() throws Exception {
+        final ListenerRegistry<Object> registry = new ListenerRegistry<>(new Object[0]);
+        final Object stable = new Object();
+        registry.add(ticker, stable);
+        final int threads = 4;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> error = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                Object[] listeners = registry.getListeners(ticker);
+                if (listeners.length == 0 || listeners[0] != stable) {
+                    error.set("Stable listener missing");
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    Object listener = new Object();
+                    registry.add(ticker, listener);
+                    registry.remove(ticker, listener);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        done.await();
+        running.set(false);
+        reader.join();
+        assertNull(error.get());
+        assertArrayEquals(new Object[]{stable}, registry.getListeners(ticker));
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.Ticker;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class OrderedQuoteDispatcherTest {
+
+    protected Ticker ticker = new StockTicker("ABC");
+    protected OrderedQuoteDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testQuotesDeliveredInOrderPerLane() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(4, 10000, OverflowPolicy.BLOCK);
+        int quoteCount = 5000;
+        CountDownLatch latch = new CountDownLatch(quoteCount * 2);
+        List<Integer> received1 = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> received2 = Collections.synchronizedList(new ArrayList<>());
+        Level1QuoteListener listener1 = quote -> {
+            received1.add(quote.getValue(QuoteType.LAST).intValue());
+            latch.countDown();
+        };
+        Level1QuoteListener listener2 = quote -> {
+            received2.add(quote.getValue(QuoteType.LAST).intValue());
+            latch.countDown();
+        };
+
+        for (int i = 0; i < quoteCount; i++) {
+            ILevel1Quote quote = buildQuote(QuoteType.LAST, i);
+            dispatcher.dispatch("lane1", new Level1QuoteEvent(listener1, quote));
+            dispatcher.dispatch("lane2", new Level1QuoteEvent(listener2, quote));
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < quoteCount; i++) {
+            assertEquals(i, received1.get(i).intValue());
+            assertEquals(i, received2.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testListenerExceptionDoesntStopLane() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(1, 10, OverflowPolicy.BLOCK);
+        CountDownLatch latch = new CountDownLatch(2);
+        Level1QuoteListener listener = quote -> {
+            latch.countDown();
+            throw new IllegalStateException("bogus");
+        };
+
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.BID, 1)));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.BID, 2)));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(1, 2, OverflowPolicy.DROP_OLDEST);
+        BlockingListener listener = new BlockingListener(3);
+
+        //first quote is taken by the worker which then blocks in the listener
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 0)));
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, i)));
+        }
+
+        assertEquals(2, dispatcher.getPendingCount("lane"));
+        assertEquals(2, dispatcher.getDroppedCount());
+
+        listener.release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, listener.received.size());
+        assertEquals(0, listener.received.get(0).getValue(QuoteType.LAST).intValue());
+        assertEquals(3, listener.received.get(1).getValue(QuoteType.LAST).intValue());
+        assertEquals(4, listener.received.get(2).getValue(QuoteType.LAST).intValue());
+    }
+
+    @Test
+    public void testConflate() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(1, 1, OverflowPolicy.CONFLATE);
+        BlockingListener listener = new BlockingListener(2);
+
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 0)));
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.BID, 1)));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.ASK, 2)));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.BID, 3)));
+
+        assertEquals(1, dispatcher.getPendingCount("lane"));
+        assertEquals(2, dispatcher.getConflatedCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+
+        listener.release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, listener.received.size());
+        ILevel1Quote merged = listener.received.get(1);
+        assertEquals(3, merged.getValue(QuoteType.BID).intValue());
+        assertEquals(2, merged.getValue(QuoteType.ASK).intValue());
+        assertFalse(merged.containsType(QuoteType.LAST));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(1, 1, OverflowPolicy.BLOCK);
+        BlockingListener listener = new BlockingListener(3);
+
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 0)));
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 1)));
+
+        CountDownLatch producerDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 2)));
+            producerDone.countDown();
+        });
+        producer.start();
+
+        assertFalse(producerDone.await(200, TimeUnit.MILLISECONDS));
+        listener.release.countDown();
+        assertTrue(producerDone.await(5, TimeUnit.SECONDS));
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, listener.received.size());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void testDefaultPolicyDoesNotBlock() {
+        dispatcher = new OrderedQuoteDispatcher();
+        assertEquals(OverflowPolicy.CONFLATE, dispatcher.getOverflowPolicy());
+    }
+
+    @Test
+    public void testReleasedLaneIsReusedWhileDraining() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(2, 10, OverflowPolicy.DROP_OLDEST);
+        BlockingListener listener = new BlockingListener(3);
+
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 0)));
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 1)));
+        dispatcher.releaseLane("lane");
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 2)));
+
+        //both pending quotes are on the original lane, so a second worker can't deliver 2 before 1
+        assertEquals(2, dispatcher.getPendingCount("lane"));
+        assertEquals(1, dispatcher.lanes.size());
+
+        listener.release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, listener.received.get(i).getValue(QuoteType.LAST).intValue());
+        }
+    }
+
+    @Test
+    public void testReleasedLaneIsRemovedOnceIdle() throws Exception {
+        dispatcher = new OrderedQuoteDispatcher(1, 10, OverflowPolicy.DROP_OLDEST);
+        BlockingListener listener = new BlockingListener(2);
+
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 0)));
+        assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("lane", new Level1QuoteEvent(listener, buildQuote(QuoteType.LAST, 1)));
+        dispatcher.releaseLane("lane");
+        assertEquals(1, dispatcher.lanes.size());
+
+        listener.release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!dispatcher.lanes.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(dispatcher.lanes.isEmpty());
+        assertEquals(2, listener.received.size());
+    }
+
+    protected ILevel1Quote buildQuote(QuoteType type, int value) {
+        Map<QuoteType, BigDecimal> map = new HashMap<>();
+        map.put(type, new BigDecimal(value));
+        return new Level1Quote(ticker, ZonedDateTime.now(), map);
+    }
+
+    /**
+     * Blocks on the first quote until released, so the test can fill up the lane.
+     */
+    protected static class BlockingListener implements Level1QuoteListener {
+
+        protected CountDownLatch started = new CountDownLatch(1);
+        protected CountDownLatch release = new CountDownLatch(1);
+        protected CountDownLatch done = new CountDownLatch(1);
+        protected List<ILevel1Quote> received = Collections.synchronizedList(new ArrayList<>());
+        protected volatile boolean first = true;
+        protected int expected;
+
+        public BlockingListener(int expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public void quoteRecieved(ILevel1Quote quote) {
+            received.add(quote);
+            if (first) {
+                first = false;
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (received.size() >= expected) {
+                done.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sumzerotrading.data.StockTicker;
+import com.sumzerotrading.data.SumZeroException;
+import com.sumzerotrading.data.Ticker;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PrimitiveLevel1QuoteTest {
+
+    protected Ticker ticker = new StockTicker("ABC");
+
+    @Test
+    public void testSetAndGetValues() {
+        PrimitiveLevel1Quote quote = new PrimitiveLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.BID, 12345, 2);
+        quote.setValue(QuoteType.ASK, 123.4567, 3);
+        quote.setValue(QuoteType.BID_SIZE, new BigDecimal("500"));
+
+        assertEquals(new BigDecimal("123.45"), quote.getValue(QuoteType.BID));
+        assertEquals(12345, quote.getLong(QuoteType.BID));
+        assertEquals(2, quote.getScale(QuoteType.BID));
+        assertEquals(123.45, quote.getDouble(QuoteType.BID), 0.0);
+
+        assertEquals(new BigDecimal("123.457"), quote.getValue(QuoteType.ASK));
+        assertEquals(500, quote.getLong(QuoteType.BID_SIZE));
+
+        assertEquals(Arrays.asList(QuoteType.BID, QuoteType.ASK, QuoteType.BID_SIZE), Arrays.asList(quote.getTypes()));
+        assertTrue(quote.containsType(QuoteType.ASK));
+        assertFalse(quote.containsType(QuoteType.LAST));
+
+        quote.removeValue(QuoteType.ASK);
+        assertFalse(quote.containsType(QuoteType.ASK));
+    }
+
+    @Test(expected = SumZeroException.class)
+    public void testMissingType() {
+        new PrimitiveLevel1Quote(ticker, ZonedDateTime.now()).getLong(QuoteType.LAST);
+    }
+
+    @Test
+    public void testRoundToTickSize() {
+        PrimitiveLevel1Quote quote = new PrimitiveLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.LAST, 100.12, new BigDecimal("0.25"));
+        assertEquals(new BigDecimal("100.00"), quote.getValue(QuoteType.LAST));
+
+        quote.setValue(QuoteType.LAST, 100.13, new BigDecimal("0.25"));
+        assertEquals(new BigDecimal("100.25"), quote.getValue(QuoteType.LAST));
+    }
+
+    @Test
+    public void testSetLargePrecisionBigDecimal() {
+        PrimitiveLevel1Quote quote = new PrimitiveLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.FUNDING_RATE, new BigDecimal(0.1));
+        assertEquals(0.1, quote.getDouble(QuoteType.FUNDING_RATE), 1e-15);
+    }
+
+    @Test
+    public void testCopyAndEquals() {
+        PrimitiveLevel1Quote quote = new PrimitiveLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.BID, 10, 0);
+        PrimitiveLevel1Quote copy = quote.copy();
+        assertEquals(quote, copy);
+        assertEquals(quote.hashCode(), copy.hashCode());
+
+        quote.setValue(QuoteType.BID, 11, 0);
+        assertFalse(quote.equals(copy));
+        assertEquals(10, copy.getLong(QuoteType.BID));
+    }
+
+    @Test
+    public void testPoolReusesReleasedQuotes() {
+        Level1QuotePool pool = new Level1QuotePool(2);
+        PrimitiveLevel1Quote quote = pool.acquire(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.BID, 10, 0);
+        quote.retain();
+
+        quote.release();
+        assertEquals(0, pool.getFreeCount());
+        quote.release();
+        assertEquals(1, pool.getFreeCount());
+
+        PrimitiveLevel1Quote reused = pool.acquire(new StockTicker("XYZ"), ZonedDateTime.now());
+        assertSame(quote, reused);
+        assertEquals(0, reused.getTypes().length);
+        assertEquals(new StockTicker("XYZ"), reused.getTicker());
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    public void testPoolReleasedAfterDelivery() throws Exception {
+        Level1QuotePool pool = new Level1QuotePool();
+        QuoteEngine engine = new QuoteEngineTest().createNewQuoteEngine();
+        engine.setLevel1QuotePool(pool);
+        final BigDecimal[] received = new BigDecimal[2];
+        final CountDownLatch latch = new CountDownLatch(2);
+        engine.subscribeLevel1(ticker, quote -> {
+            received[0] = quote.getValue(QuoteType.BID);
+            latch.countDown();
+        });
+        engine.subscribeLevel1(ticker, quote -> {
+            received[1] = quote.getValue(QuoteType.BID);
+            latch.countDown();
+        });
+
+        PrimitiveLevel1Quote quote = engine.newLevel1Quote(ticker, ZonedDateTime.now());
+        quote.setValue(QuoteType.BID, 5, 0);
+        engine.fireLevel1Quote(quote);
+        quote.release();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(BigDecimal.valueOf(5), received[0]);
+        assertEquals(BigDecimal.valueOf(5), received[1]);
+        for (int i = 0; i < 50 && pool.getFreeCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getFreeCount());
+        engine.getQuoteDispatcher().shutdown();
+    }
+}
@@ -25,10 +25,16 @@ import java.util.List;
 import java.util.Map;
 import com.sumzerotrading.data.Ticker;
 import com.sumzerotrading.data.StockTicker;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.jmock.Expectations;
 import static org.jmock.Expectations.returnValue;
 import static org.jmock.Expectations.throwException;
@@ -132,23 +138,25 @@ public class QuoteEngineTest {
         
         Ticker ticker = new StockTicker( "ABC" );
         
-        assertEquals( 0, engine.level1ListenerMap.size() );
+        assertEquals( 0, engine.level1Listeners.size() );
         
         engine.subscribeLevel1(ticker, listener1);
-        assertEquals( 1, engine.level1ListenerMap.size() );
-        assertEquals( 1, engine.level1ListenerMap.get(ticker).size() );
+        assertEquals( 1, engine.level1Listeners.size() );
+        assertEquals( 1, engine.level1Listeners.getListeners(ticker).length );
         
         engine.subscribeLevel1(ticker, listener2);
-        assertEquals( 1, engine.level1ListenerMap.size() );
-        assertEquals( 2, engine.level1ListenerMap.get(ticker).size() );
+        assertEquals( 1, engine.level1Listeners.size() );
+        assertEquals( 2, engine.level1Listeners.getListeners(ticker).length );
         
         engine.unsubscribeLevel1(ticker, listener2);
-        assertEquals( 1, engine.level1ListenerMap.size() );
-        assertEquals( 1, engine.level1ListenerMap.get(ticker).size() );        
+        assertEquals( 1, engine.level1Listeners.size() );
+        assertEquals( 1, engine.level1Listeners.getListeners(ticker).length );
+        assertSame( listener1, engine.level1Listeners.getListeners(ticker)[0] );
         
         engine.unsubscribeLevel1(ticker, listener1);
-        assertEquals( 1, engine.level1ListenerMap.size() );
-        assertEquals( 0, engine.level1ListenerMap.get(ticker).size() );                
+        assertEquals( 0, engine.level1Listeners.size() );
+        assertEquals( 0, engine.level1Listeners.getListeners(ticker).length );
+        assertFalse( engine.level1Listeners.hasListeners(ticker) );
         
     }
     
@@ -174,23 +182,23 @@ public class QuoteEngineTest {
         
         Ticker ticker = new StockTicker( "ABC" );
         
-        assertEquals( 0, engine.level1ListenerMap.size() );
+        assertEquals( 0, engine.level2Listeners.size() );
         
         engine.subscribeMarketDepth(ticker, listener1);
-        assertEquals( 1, engine.level2ListenerMap.size() );
-        assertEquals( 1, engine.level2ListenerMap.get(ticker).size() );
+        assertEquals( 1, engine.level2Listeners.size() );
+        assertEquals( 1, engine.level2Listeners.getListeners(ticker).length );
         
         engine.subscribeMarketDepth(ticker, listener2);
-        assertEquals( 1, engine.level2ListenerMap.size() );
-        assertEquals( 2, engine.level2ListenerMap.get(ticker).size() );
+        assertEquals( 1, engine.level2Listeners.size() );
+        assertEquals( 2, engine.level2Listeners.getListeners(ticker).length );
         
         engine.unsubscribeMarketDepth(ticker, listener2);
-        assertEquals( 1, engine.level2ListenerMap.size() );
-        assertEquals( 1, engine.level2ListenerMap.get(ticker).size() );        
+        assertEquals( 1, engine.level2Listeners.size() );
+        assertEquals( 1, engine.level2Listeners.getListeners(ticker).length );
         
         engine.unsubscribeMarketDepth(ticker, listener1);
-        assertEquals( 1, engine.level2ListenerMap.size() );
-        assertEquals( 0, engine.level2ListenerMap.get(ticker).size() );               
+        assertEquals( 0, engine.level2Listeners.size() );
+        assertEquals( 0, engine.level2Listeners.getListeners(ticker).length );
     }
     
     
@@ -200,16 +208,13 @@ public class QuoteEngineTest {
         
         QuoteEngine quoteEngine = createNewQuoteEngine();
         final ILevel1Quote mockQuote = mock( ILevel1Quote.class );
-        final Map<Ticker, List<Level1QuoteListener>> listenerMap = new HashMap<>();
         final Ticker ticker = new StockTicker( "ABC" );
         final Level1QuoteListener mockListener = mock( Level1QuoteListener.class );
-        final List<Level1QuoteListener> listenerList = new ArrayList<>();
-        listenerList.add( mockListener );
-        listenerMap.put(ticker, listenerList);
-        quoteEngine.level1ListenerMap = listenerMap;
+        quoteEngine.subscribeLevel1(ticker, mockListener);
         
         
         when(mockQuote.getTicker()).thenReturn(ticker);
+        when(mockQuote.getTypes()).thenReturn(new QuoteType[0]);
         
         quoteEngine.fireLevel1Quote(mockQuote);
         
@@ -221,19 +226,191 @@ public class QuoteEngineTest {
     }    
        
     
+    @Test
+    public void testFireLevel1Quote_DeliveredInOrder() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        quoteEngine.setQuoteDispatcher(new OrderedQuoteDispatcher(4, 1000, OverflowPolicy.BLOCK));
+        final Ticker ticker = new StockTicker( "ABC" );
+        final List<ILevel1Quote> received = Collections.synchronizedList(new ArrayList<ILevel1Quote>());
+        final CountDownLatch latch = new CountDownLatch(500);
+        quoteEngine.subscribeLevel1(ticker, quote -> {
+            received.add(quote);
+            latch.countDown();
+        });
+
+        List<ILevel1Quote> fired = new ArrayList<>();
+        for( int i = 0; i < 500; i++ ) {
+            ILevel1Quote quote = buildQuote(ticker, QuoteType.LAST, i);
+            fired.add(quote);
+            quoteEngine.fireLevel1Quote(quote);
+        }
+
+        assertTrue( latch.await(5, TimeUnit.SECONDS) );
+        assertEquals( fired, received );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+
+
+    @Test
+    public void testFireLevel1Quote_Conflated() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        final CountDownLatch firstQuoteReceived = new CountDownLatch(1);
+        final CountDownLatch releaseListener = new CountDownLatch(1);
+        final CountDownLatch allReceived = new CountDownLatch(2);
+        final List<ILevel1Quote> slowQuotes = Collections.synchronizedList(new ArrayList<ILevel1Quote>());
+        final List<ILevel1Quote> fastQuotes = Collections.synchronizedList(new ArrayList<ILevel1Quote>());
+        Level1QuoteListener slowListener = quote -> {
+            slowQuotes.add(quote);
+            firstQuoteReceived.countDown();
+            try {
+                releaseListener.await();
+            } catch (InterruptedException ex) {
+            }
+            allReceived.countDown();
+        };
+        quoteEngine.subscribeLevel1(ticker, slowListener, Level1DeliveryMode.CONFLATED);
+        quoteEngine.subscribeLevel1(ticker, fastQuotes::add, Level1DeliveryMode.ALL_QUOTES);
+
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 1));
+        assertTrue( firstQuoteReceived.await(5, TimeUnit.SECONDS) );
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 2));
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.ASK, 3));
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 4));
+        releaseListener.countDown();
+
+        assertTrue( allReceived.await(5, TimeUnit.SECONDS) );
+        Thread.sleep(100);
+        assertEquals( 2, slowQuotes.size() );
+        assertEquals( 4, slowQuotes.get(1).getValue(QuoteType.BID).intValue() );
+        assertEquals( 3, slowQuotes.get(1).getValue(QuoteType.ASK).intValue() );
+        assertEquals( 2, quoteEngine.getConflatedLevel1Count() );
+        assertEquals( 4, fastQuotes.size() );
+
+        quoteEngine.unsubscribeLevel1(ticker, slowListener);
+        assertEquals( 1, quoteEngine.level1Listeners.getListeners(ticker).length );
+        assertFalse( quoteEngine.level1Listeners.getListeners(ticker)[0] instanceof ConflatedLevel1Subscription );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+
+
+    @Test
+    public void testGetSnapshot() {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        assertNull( quoteEngine.getSnapshot(ticker) );
+        
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 10));
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.ASK, 11));
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 12));
+        
+        ILevel1Quote snapshot = quoteEngine.getSnapshot(ticker);
+        assertEquals( 12, snapshot.getLong(QuoteType.BID) );
+        assertEquals( 11, snapshot.getLong(QuoteType.ASK) );
+        assertFalse( snapshot.containsType(QuoteType.LAST) );
+        assertEquals( ticker, snapshot.getTicker() );
+        assertNull( quoteEngine.getSnapshot(new StockTicker("XYZ")) );
+    }
+    
+    
+    @Test
+    public void testSubscribeLevel1_SnapshotReplayed() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.CLOSE, 50));
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.OPEN, 51));
+        
+        final List<ILevel1Quote> received = Collections.synchronizedList(new ArrayList<ILevel1Quote>());
+        final CountDownLatch latch = new CountDownLatch(2);
+        quoteEngine.subscribeLevel1(ticker, quote -> {
+            received.add(quote);
+            latch.countDown();
+        });
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.LAST, 52));
+        
+        assertTrue( latch.await(5, TimeUnit.SECONDS) );
+        ILevel1Quote snapshot = received.get(0);
+        assertEquals( 50, snapshot.getLong(QuoteType.CLOSE) );
+        assertEquals( 51, snapshot.getLong(QuoteType.OPEN) );
+        assertEquals( 52, received.get(1).getLong(QuoteType.LAST) );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+
+
+    @Test
+    public void testSnapshotUpdatedInPlace() {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 10));
+        PrimitiveLevel1Quote cached = quoteEngine.level1Snapshots.snapshots.get(ticker).quote;
+        
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 11));
+        assertSame( cached, quoteEngine.level1Snapshots.snapshots.get(ticker).quote );
+        
+        //callers get their own copy
+        ILevel1Quote snapshot = quoteEngine.getSnapshot(ticker);
+        assertNotSame( cached, snapshot );
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 12));
+        assertEquals( 11, snapshot.getLong(QuoteType.BID) );
+    }
+    
+    
+    @Test
+    public void testUnsubscribeLevel1_SnapshotEvicted() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        Level1QuoteListener first = quote -> {};
+        Level1QuoteListener second = quote -> {};
+        quoteEngine.subscribeLevel1(ticker, first);
+        quoteEngine.subscribeLevel1(ticker, second);
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 10));
+        
+        quoteEngine.unsubscribeLevel1(ticker, first);
+        assertNotNull( quoteEngine.getSnapshot(ticker) );
+        
+        quoteEngine.unsubscribeLevel1(ticker, second);
+        assertNull( quoteEngine.getSnapshot(ticker) );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+    
+    
+    @Test
+    public void testSubscribeLevel1_StaleSnapshotNotReplayed() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        quoteEngine.setMaxSnapshotReplayAgeMillis(1);
+        final Ticker ticker = new StockTicker( "ABC" );
+        //a quote which arrived after the last listener unsubscribed
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.BID, 10));
+        Thread.sleep(20);
+        
+        final LinkedBlockingQueue<ILevel1Quote> received = new LinkedBlockingQueue<>();
+        quoteEngine.subscribeLevel1(ticker, received::add);
+        assertNull( quoteEngine.getSnapshot(ticker) );
+        
+        quoteEngine.fireLevel1Quote(buildQuote(ticker, QuoteType.ASK, 11));
+        ILevel1Quote quote = received.poll(5, TimeUnit.SECONDS);
+        assertFalse( quote.containsType(QuoteType.BID) );
+        assertNull( received.poll(200, TimeUnit.MILLISECONDS) );
+        
+        //a listener joining a ticker which already has listeners always gets the snapshot
+        Thread.sleep(20);
+        final LinkedBlockingQueue<ILevel1Quote> second = new LinkedBlockingQueue<>();
+        quoteEngine.subscribeLevel1(ticker, second::add);
+        assertEquals( 11, second.poll(5, TimeUnit.SECONDS).getLong(QuoteType.ASK) );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+    
+    
     @Test
     public void testFireLevel1Quote_ThrowsException() {
         QuoteEngine quoteEngine = createNewQuoteEngine();
         final ILevel1Quote mockQuote = mock( ILevel1Quote.class );
-        final Map mockLevel1ListenerMap = mock( Map.class );
         final Ticker ticker = new StockTicker( "ABC" );
         final Level1QuoteListener mockListener = mock( Level1QuoteListener.class );
-        final List<Level1QuoteListener> mockListenerList = new ArrayList<Level1QuoteListener>();
-        mockListenerList.add( mockListener );
-        quoteEngine.level1ListenerMap = mockLevel1ListenerMap;
+        quoteEngine.subscribeLevel1(ticker, mockListener);
         
         when(mockQuote.getTicker()).thenReturn(ticker);
-        when(mockLevel1ListenerMap.get(ticker)).thenReturn(mockListenerList);
+        when(mockQuote.getTypes()).thenReturn(new QuoteType[0]);
         doThrow(new IllegalStateException("bogus")).when(mockListener).quoteRecieved(mockQuote);
         
         try {
@@ -248,22 +425,21 @@ public class QuoteEngineTest {
     public void testFireLevel1Quote_NoListeners() {
         QuoteEngine quoteEngine = createNewQuoteEngine();
         final ILevel1Quote mockQuote = mockery.mock( ILevel1Quote.class );
-        final Map mockLevel1ListenerMap = mockery.mock( Map.class );
         final Ticker ticker = new StockTicker( "ABC" );
-        quoteEngine.level1ListenerMap = mockLevel1ListenerMap;
         
         
         mockery.checking( new Expectations() {{
             one(mockQuote).getTicker();
             will(returnValue(ticker));
             
-            one(mockLevel1ListenerMap).get(ticker);
-            will(returnValue(null));
-            
+            allowing(mockQuote).getTimeStamp();
+            allowing(mockQuote).getTypes();
+            will(returnValue(new QuoteType[0]));
         }});
         
         quoteEngine.fireLevel1Quote(mockQuote);
         mockery.assertIsSatisfied();
+        assertNull( quoteEngine.quoteDispatcher );
         
     }
     
@@ -273,21 +449,15 @@ public class QuoteEngineTest {
     public void testFireMarketDepthQuote() throws Exception {
         QuoteEngine quoteEngine = createNewQuoteEngine();
         final ILevel2Quote mockQuote = mockery.mock( ILevel2Quote.class );
-        final Map mockLevel2ListenerMap = mockery.mock( Map.class );
         final Ticker ticker = new StockTicker( "ABC" );
         final Level2QuoteListener mockListener = mockery.mock( Level2QuoteListener.class );
-        final List<Level2QuoteListener> mockListenerList = new ArrayList<Level2QuoteListener>();
-        mockListenerList.add( mockListener );
-        quoteEngine.level2ListenerMap = mockLevel2ListenerMap;
+        quoteEngine.subscribeMarketDepth(ticker, mockListener);
         
         
         mockery.checking( new Expectations() {{
             one(mockQuote).getTicker();
             will(returnValue(ticker));
             
-            one(mockLevel2ListenerMap).get(ticker);
-            will(returnValue(mockListenerList));
-            
             one(mockListener).level2QuoteReceived(mockQuote);
             
         }});
@@ -306,32 +476,131 @@ public class QuoteEngineTest {
     
 
     
+    @Test
+    public void testSubscribeMarketDepth_Request_OnlyTopLevelChanges() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        final LinkedBlockingQueue<ILevel2Quote> received = new LinkedBlockingQueue<>();
+        Level2QuoteListener listener = received::add;
+        quoteEngine.subscribeMarketDepth(ticker, listener, new MarketDepthRequest(2, 0));
+        
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.BID, 2, 0);
+        book.setLevel(300, 100);
+        book.setLevel(299, 200);
+        book.setLevel(298, 300);
+        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, QuoteType.MARKET_DEPTH_BID, ZonedDateTime.now(), book.snapshot(MarketDepthSnapshot.ALL_LEVELS)));
+        
+        //outside the top 2 levels, not published
+        book.setLevel(298, 400);
+        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, QuoteType.MARKET_DEPTH_BID, ZonedDateTime.now(), book.snapshot(MarketDepthSnapshot.ALL_LEVELS)));
+        
+        book.setLevel(300, 50);
+        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, QuoteType.MARKET_DEPTH_BID, ZonedDateTime.now(), book.snapshot(MarketDepthSnapshot.ALL_LEVELS)));
+        
+        ILevel2Quote first = received.poll(5, TimeUnit.SECONDS);
+        assertEquals( 2, first.getMarketDepthBook().getLevelCount() );
+        assertEquals( 300, first.getMarketDepthBook().getTotalSize().intValue() );
+        
+        ILevel2Quote second = received.poll(5, TimeUnit.SECONDS);
+        assertEquals( 2, second.getMarketDepthBook().getLevelCount() );
+        assertEquals( 250, second.getMarketDepthBook().getTotalSize().intValue() );
+        
+        assertNull( received.poll(200, TimeUnit.MILLISECONDS) );
+        
+        quoteEngine.unsubscribeMarketDepth(ticker, listener);
+        assertEquals( 0, quoteEngine.level2Listeners.size() );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+    
+    @Test
+    public void testSubscribeMarketDepth_Request_Throttled() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        final LinkedBlockingQueue<ILevel2Quote> received = new LinkedBlockingQueue<>();
+        quoteEngine.subscribeMarketDepth(ticker, received::add, new MarketDepthRequest(5, 250));
+        
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0);
+        long start = System.nanoTime();
+        for (int i = 1; i <= 10; i++) {
+            book.setLevel(300, i);
+            quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, QuoteType.MARKET_DEPTH_ASK, ZonedDateTime.now(), book.snapshot(MarketDepthSnapshot.ALL_LEVELS)));
+        }
+        
+        ILevel2Quote first = received.poll(5, TimeUnit.SECONDS);
+        assertEquals( 1, first.getMarketDepthBook().getTotalSize().intValue() );
+        
+        //everything in between is conflated into the latest book once the interval is up
+        ILevel2Quote second = received.poll(5, TimeUnit.SECONDS);
+        assertTrue( System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200) );
+        assertEquals( 10, second.getMarketDepthBook().getTotalSize().intValue() );
+        
+        assertNull( received.poll(400, TimeUnit.MILLISECONDS) );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+    
+    
+    @Test
+    public void testSubscribeMarketDepth_Request_MutableBookIsCopied() throws Exception {
+        QuoteEngine quoteEngine = createNewQuoteEngine();
+        final Ticker ticker = new StockTicker( "ABC" );
+        final LinkedBlockingQueue<ILevel2Quote> received = new LinkedBlockingQueue<>();
+        quoteEngine.subscribeMarketDepth(ticker, received::add, new MarketDepthRequest(2, 250));
+        
+        IMarketDepthBook book = MarketDepthBook.newInstance();
+        book.setSide(MarketDepthBook.Side.BID);
+        book.addLevel(new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.00"), 100));
+        book.addLevel(new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("2.99"), 200));
+        book.addLevel(new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("2.98"), 300));
+        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, QuoteType.MARKET_DEPTH_BID, ZonedDateTime.now(), book));
+        
+        //held back by the interval, the engine keeps changing the same book
+        book.updateLevel(0, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.00"), 50));
+        quoteEngine.fireMarketDepthQuote(new Level2Quote(ticker, QuoteType.MARKET_DEPTH_BID, ZonedDateTime.now(), book));
+        book.updateLevel(0, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.00"), 10));
+        
+        ILevel2Quote first = received.poll(5, TimeUnit.SECONDS);
+        assertNotSame( book, first.getMarketDepthBook() );
+        assertEquals( 2, first.getMarketDepthBook().getLevelCount() );
+        assertEquals( 300, first.getMarketDepthBook().getTotalSize().intValue() );
+        
+        ILevel2Quote second = received.poll(5, TimeUnit.SECONDS);
+        assertEquals( 2, second.getMarketDepthBook().getLevelCount() );
+        assertEquals( 250, second.getMarketDepthBook().getTotalSize().intValue() );
+        assertEquals( 0, new BigDecimal("2.99").compareTo(second.getMarketDepthBook().getLevelAt(1).getPrice()) );
+        
+        assertNull( received.poll(400, TimeUnit.MILLISECONDS) );
+        quoteEngine.getQuoteDispatcher().shutdown();
+    }
+    
+    
     @Test
     public void testFireLevelMarketDepthQuote_NoListeners() {
         QuoteEngine quoteEngine = createNewQuoteEngine();
         final ILevel2Quote mockQuote = mockery.mock( ILevel2Quote.class );
-        final Map mockLevel2ListenerMap = mockery.mock( Map.class );
         final Ticker ticker = new StockTicker( "ABC" );
-        quoteEngine.level2ListenerMap = mockLevel2ListenerMap;
         
         
         mockery.checking( new Expectations() {{
             one(mockQuote).getTicker();
             will(returnValue(ticker));
-            
-            one(mockLevel2ListenerMap).get(ticker);
-            will(returnValue(null));
-            
         }});
         
         quoteEngine.fireMarketDepthQuote(mockQuote);
         mockery.assertIsSatisfied();
+        assertNull( quoteEngine.quoteDispatcher );
         
     }
         
     
     
     
+    protected ILevel1Quote buildQuote(Ticker ticker, QuoteType type, int value) {
+        Map<QuoteType, BigDecimal> values = new HashMap<>();
+        values.put(type, new BigDecimal(value));
+        return new Level1Quote(ticker, ZonedDateTime.now(), values);
+    }
+    
+    
     protected QuoteEngine createNewQuoteEngine() {
         return new QuoteEngine() {
 
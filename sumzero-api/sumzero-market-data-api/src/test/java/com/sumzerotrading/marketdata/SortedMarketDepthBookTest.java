@@ -0,0 +1,253 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import java.math.BigDecimal;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SortedMarketDepthBookTest {
+
+    @Test
+    public void testSetLevel_KeepsBidsSortedDescending() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.BID, 2, 0);
+        book.setLevel(300, 400);
+        book.setLevel(302, 200);
+        book.setLevel(301, 1000);
+
+        assertEquals(3, book.getLevelCount());
+        assertEquals(302, book.getScaledPriceAt(0));
+        assertEquals(301, book.getScaledPriceAt(1));
+        assertEquals(300, book.getScaledPriceAt(2));
+        assertEquals(new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.02"), 200), book.getLevelAt(0));
+    }
+
+    @Test
+    public void testSetLevel_UpdateAndRemove() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0);
+        book.setLevel(300, 400);
+        book.setLevel(301, 1000);
+        book.setLevel(302, 200);
+
+        assertEquals(1, book.setLevel(301, 500));
+        assertEquals(3, book.getLevelCount());
+        assertEquals(1100, book.getScaledTotalSize());
+
+        assertEquals(-1, book.setLevel(300, 0));
+        assertEquals(2, book.getLevelCount());
+        assertEquals(301, book.getScaledPriceAt(0));
+        assertEquals(700, book.getScaledTotalSize());
+
+        assertFalse(book.removeLevel(300));
+        assertTrue(book.removeLevel(302));
+        assertEquals(500, book.getScaledTotalSize());
+    }
+
+    @Test
+    public void testGetTotalAndCumulativeSize() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0);
+        book.addLevel(new MarketDepthLevel(MarketDepthBook.Side.ASK, new BigDecimal("3.02"), 200));
+        book.addLevel(new MarketDepthLevel(MarketDepthBook.Side.ASK, new BigDecimal("3.00"), 400));
+        book.addLevel(new MarketDepthLevel(MarketDepthBook.Side.ASK, new BigDecimal("3.01"), 1000));
+
+        assertEquals(1600, book.getTotalSize().intValue());
+        assertEquals(400, book.getCumulativeSize(0).intValue());
+        assertEquals(1400, book.getCumulativeSize(1).intValue());
+        assertEquals(1600, book.getCumulativeSize(2).intValue());
+        assertEquals(1600, book.getCumulativeSize(5).intValue());
+        assertEquals(0, book.getCumulativeSize(-1).intValue());
+
+        //Changing the first level must invalidate the cached sums
+        book.setLevel(300, 100);
+        assertEquals(100, book.getCumulativeSize(0).intValue());
+        assertEquals(1100, book.getCumulativeSize(1).intValue());
+        assertEquals(1300, book.getTotalSize().intValue());
+
+        book.clearLevels();
+        assertEquals(0, book.getLevelCount());
+        assertEquals(0, book.getTotalSize().intValue());
+    }
+
+    @Test
+    public void testIndexedOperations() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.BID, 2, 0);
+        book.insertLevel(0, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.00"), 100));
+        book.insertLevel(5, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.05"), 100));
+        assertEquals(1, book.getLevelCount());
+
+        book.insertLevel(0, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.01"), 200));
+        assertEquals(301, book.getScaledPriceAt(0));
+
+        //same price only changes the size
+        book.updateLevel(1, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.00"), 300));
+        assertEquals(300, book.getScaledSizeAt(1));
+
+        //a new price moves the level to its sorted position
+        book.updateLevel(1, new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.02"), 50));
+        assertEquals(2, book.getLevelCount());
+        assertEquals(302, book.getScaledPriceAt(0));
+        assertEquals(301, book.getScaledPriceAt(1));
+        assertEquals(250, book.getScaledTotalSize());
+
+        book.deleteLevel(5);
+        assertEquals(2, book.getLevelCount());
+        book.deleteLevel(0);
+        assertEquals(1, book.getLevelCount());
+        assertEquals(301, book.getScaledPriceAt(0));
+    }
+
+    @Test
+    public void testRowOperations_DuplicatePrices() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.BID, 2, 0);
+        book.insertRow(0, 300, 100);
+        book.insertRow(1, 299, 200);
+        //two market makers at the same price are two rows
+        book.insertRow(1, 300, 50);
+        assertEquals(3, book.getLevelCount());
+        assertEquals(300, book.getScaledPriceAt(1));
+        assertEquals(299, book.getScaledPriceAt(2));
+        assertEquals(350, book.getScaledTotalSize());
+
+        //later positional operations still line up with the feed's rows
+        book.updateRow(2, 298, 75);
+        assertEquals(298, book.getScaledPriceAt(2));
+        assertEquals(75, book.getScaledSizeAt(2));
+        book.deleteRow(0);
+        assertEquals(2, book.getLevelCount());
+        assertEquals(300, book.getScaledPriceAt(0));
+        assertEquals(50, book.getScaledSizeAt(0));
+        assertEquals(125, book.getScaledTotalSize());
+        assertEquals(125, book.getScaledCumulativeSize(1));
+
+        //positions past the end are ignored
+        book.insertRow(5, 297, 1);
+        book.updateRow(2, 297, 1);
+        book.deleteRow(2);
+        assertEquals(2, book.getLevelCount());
+    }
+
+    @Test
+    public void testSetSide_ReordersLevels() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(2, 0);
+        book.setLevel(300, 1);
+        book.setLevel(301, 2);
+        book.setLevel(302, 3);
+        assertEquals(300, book.getScaledPriceAt(0));
+        assertEquals(1, book.getScaledCumulativeSize(0));
+
+        book.setSide(MarketDepthBook.Side.BID);
+        assertEquals(MarketDepthBook.Side.BID, book.getSide());
+        assertEquals(302, book.getScaledPriceAt(0));
+        assertEquals(3, book.getScaledCumulativeSize(0));
+        assertEquals(0, book.indexOf(302));
+        assertEquals(-4, book.indexOf(299));
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 0, 0);
+        for (int i = 100; i > 0; i--) {
+            book.setLevel(i, i);
+        }
+        assertEquals(100, book.getLevelCount());
+        assertEquals(5050, book.getScaledTotalSize());
+        assertEquals(15, book.getScaledCumulativeSize(4));
+        assertEquals(1, book.getScaledPriceAt(0));
+        assertEquals(100, book.getLevels().length);
+    }
+
+    @Test
+    public void testSnapshot() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.BID, 2, 0);
+        book.setLevel(300, 400);
+        book.setLevel(301, 1000);
+        book.setLevel(302, 200);
+
+        MarketDepthSnapshot snapshot = book.snapshot(2);
+        assertEquals(book.getSequence(), snapshot.getSequence());
+        assertEquals(MarketDepthBook.Side.BID, snapshot.getSide());
+        assertEquals(2, snapshot.getLevelCount());
+        assertEquals(302, snapshot.getScaledPriceAt(0));
+        assertEquals(1000, snapshot.getScaledSizeAt(1));
+        assertEquals(1200, snapshot.getTotalSize().intValue());
+        assertEquals(200, snapshot.getCumulativeSize(0).intValue());
+        assertEquals(new MarketDepthLevel(MarketDepthBook.Side.BID, new BigDecimal("3.01"), 1000), snapshot.getLevelAt(1));
+
+        //unchanged book, same snapshot
+        assertSame(snapshot, book.snapshot(2));
+
+        book.setLevel(302, 0);
+        assertEquals(302, snapshot.getScaledPriceAt(0));
+        assertEquals(2, snapshot.getLevelCount());
+
+        MarketDepthSnapshot next = book.snapshot(MarketDepthSnapshot.ALL_LEVELS);
+        assertTrue(next.getSequence() > snapshot.getSequence());
+        assertEquals(2, next.getLevelCount());
+        assertEquals(301, next.getScaledPriceAt(0));
+        assertEquals(1400, next.getTotalSize().intValue());
+    }
+
+    @Test
+    public void testSnapshot_IsImmutable() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0);
+        book.setLevel(300, 400);
+        MarketDepthSnapshot snapshot = book.snapshot(MarketDepthSnapshot.ALL_LEVELS);
+        try {
+            snapshot.deleteLevel(0);
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            //this should happen
+        }
+        try {
+            snapshot.addLevel(new MarketDepthLevel(MarketDepthBook.Side.ASK, BigDecimal.ONE, 1));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            //this should happen
+        }
+        assertEquals(1, snapshot.getLevelCount());
+
+        MarketDepthSnapshot empty = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0).snapshot(5);
+        assertEquals(0, empty.getLevelCount());
+        assertEquals(0, empty.getTotalSize().intValue());
+    }
+
+    @Test
+    public void testTotalSize_IsCappedInsteadOfOverflowing() {
+        SortedMarketDepthBook book = new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0);
+        book.setLevel(300, Long.MAX_VALUE - 10);
+        book.setLevel(301, 100);
+        book.setLevel(302, 5);
+
+        assertEquals(Long.MAX_VALUE, book.getScaledTotalSize());
+        assertEquals(Long.MAX_VALUE, book.getScaledCumulativeSize(1));
+        assertEquals(Long.MAX_VALUE, book.snapshot(3).getScaledCumulativeSize(2));
+
+        book.removeLevel(301);
+        assertEquals(Long.MAX_VALUE - 5, book.getScaledTotalSize());
+        book.setLevel(300, 20);
+        assertEquals(25, book.getScaledTotalSize());
+        assertEquals(20, book.getScaledCumulativeSize(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetLevelAt_OutOfBounds() {
+        new SortedMarketDepthBook(MarketDepthBook.Side.ASK, 2, 0).getLevelAt(0);
+    }
+}
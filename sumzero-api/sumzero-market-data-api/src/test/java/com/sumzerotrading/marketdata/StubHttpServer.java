@@ -0,0 +1,126 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2015  Rob Terpilowski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.sumzerotrading.marketdata;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A local HTTP server which stands in for an exchange's REST endpoint in
+ * tests. Each request is mapped to a key, such as the market in the path or
+ * the coin in the body, and answered with the JSON built for that key after
+ * the delay set for it. Requests are served concurrently on kept alive
+ * connections, and the highest number in flight at once is recorded.
+ */
+public class StubHttpServer implements AutoCloseable {
+
+    protected final HttpServer server;
+    protected final ExecutorService executor = Executors.newCachedThreadPool();
+    protected final BiFunction<String, String, String> keyFunction;
+    protected final Function<String, String> responseFunction;
+    protected final Map<String, Long> delays = new ConcurrentHashMap<>();
+    protected final AtomicInteger inFlight = new AtomicInteger();
+    protected final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * @param keyFunction Maps the request path and body to the key of the
+     * request
+     * @param responseFunction Builds the JSON response for a key
+     */
+    public StubHttpServer(BiFunction<String, String, String> keyFunction, Function<String, String> responseFunction) throws IOException {
+        this.keyFunction = keyFunction;
+        this.responseFunction = responseFunction;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return The server's base url, without a trailing slash
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setDelay(String key, long delayMillis) {
+        delays.put(key, delayMillis);
+    }
+
+    /**
+     * @return The most requests that were being answered at the same time
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        try {
+            String key = keyFunction.apply(exchange.getRequestURI().getPath(), readBody(exchange.getRequestBody()));
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delays.getOrDefault(key, 0L));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            byte[] body = responseFunction.apply(key).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException ex) {
+            // the server is shutting down
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}